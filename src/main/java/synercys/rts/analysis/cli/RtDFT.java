@@ -21,9 +21,9 @@ import java.util.concurrent.Callable;
 public class RtDFT implements Callable {
     protected static final Logger loggerConsole = LogManager.getLogger("console");
 
-    static final int EXIT_CODE_NORMAL = 0;
-    static final int EXIT_CODE_PRINT_HELP = 1;
-    static final int EXIT_CODE_PRINT_REQUIRED_OPTIONS = 2;
+    public static final int EXIT_CODE_NORMAL = 0;
+    public static final int EXIT_CODE_PRINT_HELP = 1;
+    public static final int EXIT_CODE_PRINT_REQUIRED_OPTIONS = 2;
 
     @CommandLine.Option(names = {"--options"}, required = false, description = "Show all option names.")
     protected boolean optionShowOptionNames = false;
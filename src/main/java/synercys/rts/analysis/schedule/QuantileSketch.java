@@ -0,0 +1,105 @@
+package synercys.rts.analysis.schedule;
+
+/**
+ * QuantileSketch.java
+ * Purpose: A log-linear (HDR-histogram style) sketch of non-negative long values for quantile queries in bounded
+ *          memory. Values below 128 are counted exactly; above that, each power-of-two range [2^(6+r), 2^(7+r)) is
+ *          split into 64 buckets of width 2^r, so a reported quantile is within 0.8% of a recorded value. Rows of
+ *          buckets are allocated when first used, so a sketch of values within a few powers of two takes a few
+ *          hundred longs regardless of how many values are recorded.
+ */
+public class QuantileSketch {
+    private static final int EXACT_LIMIT = 128;
+    private static final int SUB_BUCKET_COUNT = 64;
+    private static final int ROW_COUNT = 58;    // row r (r >= 1) holds [2^(6+r), 2^(7+r)), up to 2^63
+
+    private final long[][] rows = new long[ROW_COUNT][];
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Only non-negative values can be recorded: " + value);
+        int row = getRow(value);
+        if (rows[row] == null)
+            rows[row] = new long[(row == 0) ? EXACT_LIMIT : SUB_BUCKET_COUNT];
+        rows[row][getBucket(value, row)]++;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @param quantile in [0, 1] (e.g., 0.99)
+     * @return the value at the given quantile (the midpoint of its bucket, clamped to the recorded range), or 0 if
+     *         nothing is recorded
+     */
+    public long getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1)
+            throw new IllegalArgumentException("The quantile must be in [0, 1]: " + quantile);
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(quantile*count));
+        long accumulatedCount = 0;
+        for (int row=0; row<ROW_COUNT; row++) {
+            if (rows[row] == null)
+                continue;
+            for (int bucket=0; bucket<rows[row].length; bucket++) {
+                accumulatedCount += rows[row][bucket];
+                if (accumulatedCount >= rank) {
+                    long bucketWidth = (row == 0) ? 1 : (1L << row);
+                    long bucketBegin = (row == 0) ? bucket : ((long) (SUB_BUCKET_COUNT + bucket) << row);
+                    long value = bucketBegin + (bucketWidth - 1)/2;
+                    return Math.max(min, Math.min(max, value));
+                }
+            }
+        }
+        return max;
+    }
+
+    public void merge(QuantileSketch other) {
+        for (int row=0; row<ROW_COUNT; row++) {
+            if (other.rows[row] == null)
+                continue;
+            if (rows[row] == null)
+                rows[row] = new long[other.rows[row].length];
+            for (int bucket=0; bucket<rows[row].length; bucket++)
+                rows[row][bucket] += other.rows[row][bucket];
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest recorded value (0 if nothing is recorded)
+     */
+    public long getMin() {
+        return (count == 0) ? 0 : min;
+    }
+
+    /**
+     * @return the largest recorded value (0 if nothing is recorded)
+     */
+    public long getMax() {
+        return (count == 0) ? 0 : max;
+    }
+
+    private static int getRow(long value) {
+        if (value < EXACT_LIMIT)
+            return 0;
+        return (63 - Long.numberOfLeadingZeros(value)) - 6;
+    }
+
+    private static int getBucket(long value, int row) {
+        if (row == 0)
+            return (int) value;
+        return (int) (value >>> row) - SUB_BUCKET_COUNT;
+    }
+}
@@ -12,14 +12,24 @@ public class ScheduleAnalysisReport extends Report {
     public TaskSet taskSet;
 
     public int contextSwitches;
+    public StreamingScheduleStatistics statistics;
+    /* Not filled by ScheduleTester, which no longer keeps each job's response time (see statistics). */
     public HashMap<Task, List<Double>> rawResponseTimeRatioToPeriod;
     public HashMap<Task, Double> meanResponseTimeRatioToPeriod;
     public HashMap<Task, Double> taskExecutionRangeRatioToPeriod;
     public HashMap<Task, Double> taskDeadlineMissRate;
 
     public double getMeanResponseTimeRatioToPeriod() {
-        int ratioLength = 0;
+        long ratioLength = 0;
         double ratioSum = 0.0;
+        if (rawResponseTimeRatioToPeriod == null) {
+            for (Task task : taskSet.getRunnableTasksAsArray()) {
+                StreamingScheduleStatistics.TaskStatistics taskStatistics = statistics.getTaskStatistics(task);
+                ratioLength += taskStatistics.getCompletedJobCount();
+                ratioSum += taskStatistics.getResponseTimeRatioToPeriodSum();
+            }
+            return (ratioLength == 0) ? 0 : ratioSum/(double)ratioLength;
+        }
         for (List<Double> ratioList : rawResponseTimeRatioToPeriod.values()) {
             ratioLength += ratioList.size();
             for (Double ratio : ratioList) {
@@ -46,6 +56,36 @@ public class ScheduleAnalysisReport extends Report {
         return geometricMean;
     }
 
+    /**
+     * @param quantile e.g., 0.99 for p99
+     * @return the mean over tasks of each task's response time quantile divided by its period,
+     *         or 0 if no task has a completed job
+     */
+    public double getMeanResponseTimeQuantileRatioToPeriod(double quantile) {
+        double sum = 0;
+        int length = 0;
+        for (Task task : taskSet.getRunnableTasksAsArray()) {
+            StreamingScheduleStatistics.TaskStatistics taskStatistics = statistics.getTaskStatistics(task);
+            if (taskStatistics.getCompletedJobCount() == 0)
+                continue;
+            sum += (double)taskStatistics.getResponseTimeQuantile(quantile)/task.getPeriod();
+            length++;
+        }
+        if (length == 0)
+            return 0;
+        return sum/length;
+    }
+
+    public double getMeanStartTimeJitterRatioToPeriod() {
+        double sum = 0;
+        int length = 0;
+        for (Task task : taskSet.getRunnableTasksAsArray()) {
+            sum += (double)statistics.getTaskStatistics(task).getStartTimeJitter()/task.getPeriod();
+            length++;
+        }
+        return sum/length;
+    }
+
     public double getMeanDeadlineMissRate() {
         double sum = 0;
         for (Task task : taskSet.getRunnableTasksAsArray()) {
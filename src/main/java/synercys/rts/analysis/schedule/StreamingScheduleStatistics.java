@@ -0,0 +1,192 @@
+package synercys.rts.analysis.schedule;
+
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventSink;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+
+import java.util.HashMap;
+
+/**
+ * StreamingScheduleStatistics.java
+ * Purpose: Schedule statistics collected in a single pass over the schedule events. As an EventSink it can be
+ *          attached to a scheduler simulator (AdvanceableSchedulerSimulator.runSimWithOffset(offset, duration, sink))
+ *          so that the schedule is never held in memory. The memory used is constant in the schedule length: each
+ *          task has primitive accumulators and a QuantileSketch of its response times.
+ *
+ *          For each task it tracks the jobs (by their start events), the deadline misses and the response times (by
+ *          the end events), and the start delays (start time - arrival time) whose range is the start-time jitter.
+ *          The execution range of a task is [min start delay, max response time] relative to the job arrivals.
+ */
+public class StreamingScheduleStatistics implements EventSink {
+    protected TaskSet taskSet;
+    protected HashMap<Task, TaskStatistics> taskStatistics = new HashMap<>();
+
+    protected long contextSwitchCount = 0;
+    protected long lastEndTimestamp = 0;
+    protected boolean firstEvent = true;
+
+    public StreamingScheduleStatistics(TaskSet taskSet) {
+        this.taskSet = taskSet;
+        for (Task task : taskSet.getRunnableTasksAsArray()) {
+            taskStatistics.put(task, new TaskStatistics(task));
+        }
+    }
+
+    @Override
+    public void add(SchedulerIntervalEvent inSchedulerIntervalEvent) {
+        Task task = inSchedulerIntervalEvent.getTask();
+        if (task == null || task.isIdleTaskType())
+            return;
+        TaskStatistics statistics = taskStatistics.get(task);
+        if (statistics == null)
+            return;
+
+        /* A context switch to this interval, and another one if the processor was idle in between. */
+        contextSwitchCount++;
+        if (!firstEvent && lastEndTimestamp != inSchedulerIntervalEvent.getOrgBeginTimestamp())
+            contextSwitchCount++;
+        firstEvent = false;
+        lastEndTimestamp = inSchedulerIntervalEvent.getOrgEndTimestamp();
+
+        long jobArrivalTime = inSchedulerIntervalEvent.getJobInitialArrivalTime();
+        if (inSchedulerIntervalEvent.isStartEvent()) {
+            statistics.recordJobStart(inSchedulerIntervalEvent.getOrgBeginTimestamp() - jobArrivalTime);
+        }
+        if (inSchedulerIntervalEvent.isEndEvent()) {
+            statistics.recordJobEnd(inSchedulerIntervalEvent.getOrgEndTimestamp() - jobArrivalTime, inSchedulerIntervalEvent.isDeadlineMissed());
+        }
+    }
+
+    @Override
+    public void add(TaskInstantEvent inTaskInstantEvent) {
+        // Task instant events are not used.
+    }
+
+    public long getContextSwitchCount() {
+        return contextSwitchCount;
+    }
+
+    public TaskStatistics getTaskStatistics(Task task) {
+        return taskStatistics.get(task);
+    }
+
+    public TaskSet getTaskSet() {
+        return taskSet;
+    }
+
+    public static class TaskStatistics {
+        protected final Task task;
+        protected boolean jobOpen = false;
+
+        protected long jobCount = 0;            // jobs that started
+        protected long deadlineMissCount = 0;
+
+        protected long responseTimeSum = 0;
+        protected double responseTimeSquareSum = 0;
+        protected final QuantileSketch responseTimes = new QuantileSketch();
+
+        protected long startDelaySum = 0;
+        protected long minStartDelay = Long.MAX_VALUE;
+        protected long maxStartDelay = Long.MIN_VALUE;
+
+        TaskStatistics(Task task) {
+            this.task = task;
+        }
+
+        void recordJobStart(long startDelay) {
+            jobOpen = true;
+            jobCount++;
+            startDelaySum += startDelay;
+            minStartDelay = Math.min(minStartDelay, startDelay);
+            maxStartDelay = Math.max(maxStartDelay, startDelay);
+        }
+
+        void recordJobEnd(long responseTime, boolean deadlineMissed) {
+            if (!jobOpen)
+                throw new AssertionError("A schedule closing event does not have a starting event.");
+            jobOpen = false;
+            responseTimeSum += responseTime;
+            responseTimeSquareSum += (double) responseTime*responseTime;
+            responseTimes.record(responseTime);
+            if (deadlineMissed)
+                deadlineMissCount++;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+
+        public long getJobCount() {
+            return jobCount;
+        }
+
+        public long getCompletedJobCount() {
+            return responseTimes.getCount();
+        }
+
+        public long getDeadlineMissCount() {
+            return deadlineMissCount;
+        }
+
+        public double getDeadlineMissRate() {
+            return (double) deadlineMissCount/jobCount;
+        }
+
+        public double getMeanResponseTime() {
+            return (double) responseTimeSum/responseTimes.getCount();
+        }
+
+        public double getResponseTimeStandardDeviation() {
+            long n = responseTimes.getCount();
+            if (n == 0)
+                return 0;
+            double mean = (double) responseTimeSum/n;
+            return Math.sqrt(Math.max(0, responseTimeSquareSum/n - mean*mean));
+        }
+
+        /**
+         * @param quantile in [0, 1] (e.g., 0.99 for p99)
+         * @return the response time at the given quantile (within 0.8%)
+         */
+        public long getResponseTimeQuantile(double quantile) {
+            return responseTimes.getQuantile(quantile);
+        }
+
+        public long getMinResponseTime() {
+            return responseTimes.getMin();
+        }
+
+        public long getMaxResponseTime() {
+            return responseTimes.getMax();
+        }
+
+        /**
+         * @return the sum of (response time / period) over the completed jobs
+         */
+        public double getResponseTimeRatioToPeriodSum() {
+            return (double) responseTimeSum/task.getPeriod();
+        }
+
+        public double getMeanStartDelay() {
+            return (double) startDelaySum/jobCount;
+        }
+
+        /**
+         * @return the absolute start-time jitter (max start delay - min start delay), or 0 if no job started
+         */
+        public long getStartTimeJitter() {
+            return (jobCount == 0) ? 0 : maxStartDelay - minStartDelay;
+        }
+
+        /**
+         * @return the length of [min start delay, max response time], or 0 if no job started
+         */
+        public long getExecutionRange() {
+            if (jobCount == 0)
+                return 0;
+            return Math.max(maxStartDelay, responseTimes.getMax()) - minStartDelay;
+        }
+    }
+}
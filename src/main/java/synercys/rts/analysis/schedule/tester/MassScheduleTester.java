@@ -5,10 +5,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import synercys.rts.analysis.MassTester;
 import synercys.rts.analysis.schedule.ScheduleAnalysisReport;
+import synercys.rts.analysis.schedule.StreamingScheduleStatistics;
 import synercys.rts.framework.TaskSet;
+import synercys.rts.scheduler.BatchSchedulerSimulator;
 import synercys.rts.scheduler.TaskSetContainer;
 import synercys.rts.scheduler.TaskSetGenerator;
 
+import java.util.ArrayList;
+
 public class MassScheduleTester extends MassTester {
     // This test takes -d parameter in the unit of "the number of LCM"
     // This test yields "mean response time ratio to period" and "mean execution range ratio to period" for each task set
@@ -17,6 +21,8 @@ public class MassScheduleTester extends MassTester {
 
     private static final Logger loggerConsole = LogManager.getLogger("console");
 
+    protected boolean batchSimulation = true;
+
     public MassScheduleTester(String logFilePath, TaskSetContainer taskSetContainer) {
         super(logFilePath, taskSetContainer);
     }
@@ -44,23 +50,51 @@ public class MassScheduleTester extends MassTester {
                         + "Context Switches,"
                         + "Mean Deadline Miss Rate,"
                         + "Mean Response Time Ratio To Period,"
-                        + "Mean Execution Range Ratio To Period"
+                        + "Mean Execution Range Ratio To Period,"
+                        + "Mean P50 Response Time Ratio To Period,"
+                        + "Mean P99 Response Time Ratio To Period,"
+                        + "Mean P99.9 Response Time Ratio To Period,"
+                        + "Mean Start Time Jitter Ratio To Period"
         );
         fileTestLog.writeString("\n");
 
+        ArrayList<TaskSet> taskSets = taskSetContainer.getTaskSets();
+        long lcmCount = runDuration;    // for the test case TEST_CASES_SCHEDULEAK_DURATION
+
+        long[] batchDurations = null;
+        ScheduleAnalysisReport[] batchReports = null;
+        if (batchSimulation && BatchSchedulerSimulator.isSupported(taskSets, schedulingPolicy, executionVariation)) {
+            loggerConsole.info("Simulating {} task sets in a batch ...", taskSets.size());
+            // Created first since it assigns the priorities (as the schedulers do) that the LCM durations depend on.
+            BatchSchedulerSimulator batchSimulator = new BatchSchedulerSimulator(taskSets, schedulingPolicy);
+            batchDurations = new long[taskSets.size()];
+            for (int i=0; i<taskSets.size(); i++) {
+                if (testCase.equalsIgnoreCase(TEST_CASES_SCHEDULEAK_DURATION))
+                    batchDurations[i] = TaskSetGenerator.getLCMDurationOfDefaultObserverVictimTasks(taskSets.get(i))*lcmCount; // from lcm to ticks
+                else
+                    batchDurations[i] = runDuration;
+            }
+            batchReports = runBatch(batchSimulator, taskSets, batchDurations);
+        }
+
         int taskSetCount = 0;
         int totalNumberOfTaskSet = taskSetContainer.size();
-        long lcmCount = runDuration;    // for the test case TEST_CASES_SCHEDULEAK_DURATION
-        for (TaskSet taskSet : taskSetContainer.getTaskSets()) {
+        for (TaskSet taskSet : taskSets) {
             taskSetCount++;
             loggerConsole.info("Testing TaskSet #{}\t{}/{} ...", taskSet.getId(), taskSetCount, totalNumberOfTaskSet);
 
-            ScheduleTester tester = new ScheduleTester(taskSet, schedulingPolicy, executionVariation);
+            ScheduleAnalysisReport report;
+            if (batchReports != null) {
+                runDuration = batchDurations[taskSetCount - 1];
+                report = batchReports[taskSetCount - 1];
+            } else {
+                ScheduleTester tester = new ScheduleTester(taskSet, schedulingPolicy, executionVariation);
 
-            if (testCase.equalsIgnoreCase(TEST_CASES_SCHEDULEAK_DURATION))
-                runDuration = TaskSetGenerator.getLCMDurationOfDefaultObserverVictimTasks(taskSet)*lcmCount; // from lcm to ticks
+                if (testCase.equalsIgnoreCase(TEST_CASES_SCHEDULEAK_DURATION))
+                    runDuration = TaskSetGenerator.getLCMDurationOfDefaultObserverVictimTasks(taskSet)*lcmCount; // from lcm to ticks
 
-            ScheduleAnalysisReport report = (ScheduleAnalysisReport)tester.run(runDuration);
+                report = (ScheduleAnalysisReport)tester.run(runDuration);
+            }
             double meanResponseTimeRatioToPeriod = report.getMeanResponseTimeRatioToPeriod();
             double meanExecutionRangeRatioToPeriod = report.getMeanTaskExecutionRangeRatioToPeriod();
             double meanDeadlineMissRate = report.getMeanDeadlineMissRate();
@@ -74,7 +108,11 @@ public class MassScheduleTester extends MassTester {
             fileTestLog.writeString(report.contextSwitches + ",");
             fileTestLog.writeString(meanDeadlineMissRate + ",");
             fileTestLog.writeString(String.format("%.4f", meanResponseTimeRatioToPeriod) + ",");
-            fileTestLog.writeString(String.format("%.4f", meanExecutionRangeRatioToPeriod) + "\n");
+            fileTestLog.writeString(String.format("%.4f", meanExecutionRangeRatioToPeriod) + ",");
+            fileTestLog.writeString(String.format("%.4f", report.getMeanResponseTimeQuantileRatioToPeriod(0.5)) + ",");
+            fileTestLog.writeString(String.format("%.4f", report.getMeanResponseTimeQuantileRatioToPeriod(0.99)) + ",");
+            fileTestLog.writeString(String.format("%.4f", report.getMeanResponseTimeQuantileRatioToPeriod(0.999)) + ",");
+            fileTestLog.writeString(String.format("%.4f", report.getMeanStartTimeJitterRatioToPeriod()) + "\n");
 
             loggerConsole.info("\tDone: MeanResponseTimeRatio={},\tMeanExecutionRangeRatio={},\tDeadlineMissRate={},\tContextSwitchCount={}",
                     String.format("%.4f", meanResponseTimeRatioToPeriod),
@@ -86,4 +124,27 @@ public class MassScheduleTester extends MassTester {
 
         return true;
     }
+
+    /**
+     * Simulate all task sets at once with BatchSchedulerSimulator, which gives the same schedules (and thus the same
+     * reports) as the RM and EDF schedulers used by ScheduleTester.
+     */
+    protected ScheduleAnalysisReport[] runBatch(BatchSchedulerSimulator batchSimulator, ArrayList<TaskSet> taskSets, long[] durations) {
+        StreamingScheduleStatistics[] statistics = new StreamingScheduleStatistics[taskSets.size()];
+        for (int i=0; i<taskSets.size(); i++)
+            statistics[i] = new StreamingScheduleStatistics(taskSets.get(i));
+        batchSimulator.runSimWithOffset(0, durations, statistics);
+
+        ScheduleAnalysisReport[] reports = new ScheduleAnalysisReport[taskSets.size()];
+        for (int i=0; i<taskSets.size(); i++)
+            reports[i] = ScheduleTester.createReport(taskSets.get(i), statistics[i]);
+        return reports;
+    }
+
+    /**
+     * @param batchSimulation false to simulate the task sets one by one even if BatchSchedulerSimulator supports them
+     */
+    public void setBatchSimulation(boolean batchSimulation) {
+        this.batchSimulation = batchSimulation;
+    }
 }
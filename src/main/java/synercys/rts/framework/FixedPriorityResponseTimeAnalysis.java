@@ -0,0 +1,274 @@
+package synercys.rts.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * FixedPriorityResponseTimeAnalysis.java
+ * Purpose: The response time analysis for fixed-priority preemptive scheduling (the bigger the number the higher the
+ *          priority). It computes the same WCRTs as TaskSet.calc_WCRT() did, i.e., the least fixed point of
+ *          W = Ci + sum_{j in hp(i)}( ceil(W/Tj)*Cj ).
+ *
+ *          Tasks are sorted by priority (highest first) into primitive arrays once. Each task's iteration is
+ *          warm-started from the WCRT of the task right above it when that task has a strictly higher priority
+ *          (R_i >= R_{i-1} + Ci holds in that case). When one task's parameters change, only the tasks at or below
+ *          its priority are re-analyzed.
+ */
+public class FixedPriorityResponseTimeAnalysis {
+    public static final long UNSCHEDULABLE_WCRT = Long.MAX_VALUE;   // WCRT when the iteration does not converge
+
+    Task[] tasks;       // sorted by priority (highest first)
+    long[] wcet;
+    long[] period;
+    long[] deadline;
+    int[] priority;
+    long[] wcrt;
+    int taskCount;
+
+    public FixedPriorityResponseTimeAnalysis(TaskSet taskSet) {
+        this(taskSet.getAppTasksAsArray());
+    }
+
+    public FixedPriorityResponseTimeAnalysis(List<Task> appTasks) {
+        this(appTasks, true);
+    }
+
+    public FixedPriorityResponseTimeAnalysis(TaskSetSnapshot snapshot) {
+        this(snapshot.getAppTasks(), true);
+    }
+
+    /* Load the tasks without analyzing them if analyze is false. */
+    protected FixedPriorityResponseTimeAnalysis(List<Task> appTasks, boolean analyze) {
+        tasks = appTasks.toArray(new Task[0]);
+        taskCount = tasks.length;
+        wcet = new long[taskCount];
+        period = new long[taskCount];
+        deadline = new long[taskCount];
+        priority = new int[taskCount];
+        wcrt = new long[taskCount];
+        loadTasks();
+        if (analyze)
+            analyzeFrom(0, false);
+    }
+
+    /**
+     * Sort the tasks by priority and copy their parameters into the arrays.
+     */
+    protected void loadTasks() {
+        Arrays.sort(tasks, Comparator.comparingInt(Task::getPriority).reversed().thenComparingInt(Task::getId));
+        for (int i=0; i<taskCount; i++) {
+            wcet[i] = tasks[i].getWcet();
+            period[i] = tasks[i].getPeriod();
+            deadline[i] = tasks[i].getDeadline();
+            priority[i] = tasks[i].getPriority();
+        }
+    }
+
+    /**
+     * Compute the WCRTs of the tasks from the given index down to the lowest priority task.
+     * @param fromIndex the index of the highest priority task to be re-analyzed
+     * @param keepPreviousWcrt true if the previous WCRTs of the tasks with lower priorities than task_fromIndex are
+     *                         still lower bounds (i.e., their interference did not decrease)
+     */
+    protected void analyzeFrom(int fromIndex, boolean keepPreviousWcrt) {
+        for (int i=fromIndex; i<taskCount; i++) {
+            long seed = getInitialWcrt(i);
+            if (keepPreviousWcrt && priority[i] < priority[fromIndex] && wcrt[i] != UNSCHEDULABLE_WCRT)
+                seed = Math.max(seed, wcrt[i]);
+            wcrt[i] = computeTaskWcrt(i, seed, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @return a lower bound of task_i's WCRT: Ci + sum(hp Cj), or R_{i-1} + Ci if task_{i-1} has a strictly
+     *         higher priority
+     */
+    protected long getInitialWcrt(int i) {
+        long initialWcrt = wcet[i];
+        int j = 0;
+        for (; j<taskCount && priority[j]>priority[i]; j++) {
+            initialWcrt += wcet[j];
+        }
+        if (i > 0 && priority[i-1] > priority[i] && wcrt[i-1] != UNSCHEDULABLE_WCRT)
+            initialWcrt = Math.max(initialWcrt, wcrt[i-1] + wcet[i]);
+        return initialWcrt;
+    }
+
+    /**
+     * Iterate W = Ci + sum_{j in hp(i)}( ceil(W/Tj)*Cj ) from the given initial value.
+     * @param i     the index of task_i
+     * @param seed  a lower bound of the WCRT
+     * @param limit the iteration stops and returns UNSCHEDULABLE_WCRT once W exceeds the limit
+     * @return the WCRT of task_i, or UNSCHEDULABLE_WCRT
+     */
+    protected long computeTaskWcrt(int i, long seed, long limit) {
+        double utilization = (double) wcet[i]/period[i];
+        int hpCount = 0;
+        for (; hpCount<taskCount && priority[hpCount]>priority[i]; hpCount++) {
+            utilization += (double) wcet[hpCount]/period[hpCount];
+        }
+        if (utilization > 1.0)
+            return UNSCHEDULABLE_WCRT;
+
+        long Wi = seed;
+        while (true) {
+            long interference = 0;
+            for (int j=0; j<hpCount; j++) {
+                interference += ((Wi + period[j] - 1)/period[j])*wcet[j];
+            }
+            long nextWi = wcet[i] + interference;
+            if (nextWi == Wi)
+                return Wi;
+            if (nextWi > limit || nextWi < 0 || nextWi > Long.MAX_VALUE/4)
+                return UNSCHEDULABLE_WCRT;
+            Wi = nextWi;
+        }
+    }
+
+    /**
+     * Re-analyze after the given task's parameters (wcet, period, deadline or priority) have been changed.
+     * @param task a task that is in this analysis
+     */
+    public void updateTask(Task task) {
+        int index = indexOf(task);
+        if (index < 0)
+            throw new IllegalArgumentException("Task " + task.getId() + " is not in this analysis.");
+
+        if (task.getPriority() != priority[index]) {
+            /* Priority order has changed, so everything is re-analyzed. */
+            loadTasks();
+            analyzeFrom(0, false);
+            return;
+        }
+
+        /* Tasks with higher priorities are not affected. Lower priority tasks keep their WCRTs as lower bounds only
+         * if the task's interference does not decrease. */
+        boolean interferenceNotDecreased = task.getWcet() >= wcet[index] && task.getPeriod() <= period[index];
+        wcet[index] = task.getWcet();
+        period[index] = task.getPeriod();
+        deadline[index] = task.getDeadline();
+
+        /* Tasks with the same priority may come before this one; they do not interfere with each other, but the warm
+         * start chain starts from the first of them. */
+        int fromIndex = index;
+        while (fromIndex > 0 && priority[fromIndex-1] == priority[index])
+            fromIndex--;
+        analyzeFrom(fromIndex, interferenceNotDecreased);
+    }
+
+    protected int indexOf(Task task) {
+        for (int i=0; i<taskCount; i++) {
+            if (tasks[i] == task)
+                return i;
+        }
+        return -1;
+    }
+
+    public long getWcrt(Task task) {
+        int index = indexOf(task);
+        return index < 0 ? UNSCHEDULABLE_WCRT : wcrt[index];
+    }
+
+    public boolean isSchedulable() {
+        for (int i=0; i<taskCount; i++) {
+            if (wcrt[i] > deadline[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Set the WCRT of each task.
+     */
+    public void setTaskWcrts() {
+        for (int i=0; i<taskCount; i++) {
+            tasks[i].setWcrt(wcrt[i]);
+        }
+    }
+
+    /**
+     * The schedulability test that stops at the first task whose response time exceeds its deadline.
+     * @param taskSet the task set under examination
+     * @return true if all tasks meet their deadlines
+     */
+    public static boolean schedulabilityTest(TaskSet taskSet) {
+        ArrayList<Task> appTasks = taskSet.getAppTasksAsArray();
+        FixedPriorityResponseTimeAnalysis analysis = new FixedPriorityResponseTimeAnalysis(appTasks, false);
+        for (int i=0; i<analysis.taskCount; i++) {
+            analysis.wcrt[i] = analysis.computeTaskWcrt(i, analysis.getInitialWcrt(i), analysis.deadline[i]);
+            if (analysis.wcrt[i] > analysis.deadline[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run the schedulability test for the given task sets in parallel.
+     * @param taskSets task sets to be examined
+     * @param threadCount number of threads
+     * @return the schedulability of each task set (in the given order)
+     */
+    public static boolean[] schedulabilityTest(List<TaskSet> taskSets, int threadCount) {
+        boolean[] results = new boolean[taskSets.size()];
+        if (taskSets.isEmpty())
+            return results;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, taskSets.size())));
+        try {
+            ArrayList<Future<Boolean>> futures = new ArrayList<>();
+            for (TaskSet taskSet : taskSets) {
+                futures.add(executor.submit(() -> schedulabilityTest(taskSet)));
+            }
+            for (int i=0; i<futures.size(); i++) {
+                results[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * The same as calculateTaskWCIB(TaskSet, Task) but using the snapshot's precomputed priority order.
+     * @param snapshot the task set snapshot
+     * @param index the index of task_i in the snapshot
+     * @return the WCIB of task_i
+     */
+    public static long calculateTaskWCIB(TaskSetSnapshot snapshot, int index) {
+        long Di = snapshot.getDeadline(index);
+        long interference = 0;
+        int hpCount = snapshot.getHigherPriorityTaskCount(index);
+        for (int rank=0; rank<hpCount; rank++) {
+            int j = snapshot.getTaskIndexByPriorityRank(rank);
+            if (!snapshot.isAppTask(j))
+                continue;
+            long Tj = snapshot.getPeriod(j);
+            interference += (1 + (Di + Tj - 1)/Tj)*snapshot.getWcet(j);
+        }
+        return Di - (snapshot.getWcet(index) + interference);
+    }
+
+    /**
+     * Worst-case maximum inversion budget used by TaskShuffler: Di - (Ci + sum_{j in hp(i)}( (1 + ceil(Di/Tj))*Cj )).
+     * @param taskSet the task set under examination
+     * @param task task_i
+     * @return the WCIB of task_i
+     */
+    public static long calculateTaskWCIB(TaskSet taskSet, Task task) {
+        long Di = task.getDeadline();
+        long interference = 0;
+        for (Task hpTask : taskSet.getHigherPriorityTasks(task.getPriority())) {
+            long Tj = hpTask.getPeriod();
+            interference += (1 + (Di + Tj - 1)/Tj)*hpTask.getWcet();
+        }
+        return Di - (task.getWcet() + interference);
+    }
+}
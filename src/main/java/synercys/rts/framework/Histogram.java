@@ -1,34 +1,57 @@
 package synercys.rts.framework;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 
 /**
  * Histogram.java
  * Purpose: A custom histogram class that supports Interval operations.
  *
+ *          The counts are kept in a dense long array with a base offset that grows (in either direction) to cover the
+ *          touched locations, so it is meant for locations within a bounded window (e.g., time within an observation
+ *          window). An interval touch is O(1): it is recorded in a difference array that is folded into the counts by
+ *          one prefix-sum pass before the next query. Since counts only increase, the first/last touched locations
+ *          are tracked as they are touched and the extreme weights are cached until the next touch.
+ *
  * @author CY Chen (cchen140@illinois.edu)
  * @version 1.0 - 2017, 3/28
  *
  */
 public class Histogram {
-    HashMap<Long, Long> map = new HashMap<Long, Long>();
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    long base = 0;                  // the location of counts[0]
+    long[] counts = new long[0];
+    long[] intervalDiff = new long[1];  // [i] is added to counts[i..] by the next prefix-sum pass
+    boolean intervalDiffPending = false;
+
+    boolean empty = true;
+    long touchedBegin = 0;          // the first and the last touched locations (inclusive)
+    long touchedEnd = 0;
+
+    /* Cached extreme weights of the touched locations (valid until the next touch) */
+    boolean weightCacheValid = false;
+    long mostWeight = 0;
+    long leastNonZeroWeight = 0;
 
     public void touch(long inLocation) {
-        if (map.get(inLocation) == null) {
-            map.put(inLocation, (long)1);
-        } else {
-            map.put(inLocation, map.get(inLocation)+1);
-        }
+        ensureCovered(inLocation, inLocation+1);
+        counts[(int)(inLocation-base)]++;
+        updateTouchedRange(inLocation, inLocation);
     }
 
     public void touchInterval(Interval inInterval) {
         if (inInterval != null) {
             // Note: we don't include the last point when touching the interval
-            for (long i = inInterval.getBegin(); i < inInterval.getEnd(); i++) {
-                touch(i);
-            }
+            long begin = inInterval.getBegin();
+            long end = inInterval.getEnd();
+            if (begin >= end)
+                return;
+            ensureCovered(begin, end);
+            intervalDiff[(int)(begin-base)]++;
+            intervalDiff[(int)(end-base)]--;
+            intervalDiffPending = true;
+            updateTouchedRange(begin, end-1);
         }
     }
 
@@ -40,209 +63,188 @@ public class Histogram {
 
     @Override
     public String toString() {
-        String outputStr = "";
-        long begin = getBegin();
-        long end = getEnd();
-        for (long i=begin; i<=end; i++) {
-            if (map.get(i) != null) {
-                outputStr += i + " \t " + map.get(i) + "\r\n";
+        StringBuilder outputStr = new StringBuilder();
+        if (empty)
+            return "";
+        applyIntervalDiff();
+        for (long i=touchedBegin; i<=touchedEnd; i++) {
+            long value = counts[(int)(i-base)];
+            if (value > 0) {
+                outputStr.append(i).append(" \t ").append(value).append("\r\n");
             }
         }
-        return outputStr;
+        return outputStr.toString();
     }
 
     /* Find the first index that has count > 0 */
     /* It returns 0 if nothing is found. */
     public long getBegin() {
-        long beginIndex = 0;
-        Boolean firstNoneZeroValueIndexFound = false;
-        for (long thisIndex : map.keySet()) {
-            if (map.get(thisIndex) > 0) {
-                if (firstNoneZeroValueIndexFound == false) {
-                    beginIndex = thisIndex;
-                    firstNoneZeroValueIndexFound = true;
-                    continue;
-                } else {
-                    beginIndex = thisIndex < beginIndex ? thisIndex : beginIndex;
-                }
-            }
-        }
-        return beginIndex;
+        return empty ? 0 : touchedBegin;
     }
 
     /* Find the last index that has count > 0 */
     /* It returns 0 if nothing is found. */
     public long getEnd() {
-        long endIndex = 0;
-        Boolean lastNoneZeroValueIndexFound = false;
-        for (long thisIndex : map.keySet()) {
-            if (map.get(thisIndex) > 0) {
-                if (lastNoneZeroValueIndexFound == false) {
-                    endIndex = thisIndex;
-                    lastNoneZeroValueIndexFound = true;
-                    continue;
-                } else {
-                    endIndex = thisIndex > endIndex ? thisIndex : endIndex;
-                }
-            }
-        }
-        return endIndex;
+        return empty ? 0 : touchedEnd;
     }
 
     public long getValue(long keyNum) {
-        if (map.containsKey(keyNum)) {
-            return map.get(keyNum);
-        } else {
+        if (keyNum < base || keyNum >= base+counts.length)
             return 0;
-        }
+        applyIntervalDiff();
+        return counts[(int)(keyNum-base)];
     }
 
     public long getMostWeightedValue() {
-        if (map.size() == 0) {
+        if (empty) {
             return 0;
         }
-        return Collections.max(map.values());
+        updateWeightCache();
+        return mostWeight;
     }
 
     public ArrayList<Interval> getMostWeightedIntervals() {
-        ArrayList<Interval> resultIntervals = new ArrayList<>();
-
-        // Return the empty array if nothing is in the map.
-        if (map.size() == 0) {
-            return resultIntervals;
-        }
-
-        long highestWeight = Collections.max(map.values());;
-        Boolean isBuildingAInterval = false;
-        long currentIntervalBegin = 0;
-        for (long i=getBegin(); i<=getEnd(); i++) {
-            long currentWeight = map.get(i)==null ? 0 : map.get(i);
-
-            if (currentWeight == highestWeight) {
-                if (isBuildingAInterval) {
-                    continue;
-                } else {
-                    currentIntervalBegin = i;
-                    isBuildingAInterval = true;
-                }
-            } else {
-                if (isBuildingAInterval) {
-                    Interval newInterval = new Interval(currentIntervalBegin, i-1);
-                    resultIntervals.add(newInterval);
-                    isBuildingAInterval = false;
-                }
-            }
+        // Return the empty array if nothing is in the histogram.
+        if (empty) {
+            return new ArrayList<>();
         }
-
-        // Check if the last arrival interval has not yet closed.
-        if (isBuildingAInterval) {
-            Interval newInterval = new Interval(currentIntervalBegin, getEnd());
-            resultIntervals.add(newInterval);
-            //isBuildingAInterval = false;
-        }
-
-        if (resultIntervals.size() == 0) {
-            //ProgMsg.debugErrPutline("It should never happen.");
-        }
-
-        return resultIntervals;
+        updateWeightCache();
+        return getIntervalsOfWeight(mostWeight, getBegin(), getEnd());
     }
 
     public ArrayList<Interval> getLeastNonZeroWeightedIntervals() {
-        ArrayList<Interval> resultIntervals = new ArrayList<>();
-
-        // Return the empty array if nothing is in the map.
-        if (map.size() == 0) {
-            return resultIntervals;
+        // Return the empty array if nothing is in the histogram.
+        if (empty) {
+            return new ArrayList<>();
         }
+        updateWeightCache();
+        return getIntervalsOfWeight(leastNonZeroWeight, getBegin(), getEnd());
+    }
 
-        long leastWeight = Collections.min(map.values());;
-        Boolean isBuildingAInterval = false;
-        long currentIntervalBegin = 0;
-        for (long i=getBegin(); i<=getEnd(); i++) {
-            long currentWeight = map.get(i)==null ? 0 : map.get(i);
-
-            if (currentWeight == leastWeight) {
-                if (isBuildingAInterval) {
-                    continue;
-                } else {
-                    currentIntervalBegin = i;
-                    isBuildingAInterval = true;
-                }
-            } else {
-                if (isBuildingAInterval) {
-                    Interval newInterval = new Interval(currentIntervalBegin, i-1);
-                    resultIntervals.add(newInterval);
-                    isBuildingAInterval = false;
-                }
-            }
-        }
 
-        // Check if the last arrival interval has not yet closed.
-        if (isBuildingAInterval) {
-            Interval newInterval = new Interval(currentIntervalBegin, getEnd());
-            resultIntervals.add(newInterval);
-            //isBuildingAInterval = false;
-        }
+    public ArrayList<Interval> getLeastWeightedIntervals(long begin, long end) {
+        return getIntervalsOfWeight(getLeastWeight(begin, end), begin, end);
+    }
 
-        if (resultIntervals.size() == 0) {
-            //ProgMsg.debugErrPutline("It should never happen.");
+    public long getLeastWeight(long begin, long end) {
+        if (begin >= end)
+            return 0;
+        /* Any location in [begin, end) outside the array has no count. */
+        if (begin < base || end > base+counts.length)
+            return 0;
+        applyIntervalDiff();
+        long smallestWeight = Long.MAX_VALUE;
+        for (int i=(int)(begin-base); i<(int)(end-base); i++) {
+            smallestWeight = Math.min(smallestWeight, counts[i]);
         }
-
-        return resultIntervals;
+        return smallestWeight;
     }
 
-
-    public ArrayList<Interval> getLeastWeightedIntervals(long begin, long end) {
+    /*
+     * The runs of locations in [begin, end] whose weight equals the given weight, as inclusive intervals. A run that
+     * reaches end is closed at getEnd().
+     */
+    protected ArrayList<Interval> getIntervalsOfWeight(long weight, long begin, long end) {
         ArrayList<Interval> resultIntervals = new ArrayList<>();
-
-        long leastWeight = getLeastWeight(begin, end);
-        Boolean isBuildingAInterval = false;
+        applyIntervalDiff();
+        boolean isBuildingAInterval = false;
         long currentIntervalBegin = 0;
         for (long i=begin; i<=end; i++) {
-            long currentWeight = map.get(i)==null ? 0 : map.get(i);
+            long currentWeight = (i < base || i >= base+counts.length) ? 0 : counts[(int)(i-base)];
 
-            if (currentWeight == leastWeight) {
-                if (isBuildingAInterval) {
-                    continue;
-                } else {
+            if (currentWeight == weight) {
+                if (!isBuildingAInterval) {
                     currentIntervalBegin = i;
                     isBuildingAInterval = true;
                 }
-            } else {
-                if (isBuildingAInterval) {
-                    Interval newInterval = new Interval(currentIntervalBegin, i-1);
-                    resultIntervals.add(newInterval);
-                    isBuildingAInterval = false;
-                }
+            } else if (isBuildingAInterval) {
+                resultIntervals.add(new Interval(currentIntervalBegin, i-1));
+                isBuildingAInterval = false;
             }
         }
 
         // Check if the last arrival interval has not yet closed.
         if (isBuildingAInterval) {
-            Interval newInterval = new Interval(currentIntervalBegin, getEnd());
-            resultIntervals.add(newInterval);
-            //isBuildingAInterval = false;
+            resultIntervals.add(new Interval(currentIntervalBegin, getEnd()));
         }
+        return resultIntervals;
+    }
 
-        if (resultIntervals.size() == 0) {
-            //ProgMsg.debugErrPutline("It should never happen.");
+    private void updateTouchedRange(long begin, long end) {
+        if (empty) {
+            touchedBegin = begin;
+            touchedEnd = end;
+            empty = false;
+        } else {
+            touchedBegin = Math.min(touchedBegin, begin);
+            touchedEnd = Math.max(touchedEnd, end);
         }
-
-        return resultIntervals;
+        weightCacheValid = false;
     }
 
-    public long getLeastWeight(long begin, long end) {
-        boolean first = true;
-        long smallestWeight = 0;
-        for (long i=begin; i<end; i++) {
-            if (first) {
-                smallestWeight = map.getOrDefault(i, Long.valueOf(0));
-                first = false;
+    /* One pass over the touched locations for both the most and the least non-zero weights. */
+    private void updateWeightCache() {
+        if (weightCacheValid)
+            return;
+        applyIntervalDiff();
+        mostWeight = 0;
+        leastNonZeroWeight = Long.MAX_VALUE;
+        for (int i=(int)(touchedBegin-base); i<=(int)(touchedEnd-base); i++) {
+            long value = counts[i];
+            if (value == 0)
                 continue;
-            }
-            smallestWeight = Math.min(smallestWeight, map.getOrDefault(i, Long.valueOf(0)).longValue());
+            mostWeight = Math.max(mostWeight, value);
+            leastNonZeroWeight = Math.min(leastNonZeroWeight, value);
         }
-        return smallestWeight;
+        weightCacheValid = true;
+    }
+
+    /* Fold the pending interval touches into the counts with a prefix-sum pass. */
+    private void applyIntervalDiff() {
+        if (!intervalDiffPending)
+            return;
+        long runningSum = 0;
+        for (int i=0; i<counts.length; i++) {
+            runningSum += intervalDiff[i];
+            intervalDiff[i] = 0;
+            counts[i] += runningSum;
+        }
+        intervalDiff[counts.length] = 0;
+        intervalDiffPending = false;
+    }
+
+    /* Grow the arrays (at least doubling) so that [begin, end) is covered. */
+    private void ensureCovered(long begin, long end) {
+        if (counts.length == 0) {
+            long capacity = Math.max(MIN_CAPACITY, end-begin);
+            checkCapacity(capacity);
+            base = begin;
+            counts = new long[(int)capacity];
+            intervalDiff = new long[(int)capacity+1];
+            return;
+        }
+        if (begin >= base && end <= base+counts.length)
+            return;
+
+        long neededBegin = Math.min(base, begin);
+        long neededEnd = Math.max(base+counts.length, end);
+        long newCapacity = Math.max(neededEnd-neededBegin, Math.min(MAX_CAPACITY, 2L*counts.length));
+        checkCapacity(newCapacity);
+        /* Leave the spare room on the side that is growing. */
+        long newBase = (begin < base) ? neededEnd-newCapacity : neededBegin;
+        int shift = (int)(base-newBase);
+
+        long[] newCounts = new long[(int)newCapacity];
+        long[] newIntervalDiff = new long[(int)newCapacity+1];
+        System.arraycopy(counts, 0, newCounts, shift, counts.length);
+        System.arraycopy(intervalDiff, 0, newIntervalDiff, shift, intervalDiff.length);
+        base = newBase;
+        counts = newCounts;
+        intervalDiff = newIntervalDiff;
+    }
+
+    private static void checkCapacity(long capacity) {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("The histogram cannot cover a range of " + capacity + " locations.");
     }
 }
@@ -1,195 +1,179 @@
 package synercys.rts.framework;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * IntermittentInterval.java
  * Purpose: A fundamental class that stores intermittent (discontinuous) intervals.
  *
+ *          The intervals are kept normalised in parallel begin/end arrays: sorted, non-empty and disjoint, where
+ *          overlapping or adjacent intervals (e.g., [0, 5) and [5, 8)) are merged. Union, intersection and subtraction
+ *          of two sets are linear-time merges, and point lookups are binary searches.
+ *
  * @author CY Chen (cchen140@illinois.edu)
  * @version 1.0 - 2017, 3/26
  *
  */
 public class IntermittentInterval {
-    protected ArrayList<Interval> intervals = new ArrayList<>();
+    protected long[] begins;
+    protected long[] ends;
+    protected int size = 0;
 
-    public IntermittentInterval() {}
+    public IntermittentInterval() {
+        this(new long[4], new long[4], 0);
+    }
 
     public IntermittentInterval(ArrayList<Interval> inIntervals) {
-        intervals.addAll(inIntervals);
+        this(new long[Math.max(4, inIntervals.size())], new long[Math.max(4, inIntervals.size())], 0);
+        Interval[] sortedIntervals = inIntervals.toArray(new Interval[0]);
+        Arrays.sort(sortedIntervals, (a, b) -> Long.compare(a.getBegin(), b.getBegin()));
+        for (Interval thisInterval : sortedIntervals) {
+            append(thisInterval.getBegin(), thisInterval.getEnd());
+        }
     }
 
     public IntermittentInterval(Interval inInterval) {
-        intervals.add(inInterval);
+        this();
+        append(inInterval.getBegin(), inInterval.getEnd());
+    }
+
+    private IntermittentInterval(long[] begins, long[] ends, int size) {
+        this.begins = begins;
+        this.ends = ends;
+        this.size = size;
     }
 
     public long getBegin() {
-        long begin = 0;
-        Boolean firstLoop = true;
-        for (Interval thisInterval : intervals) {
-            if (firstLoop) {
-                firstLoop = false;
-                begin = thisInterval.getBegin();
-            } else {
-                begin = thisInterval.getBegin() < begin ? thisInterval.getBegin() : begin;
-            }
-        }
-        return begin;
+        return (size == 0) ? 0 : begins[0];
     }
 
     public long getEnd() {
-        long end = 0;
-        Boolean firstLoop = true;
-        for (Interval thisInterval : intervals) {
-            if (firstLoop) {
-                firstLoop = false;
-                end = thisInterval.getEnd();
-            } else {
-                end = thisInterval.getEnd() > end ? thisInterval.getEnd() : end;
-            }
-        }
-        return end;
+        return (size == 0) ? 0 : ends[size-1];
     }
 
     public void shift(long inShift) {
-        for (Interval thisInterval : intervals) {
-            thisInterval.shift(inShift);
+        for (int i=0; i<size; i++) {
+            begins[i] += inShift;
+            ends[i] += inShift;
         }
     }
 
     public void union(Interval inInterval) {
-        intervals = getUnion(inInterval).intervals;
+        set(getUnion(inInterval));
     }
 
     public void union(IntermittentInterval interInterval) {
-        intervals = getUnion(interInterval).intervals;
+        set(getUnion(interInterval));
     }
 
     public IntermittentInterval getUnion(Interval inInterval) {
-
-        // Check which intervals are intersected.
-        ArrayList<Interval> intersectedIntervals = new ArrayList<>();
-        for (Interval thisInterval : intervals) {
-            if (thisInterval.intersect(inInterval) != null) {
-                intersectedIntervals.add(thisInterval);
-            }
-        }
-
-        // Create new getUnion interval if there is any intersection.
-        if (intersectedIntervals.size() > 0) {
-            Interval unionInterval = inInterval;
-            for (Interval thisInterval : intersectedIntervals) {
-                unionInterval = unionInterval.union(thisInterval).get(0);
-            }
-
-            // New object
-            IntermittentInterval resultIntervals = new IntermittentInterval(intervals);
-            resultIntervals.intervals.removeAll(intersectedIntervals);
-            resultIntervals.intervals.add(unionInterval);
-            return resultIntervals;
-        } else {
-            IntermittentInterval resultIntervals = new IntermittentInterval(intervals);
-            resultIntervals.intervals.add(inInterval);
-            return resultIntervals;
-        }
+        return getUnion(new IntermittentInterval(inInterval));
     }
 
     public IntermittentInterval getUnion(IntermittentInterval interInterval) {
-        IntermittentInterval resultInterInterval = interInterval;
-        for (Interval thisInterval : intervals) {
-            resultInterInterval = resultInterInterval.getUnion(thisInterval);
+        IntermittentInterval result = new IntermittentInterval(new long[Math.max(4, size + interInterval.size)],
+                new long[Math.max(4, size + interInterval.size)], 0);
+        int i = 0, j = 0;
+        while (i < size || j < interInterval.size) {
+            // Take the interval that begins first; append() merges it if it overlaps or touches the last one.
+            if (j >= interInterval.size || (i < size && begins[i] <= interInterval.begins[j])) {
+                result.append(begins[i], ends[i]);
+                i++;
+            } else {
+                result.append(interInterval.begins[j], interInterval.ends[j]);
+                j++;
+            }
         }
-        return resultInterInterval;
+        return result;
     }
 
     public void intersect(Interval inInterval) {
-        intervals = getIntersection(inInterval).intervals;
+        set(getIntersection(inInterval));
     }
 
     public void intersect(IntermittentInterval interInterval) {
-        intervals = getIntersection(interInterval).intervals;
+        set(getIntersection(interInterval));
     }
 
     public IntermittentInterval getIntersection(Interval inInterval) {
-        // Check which intervals are intersected.
-        ArrayList<Interval> intersectedIntervals = new ArrayList<>();
-        for (Interval thisInterval : intervals) {
-            Interval thisIntersectedInterval = thisInterval.intersect(inInterval);
-            if (thisIntersectedInterval != null) {
-                intersectedIntervals.add(thisIntersectedInterval);
-            }
-        }
-
-        // Create new intersected interval if there is any intersection.
-        if (intersectedIntervals.size() > 0) {
-            return new IntermittentInterval(intersectedIntervals);
-        } else {
-            // return empty interval.
-            return new IntermittentInterval();
-        }
+        return getIntersection(new IntermittentInterval(inInterval));
     }
 
     public IntermittentInterval getIntersection(IntermittentInterval interInterval) {
-        IntermittentInterval resultInterInterval = new IntermittentInterval();
-        for (Interval thisInterval : intervals) {
-            resultInterInterval = resultInterInterval.getUnion(interInterval.getIntersection(thisInterval));
+        IntermittentInterval result = new IntermittentInterval(new long[Math.max(4, size + interInterval.size)],
+                new long[Math.max(4, size + interInterval.size)], 0);
+        int i = 0, j = 0;
+        while (i < size && j < interInterval.size) {
+            long begin = Math.max(begins[i], interInterval.begins[j]);
+            long end = Math.min(ends[i], interInterval.ends[j]);
+            result.append(begin, end);
+            // Advance the one that ends first.
+            if (ends[i] < interInterval.ends[j])
+                i++;
+            else
+                j++;
         }
-        return resultInterInterval;
+        return result;
     }
 
     public IntermittentInterval getSubtraction(Interval inInterval) {
-        ArrayList<Interval> resultIntervals = new ArrayList<>();
-        for (Interval thisInterval : intervals) {
-            resultIntervals.addAll(thisInterval.minus(inInterval));
-        }
-        return new IntermittentInterval(resultIntervals);
+        return getSubtraction(new IntermittentInterval(inInterval));
     }
 
     public IntermittentInterval getSubtraction(IntermittentInterval interInterval) {
-        IntermittentInterval resultInterInterval = new IntermittentInterval(intervals);
-        for (Interval thisInterval : interInterval.intervals) {
-            resultInterInterval = resultInterInterval.getSubtraction(thisInterval);
+        IntermittentInterval result = new IntermittentInterval(new long[Math.max(4, size + interInterval.size)],
+                new long[Math.max(4, size + interInterval.size)], 0);
+        int j = 0;
+        for (int i=0; i<size; i++) {
+            long begin = begins[i];
+            long end = ends[i];
+            // Skip the subtracted intervals that end before this one begins.
+            while (j < interInterval.size && interInterval.ends[j] <= begin)
+                j++;
+            // Cut out every subtracted interval that overlaps this one.
+            int k = j;
+            while (k < interInterval.size && interInterval.begins[k] < end) {
+                result.append(begin, interInterval.begins[k]);
+                begin = Math.max(begin, interInterval.ends[k]);
+                k++;
+            }
+            result.append(begin, end);
         }
-        return resultInterInterval;
+        return result;
     }
 
     public void minus(Interval inInterval) {
-        intervals = getSubtraction(inInterval).intervals;
+        set(getSubtraction(inInterval));
     }
     public void minus(IntermittentInterval interInterval) {
-        intervals = getSubtraction(interInterval).intervals;
+        set(getSubtraction(interInterval));
     }
 
     public Boolean hasInterval(Interval inInterval) {
-        for (Interval thisInterval : intervals) {
-            if (thisInterval.isEqual(inInterval)) {
-                return true;
-            }
-        }
-        return false;
+        int index = findLastBeginAtOrBefore(inInterval.getBegin());
+        return index >= 0 && begins[index] == inInterval.getBegin() && ends[index] == inInterval.getEnd();
     }
 
     public Interval getLongestInterval() {
-        Interval longestInterval = null;
-        Boolean firstLoop = true;
-        for (Interval thisInterval : intervals) {
-            if (firstLoop == true) {
-                longestInterval = thisInterval;
-                firstLoop = false;
-            }
-
-            if (thisInterval.getLength() > longestInterval.getLength()) {
-                longestInterval = thisInterval;
+        int longestIndex = -1;
+        for (int i=0; i<size; i++) {
+            if (longestIndex < 0 || ends[i]-begins[i] > ends[longestIndex]-begins[longestIndex]) {
+                longestIndex = i;
             }
         }
-        return longestInterval;
+        return (longestIndex < 0) ? null : new Interval(begins[longestIndex], ends[longestIndex]);
     }
 
+    /**
+     * As Interval.contains(), both ends are inclusive.
+     * @param inPoint the point to be searched
+     * @return the interval (a copy) that contains the point, or null if there is none
+     */
     public Interval getIntervalContainingPoint(long inPoint) {
-        for (Interval thisInterval : intervals) {
-            if (thisInterval.contains(inPoint) == true) {
-                return thisInterval;
-            }
+        int index = findLastBeginAtOrBefore(inPoint);
+        if (index >= 0 && inPoint <= ends[index]) {
+            return new Interval(begins[index], ends[index]);
         }
         return null;
     }
@@ -210,25 +194,74 @@ public class IntermittentInterval {
         union(inIntervalCloned);
     }
 
+    /**
+     * @return copies of the (sorted, disjoint) intervals; modifying them does not change this object
+     */
     public ArrayList<Interval> getIntervals() {
+        ArrayList<Interval> intervals = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            intervals.add(new Interval(begins[i], ends[i]));
+        }
         return intervals;
     }
 
+    public int getIntervalCount() {
+        return size;
+    }
+
     public long getTotalLength() {
         long totalLength = 0;
-        for (Interval thisInterval : intervals) {
-            totalLength += thisInterval.getLength();
+        for (int i=0; i<size; i++) {
+            totalLength += ends[i] - begins[i];
         }
         return totalLength;
     }
 
     @Override
     public String toString() {
-        String outputStr = "";
-        outputStr += "Interval Count = " + intervals.size() + "\r\n";
-        for (Interval thisInterval : intervals) {
-            outputStr += "\t" + thisInterval.toString() + "\r\n";
+        StringBuilder outputStr = new StringBuilder();
+        outputStr.append("Interval Count = ").append(size).append("\r\n");
+        for (int i=0; i<size; i++) {
+            outputStr.append("\t").append(new Interval(begins[i], ends[i])).append("\r\n");
+        }
+        return outputStr.toString();
+    }
+
+    /* Append an interval that begins at or after the last one's begin, merging it if they overlap or touch. */
+    private void append(long begin, long end) {
+        if (begin >= end)
+            return;
+        if (size > 0 && begin <= ends[size-1]) {
+            ends[size-1] = Math.max(ends[size-1], end);
+            return;
+        }
+        if (size == begins.length) {
+            begins = Arrays.copyOf(begins, size*2);
+            ends = Arrays.copyOf(ends, size*2);
+        }
+        begins[size] = begin;
+        ends[size] = end;
+        size++;
+    }
+
+    /* The index of the last interval that begins at or before the point, or -1 if there is none. */
+    private int findLastBeginAtOrBefore(long point) {
+        int low = 0, high = size-1, found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (begins[mid] <= point) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
         }
-        return outputStr;
+        return found;
+    }
+
+    private void set(IntermittentInterval other) {
+        begins = other.begins;
+        ends = other.ends;
+        size = other.size;
     }
 }
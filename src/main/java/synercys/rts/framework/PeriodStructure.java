@@ -0,0 +1,158 @@
+package synercys.rts.framework;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * PeriodStructure.java
+ * Purpose: Incrementally maintained period properties of a task set: the hyper-period (LCM of the periods) and
+ *          the harmonic relations between periods.
+ *
+ *          The hyper-period is updated with lcm(H, p) = H/gcd(H, p)*p for each added period. Once it exceeds the
+ *          range of long, it is kept exactly as a BigInteger and getHyperPeriod() is capped at Long.MAX_VALUE.
+ *          Periods are kept sorted, so that checking a new period against the existing ones for divisibility is
+ *          O(n), and checking whether all periods are harmonic is a single pass over the divisibility chain.
+ */
+public class PeriodStructure {
+    long[] sortedPeriods = new long[8];
+    int periodCount = 0;
+
+    long hyperPeriod = 1;
+    BigInteger exactHyperPeriod = null;     // only used once the hyper-period overflows
+    boolean hasHarmonicPair = false;
+
+    public PeriodStructure() {
+    }
+
+    public PeriodStructure(TaskSet taskSet) {
+        for (Task task : taskSet.getAppTasksAsArray()) {
+            addPeriod(task.getPeriod());
+        }
+    }
+
+    public void addPeriod(long period) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Period has to be positive: " + period);
+
+        if (!hasHarmonicPair && isHarmonicWith(period))
+            hasHarmonicPair = true;
+
+        /* Insert into the sorted array. */
+        int index = Arrays.binarySearch(sortedPeriods, 0, periodCount, period);
+        if (index < 0)
+            index = -index - 1;
+        if (periodCount == sortedPeriods.length)
+            sortedPeriods = Arrays.copyOf(sortedPeriods, periodCount*2);
+        System.arraycopy(sortedPeriods, index, sortedPeriods, index + 1, periodCount - index);
+        sortedPeriods[index] = period;
+        periodCount++;
+
+        /* Update the hyper-period. */
+        if (exactHyperPeriod == null) {
+            long newHyperPeriod = lcm(hyperPeriod, period);
+            if (newHyperPeriod < 0)
+                exactHyperPeriod = BigInteger.valueOf(hyperPeriod).divide(BigInteger.valueOf(gcd(hyperPeriod, period))).multiply(BigInteger.valueOf(period));
+            else
+                hyperPeriod = newHyperPeriod;
+        } else {
+            BigInteger bigPeriod = BigInteger.valueOf(period);
+            exactHyperPeriod = exactHyperPeriod.divide(exactHyperPeriod.gcd(bigPeriod)).multiply(bigPeriod);
+        }
+    }
+
+    /**
+     * @param period a period to be examined
+     * @return true if the given period divides, or is divisible by, any of the existing periods
+     */
+    public boolean isHarmonicWith(long period) {
+        for (int i=0; i<periodCount; i++) {
+            long existingPeriod = sortedPeriods[i];
+            if (existingPeriod <= period ? period%existingPeriod == 0 : existingPeriod%period == 0)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean containsPeriod(long period) {
+        return Arrays.binarySearch(sortedPeriods, 0, periodCount, period) >= 0;
+    }
+
+    /**
+     * @return true if any two periods are harmonic (including identical periods), as TaskSet.hasHarmonicPeriods()
+     */
+    public boolean hasHarmonicPeriods() {
+        return hasHarmonicPair;
+    }
+
+    /**
+     * @return true if every period divides the next larger one (i.e., all periods are pairwise harmonic)
+     */
+    public boolean isFullyHarmonic() {
+        for (int i=1; i<periodCount; i++) {
+            if (sortedPeriods[i]%sortedPeriods[i-1] != 0)
+                return false;
+        }
+        return true;
+    }
+
+    public boolean isHyperPeriodOverflowed() {
+        return exactHyperPeriod != null;
+    }
+
+    /**
+     * @return the hyper-period, or Long.MAX_VALUE if it exceeds the range of long
+     */
+    public long getHyperPeriod() {
+        return exactHyperPeriod == null ? hyperPeriod : Long.MAX_VALUE;
+    }
+
+    public BigInteger getExactHyperPeriod() {
+        return exactHyperPeriod == null ? BigInteger.valueOf(hyperPeriod) : exactHyperPeriod;
+    }
+
+    /**
+     * @param period a period that is not added yet
+     * @return the hyper-period if the given period were added, or Long.MAX_VALUE if it exceeds the range of long
+     */
+    public long getHyperPeriodWith(long period) {
+        if (exactHyperPeriod != null)
+            return Long.MAX_VALUE;
+        long newHyperPeriod = lcm(hyperPeriod, period);
+        return newHyperPeriod < 0 ? Long.MAX_VALUE : newHyperPeriod;
+    }
+
+    /**
+     * Compute a multiple of the hyper-period (e.g., for a simulation duration).
+     * @param ratio the multiplier
+     * @return (long) (hyper-period * ratio), capped at Long.MAX_VALUE
+     */
+    public long getScaledHyperPeriod(double ratio) {
+        BigInteger scaled = new BigDecimal(getExactHyperPeriod()).multiply(BigDecimal.valueOf(ratio)).toBigInteger();
+        return scaled.bitLength() < 64 ? scaled.longValue() : Long.MAX_VALUE;
+    }
+
+    public int size() {
+        return periodCount;
+    }
+
+    public static long gcd(long a, long b) {
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * @return lcm(a, b), or -1 if it exceeds the range of long
+     */
+    public static long lcm(long a, long b) {
+        try {
+            return Math.multiplyExact(a/gcd(a, b), b);
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package synercys.rts.framework;
 
 import synercys.rts.RtsConfig;
+import synercys.rts.framework.distribution.TimeDistribution;
+
 import java.util.Formatter; // for formatting String
 
 /**
@@ -45,6 +47,10 @@ public class Task {
     protected long admissiblePeriodUpper = 0;
     private long admissiblePeriodLower = 0;
 
+    /* Runtime variation models (null means the scheduler's default model) */
+    protected TimeDistribution executionTimeDistribution = null;
+    protected TimeDistribution interArrivalTimeDistribution = null;
+
     public Task(){}
 
     public Task(int inTaskId, String inTitle, String inType, long inPeriod, long inDeadline, long inWCET, int inPriority)
@@ -75,6 +81,9 @@ public class Task {
         initialOffset = task.initialOffset;
         nextReleaseTime = task.nextReleaseTime;
         isSporadicTask = task.isSporadicTask;
+        /* The time distribution models are shared; the schedulers keep their positions in them. */
+        executionTimeDistribution = task.executionTimeDistribution;
+        interArrivalTimeDistribution = task.interArrivalTimeDistribution;
     }
 
     public boolean isAppTaskType() {
@@ -193,6 +202,22 @@ public class Task {
         this.admissiblePeriodLower = admissiblePeriodLower;
     }
 
+    public TimeDistribution getExecutionTimeDistribution() {
+        return executionTimeDistribution;
+    }
+
+    public void setExecutionTimeDistribution(TimeDistribution executionTimeDistribution) {
+        this.executionTimeDistribution = executionTimeDistribution;
+    }
+
+    public TimeDistribution getInterArrivalTimeDistribution() {
+        return interArrivalTimeDistribution;
+    }
+
+    public void setInterArrivalTimeDistribution(TimeDistribution interArrivalTimeDistribution) {
+        this.interArrivalTimeDistribution = interArrivalTimeDistribution;
+    }
+
     @Override
     public String toString() {
         return "Task-" + id +
@@ -270,6 +270,14 @@ public class TaskSet {
         return null;
     }
 
+    /**
+     * Create a frozen, array-backed view of the current tasks. It does not follow later changes.
+     * @return a snapshot of this task set
+     */
+    public TaskSetSnapshot getSnapshot() {
+        return new TaskSetSnapshot(this);
+    }
+
     public Task getIdleTask() {
         for (Task thisTask : tasks.values()) {
             if (thisTask.getTaskType().equalsIgnoreCase(Task.TASK_TYPE_IDLE)) {
@@ -308,75 +316,35 @@ public class TaskSet {
     }
 
     static long GCD(long a, long b) {
-        long Remainder;
-
-        while (b != 0) {
-            Remainder = a % b;
-            a = b;
-            b = Remainder;
-        }
-
-        return a;
+        return PeriodStructure.gcd(a, b);
     }
 
+    /* It returns -1 if the result exceeds the range of long. */
     static long LCM(long a, long b) {
-        return a * b / GCD(a, b);
+        return PeriodStructure.lcm(a, b);
     }
 
+    /**
+     * @return the hyper-period of the app tasks, or Long.MAX_VALUE if it exceeds the range of long (use
+     *         PeriodStructure.getExactHyperPeriod() for the exact value)
+     */
     public long calHyperPeriod() {
-        long hyperPeriod = 1;
-        for (Task thisTask : getAppTasksAsArray()) {
-            hyperPeriod = LCM(hyperPeriod, thisTask.getPeriod());
-        }
-        return hyperPeriod;
+        return new PeriodStructure(this).getHyperPeriod();
     }
 
     public Boolean schedulabilityTest() {
-        //int numTasks = taskContainer.getAppTasksAsArray().size();
-        for (Task thisTask : getAppTasksAsArray()) {
-            long thisWCRT = calc_WCRT(thisTask);
-            if (thisWCRT > thisTask.getDeadline()) {
-                // unschedulable.
-                //ProgMsg.errPutline("%d > %d", thisWCRT, thisTask.getDeadlineNs());
-                return false;
-            } else {
-                //ProgMsg.sysPutLine("ok: %d < %d", thisWCRT, thisTask.getDeadlineNs());
-            }
-        }
-        return true;
+        return FixedPriorityResponseTimeAnalysis.schedulabilityTest(this);
     }
 
-    // Code modified from Man-Ki's code (compute worst case response time)
+    /**
+     * Compute the worst case response time of the given task under fixed-priority scheduling.
+     * For computing all tasks' WCRTs, use FixedPriorityResponseTimeAnalysis directly.
+     * @param task_i the task under examination
+     * @return the WCRT, or Integer.MAX_VALUE if it does not converge
+     */
     public long calc_WCRT(Task task_i) {
-        int numItr = 0;
-        long Wi = task_i.getWcet();
-        long prev_Wi = 0;
-
-        //int numTasks = taskContainer.getAppTasksAsArray().size();
-        while (true) {
-            int interference = 0;
-            for (Task thisTask : getAppTasksAsArray()) {
-                Task task_hp = thisTask;
-                if (task_hp.getPriority() <= task_i.getPriority())  // Priority: the bigger the higher
-                    continue;
-
-                long Tj = task_hp.getPeriod();
-                long Cj = task_hp.getWcet();
-
-                interference += (int)myCeil((double)Wi / (double)Tj) * Cj;
-            }
-
-            Wi = task_i.getWcet() + interference;
-
-            if (Long.compare(Wi, prev_Wi) == 0)
-                return Wi;
-
-            prev_Wi = Wi;
-
-            numItr++;
-            if (numItr > 1000 || Wi < 0)
-                return Integer.MAX_VALUE;
-        }
+        long wcrt = new FixedPriorityResponseTimeAnalysis(this).getWcrt(task_i);
+        return (wcrt == FixedPriorityResponseTimeAnalysis.UNSCHEDULABLE_WCRT) ? Integer.MAX_VALUE : wcrt;
     }
 
 
@@ -462,17 +430,7 @@ public class TaskSet {
     }
 
     public Boolean hasHarmonicPeriods() {
-        for (Task taskA: getAppTasksAsArray()) {
-            for (Task taskB: getAppTasksAsArray()) {
-                if (taskA == taskB)
-                    continue;
-
-                if (taskA.getPeriod() % taskB.getPeriod() == 0)
-                    return true;
-            }
-        }
-        // No harmonic periods.
-        return false;
+        return new PeriodStructure(this).hasHarmonicPeriods();
     }
 
     public double getUtilization() {
@@ -0,0 +1,188 @@
+package synercys.rts.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TaskSetSnapshot.java
+ * Purpose: A frozen, array-backed view of a TaskSet for simulation and analysis. The runnable tasks (all except the
+ *          idle task) are given dense indices 0..size()-1 in the order of their IDs, and their parameters are copied
+ *          into primitive arrays indexed by these indices. The priority order and the idle task are precomputed.
+ *
+ *          The snapshot does not follow later changes to the task set or to the tasks' parameters; take a new
+ *          snapshot (TaskSet.getSnapshot()) after changing them.
+ */
+public class TaskSetSnapshot {
+    public static final int NO_INDEX = -1;
+
+    final Task[] tasks;
+    final Task idleTask;
+    final int taskCount;
+
+    final long[] period;
+    final long[] wcet;
+    final long[] deadline;
+    final long[] initialOffset;
+    final int[] priority;
+    final boolean[] isAppTask;
+    final boolean[] isSporadicTask;
+
+    final int[] priorityOrder;  // task indices sorted by priority (highest first, then by ID)
+    final int[] priorityRank;   // priorityRank[priorityOrder[r]] == r
+    final int[] indexById;      // task ID -> task index (NO_INDEX if the ID is not a runnable task)
+
+    final List<Task> taskList;
+    final List<Task> appTaskList;
+
+    public TaskSetSnapshot(TaskSet taskSet) {
+        ArrayList<Task> runnableTasks = new ArrayList<>();
+        Task idle = null;
+        int largestId = 0;
+        for (Task task : taskSet.getTasksAsArray()) {
+            if (task.isIdleTaskType()) {
+                idle = task;
+            } else {
+                runnableTasks.add(task);
+                largestId = Math.max(largestId, task.getId());
+            }
+        }
+        idleTask = idle;
+        tasks = runnableTasks.toArray(new Task[0]);
+        taskCount = tasks.length;
+
+        period = new long[taskCount];
+        wcet = new long[taskCount];
+        deadline = new long[taskCount];
+        initialOffset = new long[taskCount];
+        priority = new int[taskCount];
+        isAppTask = new boolean[taskCount];
+        isSporadicTask = new boolean[taskCount];
+        indexById = new int[largestId + 1];
+        Arrays.fill(indexById, NO_INDEX);
+
+        ArrayList<Task> appTasks = new ArrayList<>();
+        for (int i=0; i<taskCount; i++) {
+            Task task = tasks[i];
+            period[i] = task.getPeriod();
+            wcet[i] = task.getWcet();
+            deadline[i] = task.getDeadline();
+            initialOffset[i] = task.getInitialOffset();
+            priority[i] = task.getPriority();
+            isAppTask[i] = task.getTaskType().equalsIgnoreCase(Task.TASK_TYPE_APP);
+            isSporadicTask[i] = task.isSporadicTask();
+            if (task.getId() >= 0)
+                indexById[task.getId()] = i;
+            if (isAppTask[i])
+                appTasks.add(task);
+        }
+
+        Integer[] order = new Integer[taskCount];
+        for (int i=0; i<taskCount; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> priority[a] != priority[b] ? Integer.compare(priority[b], priority[a]) : Integer.compare(tasks[a].getId(), tasks[b].getId()));
+        priorityOrder = new int[taskCount];
+        priorityRank = new int[taskCount];
+        for (int r=0; r<taskCount; r++) {
+            priorityOrder[r] = order[r];
+            priorityRank[order[r]] = r;
+        }
+
+        taskList = Collections.unmodifiableList(Arrays.asList(tasks));
+        appTaskList = Collections.unmodifiableList(appTasks);
+    }
+
+    /**
+     * @return number of runnable tasks (the idle task is excluded)
+     */
+    public int size() {
+        return taskCount;
+    }
+
+    public Task getTask(int index) {
+        return tasks[index];
+    }
+
+    public Task getIdleTask() {
+        return idleTask;
+    }
+
+    /**
+     * @return the index of the given task, or NO_INDEX if it is not a runnable task in this snapshot
+     */
+    public int indexOf(Task task) {
+        int index = indexOfId(task.getId());
+        return (index != NO_INDEX && tasks[index] == task) ? index : NO_INDEX;
+    }
+
+    public int indexOfId(int taskId) {
+        return (taskId >= 0 && taskId < indexById.length) ? indexById[taskId] : NO_INDEX;
+    }
+
+    /**
+     * @return runnable tasks ordered by their indices (read-only)
+     */
+    public List<Task> getTasks() {
+        return taskList;
+    }
+
+    /**
+     * @return app tasks ordered by their IDs (read-only)
+     */
+    public List<Task> getAppTasks() {
+        return appTaskList;
+    }
+
+    public long getPeriod(int index) {
+        return period[index];
+    }
+
+    public long getWcet(int index) {
+        return wcet[index];
+    }
+
+    public long getDeadline(int index) {
+        return deadline[index];
+    }
+
+    public long getInitialOffset(int index) {
+        return initialOffset[index];
+    }
+
+    public int getPriority(int index) {
+        return priority[index];
+    }
+
+    public boolean isAppTask(int index) {
+        return isAppTask[index];
+    }
+
+    public boolean isSporadicTask(int index) {
+        return isSporadicTask[index];
+    }
+
+    /**
+     * @param rank 0 for the highest priority task
+     * @return the index of the task at the given rank of the priority order
+     */
+    public int getTaskIndexByPriorityRank(int rank) {
+        return priorityOrder[rank];
+    }
+
+    public int getPriorityRank(int index) {
+        return priorityRank[index];
+    }
+
+    /**
+     * @param index a task index
+     * @return the number of tasks that have strictly higher priorities than the given task; these tasks are at
+     *         the priority ranks 0 to (count - 1)
+     */
+    public int getHigherPriorityTaskCount(int index) {
+        int rank = priorityRank[index];
+        while (rank > 0 && priority[priorityOrder[rank-1]] == priority[index])
+            rank--;
+        return rank;
+    }
+}
@@ -0,0 +1,74 @@
+package synercys.rts.framework.distribution;
+
+import java.util.Random;
+
+/**
+ * AliasTable.java
+ * Purpose: Walker's alias table (Vose's construction) for sampling an index from a discrete distribution in O(1).
+ */
+public class AliasTable {
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights non-negative weights (not necessarily normalized) of the indices; at least one must be positive
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double sum = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight))
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            sum += weight;
+        }
+        if (n == 0 || !(sum > 0))
+            throw new IllegalArgumentException("The weights must contain a positive value.");
+
+        probability = new double[n];
+        alias = new int[n];
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i=0; i<n; i++) {
+            scaled[i] = weights[i]*n/sum;
+            if (scaled[i] < 1)
+                small[smallCount++] = i;
+            else
+                large[largeCount++] = i;
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1;
+            if (scaled[l] < 1)
+                small[smallCount++] = l;
+            else
+                large[largeCount++] = l;
+        }
+        // The rest are (numerically) 1.
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            probability[l] = 1;
+            alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            probability[s] = 1;
+            alias[s] = s;
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    public int sample(Random rand) {
+        int i = rand.nextInt(probability.length);
+        return rand.nextDouble() < probability[i] ? i : alias[i];
+    }
+}
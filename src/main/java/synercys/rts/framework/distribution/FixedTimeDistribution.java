@@ -0,0 +1,24 @@
+package synercys.rts.framework.distribution;
+
+import java.util.Random;
+
+/**
+ * FixedTimeDistribution.java
+ * Purpose: Always returns the same value.
+ */
+public class FixedTimeDistribution implements TimeDistribution {
+    private final long value;
+
+    public FixedTimeDistribution(long value) {
+        this.value = value;
+    }
+
+    @Override
+    public long sample(Random rand) {
+        return value;
+    }
+
+    public long getValue() {
+        return value;
+    }
+}
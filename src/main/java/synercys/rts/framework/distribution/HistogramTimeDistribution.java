@@ -0,0 +1,35 @@
+package synercys.rts.framework.distribution;
+
+import java.util.Random;
+
+/**
+ * HistogramTimeDistribution.java
+ * Purpose: An empirical distribution given by values and their weights (e.g., the counts of a measured histogram).
+ *          Values are drawn by an alias table in O(1).
+ */
+public class HistogramTimeDistribution implements TimeDistribution {
+    private final long[] values;
+    private final double[] weights;
+    private final AliasTable aliasTable;
+
+    public HistogramTimeDistribution(long[] values, double[] weights) {
+        if (values.length != weights.length)
+            throw new IllegalArgumentException("The numbers of values and weights are different: " + values.length + " vs. " + weights.length);
+        this.values = values.clone();
+        this.weights = weights.clone();
+        aliasTable = new AliasTable(this.weights);
+    }
+
+    @Override
+    public long sample(Random rand) {
+        return values[aliasTable.sample(rand)];
+    }
+
+    public long[] getValues() {
+        return values.clone();
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+}
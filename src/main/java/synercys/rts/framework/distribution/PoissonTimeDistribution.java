@@ -0,0 +1,73 @@
+package synercys.rts.framework.distribution;
+
+import org.apache.commons.math3.special.Gamma;
+
+import java.util.Random;
+
+/**
+ * PoissonTimeDistribution.java
+ * Purpose: Values scale*k where k is Poisson distributed with the given mean and truncated to scale*k >= min.
+ *          The probabilities of k are tabulated (up to where the remaining tail is negligible) into an alias table
+ *          when the model is created, so every draw takes O(1) regardless of how far min is from the mean.
+ */
+public class PoissonTimeDistribution implements TimeDistribution {
+    static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private final double mean;
+    private final long scale;
+    private final long min;
+
+    private final long firstK;
+    private final AliasTable aliasTable;
+
+    public PoissonTimeDistribution(double mean, long scale, long min) {
+        if (!(mean > 0))
+            throw new IllegalArgumentException("The Poisson mean must be positive: " + mean);
+        if (scale <= 0)
+            throw new IllegalArgumentException("The scale must be positive: " + scale);
+        this.mean = mean;
+        this.scale = scale;
+        this.min = min;
+
+        // Smallest k that satisfies scale*k >= min.
+        firstK = min <= 0 ? 0 : (min + scale - 1)/scale;
+
+        /* The probability beyond 12 standard deviations (of the larger of the mean and firstK) is negligible. */
+        double center = Math.max(mean, firstK);
+        long lastK = (long)Math.ceil(center + 12*Math.sqrt(center) + 12);
+        if (lastK - firstK + 1 > MAX_TABLE_SIZE)
+            throw new IllegalArgumentException("The Poisson mean " + mean + " is too large to be tabulated.");
+
+        int tableSize = (int)(lastK - firstK + 1);
+        double[] logProbability = new double[tableSize];
+        double maxLogProbability = Double.NEGATIVE_INFINITY;
+        double logMean = Math.log(mean);
+        for (int i=0; i<tableSize; i++) {
+            long k = firstK + i;
+            logProbability[i] = k*logMean - mean - Gamma.logGamma(k + 1);
+            maxLogProbability = Math.max(maxLogProbability, logProbability[i]);
+        }
+        // Normalize in the log space to avoid underflow when firstK is far in the tail.
+        double[] weights = new double[tableSize];
+        for (int i=0; i<tableSize; i++)
+            weights[i] = Math.exp(logProbability[i] - maxLogProbability);
+        aliasTable = new AliasTable(weights);
+    }
+
+    @Override
+    public long sample(Random rand) {
+        return (firstK + aliasTable.sample(rand))*scale;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getScale() {
+        return scale;
+    }
+
+    public long getMin() {
+        return min;
+    }
+}
@@ -0,0 +1,38 @@
+package synercys.rts.framework.distribution;
+
+import java.util.Random;
+
+/**
+ * TimeDistribution.java
+ * Purpose: A model of a task's execution times or inter-arrival times used by the schedulers when runtime variation
+ *          is enabled. Implementations precompute whatever they need (e.g., alias tables or CDF bounds) when they are
+ *          constructed so that every sample() call takes constant time, and truncate their ranges exactly rather than
+ *          by re-sampling.
+ */
+public interface TimeDistribution {
+    /**
+     * Draw a value (in ticks).
+     * @param rand the random number generator to be used
+     * @return a sampled value
+     */
+    long sample(Random rand);
+
+    /**
+     * Draw the value at the given position of a sequence of draws. Models whose values depend on the position (e.g.,
+     * a trace being replayed) override this; the others ignore it. The schedulers keep the position of each task's
+     * models themselves and use this method, so a model can be shared by schedulers simulating at the same time
+     * (e.g., of cloned task sets or in parallel rounds).
+     * @param rand          the random number generator to be used
+     * @param sampleIndex   the position of the draw (0 for the first draw)
+     * @return a sampled value
+     */
+    default long sample(Random rand, long sampleIndex) {
+        return sample(rand);
+    }
+
+    /**
+     * Reset the internal state used by sample(Random), if any (e.g., the position of a trace being replayed).
+     */
+    default void reset() {
+    }
+}
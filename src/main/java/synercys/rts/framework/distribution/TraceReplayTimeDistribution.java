@@ -0,0 +1,47 @@
+package synercys.rts.framework.distribution;
+
+import java.util.Random;
+
+/**
+ * TraceReplayTimeDistribution.java
+ * Purpose: Replays a recorded sequence of values in order. When the trace is exhausted, it either starts over
+ *          (loop == true) or keeps returning the last value. The schedulers draw by position (sample(rand, index))
+ *          and keep the positions themselves; the position used by sample(rand) is only for standalone use.
+ */
+public class TraceReplayTimeDistribution implements TimeDistribution {
+    private final long[] values;
+    private final boolean loop;
+    private long position = 0;
+
+    public TraceReplayTimeDistribution(long[] values, boolean loop) {
+        if (values.length == 0)
+            throw new IllegalArgumentException("The trace is empty.");
+        this.values = values.clone();
+        this.loop = loop;
+    }
+
+    @Override
+    public long sample(Random rand) {
+        return sample(rand, position++);
+    }
+
+    @Override
+    public long sample(Random rand, long sampleIndex) {
+        if (sampleIndex < values.length)
+            return values[(int) sampleIndex];
+        return loop ? values[(int) (sampleIndex % values.length)] : values[values.length - 1];
+    }
+
+    @Override
+    public void reset() {
+        position = 0;
+    }
+
+    public long[] getValues() {
+        return values.clone();
+    }
+
+    public boolean isLoop() {
+        return loop;
+    }
+}
@@ -0,0 +1,79 @@
+package synercys.rts.framework.distribution;
+
+import org.apache.commons.math3.special.Erf;
+
+import java.util.Random;
+
+/**
+ * TruncatedGaussianTimeDistribution.java
+ * Purpose: Gaussian distributed values truncated to the integer range [min, max]. A sample x of the continuous
+ *          Gaussian restricted to [min, max+1) is drawn by the inverse CDF and converted to (long)x, so the truncation
+ *          is exact (no re-sampling and no probability piled up at the bounds). The CDF is evaluated on the tail side
+ *          of the range (by erfc) to keep it precise when the range is far from the mean.
+ */
+public class TruncatedGaussianTimeDistribution implements TimeDistribution {
+    private static final double SQRT2 = Math.sqrt(2);
+
+    private final double mean;
+    private final double stddev;
+    private final long min;
+    private final long max;
+
+    private final boolean upperTail;    // true if the range is above the mean (the CDF is mirrored)
+    private final double tailProbabilityBegin;
+    private final double tailProbabilitySpan;
+
+    public TruncatedGaussianTimeDistribution(double mean, double stddev, long min, long max) {
+        if (!(stddev > 0))
+            throw new IllegalArgumentException("The standard deviation must be positive: " + stddev);
+        if (min > max)
+            throw new IllegalArgumentException("Invalid range: [" + min + ", " + max + "]");
+        this.mean = mean;
+        this.stddev = stddev;
+        this.min = min;
+        this.max = max;
+
+        double za = (min - mean)/stddev;
+        double zb = ((double)max + 1 - mean)/stddev;
+        upperTail = za >= 0;
+        double pa, pb;
+        if (upperTail) {
+            // Q(z) = 1 - Phi(z), decreasing; sample Q in [Q(zb), Q(za)].
+            pa = 0.5*Erf.erfc(zb/SQRT2);
+            pb = 0.5*Erf.erfc(za/SQRT2);
+        } else {
+            // Phi(z) = Q(-z), increasing; sample Phi in [Phi(za), Phi(zb)].
+            pa = 0.5*Erf.erfc(-za/SQRT2);
+            pb = 0.5*Erf.erfc(-zb/SQRT2);
+        }
+        if (!(pb > pa))
+            throw new IllegalArgumentException("The range [" + min + ", " + max + "] has no probability mass for N(" + mean + ", " + stddev + "^2).");
+        tailProbabilityBegin = pa;
+        tailProbabilitySpan = pb - pa;
+    }
+
+    @Override
+    public long sample(Random rand) {
+        double p = tailProbabilityBegin + rand.nextDouble()*tailProbabilitySpan;
+        double z = SQRT2*Erf.erfcInv(2*p);   // Q^-1(p)
+        double x = mean + (upperTail ? z : -z)*stddev;
+        long value = (long)Math.floor(x);
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStddev() {
+        return stddev;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,33 @@
+package synercys.rts.framework.distribution;
+
+import java.util.Random;
+
+/**
+ * UniformTimeDistribution.java
+ * Purpose: Uniformly distributed integer values in [min, max].
+ */
+public class UniformTimeDistribution implements TimeDistribution {
+    private final long min;
+    private final long max;
+
+    public UniformTimeDistribution(long min, long max) {
+        if (min > max)
+            throw new IllegalArgumentException("Invalid range: [" + min + ", " + max + "]");
+        this.min = min;
+        this.max = max;
+    }
+
+    @Override
+    public long sample(Random rand) {
+        long value = min + (long)(rand.nextDouble()*((double)max - min + 1));
+        return value > max ? max : value;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+}
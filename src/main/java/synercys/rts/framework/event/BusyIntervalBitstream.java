@@ -0,0 +1,141 @@
+package synercys.rts.framework.event;
+
+import java.nio.LongBuffer;
+
+/**
+ * BusyIntervalBitstream.java
+ * Purpose: A packed busy interval schedule with 1 bit per tick (1 for busy and 0 for idle), covering [beginTime,
+ *          beginTime + length). Tick (beginTime + i) is stored in bit (i % 64) of word (i / 64). It is the packed
+ *          counterpart of BusyIntervalEventContainer.toBinaryString() and toBinaryDouble().
+ *
+ *          Bits are set directly from interval endpoints with word-level fills. The words are held in a LongBuffer,
+ *          so a bitstream can be backed by either an array or a memory-mapped file (see BitstreamLoader).
+ */
+public class BusyIntervalBitstream {
+    long beginTime;
+    long length;
+    LongBuffer words;
+
+    public BusyIntervalBitstream(long beginTime, long length) {
+        this(beginTime, length, LongBuffer.wrap(new long[getWordCount(length)]));
+    }
+
+    public BusyIntervalBitstream(long beginTime, long length, LongBuffer words) {
+        if (words.remaining() < getWordCount(length))
+            throw new IllegalArgumentException("Not enough words for a bitstream of " + length + " ticks.");
+        this.beginTime = beginTime;
+        this.length = length;
+        this.words = words.slice();
+    }
+
+    public static int getWordCount(long length) {
+        long wordCount = (length + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The bitstream is too long: " + length + " ticks.");
+        return (int) wordCount;
+    }
+
+    /**
+     * Create a bitstream that covers from the begin time of the first busy interval to the end time of the last one,
+     * the same range as BusyIntervalEventContainer.toBinaryString().
+     * @param inBis busy intervals
+     * @return the bitstream of the busy intervals
+     */
+    public static BusyIntervalBitstream fromBusyIntervals(BusyIntervalEventContainer inBis) {
+        long beginTime = inBis.getBeginTime();
+        BusyIntervalBitstream bitstream = new BusyIntervalBitstream(beginTime, Math.max(0, inBis.getEndTime() - beginTime));
+        for (BusyIntervalEvent thisBi : inBis.getBusyIntervals()) {
+            bitstream.setRange(thisBi.getOrgBeginTimestamp(), thisBi.getOrgEndTimestamp());
+        }
+        return bitstream;
+    }
+
+    /**
+     * Mark [inBegin, inEnd) as busy. The range is clipped to the range of the bitstream.
+     */
+    public void setRange(long inBegin, long inEnd) {
+        long fromBit = Math.max(inBegin - beginTime, 0);
+        long toBit = Math.min(inEnd - beginTime, length);    // exclusive
+        if (fromBit >= toBit)
+            return;
+
+        int firstWord = (int) (fromBit >>> 6);
+        int lastWord = (int) ((toBit - 1) >>> 6);
+        long firstMask = -1L << (fromBit & 63);
+        long lastMask = -1L >>> (63 - ((toBit - 1) & 63));
+
+        if (firstWord == lastWord) {
+            words.put(firstWord, words.get(firstWord) | (firstMask & lastMask));
+            return;
+        }
+
+        words.put(firstWord, words.get(firstWord) | firstMask);
+        for (int i=firstWord+1; i<lastWord; i++) {
+            words.put(i, -1L);
+        }
+        words.put(lastWord, words.get(lastWord) | lastMask);
+    }
+
+    /**
+     * @param inTimestamp a timestamp in [beginTime, beginTime + length)
+     * @return true if the tick is busy
+     */
+    public boolean get(long inTimestamp) {
+        long bit = inTimestamp - beginTime;
+        if (bit < 0 || bit >= length)
+            return false;
+        return (words.get((int) (bit >>> 6)) & (1L << (bit & 63))) != 0;
+    }
+
+    public long countBusyTicks() {
+        long count = 0;
+        int wordCount = getWordCount(length);
+        for (int i=0; i<wordCount; i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    public long getBeginTime() {
+        return beginTime;
+    }
+
+    public long getEndTime() {
+        return beginTime + length;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return a read-only view of the words (the last word is padded with zeros)
+     */
+    public LongBuffer getWords() {
+        LongBuffer view = words.asReadOnlyBuffer();
+        view.limit(getWordCount(length));
+        return view;
+    }
+
+    public double[] toBinaryDouble() {
+        double[] binarySchedule = new double[(int) length];
+        for (int i=0; i<binarySchedule.length; i++) {
+            if ((words.get(i >>> 6) & (1L << (i & 63))) != 0)
+                binarySchedule[i] = 1.0;
+        }
+        return binarySchedule;
+    }
+
+    /**
+     * @return the same comma-separated string as BusyIntervalEventContainer.toBinaryString()
+     */
+    public String toBinaryString() {
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE, length*3));
+        for (long i=0; i<length; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append((words.get((int) (i >>> 6)) & (1L << (i & 63))) != 0 ? '1' : '0');
+        }
+        return sb.toString();
+    }
+}
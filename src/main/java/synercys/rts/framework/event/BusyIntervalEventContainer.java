@@ -269,6 +269,13 @@ public class BusyIntervalEventContainer {
         return outStr;
     }
 
+    /**
+     * @return the busy intervals packed with 1 bit per tick (same range as toBinaryString())
+     */
+    public BusyIntervalBitstream toBitstream() {
+        return BusyIntervalBitstream.fromBusyIntervals(this);
+    }
+
     public double[] toBinaryDouble() {
         ArrayList<Double> binarySchedule = new ArrayList<>();
 
@@ -26,6 +26,12 @@ public class EventContainer {
 
     private String schedulingPolicy = SCHEDULING_POLICY_UNKNOWN;   // It is optional and does not affect any data in this class.
 
+    /* Event sinks receive every added event (clipped to the sink window) as it arrives. */
+    private ArrayList<EventSink> eventSinks = new ArrayList<>();
+    private boolean retainEvents = true;    // When false, added events are only forwarded to the sinks.
+    private long sinkWindowBegin = Long.MIN_VALUE;
+    private long sinkWindowEnd = Long.MAX_VALUE;
+
     public EventContainer(){}
 
     public void addNextEvent(int inEventType, long inTimestamp, int inEventTaskId, int inData, String inEventString)
@@ -44,11 +50,78 @@ public class EventContainer {
     }
 
     public void add(SchedulerIntervalEvent inSchedulerIntervalEvent) {
-        schedulerEvents.add(inSchedulerIntervalEvent);
+        if (eventSinks.size() > 0) {
+            forwardToEventSinks(inSchedulerIntervalEvent);
+        }
+        if (retainEvents) {
+            schedulerEvents.add(inSchedulerIntervalEvent);
+        }
     }
 
     public void add (TaskInstantEvent inTaskInstantEvent) {
-        taskInstantEvents.add(inTaskInstantEvent);
+        if (eventSinks.size() > 0) {
+            forwardToEventSinks(inTaskInstantEvent);
+        }
+        if (retainEvents) {
+            taskInstantEvents.add(inTaskInstantEvent);
+        }
+    }
+
+    /**
+     * Register an event sink that receives every event added to this container from now on.
+     * @param inEventSink   the sink to be registered
+     * @param retainEvents  false if events should only be forwarded to the sinks without being kept in this container
+     */
+    public void addEventSink(EventSink inEventSink, boolean retainEvents) {
+        eventSinks.add(inEventSink);
+        this.retainEvents = retainEvents;
+    }
+
+    public void clearEventSinks() {
+        eventSinks.clear();
+        retainEvents = true;
+        sinkWindowBegin = Long.MIN_VALUE;
+        sinkWindowEnd = Long.MAX_VALUE;
+    }
+
+    /**
+     * Set the time window [begin, end) of events that are forwarded to the sinks. Scheduler interval events are
+     * clipped to the window in the same way as trimEventsBeforeTimeStamp() and trimEventsToTimeStamp() do.
+     * @param inBegin   begin of the window (inclusive)
+     * @param inEnd     end of the window (exclusive)
+     */
+    public void setEventSinkWindow(long inBegin, long inEnd) {
+        sinkWindowBegin = inBegin;
+        sinkWindowEnd = inEnd;
+    }
+
+    protected void forwardToEventSinks(SchedulerIntervalEvent inEvent) {
+        long begin = inEvent.getOrgBeginTimestamp();
+        long end = inEvent.getOrgEndTimestamp();
+        if (begin >= sinkWindowEnd || end <= sinkWindowBegin)
+            return;
+
+        SchedulerIntervalEvent outEvent = inEvent;
+        if (begin < sinkWindowBegin || end > sinkWindowEnd) {
+            // Clip a copy so that the retained event (if any) stays untouched.
+            outEvent = new SchedulerIntervalEvent(Math.max(begin, sinkWindowBegin), Math.min(end, sinkWindowEnd),
+                    inEvent.getJobInitialArrivalTime(), inEvent.getTask(), inEvent.getNote());
+            outEvent.setScheduleStates(inEvent.getBeginTimeScheduleState(), inEvent.getEndTimeScheduleState());
+        }
+
+        for (EventSink eventSink : eventSinks) {
+            eventSink.add(outEvent);
+        }
+    }
+
+    protected void forwardToEventSinks(TaskInstantEvent inEvent) {
+        // Instant events on the window boundaries are dropped, consistent with the trim functions.
+        if (inEvent.getOrgTimestamp() <= sinkWindowBegin || inEvent.getOrgTimestamp() >= sinkWindowEnd)
+            return;
+
+        for (EventSink eventSink : eventSinks) {
+            eventSink.add(inEvent);
+        }
     }
 
     public void clearAll()
@@ -0,0 +1,11 @@
+package synercys.rts.framework.event;
+
+/**
+ * EventSink.java
+ * Purpose: An interface for consumers that receive schedule events one at a time as they are produced (e.g., by a
+ *          scheduler simulator), so that a schedule does not have to be held in an EventContainer in full.
+ */
+public interface EventSink {
+    public void add(SchedulerIntervalEvent inSchedulerIntervalEvent);
+    public void add(TaskInstantEvent inTaskInstantEvent);
+}
@@ -1,13 +1,16 @@
 package synercys.rts.scheduler;
 
 import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.EventSink;
 
 public interface AdvanceableSchedulerInterface {
     public EventContainer runSim(long tickLimit);
     public EventContainer runSimWithOffset(long offset, long duration);
+    public void runSimWithOffset(long offset, long duration, EventSink eventSink);
     public EventContainer runSimWithDefaultOffset(long duration);
     public long getSimDefaultOffset();
     public void advance();
     public EventContainer concludeSim();
     public EventContainer getSimEventContainer();
+    public void reset(long seed);
 }
@@ -4,9 +4,11 @@ import synercys.rts.framework.Job;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
 import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.EventSink;
 import synercys.rts.framework.event.SchedulerIntervalEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
@@ -20,31 +22,39 @@ import java.util.HashMap;
  * @version 1.0 - 2018, 12/21
  */
 public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator implements AdvanceableSchedulerInterface {
-    // This map stores each task's next job instance, no matter it's arrived or not.
-    protected HashMap<Task, Job> nextJobOfATask = new HashMap<>();
+    // This array stores each task's next job instance (indexed by the task index in taskSetSnapshot), no matter it's arrived or not.
+    protected Job[] nextJobOfATask;
 
     protected boolean genIdleTimeEvents = true; // Should the scheduler log idle time intervals?
     protected boolean assertOnDeadlineMiss = true;
 
-    /* Tracing */
+    /* Tracing (indexed by the task index in taskSetSnapshot) */
     protected boolean traceEnabled = false;
-    protected HashMap<Task, Long> taskDeadlineMissCount = new HashMap<>();
-    protected HashMap<Task, Boolean> taskDeadlineMissState = new HashMap<>();
-    protected HashMap<Task, Long> taskRunningConsecutiveDeadlineMissCount = new HashMap<>();
-    protected HashMap<Task, Long> taskMaxConsecutiveDeadlineMissCount = new HashMap<>();
-    protected HashMap<Task, ArrayList<Long>> taskInterArrivalTimeTrace = new HashMap<>();
+    protected long[] taskDeadlineMissCount;
+    protected boolean[] taskDeadlineMissState;
+    protected long[] taskRunningConsecutiveDeadlineMissCount;
+    protected long[] taskMaxConsecutiveDeadlineMissCount;
+    protected ArrayList<ArrayList<Long>> taskInterArrivalTimeTrace = new ArrayList<>();
+
+    /* Workload replay (indexed by the task index in taskSetSnapshot; null for tasks not in the trace) */
+    protected WorkloadTrace workloadTrace = null;
+    protected long[][] replayReleaseTime;
+    protected long[][] replayExecutionTime;
+    protected int[] replayPosition;
 
 
     public AdvanceableSchedulerSimulator(TaskSet taskSet, boolean runTimeVariation, String schedulingPolicy) {
         super(taskSet, runTimeVariation, schedulingPolicy);
 
         // for tracing
-        for (Task task : taskSet.getRunnableTasksAsArray()) {
-            taskDeadlineMissCount.put(task, (long) 0);
-            taskDeadlineMissState.put(task, false);
-            taskRunningConsecutiveDeadlineMissCount.put(task, (long) 0);
-            taskMaxConsecutiveDeadlineMissCount.put(task, (long) 0);
-            taskInterArrivalTimeTrace.put(task, new ArrayList<>());
+        int taskCount = taskSetSnapshot.size();
+        nextJobOfATask = new Job[taskCount];
+        taskDeadlineMissCount = new long[taskCount];
+        taskDeadlineMissState = new boolean[taskCount];
+        taskRunningConsecutiveDeadlineMissCount = new long[taskCount];
+        taskMaxConsecutiveDeadlineMissCount = new long[taskCount];
+        for (int i=0; i<taskCount; i++) {
+            taskInterArrivalTimeTrace.add(new ArrayList<>());
         }
 
         /* Initialize the first job of each task. */
@@ -56,6 +66,12 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
     abstract protected void runJobExecutedHook(Job runJob, long tick, long executedTime);
     abstract protected void deadlineMissedHook(Job runJob);
 
+    /**
+     * Called when the first jobs of the tasks (nextJobOfATask) are re-created before the simulation starts (e.g.,
+     * when a workload trace is set), so that schedulers can rebuild the states derived from them.
+     */
+    protected void firstTaskJobsInitializedHook() {}
+
 
     @Override
     public EventContainer runSim(long tickLimit) {
@@ -84,6 +100,22 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
     }
 
 
+    /**
+     * Run schedule simulation with an offset and forward the resulting events to the given sink as they are produced,
+     * rather than keeping them in the scheduler's event container. The sink receives the same events (trimmed to
+     * [offset, offset + duration)) as the ones runSimWithOffset() would return.
+     * @param offset    offset value
+     * @param duration  length of schedule to be simulated (offset + duration)
+     * @param eventSink the sink that consumes the schedule events
+     */
+    public void runSimWithOffset(long offset, long duration, EventSink eventSink) {
+        simEventContainer.addEventSink(eventSink, false);
+        simEventContainer.setEventSinkWindow(offset, offset + duration);
+        runSim(offset + duration);
+        simEventContainer.clearEventSinks();
+    }
+
+
     public EventContainer runSimWithDefaultOffset(long duration) {
         return runSimWithOffset(getSimDefaultOffset(), duration);
     }
@@ -112,7 +144,7 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
         if (currentJob.releaseTime > tick) {
 
             if (genIdleTimeEvents == true) {
-                SchedulerIntervalEvent idleJobEvent = new SchedulerIntervalEvent(tick, currentJob.releaseTime, taskSet.getIdleTask(), "");
+                SchedulerIntervalEvent idleJobEvent = new SchedulerIntervalEvent(tick, currentJob.releaseTime, taskSetSnapshot.getIdleTask(), "");
                 idleJobEvent.setScheduleStates(SchedulerIntervalEvent.SCHEDULE_STATE_START, SchedulerIntervalEvent.SCHEDULE_STATE_END);
                 simEventContainer.add(idleJobEvent);
             }
@@ -125,6 +157,17 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
     }
 
     protected Job updateTaskJob(Task task) {
+        int taskIndex = getTaskIndex(task);
+        if (hasReplayJob(taskIndex)) {
+            long releaseTime = replayReleaseTime[taskIndex][replayPosition[taskIndex]];
+            long executionTime = replayExecutionTime[taskIndex][replayPosition[taskIndex]++];
+            taskInterArrivalTimeTrace.get(taskIndex).add(releaseTime - nextJobOfATask[taskIndex].releaseTime);
+
+            Job newJob = new Job(task, releaseTime, executionTime);
+            nextJobOfATask[taskIndex] = newJob;
+            return newJob;
+        }
+
         /* Determine next arrival time. */
         long interArrivalTime, nextArrivalTime;
         if (task.isSporadicTask()) {
@@ -132,8 +175,8 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
         } else {
             interArrivalTime = task.getPeriod();
         }
-        nextArrivalTime = nextJobOfATask.get(task).releaseTime + interArrivalTime;
-        taskInterArrivalTimeTrace.get(task).add(interArrivalTime);
+        nextArrivalTime = nextJobOfATask[taskIndex].releaseTime + interArrivalTime;
+        taskInterArrivalTimeTrace.get(taskIndex).add(interArrivalTime);
 
         /* Determine the execution time. */
         long executionTime;
@@ -144,7 +187,7 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
         }
 
         Job newJob = new Job(task, nextArrivalTime, executionTime);
-        nextJobOfATask.put(task, newJob);
+        nextJobOfATask[taskIndex] = newJob;
 
         return newJob;
     }
@@ -153,16 +196,221 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
         /* Note that the first job of a sporadic task arrives at the initial offset time point.
         * It is based on the assumption (also the fact) that any task needs to run some initialization
         * when it first starts. */
-        for (Task task: taskSet.getRunnableTasksAsArray()) {
+        for (int i=0; i<taskSetSnapshot.size(); i++) {
+            Task task = taskSetSnapshot.getTask(i);
             Job firstJob;
-            if (runTimeVariation == true)
+            if (hasReplayJob(i))
+                firstJob = new Job(task, replayReleaseTime[i][replayPosition[i]], replayExecutionTime[i][replayPosition[i]++]);
+            else if (runTimeVariation == true)
                 firstJob = new Job(task, task.getInitialOffset(), getVariedExecutionTime(task));
             else
                 firstJob = new Job(task, task.getInitialOffset(), task.getWcet());
-            nextJobOfATask.put(task, firstJob);
+            nextJobOfATask[i] = firstJob;
         }
     }
 
+    /**
+     * Replay a recorded workload: the jobs of each task in the trace are released at the recorded release times with
+     * the recorded execution times (regardless of runTimeVariation). Once a task's recorded jobs run out, or if a task
+     * is not in the trace, its jobs are generated as usual. Policies that randomize release times by themselves (e.g.,
+     * LaplaceScheduler) only take the first release times and the execution times from the trace. Tasks are matched
+     * by their IDs.
+     *
+     * This must be called before the simulation starts as it re-creates the first jobs. The trace is only read, so one
+     * trace can be replayed by several schedulers (e.g., to compare policies on an identical workload).
+     * @param workloadTrace the trace to be replayed, or null to stop replaying
+     */
+    public void setWorkloadTrace(WorkloadTrace workloadTrace) {
+        if (tick != 0)
+            throw new IllegalStateException("A workload trace has to be set before the simulation starts.");
+
+        this.workloadTrace = workloadTrace;
+        int taskCount = taskSetSnapshot.size();
+        replayReleaseTime = new long[taskCount][];
+        replayExecutionTime = new long[taskCount][];
+        replayPosition = new int[taskCount];
+        if (workloadTrace != null) {
+            for (int i=0; i<taskCount; i++) {
+                int taskId = taskSetSnapshot.getTask(i).getId();
+                replayReleaseTime[i] = workloadTrace.getReleaseTimes(taskId);
+                replayExecutionTime[i] = workloadTrace.getExecutionTimes(taskId);
+            }
+        }
+
+        for (ArrayList<Long> interArrivalTimes : taskInterArrivalTimeTrace)
+            interArrivalTimes.clear();
+        initializeFirstTaskJobs();
+        firstTaskJobsInitializedHook();
+    }
+
+    /**
+     * Bring the scheduler back to its initial state with a new random seed, so that one scheduler instance can be
+     * reused for many simulation rounds without redoing its offline analyses (e.g., priority assignment, WCRT and
+     * WCIB computation). The jobs, the tracing data, the replay position of the workload trace and the tasks' time
+     * distribution models are reset. A new event container is created, so the schedules returned by earlier
+     * simulations remain intact. Two runs after reset() with the same seed produce the same schedule.
+     * @param seed seed for all random decisions and runtime variations of the next simulation
+     */
+    @Override
+    public void reset(long seed) {
+        tick = 0;
+        currentJob = null;
+        lastJob = null;
+        readyQueue.clear();
+        activeQueue.clear();
+
+        EventContainer eventContainer = new EventContainer();
+        eventContainer.setSchedulingPolicy(simEventContainer.getSchedulingPolicy());
+        eventContainer.setTaskSet(taskSet);
+        simEventContainer = eventContainer;
+
+        Arrays.fill(taskDeadlineMissCount, 0);
+        Arrays.fill(taskDeadlineMissState, false);
+        Arrays.fill(taskRunningConsecutiveDeadlineMissCount, 0);
+        Arrays.fill(taskMaxConsecutiveDeadlineMissCount, 0);
+        for (ArrayList<Long> interArrivalTimes : taskInterArrivalTimeTrace)
+            interArrivalTimes.clear();
+        if (replayPosition != null)
+            Arrays.fill(replayPosition, 0);
+
+        setRandomSeed(seed);
+        resetTaskTimeDistributions();
+        initializeFirstTaskJobs();
+        firstTaskJobsInitializedHook();
+    }
+
+    /**
+     * Simulate from tick 0 to the first scheduling point at or after the given offset (the scheduler should be fresh
+     * or reset) and take a snapshot, from which runSimFromState() forks continuations. A continuation gives the same
+     * schedule as runSimWithOffset(offset, duration) would if the random decisions after the snapshot were the same,
+     * but the warm-up before the offset is simulated only once for all continuations.
+     * @param offset the warm-up length; the events of the continuations are kept from this time
+     * @return the snapshot
+     */
+    public SimulationState warmUp(long offset) {
+        tick = 0;
+        while (tick < offset) {
+            advance();
+        }
+        return saveState(offset);
+    }
+
+    /**
+     * Take a snapshot at the present tick (a scheduling point).
+     * @return the snapshot
+     */
+    public SimulationState saveState() {
+        return saveState(tick);
+    }
+
+    protected SimulationState saveState(long offset) {
+        int taskCount = taskSetSnapshot.size();
+        SimulationState state = new SimulationState(getClass(), taskSet, offset, tick, taskCount);
+        for (int i=0; i<taskCount; i++) {
+            state.nextJobOfATask[i] = SimulationState.copyJob(nextJobOfATask[i]);
+            ArrayList<Long> interArrivalTimes = taskInterArrivalTimeTrace.get(i);
+            state.taskInterArrivalTimeTrace[i] = new long[interArrivalTimes.size()];
+            for (int k=0; k<interArrivalTimes.size(); k++)
+                state.taskInterArrivalTimeTrace[i][k] = interArrivalTimes.get(k);
+        }
+        System.arraycopy(taskDeadlineMissCount, 0, state.taskDeadlineMissCount, 0, taskCount);
+        System.arraycopy(taskDeadlineMissState, 0, state.taskDeadlineMissState, 0, taskCount);
+        System.arraycopy(taskRunningConsecutiveDeadlineMissCount, 0, state.taskRunningConsecutiveDeadlineMissCount, 0, taskCount);
+        System.arraycopy(taskMaxConsecutiveDeadlineMissCount, 0, state.taskMaxConsecutiveDeadlineMissCount, 0, taskCount);
+        if (replayPosition != null)
+            System.arraycopy(replayPosition, 0, state.replayPosition, 0, taskCount);
+        System.arraycopy(executionTimeSampleCount, 0, state.executionTimeSampleCount, 0, taskCount);
+        System.arraycopy(interArrivalTimeSampleCount, 0, state.interArrivalTimeSampleCount, 0, taskCount);
+
+        for (SchedulerIntervalEvent event : simEventContainer.getSchedulerEvents()) {
+            if (event.getOrgEndTimestamp() <= offset)
+                continue;
+            SchedulerIntervalEvent eventCopy = SimulationState.copyEvent(event);
+            if (eventCopy.getOrgBeginTimestamp() < offset)
+                eventCopy.setOrgBeginTimestamp(offset);
+            state.schedulerEvents.add(eventCopy);
+        }
+
+        saveStateHook(state);
+        return state;
+    }
+
+    /**
+     * Restore a snapshot taken by this scheduler or by another scheduler of the same class for the same task set.
+     * The random number generators are reseeded, so continuations restored with different seeds are independent.
+     * The scheduler continues with a new event container that holds the events in [offset, tick) of the snapshot.
+     * @param state the snapshot (not modified)
+     * @param seed  seed of the continuation's random number streams
+     */
+    public void restoreState(SimulationState state, long seed) {
+        if (state.schedulerClass != getClass() || state.taskSet != taskSet)
+            throw new IllegalArgumentException("The snapshot was taken by a different kind of scheduler or for a different task set.");
+
+        int taskCount = taskSetSnapshot.size();
+        tick = state.tick;
+        for (int i=0; i<taskCount; i++) {
+            nextJobOfATask[i] = SimulationState.copyJob(state.nextJobOfATask[i]);
+            ArrayList<Long> interArrivalTimes = taskInterArrivalTimeTrace.get(i);
+            interArrivalTimes.clear();
+            for (long interArrivalTime : state.taskInterArrivalTimeTrace[i])
+                interArrivalTimes.add(interArrivalTime);
+        }
+        System.arraycopy(state.taskDeadlineMissCount, 0, taskDeadlineMissCount, 0, taskCount);
+        System.arraycopy(state.taskDeadlineMissState, 0, taskDeadlineMissState, 0, taskCount);
+        System.arraycopy(state.taskRunningConsecutiveDeadlineMissCount, 0, taskRunningConsecutiveDeadlineMissCount, 0, taskCount);
+        System.arraycopy(state.taskMaxConsecutiveDeadlineMissCount, 0, taskMaxConsecutiveDeadlineMissCount, 0, taskCount);
+        if (replayPosition != null)
+            System.arraycopy(state.replayPosition, 0, replayPosition, 0, taskCount);
+        System.arraycopy(state.executionTimeSampleCount, 0, executionTimeSampleCount, 0, taskCount);
+        System.arraycopy(state.interArrivalTimeSampleCount, 0, interArrivalTimeSampleCount, 0, taskCount);
+
+        EventContainer eventContainer = new EventContainer();
+        eventContainer.setSchedulingPolicy(simEventContainer.getSchedulingPolicy());
+        eventContainer.setTaskSet(taskSet);
+        for (SchedulerIntervalEvent event : state.schedulerEvents)
+            eventContainer.add(SimulationState.copyEvent(event));
+        simEventContainer = eventContainer;
+
+        setRandomSeed(seed);
+        restoreStateHook(state);
+    }
+
+    /**
+     * Fork a continuation from a warm-up snapshot (see warmUp()) and simulate it to (offset + duration).
+     * @param state     the warm-up snapshot
+     * @param seed      seed of the continuation's random number streams
+     * @param duration  length of schedule to be simulated after the offset
+     * @return the schedule in [offset, offset + duration)
+     */
+    public EventContainer runSimFromState(SimulationState state, long seed, long duration) {
+        restoreState(state, seed);
+        long tickLimit = state.offset + duration;
+        while (tick <= tickLimit) {
+            advance();
+        }
+        simEventContainer.trimEventsToTimeStamp(tickLimit);
+        return simEventContainer;
+    }
+
+    /* Called by saveState() to put copies of the scheduler's own states into the snapshot. */
+    protected void saveStateHook(SimulationState state) {}
+
+    /* Called by restoreState() to restore (copies of) the scheduler's own states from the snapshot. */
+    protected void restoreStateHook(SimulationState state) {}
+
+    public WorkloadTrace getWorkloadTrace() {
+        return workloadTrace;
+    }
+
+    /**
+     * @param taskIndex task index
+     * @return true if the next job of the task is taken from the workload trace
+     */
+    protected boolean hasReplayJob(int taskIndex) {
+        return workloadTrace != null && replayReleaseTime[taskIndex] != null
+                && replayPosition[taskIndex] < replayReleaseTime[taskIndex].length;
+    }
+
 
     protected long runJobToNextSchedulingPoint(long tick, Job runJob) {
         /* Find if there is any job preempting the runJob. */
@@ -180,14 +428,13 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
                 }
 
                 if (traceEnabled) {
-                    Task task = runJob.task;
-                    taskDeadlineMissCount.put(task, taskDeadlineMissCount.get(task)+1);
-                    if (taskDeadlineMissState.get(task) == true) {
-                        long currentConsecutiveDeadlineMissCount = taskRunningConsecutiveDeadlineMissCount.get(task)+1;
-                        taskRunningConsecutiveDeadlineMissCount.put(task, currentConsecutiveDeadlineMissCount);
-
-                        if (currentConsecutiveDeadlineMissCount > taskMaxConsecutiveDeadlineMissCount.get(task)) {
-                            taskMaxConsecutiveDeadlineMissCount.put(task, currentConsecutiveDeadlineMissCount);
+                    int taskIndex = getTaskIndex(runJob.task);
+                    taskDeadlineMissCount[taskIndex]++;
+                    if (taskDeadlineMissState[taskIndex] == true) {
+                        long currentConsecutiveDeadlineMissCount = ++taskRunningConsecutiveDeadlineMissCount[taskIndex];
+
+                        if (currentConsecutiveDeadlineMissCount > taskMaxConsecutiveDeadlineMissCount[taskIndex]) {
+                            taskMaxConsecutiveDeadlineMissCount[taskIndex] = currentConsecutiveDeadlineMissCount;
                         }
 
                     }
@@ -200,9 +447,9 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
 
             } else {
                 if (traceEnabled) {
-                    Task task = runJob.task;
-                    taskDeadlineMissState.put(task, false);
-                    taskRunningConsecutiveDeadlineMissCount.put(task, (long) 0);
+                    int taskIndex = getTaskIndex(runJob.task);
+                    taskDeadlineMissState[taskIndex] = false;
+                    taskRunningConsecutiveDeadlineMissCount[taskIndex] = 0;
                 }
             }
 
@@ -253,7 +500,7 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
 
     protected ArrayList<Job> getAllReadyJobs(long tick) {
         ArrayList<Job> readyJobs = new ArrayList<>();
-        for (Job job : nextJobOfATask.values()) {
+        for (Job job : nextJobOfATask) {
             if (job.releaseTime > tick)
                 continue;
             else {
@@ -267,20 +514,38 @@ public abstract class AdvanceableSchedulerSimulator extends SchedulerSimulator i
         this.genIdleTimeEvents = genIdleTimeEvents;
     }
 
+    public void setAssertOnDeadlineMiss(boolean assertOnDeadlineMiss) {
+        this.assertOnDeadlineMiss = assertOnDeadlineMiss;
+    }
+
     public void setTraceEnabled(boolean traceEnabled) {
         this.traceEnabled = traceEnabled;
     }
 
+    /* The following getters return maps keyed by tasks (built from the task-indexed arrays) for compatibility. */
+
     public HashMap<Task, Long> getTaskDeadlineMissCount() {
-        return taskDeadlineMissCount;
+        return toTaskMap(taskDeadlineMissCount);
     }
 
     public HashMap<Task, ArrayList<Long>> getTaskInterArrivalTimeTrace() {
-        return taskInterArrivalTimeTrace;
+        HashMap<Task, ArrayList<Long>> map = new HashMap<>();
+        for (int i=0; i<taskInterArrivalTimeTrace.size(); i++) {
+            map.put(taskSetSnapshot.getTask(i), taskInterArrivalTimeTrace.get(i));
+        }
+        return map;
     }
 
     public HashMap<Task, Long> getTaskMaxConsecutiveDeadlineMissCount() {
-        return taskMaxConsecutiveDeadlineMissCount;
+        return toTaskMap(taskMaxConsecutiveDeadlineMissCount);
+    }
+
+    public long getTaskDeadlineMissCount(int taskIndex) {
+        return taskDeadlineMissCount[taskIndex];
+    }
+
+    public long getTaskMaxConsecutiveDeadlineMissCount(int taskIndex) {
+        return taskMaxConsecutiveDeadlineMissCount[taskIndex];
     }
 
     @Override
@@ -0,0 +1,506 @@
+package synercys.rts.scheduler;
+
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.TaskSetSnapshot;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.EventSink;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchSchedulerSimulator.java
+ * Purpose: A simulation kernel that runs many independent task sets ("lanes") under the fixed-priority (RM) or EDF
+ *          policy without runtime variation, for mass tests that simulate thousands of small task sets.
+ *
+ *          The task parameters and the next job of every task of all lanes are packed into flat primitive arrays
+ *          (lane i owns the task slots [laneTaskBegin[i], laneTaskBegin[i+1])), so a scheduling decision is a scan
+ *          over a few contiguous array elements instead of over Job objects, and the schedules are written as
+ *          compact per-lane interval records (IntervalRecords) instead of event objects. Each lane advances with its
+ *          own clock from scheduling point to scheduling point; lanes are split over a thread pool.
+ *
+ *          The schedules (including the tie-breaking, the idle intervals, the deadline-miss handling and the trimming
+ *          of runSim()/runSimWithOffset()) are identical to those of FixedPriorityScheduler and EdfScheduler with
+ *          runTimeVariation = false. Sporadic tasks (whose inter-arrival times are random) are not supported. As
+ *          FixedPriorityScheduler does, RM priorities are assigned to the task sets in the fixed-priority mode.
+ */
+public class BatchSchedulerSimulator {
+    protected final boolean edf;
+    protected final String schedulingPolicy;    // as in EventContainer
+    protected final int laneCount;
+    protected final TaskSet[] laneTaskSets;
+    protected final TaskSetSnapshot[] laneSnapshots;
+    protected final int[] laneTaskBegin;        // size laneCount + 1
+
+    /* Task parameters (indexed by task slot) */
+    protected final long[] period;
+    protected final long[] wcet;
+    protected final long[] relativeDeadline;
+    protected final long[] initialOffset;
+    protected final int[] priority;
+
+    /* The next job of each task (indexed by task slot) */
+    protected final long[] jobReleaseTime;
+    protected final long[] jobRemainingExecTime;
+    protected final long[] jobAbsoluteDeadline;
+    protected final boolean[] jobHasStarted;
+
+    protected IntervalRecords[] laneRecords;
+
+    protected boolean genIdleTimeEvents = true;
+    protected boolean assertOnDeadlineMiss = true;
+    protected int threadCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param taskSets          the task sets (lanes); their idle tasks (if any) are used for the idle intervals
+     * @param schedulingPolicy  a policy name that SchedulerUtil maps to FixedPriorityScheduler or EdfScheduler
+     */
+    public BatchSchedulerSimulator(List<TaskSet> taskSets, String schedulingPolicy) {
+        if (!isSupportedPolicy(schedulingPolicy))
+            throw new IllegalArgumentException("The batch simulator only supports the RM and EDF policies: " + schedulingPolicy);
+        edf = isEdfPolicy(schedulingPolicy);
+        this.schedulingPolicy = edf ? EventContainer.SCHEDULING_POLICY_EDF : EventContainer.SCHEDULING_POLICY_FIXED_PRIORITY;
+
+        laneCount = taskSets.size();
+        laneTaskSets = taskSets.toArray(new TaskSet[0]);
+        laneSnapshots = new TaskSetSnapshot[laneCount];
+        laneTaskBegin = new int[laneCount + 1];
+        for (int lane=0; lane<laneCount; lane++) {
+            TaskSet taskSet = taskSets.get(lane);
+            if (!edf)
+                taskSet.assignPriorityRm();
+            laneSnapshots[lane] = taskSet.getSnapshot();
+            if (laneSnapshots[lane].size() == 0)
+                throw new IllegalArgumentException("Task set #" + taskSet.getId() + " has no runnable task.");
+            laneTaskBegin[lane + 1] = laneTaskBegin[lane] + laneSnapshots[lane].size();
+        }
+
+        int slotCount = laneTaskBegin[laneCount];
+        period = new long[slotCount];
+        wcet = new long[slotCount];
+        relativeDeadline = new long[slotCount];
+        initialOffset = new long[slotCount];
+        priority = new int[slotCount];
+        jobReleaseTime = new long[slotCount];
+        jobRemainingExecTime = new long[slotCount];
+        jobAbsoluteDeadline = new long[slotCount];
+        jobHasStarted = new boolean[slotCount];
+        for (int lane=0; lane<laneCount; lane++) {
+            TaskSetSnapshot snapshot = laneSnapshots[lane];
+            for (int i=0; i<snapshot.size(); i++) {
+                if (snapshot.isSporadicTask(i))
+                    throw new IllegalArgumentException("The batch simulator does not support sporadic tasks: " + snapshot.getTask(i));
+                int slot = laneTaskBegin[lane] + i;
+                period[slot] = snapshot.getPeriod(i);
+                wcet[slot] = snapshot.getWcet(i);
+                relativeDeadline[slot] = snapshot.getDeadline(i);
+                initialOffset[slot] = snapshot.getInitialOffset(i);
+                priority[slot] = snapshot.getPriority(i);
+            }
+        }
+    }
+
+    /**
+     * @return true if the policy is one that SchedulerUtil.getScheduler() maps to FixedPriorityScheduler or
+     *         EdfScheduler (the policies this simulator supports)
+     */
+    public static boolean isSupportedPolicy(String schedulingPolicy) {
+        return isFixedPriorityPolicy(schedulingPolicy) || isEdfPolicy(schedulingPolicy);
+    }
+
+    protected static boolean isFixedPriorityPolicy(String schedulingPolicy) {
+        return schedulingPolicy.isEmpty() || schedulingPolicy.equalsIgnoreCase(SchedulerUtil.SCHEDULER_RM) || schedulingPolicy.equalsIgnoreCase("TaskShuffler0");
+    }
+
+    protected static boolean isEdfPolicy(String schedulingPolicy) {
+        return schedulingPolicy.equalsIgnoreCase(SchedulerUtil.SCHEDULER_EDF) || schedulingPolicy.equalsIgnoreCase("ReOrder0");
+    }
+
+    /**
+     * @return true if the task sets can be simulated by this simulator under the given settings (a supported policy,
+     *         no runtime variation and no sporadic tasks)
+     */
+    public static boolean isSupported(List<TaskSet> taskSets, String schedulingPolicy, boolean executionVariation) {
+        if (executionVariation || !isSupportedPolicy(schedulingPolicy))
+            return false;
+        for (TaskSet taskSet : taskSets) {
+            if (taskSet.getRunnableTasksAsArray().isEmpty())
+                return false;
+            for (Task task : taskSet.getRunnableTasksAsArray()) {
+                if (task.isSporadicTask())
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Simulate every lane from time 0 to the tick limit (the same as AdvanceableSchedulerSimulator.runSim()). The
+     * schedules are kept in the lanes' IntervalRecords.
+     * @param tickLimit the end of the schedules
+     */
+    public void runSim(long tickLimit) {
+        runSimWithOffset(0, tickLimit);
+    }
+
+    /**
+     * The same as AdvanceableSchedulerSimulator.runSimWithOffset(offset, duration) for every lane. The schedules in
+     * [offset, offset + duration) are kept in the lanes' IntervalRecords.
+     */
+    public void runSimWithOffset(long offset, long duration) {
+        long[] durations = new long[laneCount];
+        Arrays.fill(durations, duration);
+        runLanes(offset, durations, null);
+    }
+
+    /**
+     * The same as AdvanceableSchedulerSimulator.runSimWithOffset(offset, duration, eventSink) for every lane: the
+     * events of lane i are forwarded to eventSinks[i] (from the thread that simulates the lane) and are not kept.
+     */
+    public void runSimWithOffset(long offset, long duration, EventSink[] eventSinks) {
+        long[] durations = new long[laneCount];
+        Arrays.fill(durations, duration);
+        runSimWithOffset(offset, durations, eventSinks);
+    }
+
+    /**
+     * Run each lane for its own duration (e.g., a number of hyper-periods of its task set).
+     * @param offset     offset of all lanes
+     * @param durations  duration of each lane
+     * @param eventSinks the sink of each lane, or null to keep the schedules in the lanes' IntervalRecords
+     */
+    public void runSimWithOffset(long offset, long[] durations, EventSink[] eventSinks) {
+        if (durations.length != laneCount || (eventSinks != null && eventSinks.length != laneCount))
+            throw new IllegalArgumentException("One duration (and one sink) is needed for each of the " + laneCount + " lanes.");
+        runLanes(offset, durations, eventSinks);
+    }
+
+    protected void runLanes(long offset, long[] durations, EventSink[] eventSinks) {
+        laneRecords = new IntervalRecords[laneCount];
+        int workerCount = Math.max(1, Math.min(threadCount, laneCount));
+        if (workerCount == 1) {
+            for (int lane=0; lane<laneCount; lane++)
+                runLane(lane, offset, durations[lane], (eventSinks == null) ? null : eventSinks[lane]);
+            return;
+        }
+
+        /* Lanes are interleaved over the workers; they touch disjoint slots of the arrays. */
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int w=0; w<workerCount; w++) {
+                final int worker = w;
+                futures.add(executor.submit(() -> {
+                    for (int lane=worker; lane<laneCount; lane+=workerCount)
+                        runLane(lane, offset, durations[lane], (eventSinks == null) ? null : eventSinks[lane]);
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The batch simulation was interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();     // e.g., the AssertionError of a deadline miss
+            throw new IllegalStateException("A lane failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected void runLane(int lane, long offset, long duration, EventSink eventSink) {
+        int begin = laneTaskBegin[lane];
+        int end = laneTaskBegin[lane + 1];
+        long tickLimit = offset + duration;
+        IntervalRecords records = new IntervalRecords(lane, offset, tickLimit, eventSink);
+        laneRecords[lane] = records;
+
+        for (int slot=begin; slot<end; slot++) {
+            jobReleaseTime[slot] = initialOffset[slot];
+            jobRemainingExecTime[slot] = wcet[slot];
+            jobAbsoluteDeadline[slot] = initialOffset[slot] + relativeDeadline[slot];
+            jobHasStarted[slot] = false;
+        }
+
+        long tick = 0;
+        while (tick <= tickLimit) {
+            int runSlot = edf ? getEdfNextJob(begin, end, tick) : getFixedPriorityNextJob(begin, end, tick);
+
+            // If it is a future job, then jump the tick first.
+            if (jobReleaseTime[runSlot] > tick) {
+                if (genIdleTimeEvents)
+                    records.add(tick, jobReleaseTime[runSlot], 0, -1, SchedulerIntervalEvent.SCHEDULE_STATE_START, SchedulerIntervalEvent.SCHEDULE_STATE_END);
+                tick = jobReleaseTime[runSlot];
+            }
+
+            tick = runJobToNextSchedulingPoint(lane, runSlot, tick, records);
+        }
+    }
+
+    /* FixedPriorityScheduler.getNextJob() */
+    protected int getFixedPriorityNextJob(int begin, int end, long tick) {
+        int targetSlot = -1;
+        int highestActivePriority = 0;
+        for (int slot=begin; slot<end; slot++) {
+            if (jobReleaseTime[slot] <= tick && priority[slot] > highestActivePriority) {
+                highestActivePriority = priority[slot];
+                targetSlot = slot;
+            }
+        }
+        if (targetSlot >= 0)
+            return targetSlot;
+
+        long earliestNextReleaseTime = Long.MAX_VALUE;
+        for (int slot=begin; slot<end; slot++) {
+            if (jobReleaseTime[slot] < earliestNextReleaseTime) {
+                earliestNextReleaseTime = jobReleaseTime[slot];
+                targetSlot = slot;
+            } else if (jobReleaseTime[slot] == earliestNextReleaseTime && priority[slot] > priority[targetSlot]) {
+                targetSlot = slot;
+            }
+        }
+        return targetSlot;
+    }
+
+    /* EdfScheduler.getNextJob() */
+    protected int getEdfNextJob(int begin, int end, long tick) {
+        int targetSlot = -1;
+        long earliestDeadline = Long.MAX_VALUE;
+        for (int slot=begin; slot<end; slot++) {
+            if (jobReleaseTime[slot] > tick)
+                continue;
+            if (jobAbsoluteDeadline[slot] < earliestDeadline) {
+                earliestDeadline = jobAbsoluteDeadline[slot];
+                targetSlot = slot;
+            } else if (jobAbsoluteDeadline[slot] == earliestDeadline && period[slot] < period[targetSlot]) {
+                targetSlot = slot;
+            }
+        }
+        if (targetSlot >= 0)
+            return targetSlot;
+
+        long earliestNextReleaseTime = Long.MAX_VALUE;
+        for (int slot=begin; slot<end; slot++) {
+            if (jobReleaseTime[slot] < earliestNextReleaseTime) {
+                earliestNextReleaseTime = jobReleaseTime[slot];
+                targetSlot = slot;
+            } else if (jobReleaseTime[slot] == earliestNextReleaseTime && jobAbsoluteDeadline[slot] < jobAbsoluteDeadline[targetSlot]) {
+                targetSlot = slot;
+            }
+        }
+        return targetSlot;
+    }
+
+    /* getPreemptingTick() of FixedPriorityScheduler and EdfScheduler */
+    protected long getPreemptingTick(int begin, int end, int runSlot, long tick) {
+        long earliestPreemptingJobReleaseTime = Long.MAX_VALUE;
+        boolean preempted = false;
+        long runJobFinishTime = tick + jobRemainingExecTime[runSlot];
+        for (int slot=begin; slot<end; slot++) {
+            if (slot == runSlot || jobReleaseTime[slot] >= runJobFinishTime)
+                continue;
+            boolean higherPriority = edf ? (jobAbsoluteDeadline[slot] < jobAbsoluteDeadline[runSlot]) : (priority[slot] > priority[runSlot]);
+            if (higherPriority && jobReleaseTime[slot] < earliestPreemptingJobReleaseTime) {
+                earliestPreemptingJobReleaseTime = jobReleaseTime[slot];
+                preempted = true;
+            }
+        }
+        return preempted ? earliestPreemptingJobReleaseTime : -1;
+    }
+
+    /* AdvanceableSchedulerSimulator.runJobToNextSchedulingPoint() */
+    protected long runJobToNextSchedulingPoint(int lane, int runSlot, long tick, IntervalRecords records) {
+        int begin = laneTaskBegin[lane];
+        int end = laneTaskBegin[lane + 1];
+        long earliestPreemptingTick = getPreemptingTick(begin, end, runSlot, tick);
+        int beginState = jobHasStarted[runSlot] ? SchedulerIntervalEvent.SCHEDULE_STATE_RESUME : SchedulerIntervalEvent.SCHEDULE_STATE_START;
+        jobHasStarted[runSlot] = true;
+
+        if (earliestPreemptingTick == -1) {
+            /* This job is finished. */
+            long runJobFinishTime = tick + jobRemainingExecTime[runSlot];
+            int jobEndState = SchedulerIntervalEvent.SCHEDULE_STATE_END;
+            if (runJobFinishTime > jobAbsoluteDeadline[runSlot]) {
+                if (assertOnDeadlineMiss) {
+                    Task task = laneSnapshots[lane].getTask(runSlot - begin);
+                    throw new AssertionError("A job (" + task.toString() + ") missed its deadline: deadline=" + jobAbsoluteDeadline[runSlot] + ", finishedTime=" + runJobFinishTime);
+                }
+                runJobFinishTime = jobAbsoluteDeadline[runSlot];
+                jobEndState = SchedulerIntervalEvent.SCHEDULE_STATE_END_DEADLINE_MISSED;
+            }
+            records.add(tick, runJobFinishTime, jobReleaseTime[runSlot], runSlot - begin, beginState, jobEndState);
+
+            /* The next job of the task. */
+            jobReleaseTime[runSlot] += period[runSlot];
+            jobRemainingExecTime[runSlot] = wcet[runSlot];
+            jobAbsoluteDeadline[runSlot] = jobReleaseTime[runSlot] + relativeDeadline[runSlot];
+            jobHasStarted[runSlot] = false;
+            return runJobFinishTime;
+        } else {
+            /* This job is preempted. */
+            if (earliestPreemptingTick == tick) {
+                throw new AssertionError("A job gets preempted at the same tick when it's being selected to execute.");
+            } else if (earliestPreemptingTick < tick) {
+                throw new AssertionError("Next preempting tick is smaller than the present tick.");
+            }
+            jobRemainingExecTime[runSlot] -= (earliestPreemptingTick - tick);
+            records.add(tick, earliestPreemptingTick, jobReleaseTime[runSlot], runSlot - begin, beginState, SchedulerIntervalEvent.SCHEDULE_STATE_SUSPEND);
+            return earliestPreemptingTick;
+        }
+    }
+
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    /**
+     * @param lane lane index
+     * @return the schedule of the lane from the last run (empty if the events were forwarded to a sink)
+     */
+    public IntervalRecords getIntervalRecords(int lane) {
+        return laneRecords[lane];
+    }
+
+    /**
+     * @param lane lane index
+     * @return the schedule of the lane from the last run as an EventContainer (the same as the one the scheduler's
+     *         runSim()/runSimWithOffset() returns)
+     */
+    public EventContainer getEventContainer(int lane) {
+        EventContainer eventContainer = new EventContainer();
+        eventContainer.setSchedulingPolicy(schedulingPolicy);
+        eventContainer.setTaskSet(laneTaskSets[lane]);
+        IntervalRecords records = laneRecords[lane];
+        for (int i=0; i<records.size(); i++)
+            eventContainer.add(records.getEvent(i));
+        return eventContainer;
+    }
+
+    public void setGenIdleTimeEvents(boolean genIdleTimeEvents) {
+        this.genIdleTimeEvents = genIdleTimeEvents;
+    }
+
+    public void setAssertOnDeadlineMiss(boolean assertOnDeadlineMiss) {
+        this.assertOnDeadlineMiss = assertOnDeadlineMiss;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("The thread count must be positive: " + threadCount);
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * The schedule of a lane as parallel primitive arrays, one record per interval: [begin, end), the arrival time of
+     * the job, the task index in the lane's TaskSetSnapshot (-1 for idle intervals) and the schedule states. Intervals
+     * are clipped to the simulation window as the trim functions of EventContainer do. If a sink is given, intervals
+     * are forwarded to it as SchedulerIntervalEvents instead of being recorded.
+     */
+    public class IntervalRecords {
+        private final TaskSetSnapshot snapshot;
+        private final long windowBegin;
+        private final long windowEnd;
+        private final EventSink eventSink;
+
+        private long[] begins = new long[16];
+        private long[] ends = new long[16];
+        private long[] arrivalTimes = new long[16];
+        private int[] taskIndices = new int[16];
+        private byte[] beginStates = new byte[16];
+        private byte[] endStates = new byte[16];
+        private int size = 0;
+
+        IntervalRecords(int lane, long windowBegin, long windowEnd, EventSink eventSink) {
+            this.snapshot = laneSnapshots[lane];
+            this.windowBegin = windowBegin;
+            this.windowEnd = windowEnd;
+            this.eventSink = eventSink;
+        }
+
+        void add(long begin, long end, long arrivalTime, int taskIndex, int beginState, int endState) {
+            if (begin >= windowEnd || end <= windowBegin)
+                return;
+            begin = Math.max(begin, windowBegin);
+            end = Math.min(end, windowEnd);
+
+            if (eventSink != null) {
+                eventSink.add(createEvent(begin, end, arrivalTime, taskIndex, beginState, endState));
+                return;
+            }
+
+            if (size == begins.length) {
+                int capacity = size*2;
+                begins = Arrays.copyOf(begins, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+                taskIndices = Arrays.copyOf(taskIndices, capacity);
+                beginStates = Arrays.copyOf(beginStates, capacity);
+                endStates = Arrays.copyOf(endStates, capacity);
+            }
+            begins[size] = begin;
+            ends[size] = end;
+            arrivalTimes[size] = arrivalTime;
+            taskIndices[size] = taskIndex;
+            beginStates[size] = (byte) beginState;
+            endStates[size] = (byte) endState;
+            size++;
+        }
+
+        private SchedulerIntervalEvent createEvent(long begin, long end, long arrivalTime, int taskIndex, int beginState, int endState) {
+            SchedulerIntervalEvent event;
+            if (taskIndex < 0)
+                event = new SchedulerIntervalEvent(begin, end, snapshot.getIdleTask(), "");
+            else
+                event = new SchedulerIntervalEvent(begin, end, arrivalTime, snapshot.getTask(taskIndex), "");
+            event.setScheduleStates(beginState, endState);
+            return event;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long getBegin(int i) {
+            return begins[i];
+        }
+
+        public long getEnd(int i) {
+            return ends[i];
+        }
+
+        public long getJobArrivalTime(int i) {
+            return arrivalTimes[i];
+        }
+
+        /**
+         * @return the task index in the lane's TaskSetSnapshot, or -1 for an idle interval
+         */
+        public int getTaskIndex(int i) {
+            return taskIndices[i];
+        }
+
+        public Task getTask(int i) {
+            return (taskIndices[i] < 0) ? snapshot.getIdleTask() : snapshot.getTask(taskIndices[i]);
+        }
+
+        public int getBeginState(int i) {
+            return beginStates[i];
+        }
+
+        public int getEndState(int i) {
+            return endStates[i];
+        }
+
+        public SchedulerIntervalEvent getEvent(int i) {
+            return createEvent(begins[i], ends[i], arrivalTimes[i], taskIndices[i], beginStates[i], endStates[i]);
+        }
+    }
+}
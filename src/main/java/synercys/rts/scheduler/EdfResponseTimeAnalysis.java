@@ -0,0 +1,232 @@
+package synercys.rts.scheduler;
+
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.TaskSetSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EdfResponseTimeAnalysis.java
+ * Purpose: A fast engine for the EDF worst case response time (WCRT) analysis given in Spuri's paper, which is also
+ *          implemented (by its definition) in EdfScheduler.calculateTaskWCRT().
+ *
+ *          EdfScheduler.calculateTaskWCRT() evaluates every arrival time a in [0, L - Ci). This engine evaluates only
+ *          the deadline points a = k*Tj + Dj - Di (k >= 0) in that range. Between two consecutive deadline points,
+ *          the set of interfering jobs does not change and the workload L_i(a) does not grow, so R_i(a) = L_i(a) - a
+ *          is maximized at the deadline points. The workload fixed points are computed iteratively with exact integer
+ *          arithmetic, and the results are cached per task set parameters.
+ */
+public class EdfResponseTimeAnalysis {
+    public static final long UNBOUNDED = Long.MAX_VALUE;   // WCRT when the utilization is greater than 1
+    protected static final int CACHE_SIZE = 1024;
+
+    /* WCRT results keyed by the task set parameters (wcet, period and deadline of each app task). */
+    protected static final Map<ParameterKey, long[]> wcrtCache = new LinkedHashMap<ParameterKey, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ParameterKey, long[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    final long[] wcet;
+    final long[] period;
+    final long[] deadline;
+    final int taskCount;
+
+    public EdfResponseTimeAnalysis(long[] wcet, long[] period, long[] deadline) {
+        this.wcet = wcet;
+        this.period = period;
+        this.deadline = deadline;
+        taskCount = wcet.length;
+    }
+
+    public EdfResponseTimeAnalysis(TaskSetSnapshot snapshot) {
+        this(snapshot.getAppTasks());
+    }
+
+    public EdfResponseTimeAnalysis(List<Task> appTasks) {
+        this(new long[appTasks.size()], new long[appTasks.size()], new long[appTasks.size()]);
+        for (int i=0; i<taskCount; i++) {
+            wcet[i] = appTasks.get(i).getWcet();
+            period[i] = appTasks.get(i).getPeriod();
+            deadline[i] = appTasks.get(i).getDeadline();
+        }
+    }
+
+    /**
+     * Calculate and set the worst case response time for all the tasks in the given task set.
+     * It gives the same results as EdfScheduler.calculateTaskWCRT().
+     * @param taskSet the task set in which tasks to be examined
+     */
+    public static void calculateAndSetWCRT(TaskSet taskSet) {
+        ArrayList<Task> appTasks = taskSet.getAppTasksAsArray();
+        long[] wcrts = new EdfResponseTimeAnalysis(appTasks).computeWCRTs();
+        for (int i=0; i<appTasks.size(); i++) {
+            appTasks.get(i).setWcrt(wcrts[i]);
+        }
+    }
+
+    /**
+     * @return the WCRT of each task (in the order of the given parameters), or UNBOUNDED if the utilization is
+     *         greater than 1
+     */
+    public long[] computeWCRTs() {
+        ParameterKey key = new ParameterKey(wcet, period, deadline);
+        synchronized (wcrtCache) {
+            long[] cachedWcrts = wcrtCache.get(key);
+            if (cachedWcrts != null)
+                return cachedWcrts.clone();
+        }
+
+        long[] wcrts = new long[taskCount];
+        long LCap = calculateLCap();
+        for (int i=0; i<taskCount; i++) {
+            wcrts[i] = (LCap == UNBOUNDED) ? UNBOUNDED : calculateTaskWCRT(i, LCap);
+        }
+
+        synchronized (wcrtCache) {
+            wcrtCache.put(key, wcrts.clone());
+        }
+        return wcrts;
+    }
+
+    /**
+     * L cap is the largest possible length of any busy interval for the task set (see EdfScheduler.calculateLCap()).
+     * r^0 = sum(Cj), r^(k+1) = sum( ceil(r^k / Tj)*Cj ), until r^k == r^(k+1)
+     * @return L cap, or UNBOUNDED if the utilization is greater than 1
+     */
+    public long calculateLCap() {
+        double utilization = 0;
+        long rCurrent = 0;
+        for (int j=0; j<taskCount; j++) {
+            utilization += (double) wcet[j]/period[j];
+            rCurrent += wcet[j];
+        }
+        if (utilization > 1.0 + 1e-12)
+            return UNBOUNDED;
+
+        while (true) {
+            long rNext = 0;
+            for (int j=0; j<taskCount; j++) {
+                rNext += ceilDiv(rCurrent, period[j])*wcet[j];
+            }
+            if (rNext == rCurrent)
+                return rCurrent;
+            if (rNext > Long.MAX_VALUE/4)
+                return UNBOUNDED;
+            rCurrent = rNext;
+        }
+    }
+
+    /**
+     * Calculate the WCRT of task_i by examining the deadline points in [0, L cap - Ci).
+     * @param i     index of task_i
+     * @param LCap  L cap
+     * @return WCRT of task_i
+     */
+    public long calculateTaskWCRT(int i, long LCap) {
+        long aMax = LCap - wcet[i];
+
+        /* The next deadline point of each task: k*Tj + Dj - Di, with the smallest k that makes it non-negative. */
+        long[] nextPoints = new long[taskCount];
+        for (int j=0; j<taskCount; j++) {
+            long offset = deadline[j] - deadline[i];
+            nextPoints[j] = (offset >= 0) ? offset : offset + ceilDiv(-offset, period[j])*period[j];
+        }
+
+        long wcrt = 0;
+        long a = 0;     // a = 0 is always examined (it is a deadline point of task_i itself).
+        while (true) {
+            wcrt = Math.max(wcrt, calculateTaskResponseTimeReleasedAtGivenTimePoint(i, a));
+
+            /* Move to the next deadline point. */
+            long nextA = Long.MAX_VALUE;
+            for (int j=0; j<taskCount; j++) {
+                while (nextPoints[j] <= a)
+                    nextPoints[j] += period[j];
+                nextA = Math.min(nextA, nextPoints[j]);
+            }
+            if (nextA >= aMax)
+                break;
+            a = nextA;
+        }
+        return wcrt;
+    }
+
+    /**
+     * R_i(a) = max{Ci, L_i(a) - a}
+     */
+    public long calculateTaskResponseTimeReleasedAtGivenTimePoint(int i, long a) {
+        return Math.max(wcet[i], calculateWorkloadUpToGivenInclusiveArrivalInstance(i, a) - a);
+    }
+
+    /**
+     * Compute the total workload L_i(a) from t=0 to the end of task_i's job arriving at time a, which is the fixed
+     * point of L_i^(m+1)(a) = W_i(a, L_i^(m)(a)) (see EdfScheduler.calculateWorkloadUpToGivenInclusiveArrivalInstance()).
+     */
+    public long calculateWorkloadUpToGivenInclusiveArrivalInstance(int i, long a) {
+        long Di = deadline[i];
+        long Ti = period[i];
+        long Ci = wcet[i];
+
+        long currentLi = 0;
+        for (int j=0; j<taskCount; j++) {
+            if (j == i || deadline[j] > a+Di)
+                continue;
+            currentLi += wcet[j];
+        }
+        currentLi += (a%Ti == 0 ? 1 : 0)*Ci;
+
+        long sia = a % Ti;  // The arrival time of the first instance of the task_i
+        long maxTaskIJobs = 1 + a/Ti;
+        while (true) {
+            long totalWorkload = 0;
+            for (int j=0; j<taskCount; j++) {
+                long Dj = deadline[j];
+                if (j == i || Dj > a+Di)
+                    continue;
+                totalWorkload += wcet[j]*Math.min(ceilDiv(currentLi, period[j]), 1 + (a+Di-Dj)/period[j]);
+            }
+            if (currentLi > sia) {
+                totalWorkload += Ci*Math.min(ceilDiv(currentLi - sia, Ti), maxTaskIJobs);
+            }
+
+            if (totalWorkload == currentLi)
+                return currentLi;
+            currentLi = totalWorkload;
+        }
+    }
+
+    protected static long ceilDiv(long x, long y) {
+        return (x + y - 1)/y;
+    }
+
+    protected static class ParameterKey {
+        final long[] parameters;
+        final int hashCode;
+
+        ParameterKey(long[] wcet, long[] period, long[] deadline) {
+            int n = wcet.length;
+            parameters = new long[n*3];
+            System.arraycopy(wcet, 0, parameters, 0, n);
+            System.arraycopy(period, 0, parameters, n, n);
+            System.arraycopy(deadline, 0, parameters, n*2, n);
+            hashCode = Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof ParameterKey) && Arrays.equals(parameters, ((ParameterKey) o).parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
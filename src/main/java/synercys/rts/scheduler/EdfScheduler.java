@@ -45,7 +45,7 @@ public class EdfScheduler extends AdvanceableSchedulerSimulator {
     protected Job getNextJobInReadyQueue(long tick) {
         long earliestDeadline = Long.MAX_VALUE;
         Job targetJob = null;
-        for (Job job: nextJobOfATask.values()) {
+        for (Job job: nextJobOfATask) {
             if (job.releaseTime > tick)
                 continue;
 
@@ -75,7 +75,7 @@ public class EdfScheduler extends AdvanceableSchedulerSimulator {
         long earliestPreemptingJobReleaseTime = Long.MAX_VALUE;
         Job earliestPreemptingJob = null;
         long runJobFinishTime = tick + runJob.remainingExecTime;
-        for (Job job: nextJobOfATask.values()) {
+        for (Job job: nextJobOfATask) {
             if (job == runJob)
                 continue;
 
@@ -105,7 +105,7 @@ public class EdfScheduler extends AdvanceableSchedulerSimulator {
     protected Job getEarliestArrivedJobWithCloserDeadline() {
         Job targetJob = null;
         long earliestNextReleaseTime = Long.MAX_VALUE;
-        for (Job job: nextJobOfATask.values()) {
+        for (Job job: nextJobOfATask) {
             if (job.releaseTime < earliestNextReleaseTime) {
                 earliestNextReleaseTime = job.releaseTime;
                 targetJob = job;
@@ -118,14 +118,13 @@ public class EdfScheduler extends AdvanceableSchedulerSimulator {
 
 
     /**
-     * Calculate and set the worst case response time for all the tasks in the given task set
+     * Calculate and set the worst case response time for all the tasks in the given task set.
+     * It only examines the deadline points (see EdfResponseTimeAnalysis); calculateTaskWCRT() examines every
+     * arrival time point and is kept as a cross-check.
      * @param taskSet the task set in which tasks to be examined
      */
     public static void calculateAndSetWCRT(TaskSet taskSet) {
-        long LCap = calculateLCap(taskSet);
-        for (Task task : taskSet.getAppTasksAsArray()) {
-            task.setWcrt(calculateTaskWCRT(taskSet, task, LCap));
-        }
+        EdfResponseTimeAnalysis.calculateAndSetWCRT(taskSet);
     }
 
 
@@ -169,7 +168,8 @@ public class EdfScheduler extends AdvanceableSchedulerSimulator {
 
 
     /**
-     * Calculate the worst case response time (WCRT) of the given task.
+     * Calculate the worst case response time (WCRT) of the given task by examining every arrival time point.
+     * This is the reference implementation of EdfResponseTimeAnalysis.calculateTaskWCRT().
      * @param taskSet the task set under examination
      * @param task task_i
      * @param LCap L cap (can be obtained by invoking calculateRCap())
@@ -42,7 +42,7 @@ public class FixedPriorityScheduler extends AdvanceableSchedulerSimulator {
         Job targetJob = null;
         int highestActivePriority = 0;
 
-        for (Job job : nextJobOfATask.values()) {
+        for (Job job : nextJobOfATask) {
             if (job.releaseTime > tick)
                 continue;
             if (job.task.getPriority() > highestActivePriority) {
@@ -67,7 +67,7 @@ public class FixedPriorityScheduler extends AdvanceableSchedulerSimulator {
         long earliestPreemptingJobReleaseTime = Long.MAX_VALUE;
         Job earliestPreemptingJob = null;
         long runJobFinishTime = tick + runJob.remainingExecTime;
-        for (Job job: nextJobOfATask.values()) {
+        for (Job job: nextJobOfATask) {
             if (job == runJob)
                 continue;
 
@@ -96,7 +96,7 @@ public class FixedPriorityScheduler extends AdvanceableSchedulerSimulator {
     protected Job getEarliestArrivedHigherPriorityJob() {
         Job targetJob = null;
         long earliestNextReleaseTime = Long.MAX_VALUE;
-        for (Job job: nextJobOfATask.values()) {
+        for (Job job: nextJobOfATask) {
             if (job.releaseTime < earliestNextReleaseTime) {
                 earliestNextReleaseTime = job.releaseTime;
                 targetJob = job;
@@ -0,0 +1,243 @@
+package synercys.rts.scheduler;
+
+import java.util.SplittableRandom;
+
+/**
+ * LaplaceNoiseGenerator.java
+ * Purpose: Generates Laplace-distributed inter-arrival times truncated to each task's admissible period range
+ *          [lower, upper] for the LaplaceScheduler. Samples are drawn in blocks per task (indexed by the task index in
+ *          the scheduler's TaskSetSnapshot) into primitive ring buffers by an inlined inverse CDF driven by a
+ *          SplittableRandom.
+ *
+ *          The truncation is done analytically: a uniform number is mapped into the CDF range of the admissible range,
+ *          so every draw takes constant time no matter how little probability mass lies in the range (e.g., when
+ *          epsilon is small), instead of re-sampling until a value falls into the range. A sample x is converted to
+ *          an inter-arrival time by (long)x, so the continuous range [lower, upper+1) is used.
+ */
+public class LaplaceNoiseGenerator {
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+
+    /* How a task's samples are mapped from a uniform number. */
+    private static final int MODE_CENTER = 0;       // the range contains mu: general inverse CDF
+    private static final int MODE_UPPER_TAIL = 1;   // the range is above mu: truncated exponential from the lower bound
+    private static final int MODE_LOWER_TAIL = 2;   // the range is below mu: truncated exponential from the upper bound
+
+    private final int blockSize;
+    private SplittableRandom rand;
+
+    /* Parameters (indexed by the task index) */
+    private final double[] mu;
+    private final double[] beta;
+    private final long[] lower;
+    private final long[] upper;
+    private final boolean[] configured;
+
+    /* Precomputed inverse-CDF terms */
+    private final int[] mode;
+    private final double[] cdfLower;    // MODE_CENTER: F(lower); tail modes: unused
+    private final double[] cdfSpan;     // MODE_CENTER: F(upper+1)-F(lower); tail modes: 1-exp(-(upper+1-lower)/beta)
+    private final double[] truncationMass;
+
+    /* Ring buffers of pre-sampled inter-arrival times */
+    private final long[][] buffer;
+    private final int[] bufferPosition;
+
+    /* Statistics */
+    private final long[] sampleCount;
+    private final long[] blockRefillCount;
+    private final double[] sampleSum;
+    private final double[] sampleSquareSum;
+
+    public LaplaceNoiseGenerator(int taskCount) {
+        this(taskCount, DEFAULT_BLOCK_SIZE, new SplittableRandom());
+    }
+
+    public LaplaceNoiseGenerator(int taskCount, int blockSize, long seed) {
+        this(taskCount, blockSize, new SplittableRandom(seed));
+    }
+
+    private LaplaceNoiseGenerator(int taskCount, int blockSize, SplittableRandom rand) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("The block size must be positive: " + blockSize);
+        this.blockSize = blockSize;
+        this.rand = rand;
+
+        mu = new double[taskCount];
+        beta = new double[taskCount];
+        lower = new long[taskCount];
+        upper = new long[taskCount];
+        configured = new boolean[taskCount];
+        mode = new int[taskCount];
+        cdfLower = new double[taskCount];
+        cdfSpan = new double[taskCount];
+        truncationMass = new double[taskCount];
+        buffer = new long[taskCount][blockSize];
+        bufferPosition = new int[taskCount];
+        sampleCount = new long[taskCount];
+        blockRefillCount = new long[taskCount];
+        sampleSum = new double[taskCount];
+        sampleSquareSum = new double[taskCount];
+    }
+
+    /**
+     * Set the Laplace parameters and the admissible range of a task. The samples pre-drawn with the old parameters
+     * are discarded.
+     * @param taskIndex task index
+     * @param mu        location
+     * @param beta      scale (diversity), must be positive
+     * @param lower     inclusive lower bound of the inter-arrival time
+     * @param upper     inclusive upper bound of the inter-arrival time
+     */
+    public void setParameters(int taskIndex, double mu, double beta, long lower, long upper) {
+        if (!(beta > 0))
+            throw new IllegalArgumentException("The Laplace scale must be positive: " + beta);
+        if (lower > upper)
+            throw new IllegalArgumentException("Invalid admissible range: [" + lower + ", " + upper + "]");
+
+        this.mu[taskIndex] = mu;
+        this.beta[taskIndex] = beta;
+        this.lower[taskIndex] = lower;
+        this.upper[taskIndex] = upper;
+        configured[taskIndex] = true;
+
+        double a = lower;
+        double c = (double)upper + 1;
+        if (a >= mu) {
+            mode[taskIndex] = MODE_UPPER_TAIL;
+            cdfSpan[taskIndex] = -Math.expm1(-(c-a)/beta);
+            truncationMass[taskIndex] = 0.5*Math.exp(-(a-mu)/beta)*cdfSpan[taskIndex];
+        } else if (c <= mu) {
+            mode[taskIndex] = MODE_LOWER_TAIL;
+            cdfSpan[taskIndex] = -Math.expm1(-(c-a)/beta);
+            truncationMass[taskIndex] = 0.5*Math.exp(-(mu-c)/beta)*cdfSpan[taskIndex];
+        } else {
+            mode[taskIndex] = MODE_CENTER;
+            cdfLower[taskIndex] = 0.5*Math.exp((a-mu)/beta);
+            cdfSpan[taskIndex] = (1 - 0.5*Math.exp(-(c-mu)/beta)) - cdfLower[taskIndex];
+            truncationMass[taskIndex] = cdfSpan[taskIndex];
+        }
+
+        // Discard the pre-drawn samples.
+        bufferPosition[taskIndex] = blockSize;
+    }
+
+    public boolean hasParameters(int taskIndex, long lower, long upper) {
+        return configured[taskIndex] && this.lower[taskIndex] == lower && this.upper[taskIndex] == upper;
+    }
+
+    /**
+     * Reseed the generator and discard all pre-drawn samples.
+     * @param seed the new seed
+     */
+    public void setRandomSeed(long seed) {
+        rand = new SplittableRandom(seed);
+        for (int i=0; i<bufferPosition.length; i++)
+            bufferPosition[i] = blockSize;
+    }
+
+    /**
+     * @param taskIndex task index
+     * @return the next inter-arrival time of the task within its admissible range
+     */
+    public long nextSample(int taskIndex) {
+        if (!configured[taskIndex])
+            throw new IllegalArgumentException("Task index " + taskIndex + " has no Laplace parameters.");
+        if (bufferPosition[taskIndex] == blockSize)
+            refillBlock(taskIndex);
+
+        long sample = buffer[taskIndex][bufferPosition[taskIndex]++];
+        sampleCount[taskIndex]++;
+        sampleSum[taskIndex] += sample;
+        sampleSquareSum[taskIndex] += (double)sample*sample;
+        return sample;
+    }
+
+    private void refillBlock(int taskIndex) {
+        long[] block = buffer[taskIndex];
+        double m = mu[taskIndex];
+        double b = beta[taskIndex];
+        double span = cdfSpan[taskIndex];
+        long lowerBound = lower[taskIndex];
+        long upperBound = upper[taskIndex];
+
+        switch (mode[taskIndex]) {
+            case MODE_UPPER_TAIL: {
+                double a = lowerBound;
+                for (int i=0; i<blockSize; i++) {
+                    double x = a - b*Math.log1p(-rand.nextDouble()*span);
+                    block[i] = clamp((long)x, lowerBound, upperBound);
+                }
+                break;
+            }
+            case MODE_LOWER_TAIL: {
+                double c = (double)upperBound + 1;
+                for (int i=0; i<blockSize; i++) {
+                    double x = c + b*Math.log1p(-rand.nextDouble()*span);
+                    block[i] = clamp((long)x, lowerBound, upperBound);
+                }
+                break;
+            }
+            default: {
+                double low = cdfLower[taskIndex];
+                for (int i=0; i<blockSize; i++) {
+                    double u = low + rand.nextDouble()*span;
+                    double x = (u < 0.5) ? m + b*Math.log(2*u) : m - b*Math.log(2*(1-u));
+                    block[i] = clamp((long)x, lowerBound, upperBound);
+                }
+                break;
+            }
+        }
+        bufferPosition[taskIndex] = 0;
+        blockRefillCount[taskIndex]++;
+    }
+
+    /* Guards against rounding at the edges of the range. */
+    private static long clamp(long value, long min, long max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+
+    /* ==== Statistics ==== */
+
+    public long getSampleCount(int taskIndex) {
+        return sampleCount[taskIndex];
+    }
+
+    public long getBlockRefillCount(int taskIndex) {
+        return blockRefillCount[taskIndex];
+    }
+
+    public double getSampleMean(int taskIndex) {
+        return sampleCount[taskIndex] == 0 ? 0 : sampleSum[taskIndex]/sampleCount[taskIndex];
+    }
+
+    public double getSampleVariance(int taskIndex) {
+        if (sampleCount[taskIndex] == 0)
+            return 0;
+        double mean = getSampleMean(taskIndex);
+        return Math.max(0, sampleSquareSum[taskIndex]/sampleCount[taskIndex] - mean*mean);
+    }
+
+    /**
+     * @param taskIndex task index
+     * @return the probability mass of the (untruncated) Laplace distribution within the admissible range, which is
+     *         also the acceptance rate of sampling by rejection
+     */
+    public double getTruncationMass(int taskIndex) {
+        return truncationMass[taskIndex];
+    }
+
+    /**
+     * @param taskIndex task index
+     * @return the expected number of draws rejection sampling would have needed for the samples drawn so far
+     */
+    public double getExpectedRejectionSamplingDrawCount(int taskIndex) {
+        return truncationMass[taskIndex] > 0 ? sampleCount[taskIndex]/truncationMass[taskIndex] : Double.POSITIVE_INFINITY;
+    }
+
+    public String getStatisticsString(int taskIndex) {
+        return String.format("samples=%d, blocks=%d, mean=%.2f, stddev=%.2f, truncation mass=%.4g",
+                sampleCount[taskIndex], blockRefillCount[taskIndex], getSampleMean(taskIndex),
+                Math.sqrt(getSampleVariance(taskIndex)), truncationMass[taskIndex]);
+    }
+}
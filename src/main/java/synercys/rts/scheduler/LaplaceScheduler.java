@@ -1,22 +1,21 @@
 package synercys.rts.scheduler;
 
-import org.apache.commons.math3.distribution.LaplaceDistribution;
 import synercys.rts.RtsConfig;
 import synercys.rts.framework.Job;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Random;
 
 public class LaplaceScheduler extends EdfScheduler {
-    HashMap<Task, LaplaceDistribution> taskLaplaceInterArrivalTimeGenerator = new HashMap<>();
-    // HashMap<Task, Long> taskMaxInterArrivalTime = new HashMap<>();
+    /* The following arrays are indexed by the task index in taskSetSnapshot. */
+    LaplaceNoiseGenerator laplaceNoiseGenerator;
+    // long[] taskMaxInterArrivalTime;
 
-    HashMap<Task, Double> taskEpsilon = new HashMap<>();
-    HashMap<Task, Long> taskJ = new HashMap<>();
-    HashMap<Task, Long> taskSensitivity = new HashMap<>();
+    double[] taskEpsilon;
+    long[] taskJ;
+    long[] taskSensitivity;
 
     long globalSensitivity = 190*(long)RtsConfig.TIMESTAMP_MS_TO_UNIT_MULTIPLIER;    // 190ms
     long globalProtectionInstanceCount = 0;
@@ -40,16 +39,21 @@ public class LaplaceScheduler extends EdfScheduler {
 
         globalProtectionInstanceCount = calculateGlobalJByProtectionTime(taskSet, protectionTime);
 
+        int taskCount = taskSetSnapshot.size();
+        laplaceNoiseGenerator = new LaplaceNoiseGenerator(taskCount);
+        taskEpsilon = new double[taskCount];
+        taskJ = new long[taskCount];
+        taskSensitivity = new long[taskCount];
+
         // long globalSensitivity = taskSet.getLargestPeriod() - taskSet.getSmallestPeriod();
-        for (Task task : taskSet.getRunnableTasksAsArray()) {
+        for (Task task : taskSetSnapshot.getTasks()) {
             // long maxInterArrivalTime = task.getPeriod()*3;
             // taskMaxInterArrivalTime.put(task, maxInterArrivalTime);
 
-            taskEpsilon.put(task, epsilon);
-            taskSensitivity.put(task, globalSensitivity);
-            taskJ.put(task, globalProtectionInstanceCount);
-            // updateTaskJByDuration(task, 500*(long)RtsConfig.TIMESTAMP_MS_TO_UNIT_MULTIPLIER);
-            updateTaskLaplaceNoise(task);
+            int taskIndex = getTaskIndex(task);
+            taskEpsilon[taskIndex] = epsilon;
+            taskSensitivity[taskIndex] = globalSensitivity;
+            taskJ[taskIndex] = globalProtectionInstanceCount;
 
             if (task.getAdmissiblePeriodUpper() == 0) {
                 // task.setAdmissiblePeriodUpper((long)(task.getPeriod()*1.2));
@@ -60,10 +64,21 @@ public class LaplaceScheduler extends EdfScheduler {
                 // task.setAdmissiblePeriodLower((long)(task.getPeriod()*0.8));
                 task.setAdmissiblePeriodLower(globalAdmissibleLowerPeriod);
             }
+
+            // The admissible period range is needed by the noise generator, so it is set up first.
+            // updateTaskJByDuration(task, 500*(long)RtsConfig.TIMESTAMP_MS_TO_UNIT_MULTIPLIER);
+            updateTaskLaplaceNoise(task);
         }
 
     }
 
+    @Override
+    public void setRandomSeed(long seed) {
+        super.setRandomSeed(seed);
+        rand = new Random(random.nextLong());
+        laplaceNoiseGenerator.setRandomSeed(random.nextLong());
+    }
+
     protected long calculateGlobalJByProtectionTime(TaskSet taskSet, long protectionTime) {
         long largestJ = 0;
         for (Task task : taskSet.getRunnableTasksAsArray()) {
@@ -74,21 +89,22 @@ public class LaplaceScheduler extends EdfScheduler {
     }
 
     protected void updateTaskJByDuration(Task task, long protectionTime) {
-        taskJ.put(task, (long)Math.ceil((double)protectionTime/task.getPeriod()));
+        taskJ[getTaskIndex(task)] = (long)Math.ceil((double)protectionTime/task.getPeriod());
     }
 
     protected void updateTaskJByAbsoluteValue(Task task, long j) {
-        taskJ.put(task, j);
+        taskJ[getTaskIndex(task)] = j;
     }
 
     protected void updateTaskLaplaceNoise(Task task) {
+        int taskIndex = getTaskIndex(task);
         double mu = task.getPeriod(); // location
-        double beta = 2*taskJ.get(task)*taskSensitivity.get(task)/taskEpsilon.get(task); // b is sometimes referred to as the diversity, is a scale parameter.
-        taskLaplaceInterArrivalTimeGenerator.put(task, new LaplaceDistribution(mu, beta));
+        double beta = 2*taskJ[taskIndex]*taskSensitivity[taskIndex]/taskEpsilon[taskIndex]; // b is sometimes referred to as the diversity, is a scale parameter.
+        laplaceNoiseGenerator.setParameters(taskIndex, mu, beta, task.getAdmissiblePeriodLower(), task.getAdmissiblePeriodUpper());
     }
 
     public void updateTaskSetLaplaceNoiseByProtectionDuration(long protectionTime) {
-        for (Task task : taskSet.getRunnableTasksAsArray()) {
+        for (Task task : taskSetSnapshot.getTasks()) {
             updateTaskJByDuration(task, protectionTime);
             updateTaskLaplaceNoise(task);
         }
@@ -111,24 +127,27 @@ public class LaplaceScheduler extends EdfScheduler {
 
 
         /* Determine next arrival time. */
+        int taskIndex = getTaskIndex(task);
         long interArrivalTime = getLaplaceInterArrivalTime(task);
-        long nextArrivalTime = nextJobOfATask.get(task).releaseTime + interArrivalTime;
+        long nextArrivalTime = nextJobOfATask[taskIndex].releaseTime + interArrivalTime;
         // System.out.println(interArrivalTime*RtsConfig.TIMESTAMP_UNIT_TO_MS_MULTIPLIER);
 
         if (traceEnabled) {
-            taskInterArrivalTimeTrace.get(task).add(interArrivalTime);
+            taskInterArrivalTimeTrace.get(taskIndex).add(interArrivalTime);
         }
 
-        /* Determine the execution time. */
+        /* Determine the execution time (the release times of a replayed workload are not used as they would defeat the noise). */
         long executionTime;
-        if (runTimeVariation == true) {
+        if (hasReplayJob(taskIndex)) {
+            executionTime = replayExecutionTime[taskIndex][replayPosition[taskIndex]++];
+        } else if (runTimeVariation == true) {
             executionTime = getVariedExecutionTime(task);
         } else {
             executionTime = task.getWcet();
         }
 
         Job newJob = new Job(task, nextArrivalTime, executionTime);
-        nextJobOfATask.put(task, newJob);
+        nextJobOfATask[taskIndex] = newJob;
 
         return newJob;
 
@@ -181,14 +200,24 @@ public class LaplaceScheduler extends EdfScheduler {
         return newJob;
     }
 
+    /**
+     * Draw an inter-arrival time from the task's Laplace distribution truncated to the task's admissible period range.
+     * The truncation is done analytically by the noise generator (rather than re-sampling until the drawn value is
+     * admissible), so it takes constant time even when epsilon is small.
+     * @param task the task whose next inter-arrival time is to be drawn
+     * @return an inter-arrival time within [AdmissiblePeriodLower, AdmissiblePeriodUpper]
+     */
     protected long getLaplaceInterArrivalTime(Task task) {
-        long interArrivalTime;
-        while (true) {
-            interArrivalTime = (long) taskLaplaceInterArrivalTimeGenerator.get(task).sample();
-            if (interArrivalTime>=task.getAdmissiblePeriodLower() && interArrivalTime<=task.getAdmissiblePeriodUpper())
-                break;
+        int taskIndex = getTaskIndex(task);
+        if (!laplaceNoiseGenerator.hasParameters(taskIndex, task.getAdmissiblePeriodLower(), task.getAdmissiblePeriodUpper())) {
+            // The admissible period range has been changed since the noise was set up.
+            updateTaskLaplaceNoise(task);
         }
-        return interArrivalTime;
+        return laplaceNoiseGenerator.nextSample(taskIndex);
+    }
+
+    public LaplaceNoiseGenerator getLaplaceNoiseGenerator() {
+        return laplaceNoiseGenerator;
     }
 
     @Override
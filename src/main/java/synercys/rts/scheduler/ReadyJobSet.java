@@ -0,0 +1,519 @@
+package synercys.rts.scheduler;
+
+import java.util.Random;
+
+/**
+ * ReadyJobSet.java
+ * Purpose: The ready queue used by the randomized schedulers (TaskShuffler and REORDER). Each task (identified by its
+ *          index in the scheduler's TaskSetSnapshot) has at most one current job. A job is pending until it is released
+ *          and is then moved into an ordered set of ready jobs which also keeps each ready job's remaining inversion
+ *          budget (RIB) as its value.
+ *
+ *          Ready jobs are ordered by (primary key, secondary key, task index), where the primary key is the scheduling
+ *          priority (e.g., -priority for fixed-priority and the absolute deadline for EDF; a smaller key means a
+ *          higher priority). The ordered set is a treap over preallocated int-indexed arrays where every node keeps
+ *          its subtree size, its subtree's minimum value and a lazy value offset. As a result, the following queries
+ *          take O(log n) (expected) time and do not allocate:
+ *          - the number of ready jobs whose primary key is (at most / less than) a given bound,
+ *          - the k-th ready job in key order (for uniformly picking a candidate),
+ *          - the minimum value among the ready jobs whose primary key is less than a given bound,
+ *          - the first ready job in key order whose value is at most a given bound,
+ *          - adding a value to all the ready jobs whose primary key is less (or greater) than a given bound.
+ *
+ *          Pending jobs are kept in a binary min-heap ordered by their release times.
+ */
+public class ReadyJobSet {
+    public static final int NONE = -1;
+
+    /* Treap nodes: node i+1 is task index i; node 0 is the null node. */
+    private final int[] left;
+    private final int[] right;
+    private final int[] heapPriority;
+    private final int[] subtreeSize;
+    private final long[] primaryKey;
+    private final long[] secondaryKey;
+    private final long[] value;
+    private final long[] subtreeMinValue;
+    private final long[] lazyOffset;
+    private final boolean[] ready;
+    private int root = 0;
+
+    /* Pending jobs: a binary min-heap of task indices ordered by release times. */
+    private final int[] pendingHeap;
+    private final int[] pendingHeapPosition;
+    private final long[] releaseTime;
+    private int pendingCount = 0;
+
+    public ReadyJobSet(int taskCount) {
+        int nodeCount = taskCount + 1;
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        heapPriority = new int[nodeCount];
+        subtreeSize = new int[nodeCount];
+        primaryKey = new long[nodeCount];
+        secondaryKey = new long[nodeCount];
+        value = new long[nodeCount];
+        subtreeMinValue = new long[nodeCount];
+        lazyOffset = new long[nodeCount];
+        ready = new boolean[nodeCount];
+        subtreeMinValue[0] = Long.MAX_VALUE;
+
+        // The heap priorities only balance the treap, so they come from a private generator with a fixed seed and
+        // do not affect the schedulers' random number sequences.
+        Random balanceRand = new Random(taskCount);
+        for (int i=1; i<nodeCount; i++)
+            heapPriority[i] = balanceRand.nextInt();
+
+        pendingHeap = new int[taskCount];
+        pendingHeapPosition = new int[taskCount];
+        releaseTime = new long[taskCount];
+        for (int i=0; i<taskCount; i++)
+            pendingHeapPosition[i] = NONE;
+    }
+
+    /**
+     * Create a copy of the given set (with the same ready and pending jobs).
+     * @param other the set to be copied
+     */
+    public ReadyJobSet(ReadyJobSet other) {
+        this(other.pendingHeap.length);
+        copyFrom(other);
+    }
+
+    /**
+     * Overwrite this set with the content of another set of the same capacity.
+     * @param other the set to be copied
+     */
+    public void copyFrom(ReadyJobSet other) {
+        if (other.pendingHeap.length != pendingHeap.length)
+            throw new IllegalArgumentException("The sets have different capacities: " + other.pendingHeap.length + " != " + pendingHeap.length);
+        int nodeCount = left.length;
+        System.arraycopy(other.left, 0, left, 0, nodeCount);
+        System.arraycopy(other.right, 0, right, 0, nodeCount);
+        System.arraycopy(other.subtreeSize, 0, subtreeSize, 0, nodeCount);
+        System.arraycopy(other.primaryKey, 0, primaryKey, 0, nodeCount);
+        System.arraycopy(other.secondaryKey, 0, secondaryKey, 0, nodeCount);
+        System.arraycopy(other.value, 0, value, 0, nodeCount);
+        System.arraycopy(other.subtreeMinValue, 0, subtreeMinValue, 0, nodeCount);
+        System.arraycopy(other.lazyOffset, 0, lazyOffset, 0, nodeCount);
+        System.arraycopy(other.ready, 0, ready, 0, nodeCount);
+        root = other.root;
+
+        int taskCount = pendingHeap.length;
+        System.arraycopy(other.pendingHeap, 0, pendingHeap, 0, taskCount);
+        System.arraycopy(other.pendingHeapPosition, 0, pendingHeapPosition, 0, taskCount);
+        System.arraycopy(other.releaseTime, 0, releaseTime, 0, taskCount);
+        pendingCount = other.pendingCount;
+    }
+
+    /**
+     * Remove all ready and pending jobs.
+     */
+    public void clear() {
+        for (int i=1; i<ready.length; i++) {
+            ready[i] = false;
+            left[i] = right[i] = 0;
+            lazyOffset[i] = 0;
+        }
+        root = 0;
+        for (int i=0; i<pendingCount; i++)
+            pendingHeapPosition[pendingHeap[i]] = NONE;
+        pendingCount = 0;
+    }
+
+
+    /* ==== Pending jobs ==== */
+
+    /**
+     * Add a task's job that will be released at the given time. The task must be neither pending nor ready.
+     * @param taskIndex     task index
+     * @param jobReleaseTime the release time of the job
+     */
+    public void addPendingJob(int taskIndex, long jobReleaseTime) {
+        if (ready[taskIndex+1] || pendingHeapPosition[taskIndex] != NONE)
+            throw new IllegalArgumentException("Task index " + taskIndex + " already has a job in the set.");
+        releaseTime[taskIndex] = jobReleaseTime;
+        pendingHeap[pendingCount] = taskIndex;
+        pendingHeapPosition[taskIndex] = pendingCount;
+        siftUp(pendingCount++);
+    }
+
+    /**
+     * @return the earliest release time of the pending jobs, or Long.MAX_VALUE if there is no pending job
+     */
+    public long getEarliestPendingReleaseTime() {
+        return pendingCount == 0 ? Long.MAX_VALUE : releaseTime[pendingHeap[0]];
+    }
+
+    /**
+     * Remove the pending job with the earliest release time if it is released at or before the given tick.
+     * The caller is expected to insert it to the ready set with insertReadyJob().
+     * @param tick  present tick
+     * @return the task index of the released job, or NONE if no pending job is released by the given tick
+     */
+    public int pollReleasedJob(long tick) {
+        if (pendingCount == 0 || releaseTime[pendingHeap[0]] > tick)
+            return NONE;
+        int taskIndex = pendingHeap[0];
+        pendingHeapPosition[taskIndex] = NONE;
+        if (--pendingCount > 0) {
+            pendingHeap[0] = pendingHeap[pendingCount];
+            pendingHeapPosition[pendingHeap[0]] = 0;
+            siftDown(0);
+        }
+        return taskIndex;
+    }
+
+    private void siftUp(int position) {
+        int taskIndex = pendingHeap[position];
+        while (position > 0) {
+            int parent = (position-1)/2;
+            if (releaseTime[pendingHeap[parent]] <= releaseTime[taskIndex])
+                break;
+            pendingHeap[position] = pendingHeap[parent];
+            pendingHeapPosition[pendingHeap[position]] = position;
+            position = parent;
+        }
+        pendingHeap[position] = taskIndex;
+        pendingHeapPosition[taskIndex] = position;
+    }
+
+    private void siftDown(int position) {
+        int taskIndex = pendingHeap[position];
+        while (true) {
+            int child = 2*position + 1;
+            if (child >= pendingCount)
+                break;
+            if (child+1 < pendingCount && releaseTime[pendingHeap[child+1]] < releaseTime[pendingHeap[child]])
+                child++;
+            if (releaseTime[pendingHeap[child]] >= releaseTime[taskIndex])
+                break;
+            pendingHeap[position] = pendingHeap[child];
+            pendingHeapPosition[pendingHeap[position]] = position;
+            position = child;
+        }
+        pendingHeap[position] = taskIndex;
+        pendingHeapPosition[taskIndex] = position;
+    }
+
+
+    /* ==== Ready jobs ==== */
+
+    public int size() {
+        return subtreeSize[root];
+    }
+
+    public boolean isReady(int taskIndex) {
+        return ready[taskIndex+1];
+    }
+
+    public long getPrimaryKey(int taskIndex) {
+        return primaryKey[taskIndex+1];
+    }
+
+    /**
+     * Insert a task's released job to the ready set. The task must not be pending or ready.
+     * @param taskIndex     task index
+     * @param primary       primary key (a smaller key means a higher priority)
+     * @param secondary     secondary key to break ties of the primary key
+     * @param initialValue  the job's value (RIB)
+     */
+    public void insertReadyJob(int taskIndex, long primary, long secondary, long initialValue) {
+        int node = taskIndex + 1;
+        if (ready[node] || pendingHeapPosition[taskIndex] != NONE)
+            throw new IllegalArgumentException("Task index " + taskIndex + " already has a job in the set.");
+        ready[node] = true;
+        primaryKey[node] = primary;
+        secondaryKey[node] = secondary;
+        value[node] = initialValue;
+        subtreeMinValue[node] = initialValue;
+        lazyOffset[node] = 0;
+        subtreeSize[node] = 1;
+        left[node] = right[node] = 0;
+        root = insert(root, node);
+    }
+
+    /**
+     * Remove a task's job from the ready set.
+     * @param taskIndex task index
+     * @return the job's value (RIB) at removal
+     */
+    public long removeReadyJob(int taskIndex) {
+        long removedValue = getValue(taskIndex);
+        root = remove(root, taskIndex+1);
+        ready[taskIndex+1] = false;
+        return removedValue;
+    }
+
+    public long getValue(int taskIndex) {
+        int node = taskIndex + 1;
+        if (!ready[node])
+            throw new IllegalArgumentException("Task index " + taskIndex + " is not ready.");
+        int t = root;
+        while (t != node) {
+            pushDown(t);
+            t = isBefore(node, t) ? left[t] : right[t];
+        }
+        pushDown(t);
+        return value[node];
+    }
+
+    public void addValue(int taskIndex, long delta) {
+        int node = taskIndex + 1;
+        if (!ready[node])
+            throw new IllegalArgumentException("Task index " + taskIndex + " is not ready.");
+        addValue(root, node, delta);
+    }
+
+    /**
+     * @return the task index of the first (highest priority) ready job, or NONE if the ready set is empty
+     */
+    public int getFirst() {
+        if (root == 0)
+            return NONE;
+        int t = root;
+        while (left[t] != 0)
+            t = left[t];
+        return t - 1;
+    }
+
+    /**
+     * @param k 0 for the first ready job in key order
+     * @return the task index of the k-th ready job in key order
+     */
+    public int select(int k) {
+        if (k < 0 || k >= size())
+            throw new IllegalArgumentException("Index " + k + " is out of the range of the ready set (" + size() + ").");
+        int t = root;
+        while (true) {
+            int leftSize = subtreeSize[left[t]];
+            if (k < leftSize) {
+                t = left[t];
+            } else if (k == leftSize) {
+                return t - 1;
+            } else {
+                k -= leftSize + 1;
+                t = right[t];
+            }
+        }
+    }
+
+    public int countPrimaryKeyAtMost(long bound) {
+        int count = 0;
+        int t = root;
+        while (t != 0) {
+            if (primaryKey[t] <= bound) {
+                count += subtreeSize[left[t]] + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the minimum value of all the ready jobs, or Long.MAX_VALUE if the ready set is empty
+     */
+    public long getMinValue() {
+        return subtreeMinValue[root];
+    }
+
+    /**
+     * @param bound exclusive upper bound of the primary key
+     * @return the minimum value of the ready jobs whose primary key is less than the bound, or Long.MAX_VALUE if there is none
+     */
+    public long getMinValuePrimaryKeyLessThan(long bound) {
+        long minValue = Long.MAX_VALUE;
+        int t = root;
+        while (t != 0) {
+            pushDown(t);
+            if (primaryKey[t] < bound) {
+                minValue = Math.min(minValue, Math.min(value[t], subtreeMinValue[left[t]]));
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return minValue;
+    }
+
+    /**
+     * Find the first ready job in key order whose primary key is at least fromPrimaryKey and whose value is at most
+     * the given bound.
+     * @param fromPrimaryKey    inclusive lower bound of the primary key
+     * @param valueBound        inclusive upper bound of the value
+     * @param excludedTaskIndex a task index to be skipped (or NONE)
+     * @return the task index of the found job, or NONE if there is none
+     */
+    public int findFirstWithValueAtMost(long fromPrimaryKey, long valueBound, int excludedTaskIndex) {
+        int node = findFirstWithValueAtMost(root, fromPrimaryKey, valueBound, excludedTaskIndex+1);
+        return node == 0 ? NONE : node - 1;
+    }
+
+    /**
+     * Add delta to the values of all the ready jobs whose primary key is less than the bound.
+     */
+    public void addValuePrimaryKeyLessThan(long bound, long delta) {
+        addValuePrimaryKeyLessThan(root, bound, delta);
+    }
+
+    /**
+     * Add delta to the values of all the ready jobs whose primary key is greater than the bound.
+     */
+    public void addValuePrimaryKeyGreaterThan(long bound, long delta) {
+        addValuePrimaryKeyGreaterThan(root, bound, delta);
+    }
+
+
+    /* ==== Treap internals ==== */
+
+    private boolean isBefore(int a, int b) {
+        if (primaryKey[a] != primaryKey[b])
+            return primaryKey[a] < primaryKey[b];
+        if (secondaryKey[a] != secondaryKey[b])
+            return secondaryKey[a] < secondaryKey[b];
+        return a < b;
+    }
+
+    private void applyOffset(int t, long delta) {
+        if (t == 0)
+            return;
+        value[t] += delta;
+        subtreeMinValue[t] += delta;
+        lazyOffset[t] += delta;
+    }
+
+    private void pushDown(int t) {
+        if (lazyOffset[t] != 0) {
+            applyOffset(left[t], lazyOffset[t]);
+            applyOffset(right[t], lazyOffset[t]);
+            lazyOffset[t] = 0;
+        }
+    }
+
+    private void pullUp(int t) {
+        subtreeSize[t] = subtreeSize[left[t]] + subtreeSize[right[t]] + 1;
+        subtreeMinValue[t] = Math.min(value[t], Math.min(subtreeMinValue[left[t]], subtreeMinValue[right[t]]));
+    }
+
+    private int rotateRight(int t) {
+        int l = left[t];
+        pushDown(l);
+        left[t] = right[l];
+        right[l] = t;
+        pullUp(t);
+        pullUp(l);
+        return l;
+    }
+
+    private int rotateLeft(int t) {
+        int r = right[t];
+        pushDown(r);
+        right[t] = left[r];
+        left[r] = t;
+        pullUp(t);
+        pullUp(r);
+        return r;
+    }
+
+    private int insert(int t, int node) {
+        if (t == 0)
+            return node;
+        pushDown(t);
+        if (isBefore(node, t)) {
+            left[t] = insert(left[t], node);
+            if (heapPriority[left[t]] > heapPriority[t])
+                return rotateRight(t);
+        } else {
+            right[t] = insert(right[t], node);
+            if (heapPriority[right[t]] > heapPriority[t])
+                return rotateLeft(t);
+        }
+        pullUp(t);
+        return t;
+    }
+
+    private int remove(int t, int node) {
+        pushDown(t);
+        if (t == node)
+            return merge(left[t], right[t]);
+        if (isBefore(node, t))
+            left[t] = remove(left[t], node);
+        else
+            right[t] = remove(right[t], node);
+        pullUp(t);
+        return t;
+    }
+
+    private int merge(int a, int b) {
+        if (a == 0)
+            return b;
+        if (b == 0)
+            return a;
+        if (heapPriority[a] > heapPriority[b]) {
+            pushDown(a);
+            right[a] = merge(right[a], b);
+            pullUp(a);
+            return a;
+        } else {
+            pushDown(b);
+            left[b] = merge(a, left[b]);
+            pullUp(b);
+            return b;
+        }
+    }
+
+    private void addValue(int t, int node, long delta) {
+        pushDown(t);
+        if (t == node)
+            value[t] += delta;
+        else if (isBefore(node, t))
+            addValue(left[t], node, delta);
+        else
+            addValue(right[t], node, delta);
+        pullUp(t);
+    }
+
+    private void addValuePrimaryKeyLessThan(int t, long bound, long delta) {
+        if (t == 0)
+            return;
+        pushDown(t);
+        if (primaryKey[t] < bound) {
+            applyOffset(left[t], delta);
+            value[t] += delta;
+            addValuePrimaryKeyLessThan(right[t], bound, delta);
+        } else {
+            addValuePrimaryKeyLessThan(left[t], bound, delta);
+        }
+        pullUp(t);
+    }
+
+    private void addValuePrimaryKeyGreaterThan(int t, long bound, long delta) {
+        if (t == 0)
+            return;
+        pushDown(t);
+        if (primaryKey[t] > bound) {
+            applyOffset(right[t], delta);
+            value[t] += delta;
+            addValuePrimaryKeyGreaterThan(left[t], bound, delta);
+        } else {
+            addValuePrimaryKeyGreaterThan(right[t], bound, delta);
+        }
+        pullUp(t);
+    }
+
+    private int findFirstWithValueAtMost(int t, long fromPrimaryKey, long valueBound, int excludedNode) {
+        if (t == 0 || subtreeMinValue[t] > valueBound)
+            return 0;
+        pushDown(t);
+        if (primaryKey[t] >= fromPrimaryKey) {
+            int found = findFirstWithValueAtMost(left[t], fromPrimaryKey, valueBound, excludedNode);
+            if (found != 0)
+                return found;
+            if (t != excludedNode && value[t] <= valueBound)
+                return t;
+        }
+        return findFirstWithValueAtMost(right[t], fromPrimaryKey, valueBound, excludedNode);
+    }
+}
@@ -7,7 +7,6 @@ import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
 import synercys.rts.framework.event.EventContainer;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Random;
 
@@ -18,96 +17,136 @@ public class ReorderScheduler extends EdfScheduler {
     protected boolean fineGrainedShuffleEnabled = true;
     protected boolean unusedTimeReclamationEnabled = true;
 
-    protected HashMap<Task, Long> taskWCIB = new HashMap<>(); // each task's worst case maximum inversion budget
-    protected HashMap<Task, Long> jobRIB = new HashMap<>(); // each task's current job's remaining inversion budget
+    /* The following arrays are indexed by the task index in taskSetSnapshot. */
+    protected long[] taskWCIB; // each task's worst case maximum inversion budget
+    protected long[] jobRIB; // each task's current job's remaining inversion budget
 
     // This is only used when unusedTimeReclamationEnabled==true
-    protected HashMap<Task, Long> jobUnusedTime = new HashMap<>(); // each task's current job's unused time (WCETi - varied Ci)
+    protected long[] jobUnusedTime; // each task's current job's unused time (WCETi - varied Ci)
+
+    /* Ready jobs keyed by absolute deadlines (and their RIBs while they are ready); jobRIB holds the RIBs of pending jobs. */
+    protected ReadyJobSet readyJobSet;
 
     Random rand = new Random();
 
+    protected static final String ANALYSIS_WCIB = "ReOrder.WCIB";
+
     public ReorderScheduler(TaskSet taskSet, boolean runTimeVariation) {
         super(taskSet, runTimeVariation);
         simEventContainer.setSchedulingPolicy(EventContainer.SCHEDULING_POLICY_REORDER);
 
-        /* initialize taskWCIB and jobRIB */
+        int taskCount = taskSetSnapshot.size();
+        taskWCIB = new long[taskCount];
+        jobRIB = new long[taskCount];
+        jobUnusedTime = new long[taskCount];
+
+        /* initialize taskWCIB (the offline analysis is cached per task set) */
+        long[] analysis = SchedulerAnalysisCache.getOrCompute(ANALYSIS_WCIB, taskSetSnapshot, this::computeTaskWCIBs);
         loggerConsole.info("Task WCIBs:");
-        long LCap = calculateLCap(taskSet);
-        for (Task task : taskSet.getAppTasksAsArray()) {
-            taskWCIB.put(task, computeTaskWCIB(task, LCap));
-            jobRIB.put(task, taskWCIB.get(task));
-            loggerConsole.info("\tTask ID#{}: {}", task.getId(), taskWCIB.get(task));
+        for (Task task : taskSetSnapshot.getAppTasks()) {
+            int taskIndex = getTaskIndex(task);
+            taskWCIB[taskIndex] = analysis[taskIndex];
+            loggerConsole.info("\tTask ID#{}: {}", task.getId(), taskWCIB[taskIndex]);
         }
 
+        readyJobSet = new ReadyJobSet(taskCount);
+        firstTaskJobsInitializedHook();
+    }
+
+    @Override
+    protected void saveStateHook(SimulationState state) {
+        state.putSchedulerState("jobRIB", jobRIB.clone());
+        state.putSchedulerState("jobUnusedTime", jobUnusedTime.clone());
+        state.putSchedulerState("readyJobSet", new ReadyJobSet(readyJobSet));
+    }
+
+    @Override
+    protected void restoreStateHook(SimulationState state) {
+        System.arraycopy((long[]) state.getSchedulerState("jobRIB"), 0, jobRIB, 0, jobRIB.length);
+        System.arraycopy((long[]) state.getSchedulerState("jobUnusedTime"), 0, jobUnusedTime, 0, jobUnusedTime.length);
+        readyJobSet.copyFrom((ReadyJobSet) state.getSchedulerState("readyJobSet"));
+    }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        super.setRandomSeed(seed);
+        rand = new Random(random.nextLong());
+    }
+
+    /* Rebuild the states derived from the first jobs: jobRIB, jobUnusedTime and the pending jobs in readyJobSet. */
+    @Override
+    protected void firstTaskJobsInitializedHook() {
+        System.arraycopy(taskWCIB, 0, jobRIB, 0, taskWCIB.length);
+
         /* initialize jobUnusedTime */
         if (unusedTimeReclamationEnabled) {
-            for (Job job : nextJobOfATask.values()) {
-                jobUnusedTime.put(job.task, job.task.getWcet()-job.remainingExecTime);
+            for (int i=0; i<taskSetSnapshot.size(); i++) {
+                Job job = nextJobOfATask[i];
+                jobUnusedTime[i] = Math.max(0, job.task.getWcet()-job.remainingExecTime);
             }
         }
 
+        readyJobSet.clear();
+        for (int i=0; i<taskSetSnapshot.size(); i++) {
+            readyJobSet.addPendingJob(i, nextJobOfATask[i].releaseTime);
+        }
+    }
+
+    /**
+     * Move the jobs released at or before the given tick into the ready job set. Note that the ticks passed to this
+     * function never decrease, so the ready set only grows with time until a job is finished (updateTaskJob()).
+     * @param tick present tick
+     */
+    protected void updateReadyJobSet(long tick) {
+        int taskIndex;
+        while ((taskIndex = readyJobSet.pollReleasedJob(tick)) != ReadyJobSet.NONE) {
+            // Ties of deadlines are broken by periods (and then task indices), the same as getNextJobInReadyQueue().
+            readyJobSet.insertReadyJob(taskIndex, nextJobOfATask[taskIndex].absoluteDeadline, taskSetSnapshot.getPeriod(taskIndex), jobRIB[taskIndex]);
+        }
     }
 
 
     @Override
     protected Job getNextJob(long tick) {
-        ArrayList<Job> candidateJobs = new ArrayList<>();
-        Job nextJob = null;
-
-        /* Step 1: check the top priority job and construct candidate list. */
-        Job topPriorityJob = getNextJobInReadyQueue(tick);
-        if (topPriorityJob == null) {
+        /* Step 1: check the top priority job and determine the candidates. */
+        updateReadyJobSet(tick);
+        if (readyJobSet.size() == 0) {
             /* No job is active at this given tick point, so let's move to the first arrived job in the future. */
-            topPriorityJob = getEarliestArrivedJobWithCloserDeadline();
-            tick = topPriorityJob.releaseTime;
+            tick = readyJobSet.getEarliestPendingReleaseTime();
+            updateReadyJobSet(tick);
         }
+        int topPriorityTaskIndex = readyJobSet.getFirst();
+        Job topPriorityJob = nextJobOfATask[topPriorityTaskIndex];
 
-        if (getJobRIB(topPriorityJob) <= 0) {
+        if (readyJobSet.getValue(topPriorityTaskIndex) <= 0) {
             /* No priority inversion is allowed. */
             return topPriorityJob;
         }
 
-        ArrayList<Job> readyJobs = getAllReadyJobs(tick);
+        int readyJobCount = readyJobSet.size();
         if (idleTimeShuffleEnabled == false) {
-            if (readyJobs.size() == 1) {
+            if (readyJobCount == 1) {
                 // There is only one job (the highest priority job) in the ready queue.
                 return topPriorityJob;
             }
         }
 
+        // Candidates are the ready jobs in the leading part of the deadline order (all of them if M == -1).
         long topPriorityJobM = computeCurrentJobM(topPriorityJob, tick);
-        if (topPriorityJobM == -1) {
-            candidateJobs.addAll(readyJobs);
-        } else {
-            for (Job job : readyJobs) {
-                if (job.absoluteDeadline<=topPriorityJobM)
-                    candidateJobs.add(job);
-            }
-        }
-
-        if (idleTimeShuffleEnabled) {
-            if (topPriorityJobM==-1) {
-                /* All jobs in the ready queue are open to priority inversion, so let's add the idle job to the candidate list. */
-                long smallestRIB = -1;
-                for (Job job : readyJobs) {
-                    if (smallestRIB == -1)
-                        smallestRIB = jobRIB.get(job.task);
-                    else
-                        smallestRIB = smallestRIB<jobRIB.get(job.task) ? smallestRIB : jobRIB.get(job.task);
-                }
-                // Making the remaining execution time as smallestRIB+1 ensures that the idle job will be preempted.
-                Job dummyIdleTaskJob = new Job(taskSet.getIdleTask(), tick, smallestRIB+1);
-                dummyIdleTaskJob.hasStarted = true;
-                candidateJobs.add(dummyIdleTaskJob);
-            }
+        int candidateJobCount = (topPriorityJobM == -1) ? readyJobCount : readyJobSet.countPrimaryKeyAtMost(topPriorityJobM);
+
+        /* All jobs in the ready queue are open to priority inversion if M == -1, so let's add the idle job to the candidate list. */
+        boolean idleJobIsCandidate = idleTimeShuffleEnabled && (topPriorityJobM == -1);
+
+        /* Step 2: randomly pick one job from the candidates (the idle job, if any, is the last one) */
+        int randomSelectionIndex = getRandomInt(0, idleJobIsCandidate ? candidateJobCount : candidateJobCount-1);
+        if (randomSelectionIndex == candidateJobCount) {
+            // Making the remaining execution time as smallestRIB+1 ensures that the idle job will be preempted.
+            Job dummyIdleTaskJob = new Job(taskSetSnapshot.getIdleTask(), tick, readyJobSet.getMinValue()+1);
+            dummyIdleTaskJob.hasStarted = true;
+            return dummyIdleTaskJob;
         }
-
-        /* Step 2: randomly pick one job from the list */
-        int randomSelectionIndex = getRandomInt(0, candidateJobs.size()-1);
-        nextJob = candidateJobs.get(randomSelectionIndex);
-
-        return nextJob;
-
+        return nextJobOfATask[readyJobSet.select(randomSelectionIndex)];
     }
 
     @Override
@@ -120,19 +159,11 @@ public class ReorderScheduler extends EdfScheduler {
          *  (3. when runJob itself is finished -- this is not preempting, thus is not handled here)
          */
 
-        /* Check condition 1 -- RIB of jobs in the ready queue. */
-        for (Job job : getAllReadyJobs(tick)) {
-            if (job == runJob)
-                continue;
-
-            if ((job.absoluteDeadline < runJob.absoluteDeadline) || (runJob.task.getTaskType().equalsIgnoreCase(Task.TASK_TYPE_IDLE))) { // < is based on equation 2 in the REORDER paper
-                if (getJobRIB(job) < runJob.remainingExecTime) {
-                    if (preemptingTick == -1)
-                        preemptingTick = tick + getJobRIB(job);
-                    else
-                        preemptingTick = preemptingTick<(tick+getJobRIB(job)) ? preemptingTick : (tick+getJobRIB(job));
-                }
-            }
+        /* Check condition 1 -- RIB of jobs (with earlier deadlines than runJob's) in the ready queue. */
+        updateReadyJobSet(tick);
+        long smallestRIB = readyJobSet.getMinValuePrimaryKeyLessThan(getInversionDeadlineBound(runJob)); // < is based on equation 2 in the REORDER paper
+        if (smallestRIB < runJob.remainingExecTime) {
+            preemptingTick = tick + smallestRIB;
         }
 
         /* Now check if any job arrives before that RIB becomes 0 (if any) and after present tick.
@@ -140,17 +171,11 @@ public class ReorderScheduler extends EdfScheduler {
          * as thy were chosen to be priority-inversed when the current job was selected to run.
          */
         long maxPreemptingTick = preemptingTick!=-1 ? preemptingTick : (tick+runJob.remainingExecTime);
-        for (Job job: nextJobOfATask.values()) {
-            if (job == runJob)
-                continue;
-
-            if ((job.releaseTime>tick) && (job.releaseTime<maxPreemptingTick)) {
-                /* Here is a new arrival! */
-                if (preemptingTick==-1)
-                    preemptingTick = job.releaseTime;
-                else
-                    preemptingTick = preemptingTick<job.releaseTime ? preemptingTick : job.releaseTime;
-            }
+        // All the jobs released by the present tick are in the ready set, so the earliest pending job is the next arrival.
+        long nextReleaseTime = readyJobSet.getEarliestPendingReleaseTime();
+        if (nextReleaseTime < maxPreemptingTick) {
+            /* Here is a new arrival! */
+            preemptingTick = nextReleaseTime;
         }
 
         if (fineGrainedShuffleEnabled) {
@@ -171,47 +196,56 @@ public class ReorderScheduler extends EdfScheduler {
 
     @Override
     protected void runJobExecutedHook(Job runJob, long tick, long executedTime) {
-        for (Job job : getAllReadyJobs(tick-executedTime)) {
-            if (runJob == job)
-                continue;
-
-            if ((job.absoluteDeadline<runJob.absoluteDeadline) || (runJob.task.getTaskType().equalsIgnoreCase(Task.TASK_TYPE_IDLE)))
-                consumeJobRIB(job, executedTime);
-        }
+        /* The ready set has been updated up to (tick-executedTime) when runJob was selected to run. */
+        // Every ready job with an earlier deadline than runJob's (or every ready job if runJob is idle) consumes its RIB.
+        readyJobSet.addValuePrimaryKeyLessThan(getInversionDeadlineBound(runJob), -executedTime);
 
         if (unusedTimeReclamationEnabled) {
             if ((runJob.task.isIdleTaskType()==false) && (runJob.remainingExecTime==0)) {
-                /* this runJob is finished. */
-                for (Job job : getAllReadyJobs(tick - executedTime)) {
-                    if (runJob == job)
-                        continue;
-
-                    if ((job.absoluteDeadline>runJob.absoluteDeadline) && (runJob.task.isIdleTaskType()==false))
-                        jobRIB.put(job.task, getJobRIB(job)+getJobUnusedTime(runJob));
-                }
+                /* this runJob is finished, so every ready job with a later deadline reclaims runJob's unused time. */
+                readyJobSet.addValuePrimaryKeyGreaterThan(runJob.absoluteDeadline, getJobUnusedTime(runJob));
             }
         }
     }
 
+    /**
+     * The jobs whose deadlines are earlier than the returned bound are priority-inversed while runJob is executing.
+     * @param runJob the executing job
+     * @return runJob's absolute deadline, or Long.MAX_VALUE (i.e., all jobs) if runJob is the idle job
+     */
+    protected long getInversionDeadlineBound(Job runJob) {
+        return runJob.task.isIdleTaskType() ? Long.MAX_VALUE : runJob.absoluteDeadline;
+    }
+
     /* this is where a job is finished and RIB is refreshed. */
     @Override
     protected Job updateTaskJob(Task task) {
         refreshTaskJobRIB(task);
         Job newJob = super.updateTaskJob(task);
 
+        int taskIndex = getTaskIndex(task);
         if (unusedTimeReclamationEnabled) {
-            jobUnusedTime.put(task, task.getWcet() - newJob.remainingExecTime);
+            jobUnusedTime[taskIndex] = Math.max(0, task.getWcet() - newJob.remainingExecTime);  // a replayed job may overrun its WCET
         }
+        readyJobSet.addPendingJob(taskIndex, newJob.releaseTime);
 
         return newJob;
     }
 
+    /* The idle task has no budget (its index is TaskSetSnapshot.NO_INDEX). */
     protected long getJobRIB(Job job) {
-        return jobRIB.get(job.task);
+        int taskIndex = getTaskIndex(job.task);
+        if (taskIndex < 0)
+            return 0;
+        return readyJobSet.isReady(taskIndex) ? readyJobSet.getValue(taskIndex) : jobRIB[taskIndex];
     }
 
+    /* This is called when the task's job is finished; the job leaves the ready set. */
     protected void refreshTaskJobRIB(Task task) {
-        jobRIB.put(task, taskWCIB.get(task));
+        int taskIndex = getTaskIndex(task);
+        if (readyJobSet.isReady(taskIndex))
+            readyJobSet.removeReadyJob(taskIndex);
+        jobRIB[taskIndex] = taskWCIB[taskIndex];
     }
 
 
@@ -223,23 +257,23 @@ public class ReorderScheduler extends EdfScheduler {
      * @return  the minimum inversion deadline for job_i. -1 indicates that nothing needs to be excluded from priority inversion.
      */
     protected long computeCurrentJobM(Job job, long tick) {
-        ArrayList<Job> readyJobs = getAllReadyJobs(tick);
-        long jobM = -1;
-        for (Job jJob : readyJobs) {
-            if (jJob == job)
-                continue;
-
-            if ((jJob.absoluteDeadline>=job.absoluteDeadline) && (getJobRIB(jJob)<=0)) { // TODO: Fix the equation at the top of page 4 with <= 0 (and also > becomes =>)
-                if (jobM == -1)
-                    jobM = jJob.absoluteDeadline;
-                else
-                    jobM = jobM < jJob.absoluteDeadline ? jobM : jJob.absoluteDeadline;
-            }
-        }
-        return jobM;    // Note that jobM might be -1, which indicates that
+        updateReadyJobSet(tick);
+        // The first such job in the deadline order has the smallest deadline.
+        // TODO: Fix the equation at the top of page 4 with <= 0 (and also > becomes =>)
+        int jTaskIndex = readyJobSet.findFirstWithValueAtMost(job.absoluteDeadline, 0, getTaskIndex(job.task));
+        return jTaskIndex == ReadyJobSet.NONE ? -1 : nextJobOfATask[jTaskIndex].absoluteDeadline;    // Note that jobM might be -1, which indicates that
     }
 
 
+    /* Compute the WCIB of each app task (indexed by the task index). */
+    protected long[] computeTaskWCIBs() {
+        long[] wcibs = new long[taskSetSnapshot.size()];
+        long LCap = calculateLCap(taskSet);
+        for (Task task : taskSetSnapshot.getAppTasks())
+            wcibs[getTaskIndex(task)] = computeTaskWCIB(task, LCap);
+        return wcibs;
+    }
+
     /* WCIB_i = D_i - R'_i
      * where R'_i is the +1 version of the WCRT
      */
@@ -295,7 +329,7 @@ public class ReorderScheduler extends EdfScheduler {
         long Di = task.getDeadline();
         long Ti = task.getPeriod();
         long Ci = task.getWcet();
-        for (Task jTask : taskSet.getAppTasksAsArray()) {
+        for (Task jTask : taskSetSnapshot.getAppTasks()) {
             long Dj = jTask.getDeadline();
             long Cj = jTask.getWcet();
             if ( (jTask==task) || (Dj>a+Di) )
@@ -323,7 +357,7 @@ public class ReorderScheduler extends EdfScheduler {
         long Di = task.getDeadline();
         long Ti = task.getPeriod();
         long Ci = task.getWcet();
-        for (Task jTask : taskSet.getAppTasksAsArray()) {
+        for (Task jTask : taskSetSnapshot.getAppTasks()) {
             long Tj = jTask.getPeriod();
             long Dj = jTask.getDeadline();
             long Cj = jTask.getWcet();
@@ -382,7 +416,7 @@ public class ReorderScheduler extends EdfScheduler {
     protected long REORDER_calculateInterferenceForTaskAtGivenTimePoint(Task task, long t) {
         long Di = task.getDeadline();
         long interference = 0;
-        for (Task jTask : taskSet.getAppTasksAsArray()) {
+        for (Task jTask : taskSetSnapshot.getAppTasks()) {
             long Dj = jTask.getDeadline();
             long Tj = jTask.getPeriod();
             long Cj = jTask.getWcet();
@@ -399,13 +433,32 @@ public class ReorderScheduler extends EdfScheduler {
     }
 
     protected long consumeJobRIB(Job job, long consumedBudget) {
-        long updatedRIB = jobRIB.get(job.task) - consumedBudget;
-        jobRIB.put(job.task, updatedRIB);
-        return updatedRIB;
+        int taskIndex = getTaskIndex(job.task);
+        if (readyJobSet.isReady(taskIndex)) {
+            readyJobSet.addValue(taskIndex, -consumedBudget);
+            return readyJobSet.getValue(taskIndex);
+        }
+        jobRIB[taskIndex] -= consumedBudget;
+        return jobRIB[taskIndex];
     }
 
     protected long getJobUnusedTime(Job job) {
-        return jobUnusedTime.get(job.task);
+        return jobUnusedTime[getTaskIndex(job.task)];
+    }
+
+    /* The following getters return maps keyed by (app) tasks for compatibility. */
+
+    public HashMap<Task, Long> getTaskWCIBMap() {
+        return toAppTaskMap(taskWCIB);
+    }
+
+    public HashMap<Task, Long> getJobRIBMap() {
+        long[] currentJobRIB = jobRIB.clone();
+        for (int i=0; i<currentJobRIB.length; i++) {
+            if (readyJobSet.isReady(i))
+                currentJobRIB[i] = readyJobSet.getValue(i);
+        }
+        return toAppTaskMap(currentJobRIB);
     }
 
     public void setRandomizationLevel(int level) {
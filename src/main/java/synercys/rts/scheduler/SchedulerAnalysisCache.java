@@ -0,0 +1,104 @@
+package synercys.rts.scheduler;
+
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSetSnapshot;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * SchedulerAnalysisCache.java
+ * Purpose: Caches the results of the schedulers' offline analyses (e.g., TaskShuffler's and ReOrder's worst case
+ *          inversion budgets) keyed by the analysis name and the task set content, so that schedulers created
+ *          repeatedly for the same task set (e.g., one per simulation round) run the analyses only once.
+ *
+ *          The content of a task set is the (ID, whether it is an app task, WCET, period, deadline, priority) of each
+ *          task in the order of the task indices in the scheduler's TaskSetSnapshot. The cached arrays are indexed the
+ *          same way.
+ */
+public class SchedulerAnalysisCache {
+    protected static final int CACHE_SIZE = 1024;
+
+    protected static final Map<AnalysisKey, long[]> analysisCache = new LinkedHashMap<AnalysisKey, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<AnalysisKey, long[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private SchedulerAnalysisCache() {}
+
+    /**
+     * Get the cached result of an analysis for the given task set, or compute and cache it if it is not cached.
+     * The analysis is computed outside of the cache lock, so concurrent schedulers may compute the same result once
+     * each on a miss.
+     * @param analysisName  name that identifies the analysis (and its variant)
+     * @param snapshot      snapshot of the analyzed task set
+     * @param analysis      computes the result
+     * @return a copy of the (cached) result
+     */
+    public static long[] getOrCompute(String analysisName, TaskSetSnapshot snapshot, Supplier<long[]> analysis) {
+        AnalysisKey key = new AnalysisKey(analysisName, snapshot);
+        synchronized (analysisCache) {
+            long[] cachedResult = analysisCache.get(key);
+            if (cachedResult != null)
+                return cachedResult.clone();
+        }
+
+        long[] result = analysis.get();
+        synchronized (analysisCache) {
+            analysisCache.put(key, result.clone());
+        }
+        return result;
+    }
+
+    public static int size() {
+        synchronized (analysisCache) {
+            return analysisCache.size();
+        }
+    }
+
+    public static void clear() {
+        synchronized (analysisCache) {
+            analysisCache.clear();
+        }
+    }
+
+
+    protected static class AnalysisKey {
+        final String analysisName;
+        final long[] parameters;
+        final int hashCode;
+
+        AnalysisKey(String analysisName, TaskSetSnapshot snapshot) {
+            this.analysisName = analysisName;
+            int n = snapshot.size();
+            parameters = new long[n*6];
+            for (int i=0; i<n; i++) {
+                Task task = snapshot.getTask(i);
+                parameters[i*6] = task.getId();
+                parameters[i*6+1] = Task.TASK_TYPE_APP.equals(task.getTaskType()) ? 1 : 0;
+                parameters[i*6+2] = task.getWcet();
+                parameters[i*6+3] = task.getPeriod();
+                parameters[i*6+4] = task.getDeadline();
+                parameters[i*6+5] = task.getPriority();
+            }
+            hashCode = 31*analysisName.hashCode() + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof AnalysisKey))
+                return false;
+            AnalysisKey key = (AnalysisKey) o;
+            return analysisName.equals(key.analysisName) && Arrays.equals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package synercys.rts.scheduler;
 
-import cy.utility.Umath;    // for poisson distributed randomization
+import synercys.rts.framework.distribution.PoissonTimeDistribution;
+import synercys.rts.framework.distribution.TimeDistribution;
 import synercys.rts.framework.event.EventContainer;
 import synercys.rts.framework.Job;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.TaskSetSnapshot;
 
 import java.util.*;
 
@@ -22,6 +24,11 @@ abstract class SchedulerSimulator {
     public static int DISTRIBUTION_MODE_GAUSSIAN = 2;
 
     protected TaskSet taskSet = null;
+    protected TaskSetSnapshot taskSetSnapshot = null;  // taken after setTaskSetHook(); used in the simulation loop
+    protected TimeDistribution[] defaultInterArrivalTimeDistribution = null;  // indexed by the task index; created on demand
+    /* The number of values drawn from each task's models (indexed by the task index), i.e., the models' positions. */
+    protected long[] executionTimeSampleCount = null;
+    protected long[] interArrivalTimeSampleCount = null;
 
     protected ArrayList<Job> readyQueue = new ArrayList<>();
     protected ArrayList<Job> activeQueue = new ArrayList<>();
@@ -29,7 +36,7 @@ abstract class SchedulerSimulator {
     protected Job currentJob = null;
     protected Job lastJob = null;
     protected static boolean DEBUG = false;
-    protected static Random random = new Random();
+    protected Random random = new Random();     // per scheduler so that a seeded scheduler is reproducible
 
     protected EventContainer simEventContainer = new EventContainer();
 
@@ -57,6 +64,10 @@ abstract class SchedulerSimulator {
         //taskSet.clearSimData();
 
         setTaskSetHook(); // Note that the taskset includes idle task.
+        taskSetSnapshot = (taskSet == null) ? null : taskSet.getSnapshot();
+        defaultInterArrivalTimeDistribution = null;
+        if (taskSetSnapshot != null)
+            resetTaskTimeDistributions();
 
         // Clear previous event container if any
         simEventContainer.clearAll();
@@ -88,7 +99,39 @@ abstract class SchedulerSimulator {
         runTimeVariation = val;
     }
 
+    /**
+     * Reseed the random number generator used for the runtime variations. Schedulers that make random decisions
+     * override this to reseed their own generators as well (derived from the given seed).
+     * @param seed the new seed
+     */
+    public void setRandomSeed(long seed) {
+        random = new Random(seed);
+    }
+
+    /* Restart the tasks' runtime variation models (e.g., traces being replayed) by rewinding this scheduler's
+     * positions in them; the models themselves are not modified as they may be shared with other schedulers. */
+    protected void resetTaskTimeDistributions() {
+        if (executionTimeSampleCount == null || executionTimeSampleCount.length != taskSetSnapshot.size()) {
+            executionTimeSampleCount = new long[taskSetSnapshot.size()];
+            interArrivalTimeSampleCount = new long[taskSetSnapshot.size()];
+        } else {
+            Arrays.fill(executionTimeSampleCount, 0);
+            Arrays.fill(interArrivalTimeSampleCount, 0);
+        }
+    }
+
+    /**
+     * Draw an execution time from the task's execution time model. If the task has no model, the default model is
+     * a Gaussian distribution N(0.8*WCET, (0.2*WCET)^2) clamped to [1, WCET].
+     * @param task_i the task
+     * @return a positive execution time
+     */
     protected long getVariedExecutionTime(Task task_i) {
+        if (task_i.getExecutionTimeDistribution() != null) {
+            long executionTime = sampleTaskTimeDistribution(task_i.getExecutionTimeDistribution(), task_i, executionTimeSampleCount);
+            return executionTime <= 0 ? 1 : executionTime;
+        }
+
         // Gaussian Distribution
         double stddev = 0.2;    // added by CY
         double gaussianFactor = random.nextGaussian();
@@ -102,21 +145,45 @@ abstract class SchedulerSimulator {
         return deviatedExecutionTime;
     }
 
+    /**
+     * Draw an inter-arrival time (of a sporadic task) from the task's inter-arrival time model. If the task has no
+     * model, the default model is 10*k where k ~ Poisson(1.2*period/10) conditioned on 10*k >= period.
+     * @param task the task
+     * @return an inter-arrival time
+     */
     protected long getVariedInterArrivalTime(Task task) {
-        long minInterArrival = task.getPeriod();
-
-        // Poisson Distribution
-        long variedInterArrivalTime = 0;
-        while (variedInterArrivalTime < minInterArrival) {
-            variedInterArrivalTime = Umath.getPoisson((minInterArrival/10.0)*1.2)*10;
-        }
-        return variedInterArrivalTime;
+        if (task.getInterArrivalTimeDistribution() != null)
+            return sampleTaskTimeDistribution(task.getInterArrivalTimeDistribution(), task, interArrivalTimeSampleCount);
+        return getDefaultInterArrivalTimeDistribution(task).sample(random);
         /* For reference: case of uniform distribution
          * double ScaleFactor = 0.2;
          * return (long)( ((Math.random()-0.5)*2) * (ScaleFactor*task_i.period) + task_i.period);
          */
     }
 
+    /* Draw the next value of a task's model at this scheduler's position in it. */
+    protected long sampleTaskTimeDistribution(TimeDistribution distribution, Task task, long[] sampleCount) {
+        int taskIndex = (sampleCount == null) ? TaskSetSnapshot.NO_INDEX : getTaskIndex(task);
+        if (taskIndex < 0)
+            return distribution.sample(random);
+        return distribution.sample(random, sampleCount[taskIndex]++);
+    }
+
+    /* The default model used to be drawn by re-sampling until the value reached the period; the truncated
+     * Poisson model gives the same distribution with O(1) draws. */
+    protected TimeDistribution getDefaultInterArrivalTimeDistribution(Task task) {
+        long minInterArrival = task.getPeriod();
+        int taskIndex = (taskSetSnapshot == null) ? TaskSetSnapshot.NO_INDEX : getTaskIndex(task);
+        if (taskIndex < 0)
+            return new PoissonTimeDistribution((minInterArrival/10.0)*1.2, 10, minInterArrival);
+
+        if (defaultInterArrivalTimeDistribution == null)
+            defaultInterArrivalTimeDistribution = new TimeDistribution[taskSetSnapshot.size()];
+        if (defaultInterArrivalTimeDistribution[taskIndex] == null)
+            defaultInterArrivalTimeDistribution[taskIndex] = new PoissonTimeDistribution((minInterArrival/10.0)*1.2, 10, minInterArrival);
+        return defaultInterArrivalTimeDistribution[taskIndex];
+    }
+
     // Insert the job to ready queue according to the priority. (the bigger the higher)
     protected void insertToReadyQueue(Job job_i) {
         int idxToInsert = -1;
@@ -138,4 +205,49 @@ abstract class SchedulerSimulator {
     {
         return simEventContainer;
     }
+
+    /**
+     * @param task a runnable task in the task set
+     * @return the task's dense index in taskSetSnapshot (TaskSetSnapshot.NO_INDEX for the idle task)
+     */
+    protected int getTaskIndex(Task task) {
+        return taskSetSnapshot.indexOf(task);
+    }
+
+    /* The following methods convert task-indexed state arrays to maps keyed by tasks for compatibility. */
+
+    protected HashMap<Task, Long> toTaskMap(long[] values) {
+        HashMap<Task, Long> map = new HashMap<>();
+        for (int i=0; i<values.length; i++) {
+            map.put(taskSetSnapshot.getTask(i), values[i]);
+        }
+        return map;
+    }
+
+    protected HashMap<Task, Integer> toTaskMap(int[] values) {
+        HashMap<Task, Integer> map = new HashMap<>();
+        for (int i=0; i<values.length; i++) {
+            map.put(taskSetSnapshot.getTask(i), values[i]);
+        }
+        return map;
+    }
+
+    /* Only the entries of app tasks are included (the same as the maps that used to be filled by app tasks). */
+    protected HashMap<Task, Long> toAppTaskMap(long[] values) {
+        HashMap<Task, Long> map = new HashMap<>();
+        for (int i=0; i<values.length; i++) {
+            if (taskSetSnapshot.isAppTask(i))
+                map.put(taskSetSnapshot.getTask(i), values[i]);
+        }
+        return map;
+    }
+
+    protected HashMap<Task, Integer> toAppTaskMap(int[] values) {
+        HashMap<Task, Integer> map = new HashMap<>();
+        for (int i=0; i<values.length; i++) {
+            if (taskSetSnapshot.isAppTask(i))
+                map.put(taskSetSnapshot.getTask(i), values[i]);
+        }
+        return map;
+    }
 }
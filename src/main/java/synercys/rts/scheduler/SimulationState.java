@@ -0,0 +1,111 @@
+package synercys.rts.scheduler;
+
+import synercys.rts.framework.Job;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * SimulationState.java
+ * Purpose: A snapshot of an AdvanceableSchedulerSimulator taken at a scheduling point (see
+ *          AdvanceableSchedulerSimulator.saveState()). A snapshot is never modified after it is taken, so it can be
+ *          restored any number of times, into the scheduler that took it or into another scheduler of the same class
+ *          created for the same task set, to fork independent continuations of one simulation.
+ *
+ *          It holds copies of the base simulator's states (tick, each task's current job, the tracing data, the
+ *          replay position of the workload trace and the positions in the tasks' time distribution models) and of
+ *          the events produced after the warm-up offset; schedulers with more states (e.g., the RIBs and the ready
+ *          job set of TaskShuffler and ReOrder) put copies of them via putSchedulerState(). States that never change
+ *          during a simulation (e.g., WCIBs) are not copied.
+ */
+public class SimulationState {
+    final Class<?> schedulerClass;
+    final TaskSet taskSet;
+    final long offset;
+    final long tick;
+
+    final Job[] nextJobOfATask;
+    final long[] taskDeadlineMissCount;
+    final boolean[] taskDeadlineMissState;
+    final long[] taskRunningConsecutiveDeadlineMissCount;
+    final long[] taskMaxConsecutiveDeadlineMissCount;
+    final long[][] taskInterArrivalTimeTrace;
+    final int[] replayPosition;
+    final long[] executionTimeSampleCount;
+    final long[] interArrivalTimeSampleCount;
+
+    /* Events in [offset, tick) produced by the warm-up. */
+    final ArrayList<SchedulerIntervalEvent> schedulerEvents = new ArrayList<>();
+
+    private final HashMap<String, Object> schedulerStates = new HashMap<>();
+
+    SimulationState(Class<?> schedulerClass, TaskSet taskSet, long offset, long tick, int taskCount) {
+        this.schedulerClass = schedulerClass;
+        this.taskSet = taskSet;
+        this.offset = offset;
+        this.tick = tick;
+        nextJobOfATask = new Job[taskCount];
+        taskDeadlineMissCount = new long[taskCount];
+        taskDeadlineMissState = new boolean[taskCount];
+        taskRunningConsecutiveDeadlineMissCount = new long[taskCount];
+        taskMaxConsecutiveDeadlineMissCount = new long[taskCount];
+        taskInterArrivalTimeTrace = new long[taskCount][];
+        replayPosition = new int[taskCount];
+        executionTimeSampleCount = new long[taskCount];
+        interArrivalTimeSampleCount = new long[taskCount];
+    }
+
+    /**
+     * @return the tick (a scheduling point) at which the snapshot was taken
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return the time from which the events of a continuation are kept
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Store a copy of a scheduler specific state. The stored object must not be modified afterwards.
+     * @param name  name of the state (e.g., "jobRIB")
+     * @param state a copy of the state
+     */
+    public void putSchedulerState(String name, Object state) {
+        schedulerStates.put(name, state);
+    }
+
+    /**
+     * The returned object is shared by all restorations, so it has to be copied (not modified) when restored.
+     * @param name name of the state
+     * @return the stored state
+     */
+    public Object getSchedulerState(String name) {
+        if (!schedulerStates.containsKey(name))
+            throw new IllegalArgumentException("The snapshot has no scheduler state \"" + name + "\".");
+        return schedulerStates.get(name);
+    }
+
+    static Job copyJob(Job job) {
+        Job copy = new Job();
+        copy.seqNo = job.seqNo;
+        copy.task = job.task;
+        copy.remainingExecTime = job.remainingExecTime;
+        copy.releaseTime = job.releaseTime;
+        copy.absoluteDeadline = job.absoluteDeadline;
+        copy.hasStarted = job.hasStarted;
+        return copy;
+    }
+
+    static SchedulerIntervalEvent copyEvent(SchedulerIntervalEvent event) {
+        SchedulerIntervalEvent copy = new SchedulerIntervalEvent(event.getOrgBeginTimestamp(), event.getOrgEndTimestamp(),
+                event.getJobInitialArrivalTime(), event.getTask(), event.getNote());
+        copy.setScheduleStates(event.getBeginTimeScheduleState(), event.getEndTimeScheduleState());
+        return copy;
+    }
+}
@@ -1,5 +1,6 @@
 package synercys.rts.scheduler;
 
+import synercys.rts.framework.FixedPriorityResponseTimeAnalysis;
 import synercys.rts.framework.TaskSet;
 
 import java.util.ArrayList;
@@ -41,6 +42,15 @@ public class TaskSetContainer {
         return mostTaskCount;
     }
 
+    /**
+     * Run the fixed-priority schedulability test for all task sets in parallel.
+     * @param threadCount number of threads
+     * @return the schedulability of each task set (in the order of getTaskSets())
+     */
+    public boolean[] schedulabilityTest(int threadCount) {
+        return FixedPriorityResponseTimeAnalysis.schedulabilityTest(taskSets, threadCount);
+    }
+
     public int size() {
         return taskSets.size();
     }
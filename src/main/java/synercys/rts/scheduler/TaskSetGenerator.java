@@ -1,12 +1,25 @@
 package synercys.rts.scheduler;
 
 import synercys.rts.RtsConfig;
+import synercys.rts.framework.PeriodStructure;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
 import cy.utility.Umath;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Created by jjs on 2/13/17.
@@ -56,6 +69,21 @@ public class TaskSetGenerator {
 
     Random rand = new Random();
 
+    /* A task set is rejected after this many retries of picking a task's parameters. */
+    static final int MAX_TASK_RETRY_COUNT = 100;
+
+    /* Streaming parallel generation: per-worker queue size and how often a waited worker is checked for failure. */
+    static final int WORKER_QUEUE_CAPACITY = 256;
+    static final long WORKER_POLL_INTERVAL_MS = 100;
+
+    /* Candidate periods (divisors of maxHyperPeriod) enumerated by preparePeriodCandidates(). */
+    ArrayList<Long> hpDivisorPeriods = null;
+
+    /* Acceptance statistics. They are shared with the worker generators created for parallel generation. */
+    AtomicLong attemptCount = new AtomicLong();
+    AtomicLong acceptedCount = new AtomicLong();
+    ConcurrentHashMap<String, AtomicLong> rejectionCounts = new ConcurrentHashMap<>();
+
     public TaskSetGenerator() {
 
         taskSetIdCounter = 0;
@@ -98,6 +126,45 @@ public class TaskSetGenerator {
         /*===== end =====*/
     }
 
+    /**
+     * Create a worker generator that has the same configuration and shares the acceptance statistics with the
+     * given generator but uses its own random number stream.
+     * @param generator the generator whose configuration is copied
+     * @param seed the seed of the worker's random number stream
+     */
+    protected TaskSetGenerator(TaskSetGenerator generator, long seed) {
+        minNumTasks = generator.minNumTasks;
+        maxNumTasks = generator.maxNumTasks;
+        minPeriod = generator.minPeriod;
+        maxPeriod = generator.maxPeriod;
+        maxHyperPeriod = generator.maxHyperPeriod;
+        generateFromHpDivisors = generator.generateFromHpDivisors;
+        minWcet = generator.minWcet;
+        maxWcet = generator.maxWcet;
+        minInitOffset = generator.minInitOffset;
+        maxInitOffset = generator.maxInitOffset;
+        minUtil = generator.minUtil;
+        maxUtil = generator.maxUtil;
+        numTaskPerSet = generator.numTaskPerSet;
+        numTaskSet = generator.numTaskSet;
+        nonHarmonicOnly = generator.nonHarmonicOnly;
+        distinctPeriodOnly = generator.distinctPeriodOnly;
+        rmSchedulabilityTest = generator.rmSchedulabilityTest;
+        needGenObserverTask = generator.needGenObserverTask;
+        edfScheduleakObservationRatio = generator.edfScheduleakObservationRatio;
+        onlyScheduLeakFailsInEDF = generator.onlyScheduLeakFailsInEDF;
+        maxObservationRatio = generator.maxObservationRatio;
+        minObservationRatio = generator.minObservationRatio;
+        observerTaskPriority = generator.observerTaskPriority;
+        victimTaskPriority = generator.victimTaskPriority;
+        needGenHarmonicObserverTask = generator.needGenHarmonicObserverTask;
+        hpDivisorPeriods = generator.hpDivisorPeriods;
+        attemptCount = generator.attemptCount;
+        acceptedCount = generator.acceptedCount;
+        rejectionCounts = generator.rejectionCounts;
+        rand = new Random(seed);
+    }
+
     public TaskSetContainer generate() {
         return generate(numTaskPerSet, numTaskSet);
     }
@@ -105,6 +172,7 @@ public class TaskSetGenerator {
     public TaskSetContainer generate(int inNumTasksPerSet, int inNumTaskSet) {
         maxNumTasks = inNumTasksPerSet;
         minNumTasks = inNumTasksPerSet;
+        preparePeriodCandidates();
 
         TaskSetContainer resultTaskSetContainer = new TaskSetContainer();
 
@@ -124,6 +192,232 @@ public class TaskSetGenerator {
         return resultTaskSetContainer;
     }
 
+    /**
+     * Generate task sets with multiple threads. Each worker has its own random number stream split from this
+     * generator's, so the result is reproducible for a given seed (see setRandomSeed()).
+     * @param inNumTasksPerSet number of tasks in a task set
+     * @param inNumTaskSet number of task sets to be generated
+     * @param threadCount number of worker threads
+     * @return generated task sets, with IDs assigned in order
+     */
+    public TaskSetContainer generate(int inNumTasksPerSet, int inNumTaskSet, int threadCount) {
+        TaskSetContainer resultTaskSetContainer = new TaskSetContainer();
+        ArrayList<TaskSetGenerator> workers = createWorkers(inNumTasksPerSet, inNumTaskSet, threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            ArrayList<Future<ArrayList<TaskSet>>> futures = new ArrayList<>();
+            for (int i=0; i<workers.size(); i++) {
+                TaskSetGenerator worker = workers.get(i);
+                int workerTaskSetCount = getWorkerTaskSetCount(inNumTaskSet, workers.size(), i);
+                futures.add(executor.submit(() -> {
+                    ArrayList<TaskSet> taskSets = new ArrayList<>();
+                    while (taskSets.size() < workerTaskSetCount) {
+                        TaskSet taskSet = worker.gen();
+                        if (taskSet != null)
+                            taskSets.add(taskSet);
+                    }
+                    return taskSets;
+                }));
+            }
+            for (Future<ArrayList<TaskSet>> future : futures) {
+                for (TaskSet taskSet : future.get()) {
+                    taskSet.setId(taskSetIdCounter);
+                    taskSetIdCounter++;
+                    resultTaskSetContainer.addTaskSet(taskSet);
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return resultTaskSetContainer;
+    }
+
+    /**
+     * Generate task sets with multiple threads and pass each of them to the consumer (on the calling thread) as
+     * soon as it is generated, so that the task sets do not need to be kept in memory (e.g., for writing them to a
+     * file with JsonLogStreamWriter). Each worker has its own queue and the queues are drained round-robin (the i-th
+     * task set is the (i/threadCount)-th one of worker i%threadCount), so the task sets and their IDs are
+     * reproducible for a given seed (see setRandomSeed()) regardless of the thread timing. If a worker fails, its
+     * exception is rethrown.
+     * @param inNumTasksPerSet number of tasks in a task set
+     * @param inNumTaskSet number of task sets to be generated
+     * @param threadCount number of worker threads
+     * @param consumer the consumer of generated task sets
+     */
+    public void generate(int inNumTasksPerSet, int inNumTaskSet, int threadCount, Consumer<TaskSet> consumer) {
+        ArrayList<TaskSetGenerator> workers = createWorkers(inNumTasksPerSet, inNumTaskSet, threadCount);
+        ArrayList<BlockingQueue<TaskSet>> generatedTaskSets = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (int i=0; i<workers.size(); i++) {
+                TaskSetGenerator worker = workers.get(i);
+                int workerTaskSetCount = getWorkerTaskSetCount(inNumTaskSet, workers.size(), i);
+                BlockingQueue<TaskSet> workerTaskSets = new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY);
+                generatedTaskSets.add(workerTaskSets);
+                futures.add(executor.submit(() -> {
+                    for (int j=0; j<workerTaskSetCount; j++) {
+                        TaskSet taskSet = worker.gen();
+                        if (taskSet == null) {
+                            j--;
+                            continue;
+                        }
+                        workerTaskSets.put(taskSet);
+                    }
+                    return null;
+                }));
+            }
+            for (int i=0; i<inNumTaskSet; i++) {
+                int workerIndex = i%workers.size();
+                TaskSet taskSet;
+                while ((taskSet = generatedTaskSets.get(workerIndex).poll(WORKER_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+                    Future<?> future = futures.get(workerIndex);
+                    if (future.isDone()) {
+                        future.get();   // throws the worker's exception
+                        throw new IllegalStateException("Task set generation worker " + workerIndex + " stopped early.");
+                    }
+                }
+                taskSet.setId(taskSetIdCounter);
+                taskSetIdCounter++;
+                consumer.accept(taskSet);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected ArrayList<TaskSetGenerator> createWorkers(int inNumTasksPerSet, int inNumTaskSet, int threadCount) {
+        maxNumTasks = inNumTasksPerSet;
+        minNumTasks = inNumTasksPerSet;
+        preparePeriodCandidates();
+
+        ArrayList<TaskSetGenerator> workers = new ArrayList<>();
+        int workerCount = Math.max(1, Math.min(threadCount, inNumTaskSet));
+        for (int i=0; i<workerCount; i++) {
+            workers.add(new TaskSetGenerator(this, rand.nextLong()));
+        }
+        return workers;
+    }
+
+    static int getWorkerTaskSetCount(int numTaskSet, int workerCount, int workerIndex) {
+        return numTaskSet/workerCount + (workerIndex < numTaskSet%workerCount ? 1 : 0);
+    }
+
+    /**
+     * Enumerate the divisors of maxHyperPeriod that can be used as periods, so that periods are picked from them
+     * directly instead of by rejection sampling. When nonHarmonicOnly is set, only the divisors that are products
+     * of three prime factors are used (as getRandomDivisor(factors, 3) does).
+     */
+    protected void preparePeriodCandidates() {
+        if (generateFromHpDivisors != true) {
+            hpDivisorPeriods = null;
+            return;
+        }
+
+        ArrayList<Long> primeFactors = Umath.integerFactorization(maxHyperPeriod);
+        hpDivisorPeriods = new ArrayList<>();
+        for (long divisor : Umath.getDivisors(maxHyperPeriod)) {
+            if (divisor < minPeriod)
+                continue;
+            if (nonHarmonicOnly == true && countPrimeFactors(divisor, primeFactors) != 3)
+                continue;
+            hpDivisorPeriods.add(divisor);
+        }
+
+        if (hpDivisorPeriods.size() < minNumTasks)
+            throw new IllegalArgumentException(String.format("Only %d candidate periods can be derived from the hyper-period %d, fewer than %d tasks.",
+                    hpDivisorPeriods.size(), maxHyperPeriod, minNumTasks));
+    }
+
+    static int countPrimeFactors(long value, ArrayList<Long> primeFactors) {
+        int count = 0;
+        for (long prime : primeFactors) {
+            if (prime > 1 && value % prime == 0) {
+                value /= prime;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Pick a period from the divisors of maxHyperPeriod that is not used by the tasks in the task set and, if
+     * nonHarmonicOnly is set, is not harmonic with any of them. The last task's period is also required to make the
+     * hyper-period equal to maxHyperPeriod.
+     * @return a period, or -1 if no period satisfies the requirements
+     */
+    protected long getRandomHpDivisorPeriod(PeriodStructure periodStructure, boolean isLastTask) {
+        ArrayList<Long> candidates = new ArrayList<>();
+        for (long period : hpDivisorPeriods) {
+            if (nonHarmonicOnly == true ? periodStructure.isHarmonicWith(period) : periodStructure.containsPeriod(period))
+                continue;
+            if (isLastTask && periodStructure.getHyperPeriodWith(period) != maxHyperPeriod)
+                continue;
+            candidates.add(period);
+        }
+        if (candidates.isEmpty())
+            return -1;
+        return candidates.get(rand.nextInt(candidates.size()));
+    }
+
+    public void setRandomSeed(long seed) {
+        rand = new Random(seed);
+    }
+
+    /**
+     * Count a rejected attempt.
+     * @param reason the reason of the rejection
+     * @return null (as the result of gen())
+     */
+    TaskSet reject(String reason) {
+        rejectionCounts.computeIfAbsent(reason, k -> new AtomicLong()).incrementAndGet();
+        return null;
+    }
+
+    public long getAttemptCount() {
+        return attemptCount.get();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    public double getAcceptanceRate() {
+        long attempts = attemptCount.get();
+        return attempts == 0 ? 0 : (double) acceptedCount.get()/attempts;
+    }
+
+    /**
+     * @return the number of rejected attempts for each reason
+     */
+    public Map<String, Long> getRejectionCounts() {
+        HashMap<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : rejectionCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public void resetStatistics() {
+        attemptCount.set(0);
+        acceptedCount.set(0);
+        rejectionCounts.clear();
+    }
+
+    public String getStatisticsString() {
+        return String.format("%d of %d attempts accepted (%.2f%%), rejections: %s",
+                acceptedCount.get(), attemptCount.get(), getAcceptanceRate()*100, getRejectionCounts().toString());
+    }
+
     /**
      * generate a random integer between inclusiveMin and inclusiveMax, both bounds are inclusive.
      * @param inclusiveMin  the smallest possible number
@@ -137,18 +431,27 @@ public class TaskSetGenerator {
 
     /* The configurations are passed by global variables. */
     private TaskSet gen()
+    {
+        attemptCount.incrementAndGet();
+        TaskSet taskSet = genTaskSet();
+        if (taskSet != null)
+            acceptedCount.incrementAndGet();
+        return taskSet;
+    }
+
+    private TaskSet genTaskSet()
     {
         int failureCount = 0;
+        int retryCount = 0;
 
         TaskSet taskContainer = new TaskSet();
+        PeriodStructure periodStructure = new PeriodStructure();
 
         int numTasks = getRandom(minNumTasks, maxNumTasks);
 
         // Is maxHyperPeriod enabled?
-        ArrayList<Long> hyperPeriodFactors = null;
-        if (generateFromHpDivisors == true) {
-            hyperPeriodFactors = Umath.integerFactorization(maxHyperPeriod);
-            //ProgMsg.debugPutline(hyperPeriodFactors.toString());
+        if (generateFromHpDivisors == true && hpDivisorPeriods == null) {
+            preparePeriodCandidates();
         }
 
         double randomUtil;
@@ -166,27 +469,10 @@ public class TaskSetGenerator {
             task.setTitle("APP" + String.valueOf(i+1));
 
             if (generateFromHpDivisors == true) {
-                int tempPeriod = 1;
-
-                if (nonHarmonicOnly == true) {
-                    // By fixed the number of chosen factors, we can get nonharmoic task set.
-                    tempPeriod = getRandomDivisor(hyperPeriodFactors, 3);
-                } else {
-                    tempPeriod = getRandomDivisor(hyperPeriodFactors);
-                }
-
-                if (tempPeriod<minPeriod) { // || tempPeriod>maxPeriod) {
-                    i--;
-                    continue;
-                }
-
-                if (taskContainer.containPeriod(tempPeriod) == true) {
-                    // TODO: Bug to be solved: need to check whether the possible combinations are more than needs.
-                    // If the possible combinations are smaller than needs, then it will be stuck here.
-                    // Skip duplicated period.
-                    i--;
-                    continue;
-                }
+                // Periods are picked from the enumerated divisors that are not duplicated (nor harmonic if required).
+                long tempPeriod = getRandomHpDivisorPeriod(periodStructure, i == numTasks-1);
+                if (tempPeriod < 0)
+                    return reject("no valid period");
 
                 task.setPeriod(tempPeriod);
                 task.setDeadline(task.getPeriod());
@@ -201,24 +487,27 @@ public class TaskSetGenerator {
             }
 
             if (distinctPeriodOnly) {
-                boolean invalidTask = false;
-                for (Task addedTask : taskContainer.getTasksAsArray()) {
-                    if (addedTask.getPeriod() == task.getPeriod()) {
-                        invalidTask = true;
-                        break;
-                    }
-                }
-                if (invalidTask) {
+                if (periodStructure.containsPeriod(task.getPeriod())) {
+                    if (++retryCount > MAX_TASK_RETRY_COUNT)
+                        return reject("duplicated period");
                     i--;
                     continue;
                 }
             }
 
+            // Test for getting rid of harmonic periods (periods from the hyper-period divisors are already non-harmonic).
+            if (nonHarmonicOnly == true && periodStructure.isHarmonicWith(task.getPeriod())) {
+                if (++retryCount > MAX_TASK_RETRY_COUNT)
+                    return reject("harmonic period");
+                i--;
+                continue;
+            }
+
             long tempComputationTime = (long)(((double)task.getPeriod())*utilDistribution.get(i));
             if (tempComputationTime< minWcet || tempComputationTime> maxWcet) {
                 failureCount++;
                 if (failureCount > 10) {
-                    return null;
+                    return reject("wcet out of range");
                 } else {
                     i--;
                     continue;
@@ -240,36 +529,27 @@ public class TaskSetGenerator {
             task.setInitialOffset(tempInitialOffset);
 
             taskContainer.addTask(task);
-
-            // Test for getting rid of harmonic periods.
-            if (nonHarmonicOnly == true) {
-                if (taskContainer.hasHarmonicPeriods() == true) {
-                    taskContainer.removeTask(task);
-                    i--;
-                    total_util = last_total_util;
-                    continue;
-                }
-            }
+            periodStructure.addPeriod(task.getPeriod());
         }
 
         last_total_util = taskContainer.getUtilization();
 
         if (total_util>1)
-            return null;
+            return reject("utilization");
 
         if (total_util<minUtil || total_util>=maxUtil)
-            return null;
+            return reject("utilization");
 
         if (generateFromHpDivisors) {
-            if (taskContainer.calHyperPeriod() != maxHyperPeriod)
-                return null;
+            if (periodStructure.getHyperPeriod() != maxHyperPeriod)
+                return reject("hyper-period");
         }
 
         taskContainer.assignPriorityRm();
 
         if (rmSchedulabilityTest) {
             if (taskContainer.schedulabilityTest() == false)
-                return null;
+                return reject("schedulability");
         }
 
 
@@ -295,7 +575,7 @@ public class TaskSetGenerator {
                 if (observerPeriodFactors.size() == 1) {
                     // The observer's period is a prime number.
                     // We'll skip this task set as no smaller harmonic period can be generated.
-                    return null;
+                    return reject("observer/victim");
                 }
 
                 int genHarmonicObserverTaskFailureCount = 0;
@@ -303,7 +583,7 @@ public class TaskSetGenerator {
 
                     if (genHarmonicObserverTaskFailureCount > 10) {
                         // This might be too hard to generate one that fulfills the task generation requirements, so we quit.
-                        return null;
+                        return reject("observer/victim");
                     }
 
                     // Randomly pick one task that has period smaller than the observer.
@@ -356,7 +636,7 @@ public class TaskSetGenerator {
 
                     if (rmSchedulabilityTest) {
                         if (taskContainer.schedulabilityTest() == false)
-                            return null;
+                            return reject("schedulability");
                     }
 
                     break;
@@ -374,20 +654,20 @@ public class TaskSetGenerator {
                 /* Enforce coverage ratio for EDF */
                 double observationRatio = (double) Math.min((po - pv), observer.getWcet()) / gcd;
                 if ((observationRatio < minObservationRatio) || (observationRatio > maxObservationRatio)) {
-                    return null;
+                    return reject("observer/victim");
                 }
             } else {
                 /* Enforce coverage ratio for RM */
                 double observationRatio = observer.getWcet() / gcd;
                 if ((observationRatio < minObservationRatio) || (observationRatio > maxObservationRatio)) {
-                    return null;
+                    return reject("observer/victim");
                 }
             }
 
             if (onlyScheduLeakFailsInEDF) {
                 // See the DyPS paper for details.
                 if (!(observer.getWcet() > (po - pv))) {
-                    return null;
+                    return reject("observer/victim");
                 }
             }
 
@@ -443,7 +723,10 @@ public class TaskSetGenerator {
 
     static public long getLCMDurationOfDefaultObserverVictimTasks(TaskSet taskSet) {
         Task[] observerVictim = getDefaultObserverVictimTasks(taskSet);
-        return Umath.lcm(observerVictim[0].getPeriod(), observerVictim[1].getPeriod());
+        PeriodStructure periodStructure = new PeriodStructure();
+        periodStructure.addPeriod(observerVictim[0].getPeriod());
+        periodStructure.addPeriod(observerVictim[1].getPeriod());
+        return periodStructure.getHyperPeriod();
     }
 
     int getRandomDivisor(ArrayList<Long> inFactors, int numOfChosenFactors) {
@@ -478,7 +761,7 @@ public class TaskSetGenerator {
         {
             double thisTaskUtil;
             do {
-                nextSum = sum * Math.pow(Math.random(), 1.0/(inMaxTaskNum-i));
+                nextSum = sum * Math.pow(rand.nextDouble(), 1.0/(inMaxTaskNum-i));
                 thisTaskUtil = sum - nextSum;
             } while (thisTaskUtil==0.0 || nextSum==0.0);
             resultUtilArray.add(thisTaskUtil);
@@ -2,17 +2,15 @@ package synercys.rts.scheduler;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import synercys.rts.framework.FixedPriorityResponseTimeAnalysis;
 import synercys.rts.framework.Job;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
 import synercys.rts.framework.event.EventContainer;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Random;
 
-import static synercys.rts.framework.TaskSet.myCeil;
-
 public class TaskShufflerScheduler extends FixedPriorityScheduler {
     private static final Logger loggerConsole = LogManager.getLogger("scheduler");
 
@@ -20,124 +18,171 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
     protected boolean fineGrainedShuffleEnabled = true;
     protected boolean unusedTimeReclamationEnabled = true;
 
-    protected HashMap<Task, Long> taskWCIB = new HashMap<>(); // each task's worst case maximum inversion budget
-    protected HashMap<Task, Long> jobRIB = new HashMap<>(); // each task's current job's remaining inversion budget
-    protected HashMap<Task, Integer> taskM = new HashMap<>();   // each task's minimum inversion priority, M_i (TaskShuffler, Definition 3)
+    /* The following arrays are indexed by the task index in taskSetSnapshot. */
+    protected long[] taskWCIB; // each task's worst case maximum inversion budget
+    protected long[] jobRIB; // each task's current job's remaining inversion budget
+    protected int[] taskM;   // each task's minimum inversion priority, M_i (TaskShuffler, Definition 3)
 
     // This is only used when unusedTimeReclamationEnabled==true
-    protected HashMap<Task, Long> jobUnusedTime = new HashMap<>(); // each task's current job's unused time (WCETi - varied Ci)
+    protected long[] jobUnusedTime; // each task's current job's unused time (WCETi - varied Ci)
+
+    /* Ready jobs keyed by -priority (and their RIBs while they are ready); jobRIB holds the RIBs of pending jobs. */
+    protected ReadyJobSet readyJobSet;
 
     Random rand = new Random();
 
+    protected static final String ANALYSIS_WCIB_AND_M = "TaskShuffler.WCIB+M";
+
     public TaskShufflerScheduler(TaskSet taskSet, boolean runTimeVariation) {
         super(taskSet, runTimeVariation);
         simEventContainer.setSchedulingPolicy(EventContainer.SCHEDULING_POLICY_TASKSHUFFLER);
 
-        /* initialize taskWCIB and jobRIB */
-        loggerConsole.info("Task WCIBs:");
-        for (Task task : taskSet.getAppTasksAsArray()) {
-            taskWCIB.put(task, computeTaskWCIB(task));
-            jobRIB.put(task, taskWCIB.get(task));
-            loggerConsole.info("\tTask ID#{}: {}", task.getId(), taskWCIB.get(task));
+        int taskCount = taskSetSnapshot.size();
+        taskWCIB = new long[taskCount];
+        jobRIB = new long[taskCount];
+        taskM = new int[taskCount];
+        jobUnusedTime = new long[taskCount];
+
+        /* initialize taskWCIB and taskM (the offline analysis is cached per task set) */
+        long[] analysis = SchedulerAnalysisCache.getOrCompute(ANALYSIS_WCIB_AND_M, taskSetSnapshot, this::computeTaskWCIBAndM);
+        loggerConsole.info("Task WCIBs and Min Inversion Priorities:");
+        for (Task task : taskSetSnapshot.getAppTasks()) {
+            int taskIndex = getTaskIndex(task);
+            taskWCIB[taskIndex] = analysis[taskIndex];
+            taskM[taskIndex] = (int) analysis[taskCount + taskIndex];
+            loggerConsole.info("\tTask ID#{}: {}, {}", task.getId(), taskWCIB[taskIndex], taskM[taskIndex]);
         }
-        /* initialize taskM */
-        loggerConsole.info("Task Min Inversion Priority:");
-        for (Task task : taskSet.getAppTasksAsArray()) {
-            taskM.put(task, computeTaskMinInversionPriority(task));
-            loggerConsole.info("\tTask ID#{}: {}", task.getId(), taskM.get(task));
+
+        readyJobSet = new ReadyJobSet(taskCount);
+        firstTaskJobsInitializedHook();
+    }
+
+    /* Compute taskWCIB and then taskM (which depends on taskWCIB); the result holds taskWCIB followed by taskM. */
+    protected long[] computeTaskWCIBAndM() {
+        int taskCount = taskSetSnapshot.size();
+        for (Task task : taskSetSnapshot.getAppTasks())
+            taskWCIB[getTaskIndex(task)] = computeTaskWCIB(task);
+        for (Task task : taskSetSnapshot.getAppTasks())
+            taskM[getTaskIndex(task)] = computeTaskMinInversionPriority(task);
+
+        long[] analysis = new long[taskCount*2];
+        for (int i=0; i<taskCount; i++) {
+            analysis[i] = taskWCIB[i];
+            analysis[taskCount + i] = taskM[i];
         }
+        return analysis;
+    }
+
+    @Override
+    protected void saveStateHook(SimulationState state) {
+        state.putSchedulerState("jobRIB", jobRIB.clone());
+        state.putSchedulerState("jobUnusedTime", jobUnusedTime.clone());
+        state.putSchedulerState("readyJobSet", new ReadyJobSet(readyJobSet));
+    }
+
+    @Override
+    protected void restoreStateHook(SimulationState state) {
+        System.arraycopy((long[]) state.getSchedulerState("jobRIB"), 0, jobRIB, 0, jobRIB.length);
+        System.arraycopy((long[]) state.getSchedulerState("jobUnusedTime"), 0, jobUnusedTime, 0, jobUnusedTime.length);
+        readyJobSet.copyFrom((ReadyJobSet) state.getSchedulerState("readyJobSet"));
+    }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        super.setRandomSeed(seed);
+        rand = new Random(random.nextLong());
+    }
+
+    /* Rebuild the states derived from the first jobs: jobRIB, jobUnusedTime and the pending jobs in readyJobSet. */
+    @Override
+    protected void firstTaskJobsInitializedHook() {
+        System.arraycopy(taskWCIB, 0, jobRIB, 0, taskWCIB.length);
 
         /* initialize jobUnusedTime */
         if (unusedTimeReclamationEnabled) {
-            for (Job job : nextJobOfATask.values()) {
-                jobUnusedTime.put(job.task, job.task.getWcet()-job.remainingExecTime);
+            for (int i=0; i<taskSetSnapshot.size(); i++) {
+                Job job = nextJobOfATask[i];
+                jobUnusedTime[i] = Math.max(0, job.task.getWcet()-job.remainingExecTime);
             }
         }
+
+        readyJobSet.clear();
+        for (int i=0; i<taskSetSnapshot.size(); i++) {
+            readyJobSet.addPendingJob(i, nextJobOfATask[i].releaseTime);
+        }
+    }
+
+    /**
+     * Move the jobs released at or before the given tick into the ready job set. Note that the ticks passed to this
+     * function never decrease, so the ready set only grows with time until a job is finished (updateTaskJob()).
+     * @param tick present tick
+     */
+    protected void updateReadyJobSet(long tick) {
+        int taskIndex;
+        while ((taskIndex = readyJobSet.pollReleasedJob(tick)) != ReadyJobSet.NONE) {
+            readyJobSet.insertReadyJob(taskIndex, -taskSetSnapshot.getPriority(taskIndex), 0, jobRIB[taskIndex]);
+        }
     }
 
     @Override
     protected Job getNextJob(long tick) {
-        ArrayList<Job> candidateJobs = new ArrayList<>();
-        Job nextJob = null;
-
         /* Step 1: get the highest priority task and check */
-        Job topPriorityJob = getNextJobInReadyQueue(tick);
-        if (topPriorityJob == null) {
+        updateReadyJobSet(tick);
+        if (readyJobSet.size() == 0) {
             /* No job is active at this given tick point, so let's move to the first arrived job in the future. */
-            topPriorityJob = getEarliestArrivedHigherPriorityJob();
-            tick = topPriorityJob.releaseTime;
+            tick = readyJobSet.getEarliestPendingReleaseTime();
+            updateReadyJobSet(tick);
         }
+        // Ties of priorities are broken by task indices, the same as getNextJobInReadyQueue().
+        int topPriorityTaskIndex = readyJobSet.getFirst();
+        Job topPriorityJob = nextJobOfATask[topPriorityTaskIndex];
 
-        if (getJobRIB(topPriorityJob) <= 0) {
+        if (readyJobSet.getValue(topPriorityTaskIndex) <= 0) {
             /* No priority inversion is allowed. */
             return topPriorityJob;
         }
 
-        /* Step 1-a and 1-b: construct candidate list */
-        ArrayList<Job> readyJobs = getAllReadyJobs(tick);
+        /* Step 1-a and 1-b: determine the candidates (the ready jobs in the leading part of the priority order) */
+        int readyJobCount = readyJobSet.size();
         if (idleTimeShuffleEnabled == false) {
-            if (readyJobs.size() == 1) {
+            if (readyJobCount == 1) {
                 // There is only one job (the highest priority job) in the ready queue.
                 return topPriorityJob;
             }
         }
 
         int topPriorityWithZeroRIB = 0;
-        Job topPriorityJobWithZeroRIB = findTopPriorityJobWithZeroRIB(readyJobs);
-        if (topPriorityJobWithZeroRIB != null)
-            topPriorityWithZeroRIB = topPriorityJobWithZeroRIB.task.getPriority();
+        int topPriorityTaskIndexWithZeroRIB = readyJobSet.findFirstWithValueAtMost(Long.MIN_VALUE, 0, ReadyJobSet.NONE);
+        if (topPriorityTaskIndexWithZeroRIB != ReadyJobSet.NONE)
+            topPriorityWithZeroRIB = taskSetSnapshot.getPriority(topPriorityTaskIndexWithZeroRIB);
 
-        int topPriorityJobM = taskM.get(topPriorityJob.task);
+        int topPriorityJobM = taskM[topPriorityTaskIndex];
 
-        for (Job job : readyJobs) {
-            int thisJobPriority = job.task.getPriority();
-            if ((thisJobPriority>=topPriorityWithZeroRIB) && (thisJobPriority>=topPriorityJobM)) {
-                candidateJobs.add(job);
-            }
-        }
+        // Candidates are the ready jobs with priority >= max(topPriorityWithZeroRIB, topPriorityJobM).
+        int candidateJobCount = readyJobSet.countPrimaryKeyAtMost(-Math.max(topPriorityWithZeroRIB, topPriorityJobM));
 
+        boolean idleJobIsCandidate = false;
         if (idleTimeShuffleEnabled) {
             /**
              * topPriorityJobM == -1 means that no tasks with lower priority has negative V.
              * Based on level-\tau_x exclusion policy (Def. 2, TaskShuffler), when V_x<0, tasks with lower priority
              * cannot be executed if higher priority tasks have unfinished jobs -- lower priority includes the idle task.
              */
-            if ((readyJobs.size()==candidateJobs.size()) && (topPriorityWithZeroRIB==0) && (topPriorityJobM==-1)) {
+            if ((readyJobCount==candidateJobCount) && (topPriorityWithZeroRIB==0) && (topPriorityJobM==-1)) {
                 /* All jobs in the ready queue are open to priority inversion, so let's add the idle job to the candidate list. */
-                long smallestRIB = -1;
-                for (Job job : readyJobs) {
-                    if (smallestRIB == -1)
-                        smallestRIB = jobRIB.get(job.task);
-                    else
-                        smallestRIB = smallestRIB<jobRIB.get(job.task) ? smallestRIB : jobRIB.get(job.task);
-                }
-                // Making the remaining execution time as smallestRIB+1 ensures that the idle job will be preempted.
-                Job dummyIdleTaskJob = new Job(taskSet.getIdleTask(), tick, smallestRIB+1);
-                dummyIdleTaskJob.hasStarted = true;
-                candidateJobs.add(dummyIdleTaskJob);
+                idleJobIsCandidate = true;
             }
         }
 
-        /* Step 2: randomly pick one job from the list */
-        int randomSelectionIndex = getRandomInt(0, candidateJobs.size()-1);
-        nextJob = candidateJobs.get(randomSelectionIndex);
-
-        return nextJob;
-    }
-
-
-    protected Job findTopPriorityJobWithZeroRIB(ArrayList<Job> jobs) {
-        Job topPriorityJobWithZeroRIB = null;
-        for (Job job : jobs) {
-            if (getJobRIB(job)<=0) {
-                if (topPriorityJobWithZeroRIB == null)
-                    topPriorityJobWithZeroRIB = job;
-                else {
-                    topPriorityJobWithZeroRIB = topPriorityJobWithZeroRIB.task.getPriority()>job.task.getPriority() ? topPriorityJobWithZeroRIB : job;
-                }
-            }
+        /* Step 2: randomly pick one job from the candidates (the idle job, if any, is the last one) */
+        int randomSelectionIndex = getRandomInt(0, idleJobIsCandidate ? candidateJobCount : candidateJobCount-1);
+        if (randomSelectionIndex == candidateJobCount) {
+            // Making the remaining execution time as smallestRIB+1 ensures that the idle job will be preempted.
+            Job dummyIdleTaskJob = new Job(taskSetSnapshot.getIdleTask(), tick, readyJobSet.getMinValue()+1);
+            dummyIdleTaskJob.hasStarted = true;
+            return dummyIdleTaskJob;
         }
-        return topPriorityJobWithZeroRIB;
+        return nextJobOfATask[readyJobSet.select(randomSelectionIndex)];
     }
 
     @Override
@@ -150,16 +195,11 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
          *  (3. when runJob itself is finished -- this is not preempting, thus is not handled here)
          */
 
-        /* Check condition 1 -- RIB of jobs in the ready queue. */
-        for (Job job : getAllReadyJobs(tick)) {
-            if (job.task.getPriority()>runJob.task.getPriority()) {
-                if (getJobRIB(job) < runJob.remainingExecTime) {
-                    if (preemptingTick == -1)
-                        preemptingTick = tick + getJobRIB(job);
-                    else
-                        preemptingTick = preemptingTick<(tick+getJobRIB(job)) ? preemptingTick : (tick+getJobRIB(job));
-                }
-            }
+        /* Check condition 1 -- RIB of jobs (with higher priority than runJob) in the ready queue. */
+        updateReadyJobSet(tick);
+        long smallestRIB = readyJobSet.getMinValuePrimaryKeyLessThan(-runJob.task.getPriority());
+        if (smallestRIB < runJob.remainingExecTime) {
+            preemptingTick = tick + smallestRIB;
         }
 
         /* Now check if any job arrives before that RIB becomes 0 (if any) and after present tick.
@@ -167,17 +207,11 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
          * as thy were chosen to be priority-inversed when the current job was selected to run.
          */
         long maxPreemptingTick = preemptingTick!=-1 ? preemptingTick : (tick+runJob.remainingExecTime);
-        for (Job job: nextJobOfATask.values()) {
-            if (job == runJob)
-                continue;
-
-            if ((job.releaseTime>tick) && (job.releaseTime<maxPreemptingTick)) {
-                /* Here is a new arrival! */
-                if (preemptingTick==-1)
-                    preemptingTick = job.releaseTime;
-                else
-                    preemptingTick = preemptingTick<job.releaseTime ? preemptingTick : job.releaseTime;
-            }
+        // All the jobs released by the present tick are in the ready set, so the earliest pending job is the next arrival.
+        long nextReleaseTime = readyJobSet.getEarliestPendingReleaseTime();
+        if (nextReleaseTime < maxPreemptingTick) {
+            /* Here is a new arrival! */
+            preemptingTick = nextReleaseTime;
         }
 
         if (fineGrainedShuffleEnabled) {
@@ -198,24 +232,14 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
 
     @Override
     protected void runJobExecutedHook(Job runJob, long tick, long executedTime) {
-        for (Job job : getAllReadyJobs(tick-executedTime)) {
-            if (runJob == job)
-                continue;
-
-            if (job.task.getPriority()>runJob.task.getPriority())
-                consumeJobRIB(job, executedTime);
-        }
+        /* The ready set has been updated up to (tick-executedTime) when runJob was selected to run. */
+        // Every ready job with higher priority than runJob consumes its RIB.
+        readyJobSet.addValuePrimaryKeyLessThan(-runJob.task.getPriority(), -executedTime);
 
         if (unusedTimeReclamationEnabled) {
             if ((runJob.task.isIdleTaskType()==false) && (runJob.remainingExecTime==0)) {
-                /* this runJob is finished. */
-                for (Job job : getAllReadyJobs(tick - executedTime)) {
-                    if (runJob == job)
-                        continue;
-
-                    if ((job.task.getPriority()<runJob.task.getPriority()) && (runJob.task.isIdleTaskType()==false))
-                        jobRIB.put(job.task, getJobRIB(job)+getJobUnusedTime(runJob));
-                }
+                /* this runJob is finished, so every ready job with lower priority reclaims runJob's unused time. */
+                readyJobSet.addValuePrimaryKeyGreaterThan(-runJob.task.getPriority(), getJobUnusedTime(runJob));
             }
         }
     }
@@ -226,25 +250,18 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
         refreshTaskJobRIB(task);
         Job newJob = super.updateTaskJob(task);
 
+        int taskIndex = getTaskIndex(task);
         if (unusedTimeReclamationEnabled) {
-            jobUnusedTime.put(task, task.getWcet() - newJob.remainingExecTime);
+            jobUnusedTime[taskIndex] = Math.max(0, task.getWcet() - newJob.remainingExecTime);  // a replayed job may overrun its WCET
         }
+        readyJobSet.addPendingJob(taskIndex, newJob.releaseTime);
 
         return newJob;
     }
 
     /* This function is modified based on Man-Ki's original implementation of TaskShuffler. */
     protected long computeTaskWCIB(Task task) {
-        long Wi = task.getDeadline();
-        long interference = 0;
-        for (Task hpTask : taskSet.getHigherPriorityTasks(task.getPriority())) {
-            long Tj = hpTask.getPeriod();
-            long Cj = hpTask.getWcet();
-            interference += ( 1 + myCeil((double)Wi / Tj)) * Cj;
-        }
-        Wi = task.getWcet() + interference;
-
-        return task.getDeadline() - Wi;
+        return FixedPriorityResponseTimeAnalysis.calculateTaskWCIB(taskSetSnapshot, taskSetSnapshot.indexOf(task));
     }
 
     /**
@@ -256,11 +273,11 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
      */
     protected int computeTaskMinInversionPriority(Task task) {
         int maxMinInversionPriority = -1;
-        for (Task iTask : taskSet.getAppTasksAsArray()) {
+        for (Task iTask : taskSetSnapshot.getAppTasks()) {
             if ((iTask == task) || (iTask.getPriority()>=task.getPriority()))
                 continue;
 
-            if (taskWCIB.get(iTask)<0)
+            if (taskWCIB[getTaskIndex(iTask)]<0)
                 maxMinInversionPriority = iTask.getPriority()>maxMinInversionPriority ? iTask.getPriority() : maxMinInversionPriority;
 
         }
@@ -268,22 +285,53 @@ public class TaskShufflerScheduler extends FixedPriorityScheduler {
         return maxMinInversionPriority;
     }
 
+    /* The idle task has no budget (its index is TaskSetSnapshot.NO_INDEX). */
     protected long getJobRIB(Job job) {
-        return jobRIB.get(job.task);
+        int taskIndex = getTaskIndex(job.task);
+        if (taskIndex < 0)
+            return 0;
+        return readyJobSet.isReady(taskIndex) ? readyJobSet.getValue(taskIndex) : jobRIB[taskIndex];
     }
 
+    /* This is called when the task's job is finished; the job leaves the ready set. */
     protected void refreshTaskJobRIB(Task task) {
-        jobRIB.put(task, taskWCIB.get(task));
+        int taskIndex = getTaskIndex(task);
+        if (readyJobSet.isReady(taskIndex))
+            readyJobSet.removeReadyJob(taskIndex);
+        jobRIB[taskIndex] = taskWCIB[taskIndex];
     }
 
     protected long consumeJobRIB(Job job, long consumedBudget) {
-        long updatedRIB = jobRIB.get(job.task) - consumedBudget;
-        jobRIB.put(job.task, updatedRIB);
-        return updatedRIB;
+        int taskIndex = getTaskIndex(job.task);
+        if (readyJobSet.isReady(taskIndex)) {
+            readyJobSet.addValue(taskIndex, -consumedBudget);
+            return readyJobSet.getValue(taskIndex);
+        }
+        jobRIB[taskIndex] -= consumedBudget;
+        return jobRIB[taskIndex];
     }
 
     protected long getJobUnusedTime(Job job) {
-        return jobUnusedTime.get(job.task);
+        return jobUnusedTime[getTaskIndex(job.task)];
+    }
+
+    /* The following getters return maps keyed by (app) tasks for compatibility. */
+
+    public HashMap<Task, Long> getTaskWCIBMap() {
+        return toAppTaskMap(taskWCIB);
+    }
+
+    public HashMap<Task, Long> getJobRIBMap() {
+        long[] currentJobRIB = jobRIB.clone();
+        for (int i=0; i<currentJobRIB.length; i++) {
+            if (readyJobSet.isReady(i))
+                currentJobRIB[i] = readyJobSet.getValue(i);
+        }
+        return toAppTaskMap(currentJobRIB);
+    }
+
+    public HashMap<Task, Integer> getTaskMMap() {
+        return toAppTaskMap(taskM);
     }
 
     public void setRandomizationLevel(int level) {
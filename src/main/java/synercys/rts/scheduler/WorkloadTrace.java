@@ -0,0 +1,281 @@
+package synercys.rts.scheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * WorkloadTrace.java
+ * Purpose: A recorded workload (the release time and the actual execution time of every job) to be replayed by an
+ *          AdvanceableSchedulerSimulator (see AdvanceableSchedulerSimulator.setWorkloadTrace()), so that different
+ *          scheduling policies can be compared on an identical workload. The jobs of each task are prefetched into
+ *          primitive arrays in release time order.
+ *
+ *          A trace can be loaded from
+ *          - a CSV file with one job per line: "taskId,releaseTime,executionTime" (in ticks). Empty lines, lines
+ *            starting with '#' and a header line are skipped.
+ *          - a ".rtwtrace" binary file, which is memory-mapped when it is loaded. The file starts with a 16-byte header
+ *            (int MAGIC, int VERSION, long job count) followed by 20-byte job records (int taskId, long releaseTime,
+ *            long executionTime) in big-endian order.
+ */
+public class WorkloadTrace {
+    public static final String FILE_EXTENSION = "rtwtrace";
+    public static final int MAGIC = 0x52545754;    // "RTWT"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 20;
+    private static final int RECORDS_PER_MAPPING = 1 << 20;
+
+    /* Indexed by the position of the task ID in taskIds (sorted). */
+    private final int[] taskIds;
+    private final long[][] releaseTimes;
+    private final long[][] executionTimes;
+
+    /**
+     * Build a trace from job records. The records of a task must be given in release time order, but records of
+     * different tasks may be interleaved.
+     * @param taskId        task ID of each job
+     * @param releaseTime   release time of each job
+     * @param executionTime actual execution time of each job (positive)
+     * @param jobCount      number of valid records in the arrays
+     */
+    public WorkloadTrace(int[] taskId, long[] releaseTime, long[] executionTime, int jobCount) {
+        if (jobCount > taskId.length || jobCount > releaseTime.length || jobCount > executionTime.length)
+            throw new IllegalArgumentException("The job count exceeds the length of the given records.");
+
+        /* Collect distinct task IDs. */
+        int[] sortedIds = Arrays.copyOf(taskId, jobCount);
+        Arrays.sort(sortedIds);
+        int distinctCount = 0;
+        for (int i=0; i<jobCount; i++) {
+            if (i == 0 || sortedIds[i] != sortedIds[i-1])
+                sortedIds[distinctCount++] = sortedIds[i];
+        }
+        taskIds = Arrays.copyOf(sortedIds, distinctCount);
+
+        /* Bucket the records by task (counting sort keeps the order of each task's records). */
+        int[] jobCountOfTask = new int[distinctCount];
+        for (int i=0; i<jobCount; i++)
+            jobCountOfTask[Arrays.binarySearch(taskIds, taskId[i])]++;
+
+        releaseTimes = new long[distinctCount][];
+        executionTimes = new long[distinctCount][];
+        for (int t=0; t<distinctCount; t++) {
+            releaseTimes[t] = new long[jobCountOfTask[t]];
+            executionTimes[t] = new long[jobCountOfTask[t]];
+        }
+
+        int[] fillCount = new int[distinctCount];
+        for (int i=0; i<jobCount; i++) {
+            int t = Arrays.binarySearch(taskIds, taskId[i]);
+            int k = fillCount[t]++;
+            if (executionTime[i] <= 0)
+                throw new IllegalArgumentException("Job #" + k + " of task " + taskId[i] + " has a non-positive execution time: " + executionTime[i]);
+            if (releaseTime[i] < 0 || (k > 0 && releaseTime[i] <= releaseTimes[t][k-1]))
+                throw new IllegalArgumentException("Job #" + k + " of task " + taskId[i] + " is not released after its previous job: " + releaseTime[i]);
+            releaseTimes[t][k] = releaseTime[i];
+            executionTimes[t][k] = executionTime[i];
+        }
+    }
+
+    /**
+     * Load a trace from a CSV file ("taskId,releaseTime,executionTime" per line). Empty lines and lines starting
+     * with '#' are ignored, and the first other line may be a header (e.g., "taskId,releaseTime,executionTime").
+     * @param filePath path of the CSV file
+     * @return the loaded trace
+     * @throws IOException if the file cannot be read or a line (other than the header) is not a valid job record
+     */
+    public static WorkloadTrace loadCsv(String filePath) throws IOException {
+        RecordBuffer records = new RecordBuffer();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            boolean isFirstRecordLine = true;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#')
+                    continue;
+
+                boolean mayBeHeader = isFirstRecordLine;
+                isFirstRecordLine = false;
+                String[] fields = line.split(",");
+                if (fields.length != 3)
+                    throw new IOException("Line " + lineNumber + " does not have 3 fields: " + line);
+                try {
+                    records.add(Integer.parseInt(fields[0].trim()), Long.parseLong(fields[1].trim()), Long.parseLong(fields[2].trim()));
+                } catch (NumberFormatException e) {
+                    if (mayBeHeader)
+                        continue;
+                    throw new IOException("Line " + lineNumber + " is not a valid job record: " + line);
+                }
+            }
+        }
+        return new WorkloadTrace(records.taskId, records.releaseTime, records.executionTime, records.size);
+    }
+
+    /**
+     * Load a trace from a ".rtwtrace" binary file. The file is memory-mapped in chunks of records.
+     * @param filePath path of the binary file
+     * @return the loaded trace
+     * @throws IOException if the file cannot be read or is not a valid trace
+     */
+    public static WorkloadTrace loadBinary(String filePath) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (fileChannel.size() < HEADER_SIZE)
+                throw new IOException("Not a ." + FILE_EXTENSION + " file.");
+            MappedByteBuffer headerBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (headerBuffer.getInt() != MAGIC)
+                throw new IOException("Not a ." + FILE_EXTENSION + " file.");
+            int version = headerBuffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported ." + FILE_EXTENSION + " version: " + version);
+            long jobCount = headerBuffer.getLong();
+            if (jobCount < 0 || jobCount > Integer.MAX_VALUE - 8 || HEADER_SIZE + jobCount*RECORD_SIZE > fileChannel.size())
+                throw new IOException("Invalid job count: " + jobCount);
+
+            int count = (int) jobCount;
+            int[] taskId = new int[count];
+            long[] releaseTime = new long[count];
+            long[] executionTime = new long[count];
+            for (int begin=0; begin<count; begin+=RECORDS_PER_MAPPING) {
+                int recordCount = Math.min(RECORDS_PER_MAPPING, count - begin);
+                MappedByteBuffer recordBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + (long)begin*RECORD_SIZE, (long)recordCount*RECORD_SIZE);
+                for (int i=begin; i<begin+recordCount; i++) {
+                    taskId[i] = recordBuffer.getInt();
+                    releaseTime[i] = recordBuffer.getLong();
+                    executionTime[i] = recordBuffer.getLong();
+                }
+            }
+            return new WorkloadTrace(taskId, releaseTime, executionTime, count);
+        }
+    }
+
+    /**
+     * Load a trace file whose format is determined by its extension (".rtwtrace" is binary, CSV otherwise).
+     * @param filePath path of the trace file
+     * @return the loaded trace
+     * @throws IOException if the file cannot be read or is invalid
+     */
+    public static WorkloadTrace load(String filePath) throws IOException {
+        if (filePath.toLowerCase().endsWith("." + FILE_EXTENSION))
+            return loadBinary(filePath);
+        return loadCsv(filePath);
+    }
+
+    /**
+     * Write this trace to a ".rtwtrace" binary file (the jobs are written task by task).
+     * @param filePath path of the output file
+     * @throws IOException if the file cannot be written
+     */
+    public void exportBinary(String filePath) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4096*RECORD_SIZE);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(getJobCount());
+            for (int t=0; t<taskIds.length; t++) {
+                for (int k=0; k<releaseTimes[t].length; k++) {
+                    if (buffer.remaining() < RECORD_SIZE)
+                        writeBuffer(fileChannel, buffer);
+                    buffer.putInt(taskIds[t]);
+                    buffer.putLong(releaseTimes[t][k]);
+                    buffer.putLong(executionTimes[t][k]);
+                }
+            }
+            writeBuffer(fileChannel, buffer);
+        }
+    }
+
+    private static void writeBuffer(FileChannel fileChannel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            fileChannel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @return the IDs of the tasks that have jobs in this trace, in ascending order
+     */
+    public int[] getTaskIds() {
+        return taskIds.clone();
+    }
+
+    public boolean hasTask(int taskId) {
+        return Arrays.binarySearch(taskIds, taskId) >= 0;
+    }
+
+    public int getJobCount(int taskId) {
+        int t = Arrays.binarySearch(taskIds, taskId);
+        return t < 0 ? 0 : releaseTimes[t].length;
+    }
+
+    public long getJobCount() {
+        long count = 0;
+        for (long[] taskReleaseTimes : releaseTimes)
+            count += taskReleaseTimes.length;
+        return count;
+    }
+
+    /**
+     * The returned array is shared by the schedulers replaying this trace, so it must not be modified.
+     * @param taskId task ID
+     * @return the release times of the task's jobs in ascending order, or null if the task is not in the trace
+     */
+    long[] getReleaseTimes(int taskId) {
+        int t = Arrays.binarySearch(taskIds, taskId);
+        return t < 0 ? null : releaseTimes[t];
+    }
+
+    /**
+     * The returned array is shared by the schedulers replaying this trace, so it must not be modified.
+     * @param taskId task ID
+     * @return the execution times of the task's jobs in release order, or null if the task is not in the trace
+     */
+    long[] getExecutionTimes(int taskId) {
+        int t = Arrays.binarySearch(taskIds, taskId);
+        return t < 0 ? null : executionTimes[t];
+    }
+
+    /**
+     * @return the latest release time in the trace (simulating beyond it falls back to the generated workload)
+     */
+    public long getLastReleaseTime() {
+        long lastReleaseTime = 0;
+        for (long[] taskReleaseTimes : releaseTimes)
+            if (taskReleaseTimes.length > 0)
+                lastReleaseTime = Math.max(lastReleaseTime, taskReleaseTimes[taskReleaseTimes.length - 1]);
+        return lastReleaseTime;
+    }
+
+
+    /* A growable primitive buffer of job records. */
+    private static class RecordBuffer {
+        int[] taskId = new int[1024];
+        long[] releaseTime = new long[1024];
+        long[] executionTime = new long[1024];
+        int size = 0;
+
+        void add(int id, long release, long execution) {
+            if (size == taskId.length) {
+                int capacity = size*2;
+                taskId = Arrays.copyOf(taskId, capacity);
+                releaseTime = Arrays.copyOf(releaseTime, capacity);
+                executionTime = Arrays.copyOf(executionTime, capacity);
+            }
+            taskId[size] = id;
+            releaseTime[size] = release;
+            executionTime[size] = execution;
+            size++;
+        }
+    }
+}
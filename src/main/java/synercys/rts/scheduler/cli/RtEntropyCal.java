@@ -1,6 +1,7 @@
 package synercys.rts.scheduler.cli;
 
 import cy.utility.Sys;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import picocli.CommandLine;
@@ -8,11 +9,13 @@ import synercys.rts.analysis.MassTester;
 import synercys.rts.framework.TaskSet;
 import synercys.rts.scheduler.*;
 import synercys.rts.scheduler.entropy.*;
+import synercys.rts.scheduler.entropy.tester.BatchScheduleEntropyTester;
 import synercys.rts.scheduler.entropy.tester.MassScheduleEntropyTester;
 import synercys.rts.scheduler.entropy.tester.ScheduleEntropyTester;
 import synercys.rts.util.JsonLogLoader;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -48,12 +51,24 @@ public class RtEntropyCal implements Callable {
     @CommandLine.Option(names = {"-r", "--rounds"}, required = false, description = "The number of schedule rounds to be tested.")
     protected int optionRounds = 1;
 
+    @CommandLine.Option(names = {"--ci"}, required = false, description = "Adaptive mode: stop when the 95% confidence interval of the entropy, widened by its jackknife bias, is no wider than the given width and most schedules have been seen more than once (\"-r\" is then the maximum number of rounds). Supported by Shannon, ShannonFP and UApEn.")
+    protected double optionTargetConfidenceIntervalWidth = 0;
+
+    @CommandLine.Option(names = {"-t", "--threads"}, required = false, description = "The number of threads to simulate rounds in the adaptive mode (default: the number of processors).")
+    protected int optionThreadCount = Runtime.getRuntime().availableProcessors();
+
     @CommandLine.Option(names = {"-c", "--case"}, required = false, description = "Test case (\"--option\" for detailed options).")
     String testCase = "";
 
     @CommandLine.Option(names = {"-n", "--num"}, required = false, description = "Limit the number of task sets to be tested.")
     protected int theNumberOfTestingTaskSets = -1;
 
+    @CommandLine.Option(names = {"-m", "--manifest"}, required = false, description = "Batch mode: run the experiments listed in the given manifest file (results are written to the \"-o\" path as CSV).")
+    protected String manifestFilePath = "";
+
+    @CommandLine.Option(names = {"--cache"}, required = false, description = "The result cache folder of the batch mode (default: \"rtenc_cache\").")
+    protected String cacheFolderPath = "rtenc_cache";
+
     @CommandLine.Option(names = {"--options"}, required = false, description = "Show all option names.")
     protected boolean showOptionNames = false;
 
@@ -78,9 +93,19 @@ public class RtEntropyCal implements Callable {
             loggerConsole.info("Scheduling Algorithms = {}", SchedulerUtil.getSchedulerNames());
             loggerConsole.info("Entropy Algorithms = {}", EntropyCalculatorUtility.getEntropyNames());
             loggerConsole.info("Test Case = {}", MassTester.getTestCaseNames(MassScheduleEntropyTester.class));
+            return true;
+        }
+
+        if (optionTargetConfidenceIntervalWidth > 0 && entropyAlgorithm.equalsIgnoreCase(EntropyCalculatorUtility.ENTROPY_SHANNON_SKETCH)) {
+            loggerConsole.error("{} has no confidence interval and cannot be used with \"--ci\" (use {} instead).",
+                    entropyAlgorithm, EntropyCalculatorUtility.ENTROPY_SHANNON_FINGERPRINT);
             return null;
         }
 
+        if (!manifestFilePath.isEmpty()) {
+            return runBatch();
+        }
+
         /*===== Load tasksets =====*/
         loggerConsole.info("==============================");
         loggerConsole.info("Loading task sets ...");
@@ -102,11 +127,19 @@ public class RtEntropyCal implements Callable {
 
             for (String taskInputFilePath : taskInputFilePaths) {
                 loggerConsole.info("- Loading task sets from \"{}\"...", taskInputFilePath);
+                if (!new File(taskInputFilePath).isFile()) {
+                    loggerConsole.error("The task set file does not exist: \"{}\"", taskInputFilePath);
+                    return null;
+                }
                 JsonLogLoader jsonLogLoader = new JsonLogLoader(taskInputFilePath);
                 taskSetContainer.addTaskSets(((TaskSetContainer) jsonLogLoader.getResult()).getTaskSets());
             }
         }
         loggerConsole.info("{} task sets have been loaded.", taskSetContainer.size());
+        if (taskSetContainer.size() == 0) {
+            loggerConsole.error("No task set has been loaded. Please assign task set files with \"-i\".");
+            return null;
+        }
 
 
         loggerConsole.info("==============================");
@@ -121,12 +154,23 @@ public class RtEntropyCal implements Callable {
             loggerConsole.info("Rounds to estimate entropy = {}", optionRounds);
 
             ScheduleEntropyTester entropyTester = new ScheduleEntropyTester(taskSet, schedulingPolicy, entropyAlgorithm, optionExecutionVariation);
+            if (optionTargetConfidenceIntervalWidth > 0) {
+                entropyTester.setThreadCount(optionThreadCount);
+                EntropyConfidenceInterval confidenceInterval = entropyTester.runAdaptive(simDuration, optionRounds, optionTargetConfidenceIntervalWidth);
+                if (confidenceInterval == null) {
+                    loggerConsole.error("Unknown entropy calculator or no adaptive mode support: {}", entropyAlgorithm);
+                    return null;
+                }
+                loggerConsole.info("{} entropy = {}", entropyAlgorithm, confidenceInterval);
+                return confidenceInterval;
+            }
             double finalEntropy = entropyTester.run(simDuration, optionRounds);
             if (finalEntropy == -1) {
                 loggerConsole.error("Unknown entropy calculator: {}", entropyAlgorithm);
                 return null;
             }
             loggerConsole.info("{} entropy = {}", entropyAlgorithm, finalEntropy);
+            return finalEntropy;
         } else {
             loggerConsole.info("Run mass test for the test case {}.", testCase);
 
@@ -144,13 +188,39 @@ public class RtEntropyCal implements Callable {
             massScheduleEntropyTester.setParams(simDuration, schedulingPolicy, optionExecutionVariation);
             massScheduleEntropyTester.setTestRounds(optionRounds);
             massScheduleEntropyTester.setEntropyAlgorithm(entropyAlgorithm);
+            massScheduleEntropyTester.setTargetConfidenceIntervalWidth(optionTargetConfidenceIntervalWidth);
+            massScheduleEntropyTester.setThreadCount(optionThreadCount);
             massScheduleEntropyTester.run(testCase);
             long estimatedTime = System.currentTimeMillis() - startTime;
             loggerConsole.info("Finished testing {} task sets. ({} ms)", taskSetContainer.size(), estimatedTime);
         }
 
 
-        return null;
+        // null is returned only on failures (see RtService).
+        return taskSetContainer.size();
     }
 
+    protected Object runBatch() throws IOException {
+        loggerConsole.info("Running the experiments in \"{}\" ...", manifestFilePath);
+        ArrayList<BatchScheduleEntropyTester.WorkUnit> units = BatchScheduleEntropyTester.loadManifest(manifestFilePath);
+
+        long startTime = System.currentTimeMillis();
+        BatchScheduleEntropyTester batchTester = new BatchScheduleEntropyTester(cacheFolderPath);
+        batchTester.setThreadCount(optionThreadCount);
+        ArrayList<BatchScheduleEntropyTester.WorkUnitResult> results = batchTester.run(units);
+
+        int cachedCount = 0;
+        for (BatchScheduleEntropyTester.WorkUnitResult result : results) {
+            if (result.isCached())
+                cachedCount++;
+        }
+        loggerConsole.info("Finished {} work units ({} from the cache). ({} ms)", results.size(), cachedCount, System.currentTimeMillis() - startTime);
+
+        if (!outputFilePrefixPath.isEmpty()) {
+            String csvFilePath = FilenameUtils.getFullPath(outputFilePrefixPath) + FilenameUtils.getBaseName(outputFilePrefixPath) + ".csv";
+            batchTester.exportResultsToCsv(csvFilePath, results);
+            loggerConsole.info("Results have been written to \"{}\".", csvFilePath);
+        }
+        return results.size();
+    }
 }
@@ -0,0 +1,340 @@
+package synercys.rts.scheduler.cli;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import picocli.CommandLine;
+import synercys.rts.analysis.cli.RtDFT;
+import synercys.rts.scheduler.entropy.EntropyConfidenceInterval;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RtService.java
+ * Purpose: A resident service that runs rtsim, rtenc (RtEntropyCal) and rtdft jobs in one JVM, so that scripts that
+ *          run many short jobs pay the JVM startup, picocli and log4j initialization and the JIT warm-up once, and
+ *          share the warm caches (e.g., SchedulerAnalysisCache).
+ *
+ *          Jobs are JSON lines read from stdin (default) or from connections to a local (loopback) TCP port:
+ *              {"id": 1, "command": "rtsim", "args": ["-i", "a.tasksets", "-d", "1000", "-p", "EDF", "-o", "a.txt"]}
+ *          They run on a shared worker pool, and each worker reuses one command object per command. A JSON line is
+ *          written back (to stdout or the connection) for each job as soon as it finishes, so the results may be out
+ *          of order:
+ *              {"id": 1, "command": "rtsim", "status": "ok", "result": ..., "elapsedMs": 25}
+ *          where "result" is the command's return value (e.g., the entropy of rtenc), or "status" is "error" with an
+ *          "error" message (also when the command itself fails, e.g., on an input file that cannot be loaded). The
+ *          line {"command": "shutdown"} stops the service after the running jobs finish.
+ *
+ *          In the stdin mode, the log messages (which go to the standard output otherwise) are written to the standard
+ *          error so that the standard output only carries the results.
+ */
+@CommandLine.Command(name = "rtservice", versionProvider = synercys.rts.RtsConfig.class, header = "@|blue | RT Simulation Service | |@")
+public class RtService implements Callable {
+    public static final String COMMAND_RTSIM = "rtsim";
+    public static final String COMMAND_RTENC = "rtenc";
+    public static final String COMMAND_RTDFT = "rtdft";
+    public static final String COMMAND_SHUTDOWN = "shutdown";
+
+    public static final String STATUS_OK = "ok";
+    public static final String STATUS_ERROR = "error";
+
+    /* The number of jobs of one input that may be read but not finished yet; the reader blocks beyond that. */
+    public static final int MAX_PENDING_JOBS = 1024;
+
+    @CommandLine.Option(names = {"-h", "--help"}, usageHelp = true, description = "Print usage help and exit.")
+    boolean usageHelpRequested;
+
+    @CommandLine.Option(names = {"-V", "--version"}, versionHelp = true, description = "Print version information and exit.")
+    boolean versionHelpRequested;
+
+    @CommandLine.Option(names = {"-l", "--listen"}, required = false, description = "Accept jobs on the given local TCP port instead of stdin.")
+    protected int optionPort = 0;
+
+    @CommandLine.Option(names = {"-t", "--threads"}, required = false, description = "The number of worker threads (default: the number of processors).")
+    protected int optionThreadCount = Runtime.getRuntime().availableProcessors();
+
+    /* Not static: the logger must be created after the standard output is redirected (see main()). */
+    protected Logger loggerConsole;
+
+    protected ExecutorService workerPool;
+    protected volatile boolean shutdownRequested = false;
+    protected ServerSocket serverSocket = null;
+    protected int maxPendingJobs = MAX_PENDING_JOBS;
+
+    /* Each worker thread reuses its own command objects. */
+    protected final ThreadLocal<HashMap<String, CommandLine>> workerCommandLines = ThreadLocal.withInitial(HashMap::new);
+
+    public static void main(String... args) {
+        RtService service = new RtService();
+        CommandLine commandLine = new CommandLine(service);
+        try {
+            commandLine.parseArgs(args);
+        } catch (CommandLine.ParameterException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println("Use -h to see the options.");
+            return;
+        }
+        if (commandLine.isUsageHelpRequested()) {
+            commandLine.usage(System.out);
+            return;
+        } else if (commandLine.isVersionHelpRequested()) {
+            commandLine.printVersionHelp(System.out);
+            return;
+        }
+
+        PrintStream resultOut = System.out;
+        if (service.optionPort == 0) {
+            // Log4j's console appender binds to System.out when it is initialized, so this has to come first.
+            System.setOut(System.err);
+        }
+        try {
+            service.run(System.in, resultOut);
+        } catch (IOException e) {
+            System.err.println("The service stopped: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Object call() throws Exception {
+        run(System.in, System.out);
+        return null;
+    }
+
+    /**
+     * Serve jobs from the given stream (stdin mode) or from the local port (if a port is set) until the end of the
+     * input or a shutdown job.
+     * @param in        job input in the stdin mode
+     * @param resultOut result output in the stdin mode
+     */
+    public void run(InputStream in, OutputStream resultOut) throws IOException {
+        loggerConsole = LogManager.getLogger("console");
+        workerPool = Executors.newFixedThreadPool(Math.max(1, optionThreadCount));
+        try {
+            if (optionPort == 0) {
+                loggerConsole.info("RtService: reading jobs from stdin with {} workers.", optionThreadCount);
+                serve(in, resultOut);
+            } else {
+                serverSocket = new ServerSocket(optionPort, 50, InetAddress.getLoopbackAddress());
+                loggerConsole.info("RtService: listening on {}:{} with {} workers.", serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort(), optionThreadCount);
+                acceptConnections();
+            }
+        } finally {
+            workerPool.shutdown();
+            try {
+                workerPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected void acceptConnections() throws IOException {
+        while (!shutdownRequested) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (shutdownRequested)
+                    break;  // closed by a shutdown job
+                throw e;
+            }
+            Thread connectionThread = new Thread(() -> {
+                try (Socket connection = socket) {
+                    serve(connection.getInputStream(), connection.getOutputStream());
+                } catch (IOException e) {
+                    loggerConsole.error("RtService: connection error: {}", e.getMessage());
+                }
+            }, "rtservice-connection");
+            connectionThread.start();
+        }
+    }
+
+    /**
+     * Read jobs (one JSON object per line) from the input and write one result line per job to the output as the
+     * jobs finish. It returns when the input ends (or a shutdown job is read) and all its jobs have finished.
+     * At most maxPendingJobs jobs are queued or running at a time; reading waits for a job to finish beyond that.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        // One permit per pending job: a job takes one before it is queued and returns it when it finishes.
+        Semaphore pendingJobPermits = new Semaphore(maxPendingJobs);
+
+        String line;
+        while (!shutdownRequested && (line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+
+            JSONObject job;
+            try {
+                job = new JSONObject(line);
+            } catch (JSONException e) {
+                writeResult(writer, createResult(null, null, STATUS_ERROR, 0).put("error", "Invalid job: " + e.getMessage()));
+                continue;
+            }
+
+            if (COMMAND_SHUTDOWN.equalsIgnoreCase(job.optString("command"))) {
+                requestShutdown();
+                break;
+            }
+
+            acquirePermits(pendingJobPermits, 1);
+            workerPool.execute(() -> {
+                try {
+                    writeResult(writer, runJob(job));
+                } finally {
+                    pendingJobPermits.release();
+                }
+            });
+        }
+
+        // All permits are back once every job of this input has finished.
+        acquirePermits(pendingJobPermits, maxPendingJobs);
+        writer.flush();
+    }
+
+    protected void acquirePermits(Semaphore semaphore, int permits) throws IOException {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for jobs to finish.");
+        }
+    }
+
+    /**
+     * Run a job on the calling (worker) thread with the thread's command objects.
+     * @param job the job ("command" and "args")
+     * @return the result line
+     */
+    public JSONObject runJob(JSONObject job) {
+        Object id = job.opt("id");
+        String command = job.optString("command", "");
+        long beginTime = System.currentTimeMillis();
+        try {
+            CommandLine commandLine = getCommandLine(command);
+            if (commandLine == null) {
+                return createResult(id, command, STATUS_ERROR, 0).put("error", "Unknown command: \"" + command + "\"");
+            }
+
+            JSONArray jsonArgs = job.optJSONArray("args");
+            String[] args = new String[(jsonArgs == null) ? 0 : jsonArgs.length()];
+            for (int i=0; i<args.length; i++)
+                args[i] = jsonArgs.getString(i);
+
+            // Options are reset to their initial values when the reused command line parses new arguments.
+            commandLine.parseArgs(args);
+            Object result;
+            if (commandLine.isUsageHelpRequested()) {
+                result = commandLine.getUsageMessage(CommandLine.Help.Ansi.OFF);
+            } else if (commandLine.isVersionHelpRequested()) {
+                result = String.join("\n", commandLine.getCommandSpec().version());
+            } else {
+                result = ((Callable<?>) commandLine.getCommand()).call();
+                String failure = getCommandFailure(command, result);
+                if (failure != null)
+                    return createResult(id, command, STATUS_ERROR, System.currentTimeMillis() - beginTime).put("error", failure);
+            }
+
+            JSONObject jsonResult = createResult(id, command, STATUS_OK, System.currentTimeMillis() - beginTime);
+            putResultValue(jsonResult, result);
+            return jsonResult;
+        } catch (Exception | AssertionError e) {
+            String message = (e.getMessage() == null) ? e.toString() : e.getMessage();
+            return createResult(id, command, STATUS_ERROR, System.currentTimeMillis() - beginTime).put("error", message);
+        }
+    }
+
+    protected CommandLine getCommandLine(String command) {
+        HashMap<String, CommandLine> commandLines = workerCommandLines.get();
+        CommandLine commandLine = commandLines.get(command);
+        if (commandLine != null)
+            return commandLine;
+
+        if (command.equalsIgnoreCase(COMMAND_RTSIM))
+            commandLine = new CommandLine(new RtSim());
+        else if (command.equalsIgnoreCase(COMMAND_RTENC))
+            commandLine = new CommandLine(new RtEntropyCal());
+        else if (command.equalsIgnoreCase(COMMAND_RTDFT))
+            commandLine = new CommandLine(new RtDFT());
+        else
+            return null;
+        commandLines.put(command, commandLine);
+        return commandLine;
+    }
+
+    /**
+     * rtsim and rtenc return null when they fail (after logging the reason), and rtdft returns a non-zero exit code.
+     * @return the error message if the command failed, or null otherwise
+     */
+    protected String getCommandFailure(String command, Object result) {
+        if (command.equalsIgnoreCase(COMMAND_RTDFT)) {
+            if (result instanceof Integer && (Integer) result != RtDFT.EXIT_CODE_NORMAL)
+                return "The command failed with exit code " + result + " (see the log).";
+            return null;
+        }
+        if (result == null)
+            return "The command failed (see the log).";
+        return null;
+    }
+
+    protected void putResultValue(JSONObject jsonResult, Object result) {
+        if (result == null)
+            return;
+        if (result instanceof EntropyConfidenceInterval) {
+            EntropyConfidenceInterval confidenceInterval = (EntropyConfidenceInterval) result;
+            JSONObject jsonConfidenceInterval = new JSONObject();
+            jsonConfidenceInterval.put("estimate", confidenceInterval.getEstimate());
+            jsonConfidenceInterval.put("lower", confidenceInterval.getLower());
+            jsonConfidenceInterval.put("upper", confidenceInterval.getUpper());
+            jsonConfidenceInterval.put("rounds", confidenceInterval.getScheduleCount());
+            jsonResult.put("result", jsonConfidenceInterval);
+        } else if (result instanceof Number || result instanceof Boolean) {
+            jsonResult.put("result", result);
+        } else {
+            jsonResult.put("result", result.toString());
+        }
+    }
+
+    protected JSONObject createResult(Object id, String command, String status, long elapsedMs) {
+        JSONObject result = new JSONObject();
+        if (id != null)
+            result.put("id", id);
+        if (command != null)
+            result.put("command", command);
+        result.put("status", status);
+        result.put("elapsedMs", elapsedMs);
+        return result;
+    }
+
+    protected void writeResult(PrintWriter writer, JSONObject result) {
+        synchronized (writer) {
+            writer.println(result.toString());
+            writer.flush();
+        }
+    }
+
+    protected void requestShutdown() {
+        shutdownRequested = true;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
@@ -40,7 +40,8 @@ public class RtSim implements Callable {
     @Option(names = {"-o", "--out"}, required = false, description =
             "File names (including their formats) for schedule simulation output. " +
             "The output format is determined by the given file extension: " +
-            "\".xlsx\", \".txt\", \".rtschedule\", \".rtdft\" (for DFT analysis).")
+            "\".xlsx\", \".txt\", \".rtschedule\", \".rtsbin\" (binary schedule), \".rtbits\" (busy interval bitstream), " +
+            "\".rtdft\" (for DFT analysis).")
     protected List<String> outputFilePathAndFormat = new ArrayList<>();
 
     @CommandLine.Option(names = {"-p", "--policy"}, required = true, description = "Scheduling policy (\"--option\" for detailed options).")
@@ -55,19 +56,30 @@ public class RtSim implements Callable {
     @Option(names = {"-l", "--ladder"}, required = false, description = "Applicable for xlsx format. Width of a ladder diagram.")
     protected long optionLadderDiagramWidth = 0;
 
+    @Option(names = {"-x", "--xlsxcols"}, required = false, description = "Applicable for xlsx format. Write xlsx with the streaming writer (bounded memory) and limit each row to the given number of columns (longer schedules are downsampled).")
+    protected int optionXlsxMaxColumns = 0;
+
     @Option(names = {"-r", "--rounds"}, required = false, description = "The number of simulation rounds to be carried.")
     protected long optionRounds = 1;
 
     @Option(names = {"-v", "--evar"}, required = false, description = "Enable execution time variation.")
     protected boolean optionExecutionVariation = false;
 
+    @Option(names = {"-s", "--stream"}, required = false, description = "Stream the schedule to the \".rtschedule\" or \".rtsbin\" output during simulation without keeping it in memory (other output formats are skipped).")
+    protected boolean optionStreamOutput = false;
+
+    @Option(names = {"-t", "--trace"}, required = false, description = "Replay a recorded workload (job release times and execution times) from a CSV (\"taskId,releaseTime,executionTime\") or \".rtwtrace\" (binary) file.")
+    protected String workloadTraceFile = "";
+
     @CommandLine.Option(names = {"--options"}, required = false, description = "Show all option names.")
     protected boolean showOptionNames = false;
 
     protected TaskSet taskSet = null;
+    protected WorkloadTrace workloadTrace = null;
     protected EventContainer eventContainer = null;
 
     ExcelLogHandler excelLogHandler = null;
+    StreamingExcelLogHandler streamingExcelLogHandler = null;
 
     public static void main(String... args) {
         /* A few test command and parameters. Uncomment one to test it. */
@@ -95,11 +107,13 @@ public class RtSim implements Callable {
 
     @Override
     public Object call() throws Exception {
+        // The same object may run several times (e.g., in RtService).
+        workloadTrace = null;
 
         if (showOptionNames) {
             loggerConsole.info("All supported options:");
             loggerConsole.info("Scheduling Algorithms = {}", SchedulerUtil.getSchedulerNames());
-            return null;
+            return true;
         }
 
         if (importTaskSet() == false) {
@@ -107,7 +121,25 @@ public class RtSim implements Callable {
             return null;
         }
 
+        if (!workloadTraceFile.isEmpty()) {
+            try {
+                workloadTrace = WorkloadTrace.load(workloadTraceFile);
+            } catch (Exception e) {
+                loggerConsole.error("Failed to load the workload trace: {}", e.getMessage());
+                return null;
+            }
+            loggerConsole.info("Replay {} jobs from \"{}\".", workloadTrace.getJobCount(), workloadTraceFile);
+        }
+
         for (int round=1; round<=optionRounds; round++) {
+            if (optionStreamOutput) {
+                if (runStreamingScheduleSimulation(round) == false) {
+                    loggerConsole.error("Unknown scheduler: \"{}\"", schedulingPolicy);
+                    return null;
+                }
+                continue;
+            }
+
             if (runScheduleSimulation() == false) {
                 loggerConsole.error("Unknown scheduler: \"{}\"", schedulingPolicy);
                 return null;
@@ -150,6 +182,11 @@ public class RtSim implements Callable {
                 } else if (outputExtension.equalsIgnoreCase("xlsx")) {
                     loggerConsole.info("Generate output in xlsx format.");
 
+                    if (optionXlsxMaxColumns > 0) {
+                        generateStreamingXlsxOutput(round, thisOutputFileName);
+                        continue;
+                    }
+
                     //ExcelLogHandler excelLogHandler;
                     if (round == 1) {
                         // Create Excel file from scratch
@@ -179,6 +216,23 @@ public class RtSim implements Callable {
 
                     JsonLogExporter jsonLogExporter = new JsonLogExporter(thisOutputFileName);
                     jsonLogExporter.exportRawSchedule(eventContainer);
+                } else if (outputExtension.equalsIgnoreCase(BinaryScheduleExporter.FILE_EXTENSION)) {
+                    loggerConsole.info("Generate output in rtsbin (binary) format.");
+
+                    if (optionRounds > 1) {
+                        thisOutputFileName = fileNamePrefix + "_" + round + ".rtsbin";
+                    }
+
+                    BinaryScheduleExporter binaryScheduleExporter = new BinaryScheduleExporter(thisOutputFileName);
+                    binaryScheduleExporter.exportRawSchedule(eventContainer);
+                } else if (outputExtension.equalsIgnoreCase(BitstreamExporter.FILE_EXTENSION)) {
+                    loggerConsole.info("Generate busy intervals in rtbits (bitstream) format.");
+
+                    if (optionRounds > 1) {
+                        thisOutputFileName = fileNamePrefix + "_" + round + ".rtbits";
+                    }
+
+                    BitstreamExporter.exportBitstream(biEvents.toBitstream(), thisOutputFileName);
                 } else if (outputExtension.equalsIgnoreCase("rtdft")) {
                     loggerConsole.info("Run and generate FFT analysis.");
                     ScheduleDFTAnalyzer dftAnalyzer = new ScheduleDFTAnalyzer();
@@ -200,7 +254,8 @@ public class RtSim implements Callable {
             loggerConsole.info(eventContainer.getAllEvents());
         }
 
-        return null;
+        // null is returned only on failures (see RtService).
+        return optionRounds;
     }
 
     protected boolean importTaskSet() {
@@ -217,10 +272,13 @@ public class RtSim implements Callable {
     }
 
     protected boolean runScheduleSimulation() {
-        AdvanceableSchedulerInterface scheduler;
+        AdvanceableSchedulerSimulator scheduler;
         scheduler = SchedulerUtil.getScheduler(schedulingPolicy, taskSet, optionExecutionVariation);
+        if (scheduler == null)
+            return false;
 
         loggerConsole.info("{} selected.", scheduler.getClass().getName());
+        applyWorkloadTrace(scheduler);
 
         eventContainer = scheduler.runSim(simDuration);
 
@@ -229,4 +287,88 @@ public class RtSim implements Callable {
         else
             return false;
     }
+
+    /**
+     * Let the scheduler replay the loaded workload trace (if any). A recorded workload may overrun the tasks' WCETs,
+     * so deadline misses are logged instead of aborting the simulation.
+     */
+    protected void applyWorkloadTrace(AdvanceableSchedulerSimulator scheduler) {
+        if (workloadTrace == null)
+            return;
+        scheduler.setAssertOnDeadlineMiss(false);
+        scheduler.setWorkloadTrace(workloadTrace);
+    }
+
+    /**
+     * Write the schedule of this round to the streaming xlsx handler, which is kept open across rounds and saved in
+     * the last round.
+     */
+    protected void generateStreamingXlsxOutput(int round, String outputFileName) {
+        if (round == 1) {
+            streamingExcelLogHandler = new StreamingExcelLogHandler();
+            streamingExcelLogHandler.setMaxColumns(optionXlsxMaxColumns);
+        }
+
+        if (optionLadderDiagramWidth > 0) {
+            streamingExcelLogHandler.genSchedulerIntervalEventsOnLadderDiagram(eventContainer, optionLadderDiagramWidth);
+        } else {
+            streamingExcelLogHandler.genRowSchedulerIntervalEvents(eventContainer, (optionRounds==1));
+        }
+
+        if (round == optionRounds)
+            streamingExcelLogHandler.saveAndClose(outputFileName);
+    }
+
+    /**
+     * Run schedule simulation and write the schedule directly to the first ".rtschedule" or ".rtsbin" output as it is
+     * simulated.
+     * @param round the current simulation round (used to name output files when there are multiple rounds)
+     * @return false if the scheduler is unknown; true otherwise
+     */
+    protected boolean runStreamingScheduleSimulation(int round) {
+        AdvanceableSchedulerSimulator scheduler;
+        scheduler = SchedulerUtil.getScheduler(schedulingPolicy, taskSet, optionExecutionVariation);
+        if (scheduler == null)
+            return false;
+
+        loggerConsole.info("{} selected.", scheduler.getClass().getName());
+        applyWorkloadTrace(scheduler);
+
+        String streamOutputFileName = null;
+        String streamOutputExtension = null;
+        for (String thisOutputFileName : outputFilePathAndFormat) {
+            int extensionNameIndex = thisOutputFileName.lastIndexOf('.');
+            String outputExtension = (extensionNameIndex > 0) ? thisOutputFileName.substring(extensionNameIndex + 1) : "";
+            if (streamOutputFileName == null && (outputExtension.equalsIgnoreCase("rtschedule") || outputExtension.equalsIgnoreCase(BinaryScheduleExporter.FILE_EXTENSION))) {
+                streamOutputFileName = thisOutputFileName;
+                streamOutputExtension = outputExtension;
+                if (optionRounds > 1) {
+                    streamOutputFileName = thisOutputFileName.substring(0, extensionNameIndex) + "_" + round + "." + outputExtension;
+                }
+            } else {
+                loggerConsole.info("\"{}\" is skipped in streaming mode.", thisOutputFileName);
+            }
+        }
+
+        if (streamOutputFileName == null) {
+            loggerConsole.info("No \".rtschedule\" or \".rtsbin\" output is given for streaming.");
+            return true;
+        }
+
+        if (streamOutputExtension.equalsIgnoreCase(BinaryScheduleExporter.FILE_EXTENSION)) {
+            loggerConsole.info("Stream output in rtsbin (binary) format.");
+            BinaryScheduleExporter binaryScheduleExporter = new BinaryScheduleExporter(streamOutputFileName);
+            binaryScheduleExporter.beginRawSchedule(taskSet, scheduler.getSimEventContainer().getSchedulingPolicy());
+            scheduler.runSimWithOffset(0, simDuration, binaryScheduleExporter);
+            binaryScheduleExporter.endRawSchedule();
+        } else {
+            loggerConsole.info("Stream output in rtschedule (json) format.");
+            JsonLogStreamWriter streamWriter = new JsonLogStreamWriter(streamOutputFileName);
+            streamWriter.beginRawSchedule(taskSet, scheduler.getSimEventContainer().getSchedulingPolicy());
+            scheduler.runSimWithOffset(0, simDuration, streamWriter);
+            streamWriter.endRawSchedule();
+            streamWriter.close();
+        }
+        return true;
+    }
 }
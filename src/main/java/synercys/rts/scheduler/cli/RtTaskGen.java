@@ -10,6 +10,8 @@ import synercys.rts.scheduler.TaskSetContainer;
 import synercys.rts.scheduler.TaskSetGenerator;
 import synercys.rts.util.JsonLogExporter;
 import synercys.rts.util.JsonLogLoader;
+import synercys.rts.util.JsonLogStr;
+import synercys.rts.util.JsonLogStreamWriter;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -49,6 +51,9 @@ public class RtTaskGen implements Callable {
     @Option(names = {"--id"}, required = false, description = "The incremental ID number to be assigned to the first task set.")
     int optionBeginId = 0;
 
+    @Option(names = {"-t", "--threads"}, required = false, description = "The number of threads for generating task sets from a configuration file (-i). When it is more than 1, task sets are written to the output file (-o) as they are generated.")
+    int optionThreadCount = 1;
+
     @Option(names = {"-c", "--config"}, required = false, description = "Create a configuration file with default configuration.")
     String generateDefaultConfigFile = "";
 
@@ -129,6 +134,11 @@ public class RtTaskGen implements Callable {
             JsonLogLoader jsonLogLoader = new JsonLogLoader(taskInputFile);
             ArrayList<TaskSetGenerator> taskSetGenerators = (ArrayList<TaskSetGenerator>) jsonLogLoader.getResult();
 
+            if (optionThreadCount > 1 && !outputFilePrefix.equalsIgnoreCase("")) {
+                generateInParallelToFiles(taskSetGenerators);
+                return null;
+            }
+
             int configIndex = 0;
             int taskSetIdCounter = optionBeginId;
             for (TaskSetGenerator taskSetGenerator : taskSetGenerators) {
@@ -186,4 +196,50 @@ public class RtTaskGen implements Callable {
 
         return null;
     }
+
+    /**
+     * Generate task sets with multiple threads and stream them to the output file(s) without keeping them in memory.
+     * @param taskSetGenerators the generators loaded from the configuration file
+     */
+    void generateInParallelToFiles(ArrayList<TaskSetGenerator> taskSetGenerators) {
+        String outputFilePath = FilenameUtils.getFullPath(outputFilePrefix);
+        String outputFileBaseName = FilenameUtils.getBaseName(outputFilePrefix);
+
+        JsonLogStreamWriter streamWriter = null;
+        int configIndex = 0;
+        int taskSetIdCounter = optionBeginId;
+        long taskSetCount = 0;
+        for (TaskSetGenerator taskSetGenerator : taskSetGenerators) {
+            if (streamWriter == null) {
+                String outputFilePathName;
+                if (optionOutputSingleFile || taskSetGenerators.size() == 1) {
+                    outputFilePathName = Paths.get(outputFilePath, outputFileBaseName + ".tasksets").toString();
+                } else {
+                    outputFilePathName = Paths.get(outputFilePath, outputFileBaseName + String.valueOf(configIndex) + ".tasksets").toString();
+                }
+                streamWriter = new JsonLogStreamWriter(outputFilePathName);
+                streamWriter.beginTaskSets(JsonLogStr.DATA_TYPE_TASKSETS);
+            }
+            configIndex++;
+            loggerConsole.info("Generating task sets for the #{} configuration with {} threads.", configIndex, optionThreadCount);
+
+            taskSetGenerator.setTaskSetIdCounter(taskSetIdCounter);
+            taskSetGenerator.generate(taskSetGenerator.getNumTaskPerSet(), taskSetGenerator.getNumTaskSet(), optionThreadCount, streamWriter::writeTaskSet);
+            taskSetIdCounter = taskSetGenerator.getTaskSetIdCounter();
+            taskSetCount += taskSetGenerator.getNumTaskSet();
+            loggerConsole.info(taskSetGenerator.getStatisticsString());
+
+            if (!optionOutputSingleFile) {
+                streamWriter.endTaskSets();
+                streamWriter.close();
+                streamWriter = null;
+            }
+        }
+        if (streamWriter != null) {
+            streamWriter.endTaskSets();
+            streamWriter.close();
+        }
+
+        loggerConsole.info("{} {} generated.", String.valueOf(taskSetCount), taskSetCount==1?"task set is":"task sets are");
+    }
 }
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 
 public class EntropyCalculatorUtility {
     static public String ENTROPY_SHANNON = "Shannon";
+    static public String ENTROPY_SHANNON_FINGERPRINT = "ShannonFP";
+    static public String ENTROPY_SHANNON_SKETCH = "ShannonSketch";
     static public String ENTROPY_UPPER_APPROXIMATE = "UApEn";
     static public String ENTROPY_UPPER_APPROXIMATE_MEAN_SLOT = "UApEnMeanSlot";
     static public String ENTROPY_APPROXIMATE = "ApEn";
@@ -14,6 +16,10 @@ public class EntropyCalculatorUtility {
     public static ScheduleEntropyCalculatorInterface getEntropyCalculator(String entropyAlgorithm, TaskSet taskSet, long simOffset, long simDuration) {
         if (entropyAlgorithm.equalsIgnoreCase(ENTROPY_SHANNON))
             return new ShannonScheduleEntropyCalculator(simOffset, simDuration);
+        else if (entropyAlgorithm.equalsIgnoreCase(ENTROPY_SHANNON_FINGERPRINT))
+            return new SketchShannonScheduleEntropyCalculator(simOffset, simDuration);
+        else if (entropyAlgorithm.equalsIgnoreCase(ENTROPY_SHANNON_SKETCH))
+            return new SketchShannonScheduleEntropyCalculator(simOffset, simDuration, SketchShannonScheduleEntropyCalculator.DEFAULT_HEAVY_HITTER_CAPACITY);
         else if (entropyAlgorithm.equalsIgnoreCase(ENTROPY_UPPER_APPROXIMATE))
             return new UpperApproximateEntropyCalculator(taskSet, simOffset, simDuration);
         else if (entropyAlgorithm.equalsIgnoreCase(ENTROPY_UPPER_APPROXIMATE_MEAN_SLOT))
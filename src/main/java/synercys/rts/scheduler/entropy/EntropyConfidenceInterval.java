@@ -0,0 +1,116 @@
+package synercys.rts.scheduler.entropy;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * EntropyConfidenceInterval.java
+ * Purpose: A schedule entropy estimate with its confidence interval. The interval is built by the delete-a-group
+ *          jackknife: the schedules are split into G groups (round-robin by round number), the entropy is re-estimated
+ *          G times with one group left out each time, and the spread of these estimates gives the standard error of
+ *          the estimate from all schedules. The interval is estimate +- t(G-1) * standard error.
+ *
+ *          The plug-in entropy estimate is biased downwards while the schedules have not been sampled well (in the
+ *          extreme, N all-distinct schedules give log2(N) and every leave-one-group-out estimate is the same, so the
+ *          standard error is 0). The jackknife bias (G-1)*(mean of the group estimates - estimate) is therefore kept
+ *          alongside the interval so that a stopping rule can account for it.
+ */
+public class EntropyConfidenceInterval {
+    public static final double DEFAULT_CONFIDENCE_LEVEL = 0.95;
+
+    protected final double estimate;
+    protected final double standardError;
+    protected final double bias;
+    protected final double lower;
+    protected final double upper;
+    protected final double confidenceLevel;
+    protected final int scheduleCount;
+
+    public EntropyConfidenceInterval(double estimate, double standardError, double bias, double confidenceLevel, int groupCount, int scheduleCount) {
+        this.estimate = estimate;
+        this.standardError = standardError;
+        this.bias = bias;
+        this.confidenceLevel = confidenceLevel;
+        this.scheduleCount = scheduleCount;
+        if (Double.isInfinite(standardError) || groupCount < 2) {
+            lower = Double.NEGATIVE_INFINITY;
+            upper = Double.POSITIVE_INFINITY;
+        } else {
+            double t = new TDistribution(groupCount - 1).inverseCumulativeProbability(0.5 + confidenceLevel/2);
+            lower = estimate - t*standardError;
+            upper = estimate + t*standardError;
+        }
+    }
+
+    /**
+     * Build a confidence interval from the leave-one-group-out estimates.
+     * @param estimate                  the estimate from all schedules
+     * @param leaveOneGroupOutEstimates the estimates with each group left out (null if not every group has schedules)
+     * @param confidenceLevel           e.g., 0.95
+     * @param scheduleCount             the number of schedules
+     * @return the confidence interval (unbounded if there are no group estimates)
+     */
+    public static EntropyConfidenceInterval fromJackknife(double estimate, double[] leaveOneGroupOutEstimates, double confidenceLevel, int scheduleCount) {
+        if (leaveOneGroupOutEstimates == null || leaveOneGroupOutEstimates.length < 2)
+            return new EntropyConfidenceInterval(estimate, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, confidenceLevel, 0, scheduleCount);
+
+        int groupCount = leaveOneGroupOutEstimates.length;
+        double mean = 0;
+        for (double groupEstimate : leaveOneGroupOutEstimates)
+            mean += groupEstimate;
+        mean /= groupCount;
+
+        double sumOfSquares = 0;
+        for (double groupEstimate : leaveOneGroupOutEstimates)
+            sumOfSquares += (groupEstimate - mean)*(groupEstimate - mean);
+        double standardError = Math.sqrt((groupCount - 1)/(double)groupCount*sumOfSquares);
+        double bias = (groupCount - 1)*(mean - estimate);
+        return new EntropyConfidenceInterval(estimate, standardError, bias, confidenceLevel, groupCount, scheduleCount);
+    }
+
+    public double getEstimate() {
+        return estimate;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    /**
+     * @return the jackknife estimate of the bias of the estimate (infinite if there are no group estimates)
+     */
+    public double getBias() {
+        return bias;
+    }
+
+    /**
+     * @return the estimate minus its jackknife bias
+     */
+    public double getBiasCorrectedEstimate() {
+        return estimate - bias;
+    }
+
+    public double getLower() {
+        return lower;
+    }
+
+    public double getUpper() {
+        return upper;
+    }
+
+    public double getWidth() {
+        return upper - lower;
+    }
+
+    public double getConfidenceLevel() {
+        return confidenceLevel;
+    }
+
+    public int getScheduleCount() {
+        return scheduleCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.5f [%.5f, %.5f] (%.0f%% CI, %d rounds)", estimate, lower, upper, confidenceLevel*100, scheduleCount);
+    }
+}
@@ -0,0 +1,37 @@
+package synercys.rts.scheduler.entropy;
+
+/**
+ * IncrementalScheduleEntropyCalculatorInterface.java
+ * Purpose: An entropy calculator that keeps its statistics updated as schedules are applied, so that the current
+ *          estimate can be read in O(1) time (concludeEntropy() returns the same value), and that can give a
+ *          confidence interval of the estimate (see EntropyConfidenceInterval) for adaptive round counts.
+ */
+public interface IncrementalScheduleEntropyCalculatorInterface extends ScheduleEntropyCalculatorInterface {
+    /**
+     * Keep per-group statistics for the jackknife confidence interval. It must be called before any schedule is
+     * applied. The i-th applied schedule belongs to group (i mod groupCount).
+     * @param groupCount the number of jackknife groups (at least 2)
+     */
+    public void setJackknifeGroupCount(int groupCount);
+
+    /**
+     * @return the entropy of the schedules applied so far
+     */
+    public double getEntropy();
+
+    public int getScheduleCount();
+
+    /**
+     * The Good-Turing sample coverage 1 - f1/N, where f1 is the number of outcomes seen exactly once: an estimate of
+     * the probability that the next schedule gives an outcome that has been seen. A low coverage means the estimate
+     * is still limited by the number of schedules rather than by the schedules' randomness.
+     * @return the sample coverage in [0, 1] (0 if there is no schedule)
+     */
+    public double getSampleCoverage();
+
+    /**
+     * @param confidenceLevel e.g., 0.95
+     * @return the confidence interval of the current estimate (unbounded until every jackknife group has a schedule)
+     */
+    public EntropyConfidenceInterval getConfidenceInterval(double confidenceLevel);
+}
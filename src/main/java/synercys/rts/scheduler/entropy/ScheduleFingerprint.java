@@ -0,0 +1,131 @@
+package synercys.rts.scheduler.entropy;
+
+import synercys.rts.framework.Task;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+
+/**
+ * ScheduleFingerprint.java
+ * Purpose: A 128-bit fingerprint of a schedule within a time window. Two schedules have the same fingerprint if (and,
+ *          but for a negligible collision probability, only if) they have the same raw schedule string
+ *          (EventContainer.toRawScheduleString(begin, end)), i.e., the same task (0 for idle) in every tick. It is
+ *          computed from the interval list in O(#intervals) time by hashing the run-length encoding of the ticks, so
+ *          the per-tick string is never built.
+ */
+public final class ScheduleFingerprint {
+    private static final long MULTIPLIER_HIGH = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER_LOW = 0xC2B2AE3D27D4EB4FL;
+    private static final long SALT_HIGH = 0x165667B19E3779F9L;
+    private static final long SALT_LOW = 0x27D4EB2F165667C5L;
+
+    private final long high;
+    private final long low;
+
+    public ScheduleFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @param schedule       a schedule whose scheduler events are in time order
+     * @param beginTimestamp the beginning of the window
+     * @param length         the length of the window
+     * @return the fingerprint of the schedule in [beginTimestamp, beginTimestamp+length)
+     */
+    public static ScheduleFingerprint of(EventContainer schedule, long beginTimestamp, long length) {
+        Builder builder = new Builder();
+        long endTimestamp = beginTimestamp + length;
+        long currentTimestamp = beginTimestamp;
+        for (SchedulerIntervalEvent event : schedule.getSchedulerEvents()) {
+            if (currentTimestamp >= endTimestamp)
+                break;
+            long begin = Math.max(currentTimestamp, event.getOrgBeginTimestamp());
+            long end = Math.min(endTimestamp, event.getOrgEndTimestamp());
+            if (end <= begin)
+                continue;
+            builder.appendRun(0, begin - currentTimestamp);
+            builder.appendRun(getTaskId(event.getTask()), end - begin);
+            currentTimestamp = end;
+        }
+        builder.appendRun(0, endTimestamp - currentTimestamp);
+        return builder.build();
+    }
+
+    private static int getTaskId(Task task) {
+        return (task == null || task.isIdleTaskType()) ? 0 : task.getId();
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ScheduleFingerprint))
+            return false;
+        ScheduleFingerprint that = (ScheduleFingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /* The finalizer of MurmurHash3 (64-bit). */
+    static long mix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /* Hashes a sequence of runs (task id, run length); adjacent runs of the same task are merged first. */
+    private static class Builder {
+        long high = SALT_HIGH;
+        long low = SALT_LOW;
+        long runCount = 0;
+        int runTaskId = -1;
+        long runLength = 0;
+
+        void appendRun(int taskId, long length) {
+            if (length <= 0)
+                return;
+            if (taskId == runTaskId) {
+                runLength += length;
+                return;
+            }
+            flush();
+            runTaskId = taskId;
+            runLength = length;
+        }
+
+        private void flush() {
+            if (runLength == 0)
+                return;
+            long run = ((long) runTaskId << 40) ^ runLength;
+            high = high*MULTIPLIER_HIGH + mix64(run ^ SALT_HIGH);
+            low = low*MULTIPLIER_LOW + mix64(run ^ SALT_LOW);
+            runCount++;
+            runLength = 0;
+        }
+
+        ScheduleFingerprint build() {
+            flush();
+            return new ScheduleFingerprint(mix64(high ^ runCount), mix64(low + runCount));
+        }
+    }
+}
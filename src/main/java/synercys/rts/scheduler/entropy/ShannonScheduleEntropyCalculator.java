@@ -5,38 +5,99 @@ import synercys.rts.framework.event.EventContainer;
 import java.util.HashMap;
 import java.util.Map;
 
-public class ShannonScheduleEntropyCalculator implements ScheduleEntropyCalculatorInterface {
+public class ShannonScheduleEntropyCalculator implements IncrementalScheduleEntropyCalculatorInterface {
     static public String name = EntropyCalculatorUtility.ENTROPY_SHANNON;
-    Map<String, Integer> scheduleOccurrenceMap = new HashMap<>();
+    /* Each schedule's occurrences: [0] is the total count and [1+g] is the count in jackknife group g. */
+    Map<String, int[]> scheduleOccurrenceMap = new HashMap<>();
     int totalScheduleCount = 0;
+    int singletonScheduleCount = 0;     // the number of distinct schedules seen exactly once
+    double occurrenceXLogXSum = 0;  // sum of c*log2(c) over the schedules' occurrences
+    XLog2XTable xLog2X = new XLog2XTable();
     long beginTimestamp;
     long length;
 
+    int groupCount = 0;
+    int[] groupScheduleCount;
+
     public ShannonScheduleEntropyCalculator(long beginTimestamp, long length) {
         this.beginTimestamp = beginTimestamp;
         this.length = length;
     }
 
+    @Override
+    public void setJackknifeGroupCount(int groupCount) {
+        if (totalScheduleCount > 0)
+            throw new IllegalStateException("Jackknife groups have to be set before any schedule is applied.");
+        if (groupCount < 2)
+            throw new IllegalArgumentException("At least 2 jackknife groups are needed: " + groupCount);
+        this.groupCount = groupCount;
+        groupScheduleCount = new int[groupCount];
+    }
+
     @Override
     public void applyOneSchedule(EventContainer schedule) {
         String rawScheduleString = schedule.toRawScheduleString(beginTimestamp, length+beginTimestamp);
-        if (!scheduleOccurrenceMap.containsKey(rawScheduleString)) {
-            scheduleOccurrenceMap.put(rawScheduleString, 0);
+        int[] occurrences = scheduleOccurrenceMap.get(rawScheduleString);
+        if (occurrences == null) {
+            occurrences = new int[1 + groupCount];
+            scheduleOccurrenceMap.put(rawScheduleString, occurrences);
+        }
+        int thisScheduleOccurrence = occurrences[0]++;
+        occurrenceXLogXSum += xLog2X.get(thisScheduleOccurrence+1) - xLog2X.get(thisScheduleOccurrence);
+        if (thisScheduleOccurrence == 0)
+            singletonScheduleCount++;
+        else if (thisScheduleOccurrence == 1)
+            singletonScheduleCount--;
+        if (groupCount > 0) {
+            occurrences[1 + totalScheduleCount%groupCount]++;
+            groupScheduleCount[totalScheduleCount%groupCount]++;
         }
-        int thisScheduleOccurrence = scheduleOccurrenceMap.get(rawScheduleString);
-        scheduleOccurrenceMap.put(rawScheduleString, thisScheduleOccurrence+1);
         totalScheduleCount++;
     }
 
     @Override
     public double concludeEntropy() {
-        double scheduleEntropy = 0;
-        for (Integer scheduleOccurrence : scheduleOccurrenceMap.values()) {
-            double scheduleOccurrenceProbability = scheduleOccurrence/(double)totalScheduleCount;
-            if (scheduleOccurrenceProbability != 0)
-                scheduleEntropy += (scheduleOccurrenceProbability * log2(scheduleOccurrenceProbability));
+        return getEntropy();
+    }
+
+    @Override
+    public double getEntropy() {
+        return computeEntropy(totalScheduleCount, occurrenceXLogXSum);
+    }
+
+    /* -sum(p*log2(p)) = log2(N) - sum(c*log2(c))/N */
+    protected double computeEntropy(int scheduleCount, double xLogXSum) {
+        if (scheduleCount == 0)
+            return 0;
+        return Math.max(0, log2(scheduleCount) - xLogXSum/scheduleCount);
+    }
+
+    @Override
+    public int getScheduleCount() {
+        return totalScheduleCount;
+    }
+
+    @Override
+    public double getSampleCoverage() {
+        if (totalScheduleCount == 0)
+            return 0;
+        return 1 - singletonScheduleCount/(double)totalScheduleCount;
+    }
+
+    @Override
+    public EntropyConfidenceInterval getConfidenceInterval(double confidenceLevel) {
+        double[] leaveOneGroupOutEstimates = null;
+        if (groupCount > 0 && totalScheduleCount >= groupCount) {
+            double[] xLogXSum = new double[groupCount];
+            for (int[] occurrences : scheduleOccurrenceMap.values())
+                for (int g=0; g<groupCount; g++)
+                    xLogXSum[g] += xLog2X.get(occurrences[0] - occurrences[1+g]);
+
+            leaveOneGroupOutEstimates = new double[groupCount];
+            for (int g=0; g<groupCount; g++)
+                leaveOneGroupOutEstimates[g] = computeEntropy(totalScheduleCount - groupScheduleCount[g], xLogXSum[g]);
         }
-        return -scheduleEntropy;
+        return EntropyConfidenceInterval.fromJackknife(getEntropy(), leaveOneGroupOutEstimates, confidenceLevel, totalScheduleCount);
     }
 
     public static double log2(double x)
@@ -0,0 +1,331 @@
+package synercys.rts.scheduler.entropy;
+
+import synercys.rts.framework.event.EventContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * SketchShannonScheduleEntropyCalculator.java
+ * Purpose: The Shannon schedule entropy (as ShannonScheduleEntropyCalculator) with schedules keyed by their 128-bit
+ *          fingerprints (ScheduleFingerprint) instead of their raw per-tick strings.
+ *
+ *          In the exact mode every distinct fingerprint is counted. In the bounded-memory mode at most
+ *          heavyHitterCapacity fingerprints are tracked by a Space-Saving summary and the number of distinct schedules
+ *          is estimated by a HyperLogLog sketch; the mass that the summary cannot attribute to its tracked schedules
+ *          (the "unseen" mass) is assumed to be spread evenly over the remaining distinct schedules. The estimate is
+ *          exact until more than heavyHitterCapacity distinct schedules are seen. The jackknife confidence interval is
+ *          only available in the exact mode (it is unbounded in the bounded-memory mode).
+ *
+ *          Calculators of the same window and mode can be merged, so rounds simulated in parallel can be counted by
+ *          separate calculators.
+ */
+public class SketchShannonScheduleEntropyCalculator implements IncrementalScheduleEntropyCalculatorInterface {
+    static public String name = EntropyCalculatorUtility.ENTROPY_SHANNON_FINGERPRINT;
+    public static final int DEFAULT_HEAVY_HITTER_CAPACITY = 1 << 14;
+    static final int DISTINCT_COUNT_PRECISION = 12;
+
+    long beginTimestamp;
+    long length;
+    int totalScheduleCount = 0;
+    XLog2XTable xLog2X = new XLog2XTable();
+
+    /* Exact mode: [0] is the total count and [1+g] is the count in jackknife group g (as ShannonScheduleEntropyCalculator). */
+    Map<ScheduleFingerprint, int[]> scheduleOccurrenceMap;
+    double occurrenceXLogXSum = 0;
+    int singletonScheduleCount = 0;
+    int groupCount = 0;
+    int[] groupScheduleCount;
+
+    /* Bounded-memory mode */
+    final int heavyHitterCapacity;
+    Map<ScheduleFingerprint, HeavyHitter> heavyHitterMap;
+    TreeSet<HeavyHitter> heavyHittersByCount;
+    long heavyHitterSequence = 0;
+    byte[] distinctCountRegisters;
+
+    /**
+     * Exact mode.
+     */
+    public SketchShannonScheduleEntropyCalculator(long beginTimestamp, long length) {
+        this.beginTimestamp = beginTimestamp;
+        this.length = length;
+        heavyHitterCapacity = 0;
+        scheduleOccurrenceMap = new HashMap<>();
+    }
+
+    /**
+     * Bounded-memory mode.
+     * @param heavyHitterCapacity the maximum number of tracked schedules
+     */
+    public SketchShannonScheduleEntropyCalculator(long beginTimestamp, long length, int heavyHitterCapacity) {
+        if (heavyHitterCapacity <= 0)
+            throw new IllegalArgumentException("The heavy hitter capacity must be positive: " + heavyHitterCapacity);
+        this.beginTimestamp = beginTimestamp;
+        this.length = length;
+        this.heavyHitterCapacity = heavyHitterCapacity;
+        heavyHitterMap = new HashMap<>();
+        heavyHittersByCount = new TreeSet<>((a, b) -> (a.count != b.count) ? Long.compare(a.count, b.count) : Long.compare(a.sequence, b.sequence));
+        distinctCountRegisters = new byte[1 << DISTINCT_COUNT_PRECISION];
+    }
+
+    public boolean isBoundedMemory() {
+        return heavyHitterCapacity > 0;
+    }
+
+    @Override
+    public void setJackknifeGroupCount(int groupCount) {
+        if (totalScheduleCount > 0)
+            throw new IllegalStateException("Jackknife groups have to be set before any schedule is applied.");
+        if (groupCount < 2)
+            throw new IllegalArgumentException("At least 2 jackknife groups are needed: " + groupCount);
+        if (isBoundedMemory())
+            return;     // no group statistics in the bounded-memory mode
+        this.groupCount = groupCount;
+        groupScheduleCount = new int[groupCount];
+    }
+
+    @Override
+    public void applyOneSchedule(EventContainer schedule) {
+        applyFingerprint(ScheduleFingerprint.of(schedule, beginTimestamp, length));
+    }
+
+    public void applyFingerprint(ScheduleFingerprint fingerprint) {
+        if (isBoundedMemory()) {
+            addToHeavyHitters(fingerprint, 1, 0);
+            addToDistinctCount(fingerprint);
+        } else {
+            int[] occurrences = scheduleOccurrenceMap.get(fingerprint);
+            if (occurrences == null) {
+                occurrences = new int[1 + groupCount];
+                scheduleOccurrenceMap.put(fingerprint, occurrences);
+            }
+            int thisScheduleOccurrence = occurrences[0]++;
+            occurrenceXLogXSum += xLog2X.get(thisScheduleOccurrence+1) - xLog2X.get(thisScheduleOccurrence);
+            if (thisScheduleOccurrence == 0)
+                singletonScheduleCount++;
+            else if (thisScheduleOccurrence == 1)
+                singletonScheduleCount--;
+            if (groupCount > 0) {
+                occurrences[1 + totalScheduleCount%groupCount]++;
+                groupScheduleCount[totalScheduleCount%groupCount]++;
+            }
+        }
+        totalScheduleCount++;
+    }
+
+    /**
+     * Add the schedules counted by another calculator of the same window and mode. In the exact mode the jackknife
+     * groups are added group by group.
+     * @param other the calculator to be merged into this one (not modified)
+     */
+    public void merge(SketchShannonScheduleEntropyCalculator other) {
+        if (other.beginTimestamp != beginTimestamp || other.length != length)
+            throw new IllegalArgumentException("Only calculators of the same schedule window can be merged.");
+        if (other.heavyHitterCapacity != heavyHitterCapacity || other.groupCount != groupCount)
+            throw new IllegalArgumentException("Only calculators of the same mode can be merged.");
+
+        if (isBoundedMemory()) {
+            mergeHeavyHitters(other);
+            for (int i=0; i<distinctCountRegisters.length; i++)
+                distinctCountRegisters[i] = (byte) Math.max(distinctCountRegisters[i], other.distinctCountRegisters[i]);
+        } else {
+            for (Map.Entry<ScheduleFingerprint, int[]> entry : other.scheduleOccurrenceMap.entrySet()) {
+                int[] occurrences = scheduleOccurrenceMap.get(entry.getKey());
+                if (occurrences == null) {
+                    occurrences = new int[1 + groupCount];
+                    scheduleOccurrenceMap.put(entry.getKey(), occurrences);
+                }
+                occurrenceXLogXSum -= xLog2X.get(occurrences[0]);
+                if (occurrences[0] == 1)
+                    singletonScheduleCount--;
+                for (int i=0; i<occurrences.length; i++)
+                    occurrences[i] += entry.getValue()[i];
+                occurrenceXLogXSum += xLog2X.get(occurrences[0]);
+                if (occurrences[0] == 1)
+                    singletonScheduleCount++;
+            }
+            for (int g=0; g<groupCount; g++)
+                groupScheduleCount[g] += other.groupScheduleCount[g];
+        }
+        totalScheduleCount += other.totalScheduleCount;
+    }
+
+    @Override
+    public double concludeEntropy() {
+        return getEntropy();
+    }
+
+    /**
+     * In the bounded-memory mode this takes O(heavyHitterCapacity) time.
+     */
+    @Override
+    public double getEntropy() {
+        if (!isBoundedMemory())
+            return computeEntropy(totalScheduleCount, occurrenceXLogXSum);
+
+        /* Tracked schedules count with their guaranteed counts; the rest is the unseen mass. */
+        double xLogXSum = 0;
+        long trackedMass = 0;
+        int trackedDistinctCount = 0;
+        for (HeavyHitter heavyHitter : heavyHittersByCount) {
+            long guaranteedCount = heavyHitter.count - heavyHitter.error;
+            if (guaranteedCount <= 0)
+                continue;
+            xLogXSum += guaranteedCount*log2(guaranteedCount);   // not from the table, whose size would grow with the counts
+            trackedMass += guaranteedCount;
+            trackedDistinctCount++;
+        }
+        long unseenMass = totalScheduleCount - trackedMass;
+        if (unseenMass > 0) {
+            double unseenDistinctCount = Math.max(1, getDistinctScheduleCount() - trackedDistinctCount);
+            xLogXSum += unseenMass*(log2(unseenMass) - log2(unseenDistinctCount));
+        }
+        return computeEntropy(totalScheduleCount, xLogXSum);
+    }
+
+    /* -sum(p*log2(p)) = log2(N) - sum(c*log2(c))/N */
+    protected double computeEntropy(int scheduleCount, double xLogXSum) {
+        if (scheduleCount == 0)
+            return 0;
+        return Math.max(0, log2(scheduleCount) - xLogXSum/scheduleCount);
+    }
+
+    @Override
+    public int getScheduleCount() {
+        return totalScheduleCount;
+    }
+
+    /**
+     * @return the number of distinct schedules (an estimate in the bounded-memory mode)
+     */
+    public double getDistinctScheduleCount() {
+        if (!isBoundedMemory())
+            return scheduleOccurrenceMap.size();
+
+        /* HyperLogLog with linear counting for small cardinalities */
+        int registerCount = distinctCountRegisters.length;
+        double inverseSum = 0;
+        int zeroRegisterCount = 0;
+        for (byte register : distinctCountRegisters) {
+            inverseSum += 1.0/(1L << register);
+            if (register == 0)
+                zeroRegisterCount++;
+        }
+        double alpha = 0.7213/(1 + 1.079/registerCount);
+        double estimate = alpha*registerCount*registerCount/inverseSum;
+        if (estimate <= 2.5*registerCount && zeroRegisterCount > 0)
+            estimate = registerCount*Math.log((double) registerCount/zeroRegisterCount);
+        return estimate;
+    }
+
+    /**
+     * The sample coverage is only known in the exact mode (it is 0 in the bounded-memory mode).
+     */
+    @Override
+    public double getSampleCoverage() {
+        if (isBoundedMemory() || totalScheduleCount == 0)
+            return 0;
+        return 1 - singletonScheduleCount/(double)totalScheduleCount;
+    }
+
+    @Override
+    public EntropyConfidenceInterval getConfidenceInterval(double confidenceLevel) {
+        double[] leaveOneGroupOutEstimates = null;
+        if (!isBoundedMemory() && groupCount > 0 && totalScheduleCount >= groupCount) {
+            double[] xLogXSum = new double[groupCount];
+            for (int[] occurrences : scheduleOccurrenceMap.values())
+                for (int g=0; g<groupCount; g++)
+                    xLogXSum[g] += xLog2X.get(occurrences[0] - occurrences[1+g]);
+
+            leaveOneGroupOutEstimates = new double[groupCount];
+            for (int g=0; g<groupCount; g++)
+                leaveOneGroupOutEstimates[g] = computeEntropy(totalScheduleCount - groupScheduleCount[g], xLogXSum[g]);
+        }
+        return EntropyConfidenceInterval.fromJackknife(getEntropy(), leaveOneGroupOutEstimates, confidenceLevel, totalScheduleCount);
+    }
+
+    /* Space-Saving: a new schedule replaces the least counted one and inherits its count as the error. */
+    protected void addToHeavyHitters(ScheduleFingerprint fingerprint, long count, long error) {
+        HeavyHitter heavyHitter = heavyHitterMap.get(fingerprint);
+        if (heavyHitter != null) {
+            heavyHittersByCount.remove(heavyHitter);
+            heavyHitter.count += count;
+            heavyHitter.error += error;
+            heavyHittersByCount.add(heavyHitter);
+            return;
+        }
+
+        if (heavyHitterMap.size() < heavyHitterCapacity) {
+            heavyHitter = new HeavyHitter(fingerprint, count, error, heavyHitterSequence++);
+        } else {
+            HeavyHitter minHeavyHitter = heavyHittersByCount.pollFirst();
+            heavyHitterMap.remove(minHeavyHitter.fingerprint);
+            heavyHitter = new HeavyHitter(fingerprint, minHeavyHitter.count + count, minHeavyHitter.count + error, heavyHitterSequence++);
+        }
+        heavyHitterMap.put(fingerprint, heavyHitter);
+        heavyHittersByCount.add(heavyHitter);
+    }
+
+    /*
+     * Mergeable summaries (Agarwal et al.): a schedule missing from a full summary may have been counted up to its
+     * minimum count, so that minimum is added to both its count and its error; then the largest counts are kept.
+     */
+    protected void mergeHeavyHitters(SketchShannonScheduleEntropyCalculator other) {
+        long thisMinCount = (heavyHitterMap.size() < heavyHitterCapacity) ? 0 : heavyHittersByCount.first().count;
+        long otherMinCount = (other.heavyHitterMap.size() < other.heavyHitterCapacity) ? 0 : other.heavyHittersByCount.first().count;
+
+        HashMap<ScheduleFingerprint, HeavyHitter> mergedMap = new HashMap<>();
+        for (HeavyHitter heavyHitter : heavyHitterMap.values()) {
+            HeavyHitter otherHeavyHitter = other.heavyHitterMap.get(heavyHitter.fingerprint);
+            long count = heavyHitter.count + ((otherHeavyHitter != null) ? otherHeavyHitter.count : otherMinCount);
+            long error = heavyHitter.error + ((otherHeavyHitter != null) ? otherHeavyHitter.error : otherMinCount);
+            mergedMap.put(heavyHitter.fingerprint, new HeavyHitter(heavyHitter.fingerprint, count, error, 0));
+        }
+        for (HeavyHitter otherHeavyHitter : other.heavyHitterMap.values()) {
+            if (mergedMap.containsKey(otherHeavyHitter.fingerprint))
+                continue;
+            mergedMap.put(otherHeavyHitter.fingerprint, new HeavyHitter(otherHeavyHitter.fingerprint,
+                    otherHeavyHitter.count + thisMinCount, otherHeavyHitter.error + thisMinCount, 0));
+        }
+
+        TreeSet<HeavyHitter> mergedByCount = new TreeSet<>(heavyHittersByCount.comparator());
+        for (HeavyHitter heavyHitter : mergedMap.values()) {
+            heavyHitter.sequence = heavyHitterSequence++;
+            mergedByCount.add(heavyHitter);
+        }
+        while (mergedByCount.size() > heavyHitterCapacity)
+            mergedMap.remove(mergedByCount.pollFirst().fingerprint);
+
+        heavyHitterMap = mergedMap;
+        heavyHittersByCount = mergedByCount;
+    }
+
+    protected void addToDistinctCount(ScheduleFingerprint fingerprint) {
+        long hash = fingerprint.getHigh();
+        int index = (int) (hash >>> (64 - DISTINCT_COUNT_PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << DISTINCT_COUNT_PRECISION) | (1L << (DISTINCT_COUNT_PRECISION - 1))) + 1);
+        if (rank > distinctCountRegisters[index])
+            distinctCountRegisters[index] = rank;
+    }
+
+    public static double log2(double x)
+    {
+        return Math.log(x) / Math.log(2);
+    }
+
+    static class HeavyHitter {
+        final ScheduleFingerprint fingerprint;
+        long count;
+        long error;     // the count may be overestimated by up to this value
+        long sequence;  // tie breaker for the order by count
+
+        HeavyHitter(ScheduleFingerprint fingerprint, long count, long error, long sequence) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.error = error;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -6,33 +6,54 @@ import synercys.rts.framework.event.EventContainer;
 import synercys.rts.framework.event.SchedulerIntervalEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-public class UpperApproximateEntropyCalculator implements ScheduleEntropyCalculatorInterface {
+/**
+ * UpperApproximateEntropyCalculator.java
+ * Purpose: The upper-approximate schedule entropy: the sum (or mean) of the entropy of each time slot, where a slot's
+ *          outcome is the app task (or idle) running in the slot.
+ *
+ *          The occurrences are counted in a primitive array (slot, symbol) where the symbols are the app tasks and the
+ *          idle time (the last symbol). The sum of c*log2(c) over all counts is updated as schedules are applied, so
+ *          the entropy length*log2(N) - sum/N is available in O(1) time.
+ *
+ * @author CY Chen (cchen140@illinois.edu)
+ * @version 1.0 - 2020, 6/8
+ */
+public class UpperApproximateEntropyCalculator implements IncrementalScheduleEntropyCalculatorInterface {
     static public String name = EntropyCalculatorUtility.ENTROPY_UPPER_APPROXIMATE;
     TaskSet taskSet;
-    List<Map<Task, Integer>> slotTaskOccurrences = new ArrayList<>();
-    List<Double> slotEntropy = new ArrayList<>();
-    double finalUASEntropy = 0.0;
+    Map<Task, Integer> taskSymbol = new HashMap<>();
+    int symbolCount;
+    int idleSymbol;
+    int[] slotSymbolOccurrences;    // [slot*symbolCount + symbol]
+    int[] roundSlotSymbol;          // the symbol of each slot in the schedule being applied
+    double occurrenceXLogXSum = 0;  // sum of c*log2(c) over all slot symbol occurrences
+    XLog2XTable xLog2X = new XLog2XTable();
     long beginTimestamp;
     long length;
     int totalScheduleCount = 0;
     boolean meanSlotEnabled = false;
 
+    /* Jackknife groups (see IncrementalScheduleEntropyCalculatorInterface) */
+    int groupCount = 0;
+    int[][] groupSlotSymbolOccurrences;
+    int[] groupScheduleCount;
+
     public UpperApproximateEntropyCalculator(TaskSet taskSet, long beginTimestamp, long length) {
         this.taskSet = taskSet;
         this.beginTimestamp = beginTimestamp;
         this.length = length;
-        for (int i=0; i<length; i++) {
-            Map<Task, Integer> thisSlot = new HashMap<>();
-            for (Task task : taskSet.getAppTasksAsArray()) {
-                thisSlot.put(task, 0);
-            }
-            slotTaskOccurrences.add(thisSlot);
-            slotEntropy.add(0.0);
-        }
+
+        ArrayList<Task> appTasks = taskSet.getAppTasksAsArray();
+        for (int i=0; i<appTasks.size(); i++)
+            taskSymbol.put(appTasks.get(i), i);
+        idleSymbol = appTasks.size();
+        symbolCount = appTasks.size() + 1;
+        slotSymbolOccurrences = new int[(int)length*symbolCount];
+        roundSlotSymbol = new int[(int)length];
     }
 
     public UpperApproximateEntropyCalculator(TaskSet taskSet, long beginTimestamp, long length, boolean meanSlotEnabled) {
@@ -40,55 +61,117 @@ public class UpperApproximateEntropyCalculator implements ScheduleEntropyCalcula
         this.meanSlotEnabled = meanSlotEnabled;
     }
 
+    @Override
+    public void setJackknifeGroupCount(int groupCount) {
+        if (totalScheduleCount > 0)
+            throw new IllegalStateException("Jackknife groups have to be set before any schedule is applied.");
+        if (groupCount < 2)
+            throw new IllegalArgumentException("At least 2 jackknife groups are needed: " + groupCount);
+        this.groupCount = groupCount;
+        groupSlotSymbolOccurrences = new int[groupCount][slotSymbolOccurrences.length];
+        groupScheduleCount = new int[groupCount];
+    }
+
     @Override
     public void applyOneSchedule(EventContainer schedule) {
+        Arrays.fill(roundSlotSymbol, idleSymbol);
         for (SchedulerIntervalEvent ei : schedule.getSchedulerEvents()) {
             if (ei.getTask().isIdleTaskType())
                 continue;
 
-            for (long i=ei.getOrgBeginTimestamp()-beginTimestamp; i<(ei.getOrgEndTimestamp()-beginTimestamp); i++) {
-                Map<Task, Integer> thisSlot = slotTaskOccurrences.get((int)i);
-                int occurrence = thisSlot.get(ei.getTask());
-                thisSlot.put(ei.getTask(), occurrence+1);
+            Integer symbol = taskSymbol.get(ei.getTask());
+            if (symbol == null)
+                continue;
+            long begin = Math.max(0, ei.getOrgBeginTimestamp()-beginTimestamp);
+            long end = Math.min(length, ei.getOrgEndTimestamp()-beginTimestamp);
+            for (long i=begin; i<end; i++) {
+                roundSlotSymbol[(int)i] = symbol;
             }
         }
+
+        int[] groupOccurrences = (groupCount > 0) ? groupSlotSymbolOccurrences[totalScheduleCount%groupCount] : null;
+        for (int i=0; i<length; i++) {
+            int index = i*symbolCount + roundSlotSymbol[i];
+            int occurrence = slotSymbolOccurrences[index]++;
+            occurrenceXLogXSum += xLog2X.get(occurrence+1) - xLog2X.get(occurrence);
+            if (groupOccurrences != null)
+                groupOccurrences[index]++;
+        }
+        if (groupCount > 0)
+            groupScheduleCount[totalScheduleCount%groupCount]++;
         totalScheduleCount++;
     }
 
     @Override
     public double concludeEntropy() {
-        finalUASEntropy = 0;
-        for (int i=0; i<length; i++) {
-            double thisSlotEntropy = computeSlotEntropy(slotTaskOccurrences.get(i), totalScheduleCount);
-            slotEntropy.set(i, thisSlotEntropy);
-            finalUASEntropy += thisSlotEntropy;
-        }
+        return getEntropy();
+    }
 
-        if (meanSlotEnabled) {
-            finalUASEntropy /= length;
-        }
+    @Override
+    public double getEntropy() {
+        return computeEntropy(totalScheduleCount, occurrenceXLogXSum);
+    }
+
+    /* The entropy of N schedules given the sum of c*log2(c): sum over slots of log2(N) - sum_k(c_k*log2(c_k))/N. */
+    protected double computeEntropy(int scheduleCount, double xLogXSum) {
+        if (scheduleCount == 0)
+            return 0;
+        double entropy = length*log2(scheduleCount) - xLogXSum/scheduleCount;
+        entropy = Math.max(0, entropy);     // guards against rounding
+        return meanSlotEnabled ? entropy/length : entropy;
+    }
 
-        return finalUASEntropy;
+    @Override
+    public int getScheduleCount() {
+        return totalScheduleCount;
     }
 
-    protected double computeSlotEntropy(Map<Task, Integer> taskOccurrenceMap, int totalOccurrence) {
-        double slotEntropy = 0.0;
-        int accumulativeOccurrence = 0;
-        /* Compute entropy for each task in this slot */
-        for (Task task : taskSet.getAppTasksAsArray()) {
-            int taskOccurrence = taskOccurrenceMap.get(task);
-            accumulativeOccurrence += taskOccurrence;
-            double taskOccurrenceProbability = taskOccurrence/(double)totalOccurrence;
-            if (taskOccurrenceProbability != 0)
-                slotEntropy += (taskOccurrenceProbability * log2(taskOccurrenceProbability));
+    /**
+     * The outcomes are the slot symbols, so this is the lowest coverage among the slots.
+     */
+    @Override
+    public double getSampleCoverage() {
+        if (totalScheduleCount == 0)
+            return 0;
+        int maxSlotSingletonCount = 0;
+        for (int i=0; i<length; i++) {
+            int slotSingletonCount = 0;
+            for (int k=0; k<symbolCount; k++) {
+                if (slotSymbolOccurrences[i*symbolCount + k] == 1)
+                    slotSingletonCount++;
+            }
+            maxSlotSingletonCount = Math.max(maxSlotSingletonCount, slotSingletonCount);
         }
+        return 1 - maxSlotSingletonCount/(double)totalScheduleCount;
+    }
+
+    @Override
+    public EntropyConfidenceInterval getConfidenceInterval(double confidenceLevel) {
+        double[] leaveOneGroupOutEstimates = null;
+        if (groupCount > 0 && totalScheduleCount >= groupCount) {
+            leaveOneGroupOutEstimates = new double[groupCount];
+            for (int g=0; g<groupCount; g++) {
+                int[] groupOccurrences = groupSlotSymbolOccurrences[g];
+                double xLogXSum = 0;
+                for (int i=0; i<slotSymbolOccurrences.length; i++)
+                    xLogXSum += xLog2X.get(slotSymbolOccurrences[i] - groupOccurrences[i]);
+                leaveOneGroupOutEstimates[g] = computeEntropy(totalScheduleCount - groupScheduleCount[g], xLogXSum);
+            }
+        }
+        return EntropyConfidenceInterval.fromJackknife(getEntropy(), leaveOneGroupOutEstimates, confidenceLevel, totalScheduleCount);
+    }
 
-        /* Now let's compute the idle time entropy */
-        int idleTimeOccurrence = totalOccurrence - accumulativeOccurrence;
-        double idleOccurrenceProbability = idleTimeOccurrence/(double)totalOccurrence;
-        if (idleOccurrenceProbability != 0)
-            slotEntropy += idleOccurrenceProbability * log2(idleOccurrenceProbability);
-        return -slotEntropy;
+    /**
+     * @param slot slot index (from beginTimestamp)
+     * @return the entropy of the given slot
+     */
+    public double getSlotEntropy(int slot) {
+        if (totalScheduleCount == 0)
+            return 0;
+        double xLogXSum = 0;
+        for (int k=0; k<symbolCount; k++)
+            xLogXSum += xLog2X.get(slotSymbolOccurrences[slot*symbolCount + k]);
+        return Math.max(0, log2(totalScheduleCount) - xLogXSum/totalScheduleCount);
     }
 
     public static double log2(double x)
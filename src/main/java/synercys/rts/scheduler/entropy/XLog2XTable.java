@@ -0,0 +1,28 @@
+package synercys.rts.scheduler.entropy;
+
+import java.util.Arrays;
+
+/**
+ * XLog2XTable.java
+ * Purpose: A growable table of c*log2(c) for non-negative integer counts c. The entropy of N outcomes with counts c_k
+ *          is log2(N) - sum(c_k*log2(c_k))/N, so the incremental entropy calculators only update the sum with two table
+ *          lookups when a count grows by one.
+ */
+class XLog2XTable {
+    private double[] table = new double[0];
+    private int size = 0;
+
+    double get(int c) {
+        if (c >= size)
+            grow(c + 1);
+        return table[c];
+    }
+
+    private void grow(int minSize) {
+        int newSize = Math.max(minSize, Math.max(1024, size*2));
+        table = Arrays.copyOf(table, newSize);
+        for (int c=Math.max(size, 1); c<newSize; c++)
+            table[c] = c*(Math.log(c)/Math.log(2));
+        size = newSize;
+    }
+}
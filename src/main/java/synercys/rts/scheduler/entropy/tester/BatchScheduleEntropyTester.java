@@ -0,0 +1,405 @@
+package synercys.rts.scheduler.entropy.tester;
+
+import cy.utility.file.FileHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import synercys.rts.analysis.MassTester;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.scheduler.SchedulerUtil;
+import synercys.rts.scheduler.TaskSetContainer;
+import synercys.rts.scheduler.entropy.EntropyCalculatorUtility;
+import synercys.rts.scheduler.entropy.EntropyConfidenceInterval;
+import synercys.rts.util.JsonLogExporter;
+import synercys.rts.util.JsonLogLoader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchScheduleEntropyTester.java
+ * Purpose: Run a manifest of schedule entropy experiments with a content-addressed result cache.
+ *
+ *          A manifest (JSON) lists entries of (task set file, policy, test case, duration, rounds, seed, ...); each
+ *          entry expands to one work unit per task set in the file (or in the .tasksets files of a folder):
+ *              {
+ *                  "defaults": {"entropy": "Shannon", "rounds": 1000, "seed": 1},
+ *                  "units": [
+ *                      {"taskSets": "experiments/tasksets/hp20.tasksets", "policy": "EDF", "testCase": "FULL_HP"},
+ *                      {"taskSets": "experiments/tasksets/hp20.tasksets", "policy": "TaskShuffler", "duration": 1000}
+ *                  ]
+ *              }
+ *          A unit's key is the SHA-256 of its inputs: the task set content (task parameters and time models, not its
+ *          ID, name or file) and the settings. Units with the same key are computed once, and every result is stored
+ *          in the cache folder as <key>.json so that a re-run only computes the units whose inputs have changed.
+ *          Independent units run in parallel, each with its own seeded scheduler, so a result does not depend on the
+ *          thread count or on whether it came from the cache.
+ */
+public class BatchScheduleEntropyTester {
+    private static final Logger loggerConsole = LogManager.getLogger("console");
+
+    /* Change this when the computation of a unit changes so that the old cached results are not used. */
+    public static final String CACHE_FORMAT_VERSION = "1";
+
+    public static final String MANIFEST_DEFAULTS = "defaults";
+    public static final String MANIFEST_UNITS = "units";
+    public static final String UNIT_TASKSETS = "taskSets";
+    public static final String UNIT_POLICY = "policy";
+    public static final String UNIT_TEST_CASE = "testCase";
+    public static final String UNIT_DURATION = "duration";
+    public static final String UNIT_ROUNDS = "rounds";
+    public static final String UNIT_SEED = "seed";
+    public static final String UNIT_ENTROPY = "entropy";
+    public static final String UNIT_EXECUTION_VARIATION = "executionVariation";
+    public static final String UNIT_CI = "ci";
+
+    protected File cacheFolder;
+    protected int threadCount = Runtime.getRuntime().availableProcessors();
+
+    public BatchScheduleEntropyTester(String cacheFolderPath) {
+        cacheFolder = new File(cacheFolderPath);
+    }
+
+    /**
+     * Load the work units of a manifest file.
+     * @param manifestFilePath the manifest (see the class description)
+     * @return the work units in the manifest order
+     */
+    public static ArrayList<WorkUnit> loadManifest(String manifestFilePath) throws IOException {
+        String manifestString = new String(Files.readAllBytes(new File(manifestFilePath).toPath()), StandardCharsets.UTF_8);
+        return loadManifest(new JSONObject(manifestString));
+    }
+
+    public static ArrayList<WorkUnit> loadManifest(JSONObject jsonManifest) {
+        JSONObject jsonDefaults = jsonManifest.optJSONObject(MANIFEST_DEFAULTS);
+        if (jsonDefaults == null)
+            jsonDefaults = new JSONObject();
+        JSONArray jsonUnits = jsonManifest.optJSONArray(MANIFEST_UNITS);
+        if (jsonUnits == null)
+            throw new IllegalArgumentException("The manifest has no \"" + MANIFEST_UNITS + "\" array.");
+
+        ArrayList<WorkUnit> units = new ArrayList<>();
+        for (int i=0; i<jsonUnits.length(); i++) {
+            JSONObject jsonUnit = new JSONObject(jsonDefaults.toString());
+            JSONObject jsonEntry = jsonUnits.getJSONObject(i);
+            for (String key : jsonEntry.keySet())
+                jsonUnit.put(key, jsonEntry.get(key));
+
+            String taskSetPath = jsonUnit.optString(UNIT_TASKSETS, "");
+            if (taskSetPath.isEmpty())
+                throw new IllegalArgumentException("Unit #" + i + " has no \"" + UNIT_TASKSETS + "\".");
+
+            /* Each entry loads its own copy of the task sets since running a unit modifies its task set. */
+            for (TaskSet taskSet : loadTaskSets(taskSetPath).getTaskSets()) {
+                units.add(new WorkUnit(taskSet, taskSetPath,
+                        jsonUnit.optString(UNIT_POLICY, ""),
+                        jsonUnit.optString(UNIT_TEST_CASE, ""),
+                        jsonUnit.optLong(UNIT_DURATION, 0),
+                        jsonUnit.optInt(UNIT_ROUNDS, 1),
+                        jsonUnit.optLong(UNIT_SEED, 0),
+                        jsonUnit.optString(UNIT_ENTROPY, ""),
+                        jsonUnit.optBoolean(UNIT_EXECUTION_VARIATION, false),
+                        jsonUnit.optDouble(UNIT_CI, 0)));
+            }
+        }
+        return units;
+    }
+
+    protected static TaskSetContainer loadTaskSets(String taskSetPath) {
+        if (!new File(taskSetPath).exists())
+            throw new IllegalArgumentException("The task set file does not exist: " + taskSetPath);
+        return JsonLogLoader.loadTaskSetsFromPathList(Collections.singletonList(taskSetPath));
+    }
+
+    /**
+     * Compute (or take from the cache) the result of every unit.
+     * @param units the work units
+     * @return the results in the order of the units (the units with the same key share a result)
+     */
+    public ArrayList<WorkUnitResult> run(List<WorkUnit> units) {
+        if (!cacheFolder.isDirectory() && !cacheFolder.mkdirs())
+            throw new IllegalStateException("Failed to create the cache folder: " + cacheFolder.getPath());
+
+        /* Dedupe the units by their keys. */
+        LinkedHashMap<String, WorkUnit> uniqueUnits = new LinkedHashMap<>();
+        for (WorkUnit unit : units)
+            uniqueUnits.putIfAbsent(unit.getKey(), unit);
+        loggerConsole.info("{} work units ({} unique).", units.size(), uniqueUnits.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, uniqueUnits.size())));
+        HashMap<String, Future<WorkUnitResult>> futures = new HashMap<>();
+        try {
+            for (WorkUnit unit : uniqueUnits.values())
+                futures.put(unit.getKey(), executor.submit(() -> runUnit(unit)));
+
+            HashMap<String, WorkUnitResult> resultsByKey = new HashMap<>();
+            for (Map.Entry<String, Future<WorkUnitResult>> entry : futures.entrySet())
+                resultsByKey.put(entry.getKey(), entry.getValue().get());
+
+            ArrayList<WorkUnitResult> results = new ArrayList<>();
+            for (WorkUnit unit : units)
+                results.add(resultsByKey.get(unit.getKey()).forUnit(unit));
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The batch run was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A work unit failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected WorkUnitResult runUnit(WorkUnit unit) throws IOException {
+        File cacheFile = new File(cacheFolder, unit.getKey() + ".json");
+        if (cacheFile.isFile()) {
+            WorkUnitResult cachedResult = WorkUnitResult.fromJson(unit, new JSONObject(new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8)));
+            if (cachedResult != null) {
+                loggerConsole.info("[{}] cached: TaskSet #{} {} {} entropy = {}", unit.getShortKey(), unit.taskSet.getId(), unit.schedulingPolicy, unit.testCase, cachedResult.entropy);
+                return cachedResult;
+            }
+        }
+
+        long testDuration = MassScheduleEntropyTester.getTestCaseSimDuration(unit.testCase, unit.taskSet, unit.duration);
+        ScheduleEntropyTester entropyTester = new ScheduleEntropyTester(unit.taskSet, unit.schedulingPolicy, unit.entropyAlgorithm, unit.executionVariation);
+        entropyTester.setRandomSeed(unit.seed);
+        entropyTester.setThreadCount(1);    // the units are already run in parallel
+
+        WorkUnitResult result;
+        if (unit.targetConfidenceIntervalWidth > 0) {
+            EntropyConfidenceInterval confidenceInterval = entropyTester.runAdaptive(testDuration, unit.rounds, unit.targetConfidenceIntervalWidth);
+            if (confidenceInterval == null)
+                throw new IllegalArgumentException("The entropy algorithm " + unit.entropyAlgorithm + " does not support the adaptive mode.");
+            result = new WorkUnitResult(unit, testDuration, confidenceInterval.getEstimate(), confidenceInterval.getScheduleCount(),
+                    confidenceInterval.getLower(), confidenceInterval.getUpper(), false);
+        } else {
+            double entropy = entropyTester.run(testDuration, unit.rounds);
+            if (entropy == -1)
+                throw new IllegalArgumentException("Unknown entropy calculator: " + unit.entropyAlgorithm);
+            result = new WorkUnitResult(unit, testDuration, entropy, unit.rounds, Double.NaN, Double.NaN, false);
+        }
+        loggerConsole.info("[{}] done: TaskSet #{} {} {} entropy = {}", unit.getShortKey(), unit.taskSet.getId(), unit.schedulingPolicy, unit.testCase, result.entropy);
+
+        /* Write to a temporary file first so that an interrupted run never leaves a partial result in the cache. */
+        Path temporaryFile = Files.createTempFile(cacheFolder.toPath(), unit.getShortKey(), ".tmp");
+        Files.write(temporaryFile, result.toJson().toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return result;
+    }
+
+    public void exportResultsToCsv(String filePath, List<WorkUnitResult> results) throws IOException {
+        FileHandler csvFile = new FileHandler();
+        BufferedWriter csvWriter = csvFile.openToWriteFile(filePath);
+        csvFile.writeString("Unit,Task Set File,Raw Task Set ID,Scheduling Algorithm,Test Case,Entropy Algorithm,Seed,"
+                + "Test Length,Rounds,Entropy,CI Lower,CI Upper,Cached,Key\n");
+        int unitCount = 0;
+        for (WorkUnitResult result : results) {
+            WorkUnit unit = result.unit;
+            unitCount++;
+            csvFile.writeString(unitCount + ",");
+            csvFile.writeString(unit.taskSetPath + ",");
+            csvFile.writeString(unit.taskSet.getId() + ",");
+            csvFile.writeString(unit.schedulingPolicy + ",");
+            csvFile.writeString(unit.testCase + ",");
+            csvFile.writeString(unit.entropyAlgorithm + ",");
+            csvFile.writeString(unit.seed + ",");
+            csvFile.writeString(result.testDuration + ",");
+            csvFile.writeString(result.rounds + ",");
+            csvFile.writeString(result.entropy + ",");
+            csvFile.writeString((Double.isNaN(result.lower) ? "" : result.lower) + ",");
+            csvFile.writeString((Double.isNaN(result.upper) ? "" : result.upper) + ",");
+            csvFile.writeString(result.cached + ",");
+            csvFile.writeString(unit.getKey() + "\n");
+        }
+        csvWriter.close();
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("The thread count must be positive: " + threadCount);
+        this.threadCount = threadCount;
+    }
+
+    public static class WorkUnit {
+        protected final TaskSet taskSet;
+        protected final String taskSetPath;
+        protected final String schedulingPolicy;
+        protected final String testCase;
+        protected final long duration;
+        protected final int rounds;
+        protected final long seed;
+        protected final String entropyAlgorithm;
+        protected final boolean executionVariation;
+        protected final double targetConfidenceIntervalWidth;
+        protected final String key;
+
+        public WorkUnit(TaskSet taskSet, String taskSetPath, String schedulingPolicy, String testCase, long duration,
+                        int rounds, long seed, String entropyAlgorithm, boolean executionVariation, double targetConfidenceIntervalWidth) {
+            if (!containsIgnoreCase(SchedulerUtil.getSchedulerNames(), schedulingPolicy))
+                throw new IllegalArgumentException("Unknown scheduling policy: \"" + schedulingPolicy + "\"");
+            if (!containsIgnoreCase(EntropyCalculatorUtility.getEntropyNames(), entropyAlgorithm))
+                throw new IllegalArgumentException("Unknown entropy algorithm: \"" + entropyAlgorithm + "\"");
+            if (!testCase.isEmpty() && !containsIgnoreCase(MassTester.getTestCaseNames(MassScheduleEntropyTester.class), testCase))
+                throw new IllegalArgumentException("Unknown test case: \"" + testCase + "\"");
+            if (rounds < 1)
+                throw new IllegalArgumentException("The number of rounds must be positive: " + rounds);
+            if (targetConfidenceIntervalWidth > 0 && entropyAlgorithm.equalsIgnoreCase(EntropyCalculatorUtility.ENTROPY_SHANNON_SKETCH))
+                throw new IllegalArgumentException("The entropy algorithm " + entropyAlgorithm + " has no confidence interval for \"" + UNIT_CI + "\".");
+
+            this.taskSet = taskSet;
+            this.taskSetPath = taskSetPath;
+            this.schedulingPolicy = schedulingPolicy;
+            this.testCase = testCase;
+            this.duration = duration;
+            this.rounds = rounds;
+            this.seed = seed;
+            this.entropyAlgorithm = entropyAlgorithm;
+            this.executionVariation = executionVariation;
+            this.targetConfidenceIntervalWidth = targetConfidenceIntervalWidth;
+            key = computeKey();     // before the task set is modified by a run
+        }
+
+        protected String computeKey() {
+            StringBuilder canonicalInput = new StringBuilder();
+            canonicalInput.append("version=").append(CACHE_FORMAT_VERSION).append('\n');
+            canonicalInput.append("policy=").append(schedulingPolicy.toLowerCase()).append('\n');
+            canonicalInput.append("testCase=").append(testCase.toLowerCase()).append('\n');
+            canonicalInput.append("duration=").append(duration).append('\n');
+            canonicalInput.append("rounds=").append(rounds).append('\n');
+            canonicalInput.append("seed=").append(seed).append('\n');
+            canonicalInput.append("entropy=").append(entropyAlgorithm.toLowerCase()).append('\n');
+            canonicalInput.append("executionVariation=").append(executionVariation).append('\n');
+            canonicalInput.append("ci=").append(targetConfidenceIntervalWidth).append('\n');
+            for (Task task : taskSet.getTasksAsArray()) {     // sorted by ID
+                canonicalInput.append("task=").append(task.getId())
+                        .append(',').append(task.getTaskType())
+                        .append(',').append(task.isSporadicTask())
+                        .append(',').append(task.getPeriod())
+                        .append(',').append(task.getDeadline())
+                        .append(',').append(task.getWcet())
+                        .append(',').append(task.getPriority())
+                        .append(',').append(task.getInitialOffset());
+                if (task.getExecutionTimeDistribution() != null)
+                    canonicalInput.append(",exec=").append(JsonLogExporter.getJsonTimeDistribution(task.getExecutionTimeDistribution()).toString());
+                if (task.getInterArrivalTimeDistribution() != null)
+                    canonicalInput.append(",arrival=").append(JsonLogExporter.getJsonTimeDistribution(task.getInterArrivalTimeDistribution()).toString());
+                canonicalInput.append('\n');
+            }
+
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalInput.toString().getBytes(StandardCharsets.UTF_8));
+                StringBuilder hexString = new StringBuilder();
+                for (byte b : digest)
+                    hexString.append(String.format("%02x", b));
+                return hexString.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new AssertionError("SHA-256 is not supported.", e);
+            }
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getShortKey() {
+            return key.substring(0, 12);
+        }
+
+        public TaskSet getTaskSet() {
+            return taskSet;
+        }
+
+        private static boolean containsIgnoreCase(List<String> names, String name) {
+            for (String thisName : names) {
+                if (thisName.equalsIgnoreCase(name))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    public static class WorkUnitResult {
+        protected final WorkUnit unit;
+        protected final long testDuration;
+        protected final double entropy;
+        protected final int rounds;     // the rounds run (fewer than the unit's rounds if the adaptive mode stopped early)
+        protected final double lower;   // NaN if the unit is not in the adaptive mode
+        protected final double upper;
+        protected final boolean cached;
+
+        WorkUnitResult(WorkUnit unit, long testDuration, double entropy, int rounds, double lower, double upper, boolean cached) {
+            this.unit = unit;
+            this.testDuration = testDuration;
+            this.entropy = entropy;
+            this.rounds = rounds;
+            this.lower = lower;
+            this.upper = upper;
+            this.cached = cached;
+        }
+
+        /* The same result for another unit with the same key (e.g., the same task set in another file). */
+        WorkUnitResult forUnit(WorkUnit otherUnit) {
+            if (otherUnit == unit)
+                return this;
+            return new WorkUnitResult(otherUnit, testDuration, entropy, rounds, lower, upper, cached);
+        }
+
+        JSONObject toJson() {
+            JSONObject jsonResult = new JSONObject();
+            jsonResult.put("key", unit.getKey());
+            jsonResult.put("policy", unit.schedulingPolicy);
+            jsonResult.put("testCase", unit.testCase);
+            jsonResult.put("entropyAlgorithm", unit.entropyAlgorithm);
+            jsonResult.put("testDuration", testDuration);
+            jsonResult.put("entropy", entropy);
+            jsonResult.put("rounds", rounds);
+            if (!Double.isNaN(lower)) {
+                jsonResult.put("ciLower", lower);
+                jsonResult.put("ciUpper", upper);
+            }
+            return jsonResult;
+        }
+
+        /* Returns null if the cached result does not belong to the unit (e.g., a damaged cache file). */
+        static WorkUnitResult fromJson(WorkUnit unit, JSONObject jsonResult) {
+            if (!unit.getKey().equals(jsonResult.optString("key")))
+                return null;
+            return new WorkUnitResult(unit, jsonResult.getLong("testDuration"), jsonResult.getDouble("entropy"), jsonResult.getInt("rounds"),
+                    jsonResult.optDouble("ciLower", Double.NaN), jsonResult.optDouble("ciUpper", Double.NaN), true);
+        }
+
+        public WorkUnit getUnit() {
+            return unit;
+        }
+
+        public long getTestDuration() {
+            return testDuration;
+        }
+
+        public double getEntropy() {
+            return entropy;
+        }
+
+        public int getRounds() {
+            return rounds;
+        }
+
+        public boolean isCached() {
+            return cached;
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package synercys.rts.scheduler.entropy.tester;
 
-import cy.utility.Umath;
 import cy.utility.file.FileHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import synercys.rts.analysis.MassTester;
+import synercys.rts.framework.PeriodStructure;
 import synercys.rts.framework.TaskSet;
 import synercys.rts.scheduler.TaskSetContainer;
+import synercys.rts.scheduler.entropy.EntropyConfidenceInterval;
 import static synercys.rts.scheduler.TaskSetGenerator.computeDefaultObserverAndVictimTaskPriorities;
 
 
@@ -26,6 +27,8 @@ public class MassScheduleEntropyTester extends MassTester {
     String entropyAlgorithm = "";
     int testRounds = 0;
     String testCase = "";
+    double targetConfidenceIntervalWidth = 0;   // > 0 enables the adaptive mode (testRounds is the maximum)
+    int threadCount = Runtime.getRuntime().availableProcessors();
 
 
     public MassScheduleEntropyTester(String logFilePath, TaskSetContainer taskSetContainer) {
@@ -48,6 +51,9 @@ public class MassScheduleEntropyTester extends MassTester {
         if (testCase.equalsIgnoreCase(TEST_CASES_DURATION)) {
             fileTestConfig.writeString("Sim Duration = " + runDuration + "\n");
         }
+        if (targetConfidenceIntervalWidth > 0) {
+            fileTestConfig.writeString("Target CI Width = " + targetConfidenceIntervalWidth + "\n");
+        }
 
         FileHandler fileTestLog = openLogFileToWrite(testCase, "csv");
 
@@ -60,6 +66,7 @@ public class MassScheduleEntropyTester extends MassTester {
                         + "Hyper Period,"
                         + "Test Length,"
                         + "Entropy"
+                        + ((targetConfidenceIntervalWidth > 0) ? ",Rounds,CI Lower,CI Upper,CI Width" : "")
         );
         fileTestLog.writeString("\n");
 
@@ -81,6 +88,22 @@ public class MassScheduleEntropyTester extends MassTester {
             fileTestLog.writeString(testDuration + ",");
 
             ScheduleEntropyTester entropyTester = new ScheduleEntropyTester(taskSet, schedulingPolicy, entropyAlgorithm, true);
+            if (targetConfidenceIntervalWidth > 0) {
+                entropyTester.setThreadCount(threadCount);
+                EntropyConfidenceInterval confidenceInterval = entropyTester.runAdaptive(testDuration, testRounds, targetConfidenceIntervalWidth);
+                if (confidenceInterval == null) {
+                    loggerConsole.error("The entropy algorithm {} does not support the adaptive mode.", entropyAlgorithm);
+                    return false;
+                }
+                fileTestLog.writeString(confidenceInterval.getEstimate() + ",");
+                fileTestLog.writeString(confidenceInterval.getScheduleCount() + ",");
+                fileTestLog.writeString(confidenceInterval.getLower() + ",");
+                fileTestLog.writeString(confidenceInterval.getUpper() + ",");
+                fileTestLog.writeString(confidenceInterval.getWidth() + "\n");
+                loggerConsole.info("\tDone: Entropy = {}", confidenceInterval);
+                continue;
+            }
+
             double finalEntropy = entropyTester.run(testDuration, testRounds);
 
             fileTestLog.writeString(finalEntropy + "\n");
@@ -92,18 +115,31 @@ public class MassScheduleEntropyTester extends MassTester {
     }
 
     protected long getTestCaseSimDuration(TaskSet taskSet) {
+        return getTestCaseSimDuration(testCase, taskSet, runDuration);
+    }
+
+    /**
+     * The simulation duration of each round of a test case. Note that the LCM test case assigns RM priorities to the
+     * given task set.
+     * @param testCase    one of the TEST_CASES_ values (the given duration is used for any other value)
+     * @param taskSet     the task set to be tested
+     * @param runDuration the duration for the DURATION test case
+     * @return the duration of each schedule
+     */
+    public static long getTestCaseSimDuration(String testCase, TaskSet taskSet, long runDuration) {
+        /* The hyper-period is capped at Long.MAX_VALUE instead of overflowing. */
         if (testCase.equalsIgnoreCase(TEST_CASES_FULL_HP) || testCase.equalsIgnoreCase(TEST_CASES_PARTIAL_HP_100)) {
-            return taskSet.calHyperPeriod();
+            return new PeriodStructure(taskSet).getHyperPeriod();
         } else if (testCase.equalsIgnoreCase(TEST_CASES_PARTIAL_HP_025)) {
-            return (long)(taskSet.calHyperPeriod()*0.25);
+            return new PeriodStructure(taskSet).getScaledHyperPeriod(0.25);
         }  else if (testCase.equalsIgnoreCase(TEST_CASES_PARTIAL_HP_050)) {
-            return (long)(taskSet.calHyperPeriod()*0.5);
+            return new PeriodStructure(taskSet).getScaledHyperPeriod(0.5);
         }  else if (testCase.equalsIgnoreCase(TEST_CASES_PARTIAL_HP_075)) {
-            return (long)(taskSet.calHyperPeriod()*0.75);
+            return new PeriodStructure(taskSet).getScaledHyperPeriod(0.75);
         }  else if (testCase.equalsIgnoreCase(TEST_CASES_PARTIAL_HP_200)) {
-            return (long)(taskSet.calHyperPeriod()*2.0);
+            return new PeriodStructure(taskSet).getScaledHyperPeriod(2.0);
         }  else if (testCase.equalsIgnoreCase(TEST_CASES_PARTIAL_HP_300)) {
-            return (long)(taskSet.calHyperPeriod()*3.0);
+            return new PeriodStructure(taskSet).getScaledHyperPeriod(3.0);
         } else if (testCase.equalsIgnoreCase(TEST_CASES_LCM)) {
             return computeScheduLeakAttackDuration(taskSet);
         } else if (testCase.equalsIgnoreCase(TEST_CASES_DURATION)) {
@@ -113,12 +149,15 @@ public class MassScheduleEntropyTester extends MassTester {
         }
     }
 
-    protected long computeScheduLeakAttackDuration(TaskSet taskSet) {
+    protected static long computeScheduLeakAttackDuration(TaskSet taskSet) {
         taskSet.assignPriorityRm();
         int observerVictimTaskPriorities[] = computeDefaultObserverAndVictimTaskPriorities(taskSet.getRunnableTasksAsArray().size());
         long po = taskSet.getOneTaskByPriority(observerVictimTaskPriorities[0]).getPeriod();
         long pv = taskSet.getOneTaskByPriority(observerVictimTaskPriorities[1]).getPeriod();
-        return 10*Umath.lcm(po, pv);
+        PeriodStructure periodStructure = new PeriodStructure();
+        periodStructure.addPeriod(po);
+        periodStructure.addPeriod(pv);
+        return periodStructure.getScaledHyperPeriod(10);
     }
 
     public void setEntropyAlgorithm(String entropyAlgorithm) {
@@ -128,4 +167,12 @@ public class MassScheduleEntropyTester extends MassTester {
     public void setTestRounds(int testRounds) {
         this.testRounds = testRounds;
     }
+
+    public void setTargetConfidenceIntervalWidth(double targetConfidenceIntervalWidth) {
+        this.targetConfidenceIntervalWidth = targetConfidenceIntervalWidth;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
 }
\ No newline at end of file
@@ -4,10 +4,22 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
 import synercys.rts.scheduler.AdvanceableSchedulerInterface;
+import synercys.rts.scheduler.AdvanceableSchedulerSimulator;
 import synercys.rts.scheduler.SchedulerUtil;
+import synercys.rts.scheduler.entropy.EntropyConfidenceInterval;
+import synercys.rts.scheduler.entropy.IncrementalScheduleEntropyCalculatorInterface;
 import synercys.rts.scheduler.entropy.ScheduleEntropyCalculatorInterface;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static java.lang.Math.abs;
 import static synercys.rts.scheduler.entropy.EntropyCalculatorUtility.getEntropyCalculator;
 
@@ -19,6 +31,15 @@ public class ScheduleEntropyTester {
     String entropyAlgorithm;
     boolean executionVariation;
     ScheduleEntropyCalculatorInterface entropyCalculator;
+    Random seedGenerator = new Random();
+
+    /* Adaptive mode */
+    public static final int JACKKNIFE_GROUP_COUNT = 20;
+    public static final int ROUNDS_PER_BATCH = 100;
+    public static final double MIN_SAMPLE_COVERAGE = 0.9;
+    int threadCount = Runtime.getRuntime().availableProcessors();
+    double confidenceLevel = EntropyConfidenceInterval.DEFAULT_CONFIDENCE_LEVEL;
+    EntropyConfidenceInterval confidenceInterval = null;
 
     public ScheduleEntropyTester(TaskSet taskSet, String schedulingPolicy, String entropyAlgorithm, boolean executionVariation) {
         this.taskSet = taskSet;
@@ -34,10 +55,12 @@ public class ScheduleEntropyTester {
         loggerConsole.info("Setting all task phases to zero.");
         setAllTaskPhaseZero();
 
+        /* One scheduler instance is reused (and reset) for all rounds so that its offline analysis is done once. */
+        scheduler = SchedulerUtil.getScheduler(schedulingPolicy, taskSet, executionVariation);
         if (isAllTaskPhaseZero()) {
             simOffset = 0;
         } else {
-            simOffset = SchedulerUtil.getScheduler(schedulingPolicy, taskSet, executionVariation).getSimDefaultOffset();
+            simOffset = scheduler.getSimDefaultOffset();
         }
 
         entropyCalculator = getEntropyCalculator(entropyAlgorithm, taskSet, simOffset, simDuration);
@@ -48,7 +71,7 @@ public class ScheduleEntropyTester {
         double currentEntropy = 0;
         double lastEntropy = -1;
         for (int i=0; i<rounds; i++) {
-            scheduler = SchedulerUtil.getScheduler(schedulingPolicy, taskSet, executionVariation);
+            scheduler.reset(seedGenerator.nextLong());
             entropyCalculator.applyOneSchedule( scheduler.runSimWithOffset(simOffset, simDuration) );
 
             /* Check the resulting schedule entropy every 20 loops and see if it's been covered (diff<0.01%). */
@@ -67,6 +90,122 @@ public class ScheduleEntropyTester {
         return currentEntropy;
     }
 
+    /**
+     * Adaptive mode: simulate rounds in batches of ROUNDS_PER_BATCH, split across the threads, until the estimate has
+     * converged (see hasConverged()) or maxRounds is reached. Round i is simulated with the seed (base seed + i) by
+     * one of the per-thread schedulers, the schedules are applied in the round order and the stopping rule is checked
+     * after each fixed-size batch, so the result does not depend on the number of threads. Only incremental entropy
+     * calculators (Shannon, UApEn) support this mode.
+     * @param simDuration                   length of each schedule
+     * @param maxRounds                     the maximum number of rounds
+     * @param targetConfidenceIntervalWidth the width (upper - lower, widened by the jackknife bias) at which the
+     *                                      estimation stops
+     * @return the estimate with its confidence interval, or null if the entropy algorithm is unknown or unsupported
+     */
+    public EntropyConfidenceInterval runAdaptive(long simDuration, int maxRounds, double targetConfidenceIntervalWidth) {
+        loggerConsole.info("Setting all task phases to zero.");
+        setAllTaskPhaseZero();
+
+        /* The schedulers are created sequentially as their creation may update the tasks (e.g., RM priorities). */
+        int workerCount = Math.max(1, Math.min(threadCount, maxRounds));
+        AdvanceableSchedulerSimulator[] schedulers = new AdvanceableSchedulerSimulator[workerCount];
+        for (int w=0; w<workerCount; w++)
+            schedulers[w] = SchedulerUtil.getScheduler(schedulingPolicy, taskSet, executionVariation);
+        long simOffset = isAllTaskPhaseZero() ? 0 : schedulers[0].getSimDefaultOffset();
+
+        entropyCalculator = getEntropyCalculator(entropyAlgorithm, taskSet, simOffset, simDuration);
+        if (!(entropyCalculator instanceof IncrementalScheduleEntropyCalculatorInterface))
+            return null;
+        IncrementalScheduleEntropyCalculatorInterface incrementalCalculator = (IncrementalScheduleEntropyCalculatorInterface) entropyCalculator;
+        incrementalCalculator.setJackknifeGroupCount(JACKKNIFE_GROUP_COUNT);
+
+        loggerConsole.info("Sim Duration (for each round) = {}, target CI width = {}, threads = {}", simDuration, targetConfidenceIntervalWidth, workerCount);
+        long baseSeed = seedGenerator.nextLong();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        try {
+            int round = 0;
+            while (round < maxRounds) {
+                int batchBegin = round;
+                int batchEnd = Math.min(maxRounds, round + ROUNDS_PER_BATCH);
+
+                /* Worker w simulates rounds batchBegin+w, batchBegin+w+workerCount, ... */
+                List<Future<List<EventContainer>>> results = new ArrayList<>();
+                for (int w=0; w<workerCount; w++) {
+                    AdvanceableSchedulerSimulator scheduler = schedulers[w];
+                    int firstRound = batchBegin + w;
+                    results.add(executor.submit(() -> {
+                        List<EventContainer> schedules = new ArrayList<>();
+                        for (int r=firstRound; r<batchEnd; r+=workerCount) {
+                            scheduler.reset(baseSeed + r);
+                            schedules.add(scheduler.runSimWithOffset(simOffset, simDuration));
+                        }
+                        return schedules;
+                    }));
+                }
+
+                List<List<EventContainer>> workerSchedules = new ArrayList<>();
+                for (Future<List<EventContainer>> result : results)
+                    workerSchedules.add(result.get());
+                for (int r=batchBegin; r<batchEnd; r++) {
+                    int w = (r - batchBegin)%workerCount;
+                    entropyCalculator.applyOneSchedule(workerSchedules.get(w).get((r - batchBegin)/workerCount));
+                }
+                round = batchEnd;
+
+                confidenceInterval = incrementalCalculator.getConfidenceInterval(confidenceLevel);
+                double sampleCoverage = incrementalCalculator.getSampleCoverage();
+                loggerConsole.info("- [#{}] Testing Round {}/{} ... en={}, bias={}, coverage={}", taskSet.getId(), round, maxRounds,
+                        confidenceInterval, String.format("%.5f", confidenceInterval.getBias()), String.format("%.3f", sampleCoverage));
+                if (hasConverged(confidenceInterval, sampleCoverage, targetConfidenceIntervalWidth))
+                    break;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Schedule simulation failed in the adaptive entropy estimation.", e);
+        } finally {
+            executor.shutdown();
+        }
+        return confidenceInterval;
+    }
+
+    /**
+     * The stopping rule of the adaptive mode. The interval has to be narrow enough after it is widened to cover the
+     * bias-corrected estimate as well, and most schedules have to be repeats of ones already seen. Without these, a
+     * policy whose schedules are (almost) all distinct would stop at once with log2(N), as every leave-one-group-out
+     * estimate is then the same and the interval has no width.
+     * @param confidenceInterval            the current confidence interval
+     * @param sampleCoverage                the current sample coverage (see IncrementalScheduleEntropyCalculatorInterface)
+     * @param targetConfidenceIntervalWidth the target width
+     * @return true if the estimation can stop
+     */
+    protected static boolean hasConverged(EntropyConfidenceInterval confidenceInterval, double sampleCoverage, double targetConfidenceIntervalWidth) {
+        if (sampleCoverage < MIN_SAMPLE_COVERAGE)
+            return false;
+        return confidenceInterval.getWidth() + 2*abs(confidenceInterval.getBias()) <= targetConfidenceIntervalWidth;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount <= 0)
+            throw new IllegalArgumentException("The number of threads must be positive: " + threadCount);
+        this.threadCount = threadCount;
+    }
+
+    public void setConfidenceLevel(double confidenceLevel) {
+        if (!(confidenceLevel > 0 && confidenceLevel < 1))
+            throw new IllegalArgumentException("The confidence level must be in (0, 1): " + confidenceLevel);
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    public void setRandomSeed(long seed) {
+        seedGenerator = new Random(seed);
+    }
+
+    /**
+     * @return the confidence interval reached by the last adaptive run (null if there is none)
+     */
+    public EntropyConfidenceInterval getConfidenceInterval() {
+        return confidenceInterval;
+    }
+
     protected void setAllTaskPhaseZero() {
         for (Task task : taskSet.getRunnableTasksAsArray()) {
             task.setInitialOffset(0);
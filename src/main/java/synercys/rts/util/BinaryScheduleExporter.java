@@ -0,0 +1,311 @@
+package synercys.rts.util;
+
+import synercys.rts.RtsConfig;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.EventSink;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * BinaryScheduleExporter.java
+ * Purpose: Export a schedule in the compact binary ".rtsbin" format, which can be randomly accessed by
+ *          BinaryScheduleLoader via memory mapping.
+ *
+ *          File layout (big-endian):
+ *          [fixed header]  magic, version, tickUnitInNs, blockEventCount, eventCount, blockCount,
+ *                          instantEventsOffset, indexOffset
+ *          [meta]          scheduling policy string, task set (in JSON, same as in ".rtschedule")
+ *          [blocks]        interval records, blockEventCount records per block
+ *          [instant events]
+ *          [block index]   one fixed-width entry (firstBegin, maxEnd, fileOffset, eventCount) per block
+ *
+ *          Each interval record logically holds (begin, end, taskId, jobArrival, beginState, endState). In a block,
+ *          a record is stored as varints of the delta to the previous record's end, the interval length, the task id
+ *          and the distance to the job arrival, followed by one byte of the two schedule states. The block index is
+ *          keyed by timestamp, so only the blocks overlapping a queried window need to be decoded. Interval event
+ *          notes are not stored.
+ *
+ *          Events have to be added in time order (as produced by the schedulers). It is an EventSink, so a schedule
+ *          can be exported while being simulated.
+ */
+public class BinaryScheduleExporter implements EventSink {
+    public static final String FILE_EXTENSION = "rtsbin";
+    public static final int MAGIC = 0x52545342;  // "RTSB"
+    public static final int WRITER_VERSION = 1;
+    public static final int DEFAULT_BLOCK_EVENT_COUNT = 4096;
+
+    static final int FIXED_HEADER_SIZE = 4 + 4 + 8 + 4 + 8 + 4 + 8 + 8;
+    static final int INDEX_ENTRY_SIZE = 8 + 8 + 8 + 4;
+    static final int MAX_RECORD_SIZE = 10*4 + 1;   // four varints (10 bytes at most) and the state byte
+    static final int NULL_TASK_ID = -1;    // for events that do not associate with a task
+
+    protected String filePath;
+    protected FileChannel fileChannel = null;
+    protected int blockEventCount = DEFAULT_BLOCK_EVENT_COUNT;
+
+    /* current block */
+    protected ByteBuffer blockBuffer;
+    protected int currentBlockEventCount = 0;
+    protected long currentBlockFirstBegin = 0;
+    protected long currentBlockMaxEnd = 0;
+    protected long lastEnd = 0;
+    protected long lastBegin = Long.MIN_VALUE;
+
+    /* block index */
+    protected int blockCount = 0;
+    protected long[] indexFirstBegin = new long[64];
+    protected long[] indexMaxEnd = new long[64];
+    protected long[] indexFileOffset = new long[64];
+    protected int[] indexEventCount = new int[64];
+
+    protected long eventCount = 0;
+    protected ArrayList<TaskInstantEvent> taskInstantEvents = new ArrayList<>();
+
+    public BinaryScheduleExporter(String filePath) {
+        this(filePath, DEFAULT_BLOCK_EVENT_COUNT);
+    }
+
+    public BinaryScheduleExporter(String filePath, int blockEventCount) {
+        this.filePath = filePath;
+        this.blockEventCount = blockEventCount;
+        blockBuffer = ByteBuffer.allocate(blockEventCount*MAX_RECORD_SIZE);
+        try {
+            fileChannel = FileChannel.open(Paths.get(filePath),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            System.err.format("IOException @ BinaryScheduleExporter() while opening file: %s%n", e);
+            fileChannel = null;
+        }
+    }
+
+    public boolean isFileOpened() {
+        return fileChannel != null;
+    }
+
+    public void exportRawSchedule(EventContainer eventContainer) {
+        beginRawSchedule(eventContainer.getTaskSet(), eventContainer.getSchedulingPolicy());
+        for (SchedulerIntervalEvent event : eventContainer.getSchedulerEvents()) {
+            add(event);
+        }
+        for (TaskInstantEvent event : eventContainer.getTaskInstantEvents()) {
+            add(event);
+        }
+        endRawSchedule();
+    }
+
+    /**
+     * Write the file header. Events are then added by add() and the file is completed and closed by endRawSchedule().
+     * @param taskSet           the task set that the schedule is generated from
+     * @param schedulingPolicy  scheduling policy string defined in EventContainer
+     */
+    public void beginRawSchedule(TaskSet taskSet, String schedulingPolicy) {
+        if (!isFileOpened())
+            return;
+
+        StringWriter taskSetJson = new StringWriter();
+        JsonLogStreamWriter taskSetWriter = new JsonLogStreamWriter(taskSetJson, false);
+        taskSetWriter.writeTaskSet(taskSet);
+        taskSetWriter.flush();
+
+        byte[] policyBytes = (schedulingPolicy == null ? "" : schedulingPolicy).getBytes(StandardCharsets.UTF_8);
+        byte[] taskSetBytes = taskSetJson.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer metaBuffer = ByteBuffer.allocate(FIXED_HEADER_SIZE + 4 + policyBytes.length + 4 + taskSetBytes.length);
+        metaBuffer.position(FIXED_HEADER_SIZE);  // the fixed header is written in the end
+        metaBuffer.putInt(policyBytes.length);
+        metaBuffer.put(policyBytes);
+        metaBuffer.putInt(taskSetBytes.length);
+        metaBuffer.put(taskSetBytes);
+        metaBuffer.flip();
+        writeBuffer(metaBuffer);
+    }
+
+    @Override
+    public void add(SchedulerIntervalEvent inEvent) {
+        if (!isFileOpened())
+            return;
+
+        long begin = inEvent.getOrgBeginTimestamp();
+        long end = inEvent.getOrgEndTimestamp();
+        if (begin < lastBegin) {
+            throw new AssertionError("Schedule events have to be added in time order.");
+        }
+
+        if (currentBlockEventCount == 0) {
+            currentBlockFirstBegin = begin;
+            currentBlockMaxEnd = end;
+            lastEnd = begin;
+        }
+
+        putVarLong(blockBuffer, zigZag(begin - lastEnd));
+        putVarLong(blockBuffer, zigZag(end - begin));
+        putVarLong(blockBuffer, zigZag(inEvent.getTask() == null ? NULL_TASK_ID : inEvent.getTask().getId()));
+        putVarLong(blockBuffer, zigZag(begin - inEvent.getJobInitialArrivalTime()));
+        blockBuffer.put((byte) ((inEvent.getBeginTimeScheduleState() << 4) | (inEvent.getEndTimeScheduleState() & 0x0f)));
+
+        lastBegin = begin;
+        lastEnd = end;
+        currentBlockMaxEnd = Math.max(currentBlockMaxEnd, end);
+        currentBlockEventCount++;
+        eventCount++;
+
+        if (currentBlockEventCount == blockEventCount) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void add(TaskInstantEvent inEvent) {
+        taskInstantEvents.add(inEvent);
+    }
+
+    public void endRawSchedule() {
+        if (!isFileOpened())
+            return;
+
+        flushBlock();
+
+        try {
+            /* instant events */
+            long instantEventsOffset = fileChannel.position();
+            for (TaskInstantEvent event : taskInstantEvents) {
+                byte[] noteBytes = (event.getNote() == null ? "" : event.getNote()).getBytes(StandardCharsets.UTF_8);
+                ByteBuffer eventBuffer = ByteBuffer.allocate(8 + 4 + 4 + 4 + noteBytes.length);
+                eventBuffer.putLong(event.getOrgTimestamp());
+                eventBuffer.putInt(event.getTask() == null ? NULL_TASK_ID : event.getTask().getId());
+                eventBuffer.putInt(event.getRecordData());
+                eventBuffer.putInt(noteBytes.length);
+                eventBuffer.put(noteBytes);
+                eventBuffer.flip();
+                writeBuffer(eventBuffer);
+            }
+
+            /* block index */
+            long indexOffset = fileChannel.position();
+            ByteBuffer indexBuffer = ByteBuffer.allocate(blockCount*INDEX_ENTRY_SIZE);
+            for (int i=0; i<blockCount; i++) {
+                indexBuffer.putLong(indexFirstBegin[i]);
+                indexBuffer.putLong(indexMaxEnd[i]);
+                indexBuffer.putLong(indexFileOffset[i]);
+                indexBuffer.putInt(indexEventCount[i]);
+            }
+            indexBuffer.flip();
+            writeBuffer(indexBuffer);
+
+            /* fixed header */
+            ByteBuffer headerBuffer = ByteBuffer.allocate(FIXED_HEADER_SIZE);
+            headerBuffer.putInt(MAGIC);
+            headerBuffer.putInt(WRITER_VERSION);
+            headerBuffer.putLong(RtsConfig.TIMESTAMP_UNIT_NS);
+            headerBuffer.putInt(blockEventCount);
+            headerBuffer.putLong(eventCount);
+            headerBuffer.putInt(blockCount);
+            headerBuffer.putLong(instantEventsOffset);
+            headerBuffer.putLong(indexOffset);
+            headerBuffer.flip();
+            fileChannel.position(0);
+            writeBuffer(headerBuffer);
+
+            fileChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        fileChannel = null;
+    }
+
+    protected void flushBlock() {
+        if (currentBlockEventCount == 0)
+            return;
+
+        if (blockCount == indexFirstBegin.length) {
+            int newLength = blockCount*2;
+            indexFirstBegin = Arrays.copyOf(indexFirstBegin, newLength);
+            indexMaxEnd = Arrays.copyOf(indexMaxEnd, newLength);
+            indexFileOffset = Arrays.copyOf(indexFileOffset, newLength);
+            indexEventCount = Arrays.copyOf(indexEventCount, newLength);
+        }
+
+        try {
+            indexFileOffset[blockCount] = fileChannel.position();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        indexFirstBegin[blockCount] = currentBlockFirstBegin;
+        indexMaxEnd[blockCount] = currentBlockMaxEnd;
+        indexEventCount[blockCount] = currentBlockEventCount;
+        blockCount++;
+
+        blockBuffer.flip();
+        writeBuffer(blockBuffer);
+        blockBuffer.clear();
+        currentBlockEventCount = 0;
+    }
+
+    protected void writeBuffer(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Convert a ".rtschedule" (JSON) file to a ".rtsbin" file.
+     * @param rtSchedulePath    the source ".rtschedule" file
+     * @param rtsBinPath        the destination ".rtsbin" file
+     * @return true if converted; false otherwise
+     */
+    public static boolean convertFromRtSchedule(String rtSchedulePath, String rtsBinPath) {
+        JsonLogLoader jsonLogLoader = new JsonLogLoader(rtSchedulePath);
+        if (!(jsonLogLoader.getResult() instanceof EventContainer)) {
+            System.err.format("\"%s\" is not a raw schedule file.%n", rtSchedulePath);
+            return false;
+        }
+
+        BinaryScheduleExporter exporter = new BinaryScheduleExporter(rtsBinPath);
+        if (!exporter.isFileOpened())
+            return false;
+        exporter.exportRawSchedule((EventContainer) jsonLogLoader.getResult());
+        return true;
+    }
+}
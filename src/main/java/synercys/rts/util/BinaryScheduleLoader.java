@@ -0,0 +1,309 @@
+package synercys.rts.util;
+
+import org.json.JSONObject;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * BinaryScheduleLoader.java
+ * Purpose: Load a schedule from a ".rtsbin" file produced by BinaryScheduleExporter. The file is memory-mapped and
+ *          only the header and the block index are read when it is opened. Time window queries decode only the blocks
+ *          that overlap the window, so a small window of a long schedule can be accessed without parsing the whole file.
+ */
+public class BinaryScheduleLoader {
+    protected FileChannel fileChannel = null;
+
+    protected long tickUnitInNs;
+    protected long eventCount;
+    protected int blockCount;
+    protected long instantEventsOffset;
+    protected long indexOffset;
+    protected String schedulingPolicy;
+    protected TaskSet taskSet;
+
+    protected long[] indexFirstBegin;
+    protected long[] indexMaxEnd;
+    protected long[] indexFileOffset;
+    protected int[] indexEventCount;
+
+    protected ArrayList<TaskInstantEvent> taskInstantEvents = null;   // loaded when they are first accessed
+
+    public BinaryScheduleLoader(String filePath) {
+        try {
+            fileChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+            loadHeaderAndIndex();
+        } catch (IOException e) {
+            System.err.format("IOException @ BinaryScheduleLoader() while loading file: %s%n", e);
+            fileChannel = null;
+        }
+    }
+
+    protected void loadHeaderAndIndex() throws IOException {
+        MappedByteBuffer headerBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryScheduleExporter.FIXED_HEADER_SIZE);
+        if (headerBuffer.getInt() != BinaryScheduleExporter.MAGIC) {
+            throw new IOException("Not a .rtsbin file.");
+        }
+        int version = headerBuffer.getInt();
+        if (version > BinaryScheduleExporter.WRITER_VERSION) {
+            throw new IOException("Unsupported .rtsbin version " + version + ".");
+        }
+        tickUnitInNs = headerBuffer.getLong();
+        headerBuffer.getInt();  // block event count, not needed by the loader
+        eventCount = headerBuffer.getLong();
+        blockCount = headerBuffer.getInt();
+        instantEventsOffset = headerBuffer.getLong();
+        indexOffset = headerBuffer.getLong();
+
+        /* meta: scheduling policy and task set */
+        long metaEnd = blockCount > 0 ? readIndexFileOffset(0) : instantEventsOffset;
+        MappedByteBuffer metaBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                BinaryScheduleExporter.FIXED_HEADER_SIZE, metaEnd - BinaryScheduleExporter.FIXED_HEADER_SIZE);
+        schedulingPolicy = getString(metaBuffer);
+        taskSet = JsonLogLoader.jsonToTaskSet(new JSONObject(getString(metaBuffer)));
+
+        /* block index */
+        indexFirstBegin = new long[blockCount];
+        indexMaxEnd = new long[blockCount];
+        indexFileOffset = new long[blockCount];
+        indexEventCount = new int[blockCount];
+        MappedByteBuffer indexBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                indexOffset, (long) blockCount*BinaryScheduleExporter.INDEX_ENTRY_SIZE);
+        for (int i=0; i<blockCount; i++) {
+            indexFirstBegin[i] = indexBuffer.getLong();
+            indexMaxEnd[i] = indexBuffer.getLong();
+            indexFileOffset[i] = indexBuffer.getLong();
+            indexEventCount[i] = indexBuffer.getInt();
+        }
+    }
+
+    protected long readIndexFileOffset(int blockIndex) throws IOException {
+        MappedByteBuffer entryBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                indexOffset + (long) blockIndex*BinaryScheduleExporter.INDEX_ENTRY_SIZE, BinaryScheduleExporter.INDEX_ENTRY_SIZE);
+        return entryBuffer.getLong(16);
+    }
+
+    protected static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public boolean isLoaded() {
+        return fileChannel != null;
+    }
+
+    public TaskSet getTaskSet() {
+        return taskSet;
+    }
+
+    public String getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+
+    public long getTickUnitInNs() {
+        return tickUnitInNs;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public long getBeginTimestamp() {
+        return blockCount == 0 ? 0 : indexFirstBegin[0];
+    }
+
+    public long getEndTimestamp() {
+        return blockCount == 0 ? 0 : indexMaxEnd[blockCount - 1];
+    }
+
+    /**
+     * Decode one block of interval events. Only the events that overlap [windowBegin, windowEnd) are added to the
+     * output list; they are not trimmed.
+     */
+    protected void decodeBlock(int blockIndex, long windowBegin, long windowEnd, ArrayList<SchedulerIntervalEvent> outEvents) {
+        long blockEnd = (blockIndex + 1 < blockCount) ? indexFileOffset[blockIndex + 1] : instantEventsOffset;
+        MappedByteBuffer blockBuffer;
+        try {
+            blockBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, indexFileOffset[blockIndex], blockEnd - indexFileOffset[blockIndex]);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        long lastEnd = indexFirstBegin[blockIndex];
+        for (int i=0; i<indexEventCount[blockIndex]; i++) {
+            long begin = lastEnd + BinaryScheduleExporter.unZigZag(BinaryScheduleExporter.getVarLong(blockBuffer));
+            long end = begin + BinaryScheduleExporter.unZigZag(BinaryScheduleExporter.getVarLong(blockBuffer));
+            int taskId = (int) BinaryScheduleExporter.unZigZag(BinaryScheduleExporter.getVarLong(blockBuffer));
+            long arrival = begin - BinaryScheduleExporter.unZigZag(BinaryScheduleExporter.getVarLong(blockBuffer));
+            int states = blockBuffer.get();
+            lastEnd = end;
+
+            if (begin >= windowEnd)
+                break;
+            if (end <= windowBegin)
+                continue;
+
+            Task task = taskId == BinaryScheduleExporter.NULL_TASK_ID ? null : taskSet.getTaskById(taskId);
+            SchedulerIntervalEvent event = new SchedulerIntervalEvent(begin, end, arrival, task, "");
+            event.setScheduleStates((states >> 4) & 0x0f, states & 0x0f);
+            outEvents.add(event);
+        }
+    }
+
+    /**
+     * Find the interval events that overlap the given time window, in the same way as
+     * EventContainer.findSchedulerEventsByTimeWindow() but without loading the whole schedule.
+     * @param windowBegin   begin time of the window (inclusive)
+     * @param windowEnd     end time of the window (exclusive)
+     * @return the overlapping events (not trimmed)
+     */
+    public ArrayList<SchedulerIntervalEvent> findSchedulerEventsByTimeWindow(long windowBegin, long windowEnd) {
+        ArrayList<SchedulerIntervalEvent> events = new ArrayList<>();
+        if (!isLoaded())
+            return events;
+
+        /* Binary search the first block that ends after the window begins (block end times are non-decreasing). */
+        int low = 0, high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (indexMaxEnd[mid] <= windowBegin)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        for (int i=low; i<blockCount && indexFirstBegin[i]<windowEnd; i++) {
+            decodeBlock(i, windowBegin, windowEnd, events);
+        }
+        return events;
+    }
+
+    public ArrayList<TaskInstantEvent> getTaskInstantEvents() {
+        if (taskInstantEvents != null || !isLoaded())
+            return taskInstantEvents == null ? new ArrayList<>() : taskInstantEvents;
+
+        taskInstantEvents = new ArrayList<>();
+        try {
+            MappedByteBuffer instantBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, instantEventsOffset, indexOffset - instantEventsOffset);
+            while (instantBuffer.hasRemaining()) {
+                long timestamp = instantBuffer.getLong();
+                int taskId = instantBuffer.getInt();
+                int data = instantBuffer.getInt();
+                String note = getString(instantBuffer);
+                Task task = taskId == BinaryScheduleExporter.NULL_TASK_ID ? null : taskSet.getTaskById(taskId);
+                taskInstantEvents.add(new TaskInstantEvent(timestamp, task, data, note));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return taskInstantEvents;
+    }
+
+    /**
+     * Load the schedule in the given time window into an EventContainer. Events are trimmed to the window, the same
+     * as a schedule produced by runSimWithOffset(windowBegin, windowEnd - windowBegin): intervals are clipped to the
+     * window and instant events on either boundary are dropped (as the EventContainer trim functions do).
+     * @param windowBegin   begin time of the window (inclusive for intervals)
+     * @param windowEnd     end time of the window (exclusive)
+     * @return an EventContainer that contains the events in the window
+     */
+    public EventContainer getEventContainer(long windowBegin, long windowEnd) {
+        EventContainer eventContainer = new EventContainer();
+        eventContainer.setTaskSet(taskSet);
+        eventContainer.setSchedulingPolicy(schedulingPolicy);
+
+        for (SchedulerIntervalEvent event : findSchedulerEventsByTimeWindow(windowBegin, windowEnd)) {
+            if (event.getOrgBeginTimestamp() < windowBegin)
+                event.setOrgBeginTimestamp(windowBegin);
+            if (event.getOrgEndTimestamp() > windowEnd)
+                event.setOrgEndTimestamp(windowEnd);
+            eventContainer.add(event);
+        }
+
+        for (TaskInstantEvent event : getTaskInstantEvents()) {
+            if (event.getOrgTimestamp() > windowBegin && event.getOrgTimestamp() < windowEnd)
+                eventContainer.add(event);
+        }
+        return eventContainer;
+    }
+
+    /**
+     * Load the entire schedule into an EventContainer.
+     * @return an EventContainer that contains all events in the file
+     */
+    public EventContainer getEventContainer() {
+        EventContainer eventContainer = new EventContainer();
+        eventContainer.setTaskSet(taskSet);
+        eventContainer.setSchedulingPolicy(schedulingPolicy);
+
+        ArrayList<SchedulerIntervalEvent> events = new ArrayList<>();
+        for (int i=0; i<blockCount; i++) {
+            decodeBlock(i, Long.MIN_VALUE, Long.MAX_VALUE, events);
+        }
+        for (SchedulerIntervalEvent event : events) {
+            eventContainer.add(event);
+        }
+        for (TaskInstantEvent event : getTaskInstantEvents()) {
+            eventContainer.add(event);
+        }
+        return eventContainer;
+    }
+
+    public void close() {
+        if (!isLoaded())
+            return;
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        fileChannel = null;
+    }
+
+    /**
+     * Convert a ".rtsbin" file to a ".rtschedule" (JSON) file. Events are streamed block by block, so the schedule is
+     * never held in memory in full.
+     * @param rtsBinPath        the source ".rtsbin" file
+     * @param rtSchedulePath    the destination ".rtschedule" file
+     * @return true if converted; false otherwise
+     */
+    public static boolean convertToRtSchedule(String rtsBinPath, String rtSchedulePath) {
+        BinaryScheduleLoader loader = new BinaryScheduleLoader(rtsBinPath);
+        if (!loader.isLoaded())
+            return false;
+
+        JsonLogStreamWriter streamWriter = new JsonLogStreamWriter(rtSchedulePath);
+        streamWriter.beginRawSchedule(loader.getTaskSet(), loader.getSchedulingPolicy());
+        ArrayList<SchedulerIntervalEvent> blockEvents = new ArrayList<>();
+        for (int i=0; i<loader.getBlockCount(); i++) {
+            blockEvents.clear();
+            loader.decodeBlock(i, Long.MIN_VALUE, Long.MAX_VALUE, blockEvents);
+            for (SchedulerIntervalEvent event : blockEvents) {
+                streamWriter.add(event);
+            }
+        }
+        for (TaskInstantEvent event : loader.getTaskInstantEvents()) {
+            streamWriter.add(event);
+        }
+        streamWriter.endRawSchedule();
+        loader.close();
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package synercys.rts.util;
+
+import synercys.rts.RtsConfig;
+import synercys.rts.framework.event.BusyIntervalBitstream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BitstreamExporter.java
+ * Purpose: Export a BusyIntervalBitstream in the binary ".rtbits" format, which is BitstreamLoader's input.
+ *
+ *          File layout (little-endian):
+ *          [header]    magic, version, tickUnitInNs, beginTime, length (in ticks)
+ *          [words]     the packed bits, 64 ticks per word (see BusyIntervalBitstream)
+ */
+public class BitstreamExporter {
+    public static final String FILE_EXTENSION = "rtbits";
+    public static final int MAGIC = 0x53425452;  // "RTBS" in little-endian
+    public static final int WRITER_VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+    static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    public static boolean exportBitstream(BusyIntervalBitstream bitstream, String filePath) {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            headerBuffer.putInt(MAGIC);
+            headerBuffer.putInt(WRITER_VERSION);
+            headerBuffer.putLong(RtsConfig.TIMESTAMP_UNIT_NS);
+            headerBuffer.putLong(bitstream.getBeginTime());
+            headerBuffer.putLong(bitstream.getLength());
+            headerBuffer.flip();
+            writeBuffer(fileChannel, headerBuffer);
+
+            /* Words are copied in bulk to a direct buffer and written from there. */
+            LongBuffer words = bitstream.getWords();
+            ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (words.hasRemaining()) {
+                LongBuffer chunk = words.slice();
+                chunk.limit(Math.min(chunk.remaining(), WRITE_BUFFER_SIZE/8));
+                writeBuffer.clear();
+                writeBuffer.asLongBuffer().put(chunk);
+                writeBuffer.limit(chunk.limit()*8);
+                writeBuffer(fileChannel, writeBuffer);
+                words.position(words.position() + chunk.limit());
+            }
+        } catch (IOException e) {
+            System.err.format("IOException @ BitstreamExporter.exportBitstream(): %s%n", e);
+            return false;
+        }
+        return true;
+    }
+
+    private static void writeBuffer(FileChannel fileChannel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+    }
+}
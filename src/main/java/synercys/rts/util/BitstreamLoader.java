@@ -0,0 +1,55 @@
+package synercys.rts.util;
+
+import synercys.rts.framework.event.BusyIntervalBitstream;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BitstreamLoader.java
+ * Purpose: Load a ".rtbits" file produced by BitstreamExporter. The file is memory-mapped and the returned
+ *          bitstream reads its words directly from the mapping (it is read-only).
+ */
+public class BitstreamLoader {
+    long tickUnitInNs = 0;
+    BusyIntervalBitstream bitstream = null;
+
+    public BitstreamLoader(String filePath) {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != BitstreamExporter.MAGIC) {
+                throw new IOException("Not a .rtbits file.");
+            }
+            int version = buffer.getInt();
+            if (version > BitstreamExporter.WRITER_VERSION) {
+                throw new IOException("Unsupported .rtbits version " + version + ".");
+            }
+            tickUnitInNs = buffer.getLong();
+            long beginTime = buffer.getLong();
+            long length = buffer.getLong();
+
+            // The mapping stays valid after the channel is closed.
+            buffer.position(BitstreamExporter.HEADER_SIZE);
+            bitstream = new BusyIntervalBitstream(beginTime, length, buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.format("Exception @ BitstreamLoader() while loading file: %s%n", e);
+        }
+    }
+
+    public boolean isLoaded() {
+        return bitstream != null;
+    }
+
+    public BusyIntervalBitstream getBitstream() {
+        return bitstream;
+    }
+
+    public long getTickUnitInNs() {
+        return tickUnitInNs;
+    }
+}
@@ -11,6 +11,7 @@ import synercys.rts.framework.event.SchedulerIntervalEvent;
 import synercys.rts.framework.event.TaskInstantEvent;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.distribution.*;
 import synercys.rts.scheduler.TaskSetContainer;
 import synercys.rts.scheduler.TaskSetGenerator;
 
@@ -59,17 +60,7 @@ public class JsonLogExporter extends FileHandler {
         jsonData.put(JsonLogStr.DATA_RT_SIM_TASKSET, getJsonTaskSet(eventContainer.getTaskSet()));
 
         // root - data - schedulingPolicy
-        String schedulingPolicy = eventContainer.getSchedulingPolicy();
-        if (schedulingPolicy == null) {
-            schedulingPolicy = "";
-        }
-        if (schedulingPolicy.equalsIgnoreCase(EventContainer.SCHEDULING_POLICY_FIXED_PRIORITY)) {   // RM
-            jsonData.put(JsonLogStr.DATA_RT_SIM_SCHEDULING_POLICY, JsonLogStr.SCHEDULING_POLICY_FIXED_PRIORITY);
-        } else if (schedulingPolicy.equalsIgnoreCase(EventContainer.SCHEDULING_POLICY_EDF)){    // EDF
-            jsonData.put(JsonLogStr.DATA_RT_SIM_SCHEDULING_POLICY, JsonLogStr.SCHEDULING_POLICY_EDF);
-        } else {    // Unknown/Undefined
-            jsonData.put(JsonLogStr.DATA_RT_SIM_SCHEDULING_POLICY, JsonLogStr.SCHEDULING_POLICY_UNKNOWN);
-        }
+        jsonData.put(JsonLogStr.DATA_RT_SIM_SCHEDULING_POLICY, getSchedulingPolicyValueString(eventContainer.getSchedulingPolicy()));
 
         // root - data - scheduleIntervalEvents
         jsonData.put(JsonLogStr.DATA_RT_SIM_SCHEDULE_INTERVAL_EVENTS, getJsonScheduleIntervalEvents(eventContainer.getSchedulerEvents()));
@@ -369,6 +360,10 @@ public class JsonLogExporter extends FileHandler {
             jsonTask.put(JsonLogStr.TASK_WCET, task.getWcet());
             jsonTask.put(JsonLogStr.TASK_PRIORITY, task.getPriority());
             jsonTask.put(JsonLogStr.TASK_PHASE, task.getInitialOffset());
+            if (task.getExecutionTimeDistribution() != null)
+                jsonTask.put(JsonLogStr.TASK_EXECUTION_TIME_MODEL, getJsonTimeDistribution(task.getExecutionTimeDistribution()));
+            if (task.getInterArrivalTimeDistribution() != null)
+                jsonTask.put(JsonLogStr.TASK_INTER_ARRIVAL_TIME_MODEL, getJsonTimeDistribution(task.getInterArrivalTimeDistribution()));
             jsonTaskArray.put(jsonTask);
         }
         jsonTaskSet.put(JsonLogStr.TASKSET_TASKS, jsonTaskArray);
@@ -377,6 +372,47 @@ public class JsonLogExporter extends FileHandler {
         return jsonTaskSet;
     }
 
+    /**
+     * Convert an execution/inter-arrival time model to JSON (see JsonLogLoader.jsonToTimeDistribution()).
+     * @param model the model to be converted
+     * @return a JSON object that corresponds to the given model
+     */
+    public static JSONObject getJsonTimeDistribution(TimeDistribution model) {
+        JSONObject jsonModel = new JSONObject();
+        if (model instanceof FixedTimeDistribution) {
+            jsonModel.put(JsonLogStr.MODEL_TYPE, JsonLogStr.MODEL_TYPE_FIXED);
+            jsonModel.put(JsonLogStr.MODEL_VALUE, ((FixedTimeDistribution) model).getValue());
+        } else if (model instanceof UniformTimeDistribution) {
+            jsonModel.put(JsonLogStr.MODEL_TYPE, JsonLogStr.MODEL_TYPE_UNIFORM);
+            jsonModel.put(JsonLogStr.MODEL_MIN, ((UniformTimeDistribution) model).getMin());
+            jsonModel.put(JsonLogStr.MODEL_MAX, ((UniformTimeDistribution) model).getMax());
+        } else if (model instanceof TruncatedGaussianTimeDistribution) {
+            TruncatedGaussianTimeDistribution gaussian = (TruncatedGaussianTimeDistribution) model;
+            jsonModel.put(JsonLogStr.MODEL_TYPE, JsonLogStr.MODEL_TYPE_TRUNCATED_GAUSSIAN);
+            jsonModel.put(JsonLogStr.MODEL_MEAN, gaussian.getMean());
+            jsonModel.put(JsonLogStr.MODEL_STDDEV, gaussian.getStddev());
+            jsonModel.put(JsonLogStr.MODEL_MIN, gaussian.getMin());
+            jsonModel.put(JsonLogStr.MODEL_MAX, gaussian.getMax());
+        } else if (model instanceof PoissonTimeDistribution) {
+            PoissonTimeDistribution poisson = (PoissonTimeDistribution) model;
+            jsonModel.put(JsonLogStr.MODEL_TYPE, JsonLogStr.MODEL_TYPE_POISSON);
+            jsonModel.put(JsonLogStr.MODEL_MEAN, poisson.getMean());
+            jsonModel.put(JsonLogStr.MODEL_SCALE, poisson.getScale());
+            jsonModel.put(JsonLogStr.MODEL_MIN, poisson.getMin());
+        } else if (model instanceof HistogramTimeDistribution) {
+            jsonModel.put(JsonLogStr.MODEL_TYPE, JsonLogStr.MODEL_TYPE_HISTOGRAM);
+            jsonModel.put(JsonLogStr.MODEL_VALUES, new JSONArray(((HistogramTimeDistribution) model).getValues()));
+            jsonModel.put(JsonLogStr.MODEL_WEIGHTS, new JSONArray(((HistogramTimeDistribution) model).getWeights()));
+        } else if (model instanceof TraceReplayTimeDistribution) {
+            jsonModel.put(JsonLogStr.MODEL_TYPE, JsonLogStr.MODEL_TYPE_TRACE);
+            jsonModel.put(JsonLogStr.MODEL_VALUES, new JSONArray(((TraceReplayTimeDistribution) model).getValues()));
+            jsonModel.put(JsonLogStr.MODEL_LOOP, ((TraceReplayTimeDistribution) model).isLoop());
+        } else {
+            throw new IllegalArgumentException("Unsupported execution/inter-arrival time model: " + model.getClass().getName());
+        }
+        return jsonModel;
+    }
+
     protected JSONArray getJsonTaskSets(ArrayList<TaskSet> inTaskSets) {
         //JSONObject jsonTaskSetsWrapper = new JSONObject();
 
@@ -457,7 +493,20 @@ public class JsonLogExporter extends FileHandler {
         return jsonArray;
     }
 
-    public String getScheduleStateValueString(int inScheduleStateIndex) {
+    public static String getSchedulingPolicyValueString(String inSchedulingPolicy) {
+        if (inSchedulingPolicy == null) {
+            inSchedulingPolicy = "";
+        }
+        if (inSchedulingPolicy.equalsIgnoreCase(EventContainer.SCHEDULING_POLICY_FIXED_PRIORITY)) {   // RM
+            return JsonLogStr.SCHEDULING_POLICY_FIXED_PRIORITY;
+        } else if (inSchedulingPolicy.equalsIgnoreCase(EventContainer.SCHEDULING_POLICY_EDF)){    // EDF
+            return JsonLogStr.SCHEDULING_POLICY_EDF;
+        } else {    // Unknown/Undefined
+            return JsonLogStr.SCHEDULING_POLICY_UNKNOWN;
+        }
+    }
+
+    public static String getScheduleStateValueString(int inScheduleStateIndex) {
         /* copied from SchedulerIntervalEvent class:
         public static int SCHEDULE_STATE_UNKNOWN = 0;
         public static int SCHEDULE_STATE_START = 1;
@@ -10,6 +10,7 @@ import synercys.rts.framework.event.SchedulerIntervalEvent;
 import synercys.rts.framework.event.TaskInstantEvent;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.distribution.*;
 import synercys.rts.scheduler.TaskSetContainer;
 import synercys.rts.scheduler.TaskSetGenerator;
 
@@ -93,7 +94,7 @@ public class JsonLogLoader extends FileHandler implements LogParser{
         return sb.toString();
     }
 
-    protected TaskSet jsonToTaskSet(JSONObject jsonTaskSet) {
+    protected static TaskSet jsonToTaskSet(JSONObject jsonTaskSet) {
         TaskSet taskSet = new TaskSet();
 
         taskSet.setId(jsonTaskSet.getInt(JsonLogStr.TASKSET_ID));
@@ -113,12 +114,55 @@ public class JsonLogLoader extends FileHandler implements LogParser{
 
             task.setSporadicTask(jsonTask.getString(JsonLogStr.TASK_ARRIVAL_TYPE).equalsIgnoreCase(JsonLogStr.TASK_ARRIVAL_TYPE_SPORADIC) ? true : false);
             task.setInitialOffset(jsonTask.getLong(JsonLogStr.TASK_PHASE));
+            if (jsonTask.has(JsonLogStr.TASK_EXECUTION_TIME_MODEL))
+                task.setExecutionTimeDistribution(jsonToTimeDistribution(jsonTask.getJSONObject(JsonLogStr.TASK_EXECUTION_TIME_MODEL)));
+            if (jsonTask.has(JsonLogStr.TASK_INTER_ARRIVAL_TIME_MODEL))
+                task.setInterArrivalTimeDistribution(jsonToTimeDistribution(jsonTask.getJSONObject(JsonLogStr.TASK_INTER_ARRIVAL_TIME_MODEL)));
             taskSet.addTask(task);
         }
 
         return taskSet;
     }
 
+    /**
+     * Convert a JSON execution/inter-arrival time model to a TimeDistribution. See JsonLogStr for the keys.
+     * For example: {"type": "truncatedGaussian", "mean": 80, "stddev": 20, "min": 1, "max": 100}
+     * @param jsonModel the JSON model object
+     * @return the corresponding TimeDistribution
+     */
+    public static TimeDistribution jsonToTimeDistribution(JSONObject jsonModel) {
+        String type = jsonModel.getString(JsonLogStr.MODEL_TYPE);
+        if (type.equalsIgnoreCase(JsonLogStr.MODEL_TYPE_FIXED)) {
+            return new FixedTimeDistribution(jsonModel.getLong(JsonLogStr.MODEL_VALUE));
+        } else if (type.equalsIgnoreCase(JsonLogStr.MODEL_TYPE_UNIFORM)) {
+            return new UniformTimeDistribution(jsonModel.getLong(JsonLogStr.MODEL_MIN), jsonModel.getLong(JsonLogStr.MODEL_MAX));
+        } else if (type.equalsIgnoreCase(JsonLogStr.MODEL_TYPE_TRUNCATED_GAUSSIAN)) {
+            return new TruncatedGaussianTimeDistribution(jsonModel.getDouble(JsonLogStr.MODEL_MEAN), jsonModel.getDouble(JsonLogStr.MODEL_STDDEV),
+                    jsonModel.getLong(JsonLogStr.MODEL_MIN), jsonModel.getLong(JsonLogStr.MODEL_MAX));
+        } else if (type.equalsIgnoreCase(JsonLogStr.MODEL_TYPE_POISSON)) {
+            return new PoissonTimeDistribution(jsonModel.getDouble(JsonLogStr.MODEL_MEAN),
+                    jsonModel.optLong(JsonLogStr.MODEL_SCALE, 1), jsonModel.optLong(JsonLogStr.MODEL_MIN, 0));
+        } else if (type.equalsIgnoreCase(JsonLogStr.MODEL_TYPE_HISTOGRAM)) {
+            JSONArray jsonValues = jsonModel.getJSONArray(JsonLogStr.MODEL_VALUES);
+            JSONArray jsonWeights = jsonModel.getJSONArray(JsonLogStr.MODEL_WEIGHTS);
+            long[] values = new long[jsonValues.length()];
+            double[] weights = new double[jsonWeights.length()];
+            for (int i=0; i<values.length; i++)
+                values[i] = jsonValues.getLong(i);
+            for (int i=0; i<weights.length; i++)
+                weights[i] = jsonWeights.getDouble(i);
+            return new HistogramTimeDistribution(values, weights);
+        } else if (type.equalsIgnoreCase(JsonLogStr.MODEL_TYPE_TRACE)) {
+            JSONArray jsonValues = jsonModel.getJSONArray(JsonLogStr.MODEL_VALUES);
+            long[] values = new long[jsonValues.length()];
+            for (int i=0; i<values.length; i++)
+                values[i] = jsonValues.getLong(i);
+            return new TraceReplayTimeDistribution(values, jsonModel.optBoolean(JsonLogStr.MODEL_LOOP, true));
+        } else {
+            throw new IllegalArgumentException("Unknown execution/inter-arrival time model type: " + type);
+        }
+    }
+
     protected SchedulerIntervalEvent jsonToScheduleIntervalEvent(JSONObject jsonEvent) {
 
         // Task object (can be null if it's not given)
@@ -134,12 +178,53 @@ public class JsonLogLoader extends FileHandler implements LogParser{
             eventNote = jsonEvent.getString(JsonLogStr.SCHEDULE_INTERVAL_EVENT_NOTE);
         } catch (JSONException e){}
 
-        return new SchedulerIntervalEvent(
+        SchedulerIntervalEvent event = new SchedulerIntervalEvent(
                 jsonEvent.getLong(JsonLogStr.SCHEDULE_INTERVAL_EVENT_BEGIN_TIME),
                 jsonEvent.getLong(JsonLogStr.SCHEDULE_INTERVAL_EVENT_END_TIME),
                 thisTask,
                 eventNote
         );
+
+        // Schedule states (could be non-existed in the json object)
+        event.setScheduleStates(
+                getScheduleStateIndex(jsonEvent.optString(JsonLogStr.SCHEDULE_INTERVAL_EVENT_BEGIN_STATE)),
+                getScheduleStateIndex(jsonEvent.optString(JsonLogStr.SCHEDULE_INTERVAL_EVENT_END_STATE)));
+
+        return event;
+    }
+
+    /**
+     * The reverse of JsonLogExporter.getScheduleStateValueString().
+     * @param inScheduleStateString schedule state string defined in JsonLogStr
+     * @return schedule state index defined in SchedulerIntervalEvent
+     */
+    public static int getScheduleStateIndex(String inScheduleStateString) {
+        if (inScheduleStateString.equalsIgnoreCase(JsonLogStr.SCHEDULE_INTERVAL_EVENT_STATE_START))
+            return SchedulerIntervalEvent.SCHEDULE_STATE_START;
+        else if (inScheduleStateString.equalsIgnoreCase(JsonLogStr.SCHEDULE_INTERVAL_EVENT_STATE_RESUME))
+            return SchedulerIntervalEvent.SCHEDULE_STATE_RESUME;
+        else if (inScheduleStateString.equalsIgnoreCase(JsonLogStr.SCHEDULE_INTERVAL_EVENT_STATE_SUSPEND))
+            return SchedulerIntervalEvent.SCHEDULE_STATE_SUSPEND;
+        else if (inScheduleStateString.equalsIgnoreCase(JsonLogStr.SCHEDULE_INTERVAL_EVENT_STATE_END))
+            return SchedulerIntervalEvent.SCHEDULE_STATE_END;
+        else if (inScheduleStateString.equalsIgnoreCase(JsonLogStr.SCHEDULE_INTERVAL_EVENT_STATE_END_DEADLINE_MISSED))
+            return SchedulerIntervalEvent.SCHEDULE_STATE_END_DEADLINE_MISSED;
+        else
+            return SchedulerIntervalEvent.SCHEDULE_STATE_UNKNOWN;
+    }
+
+    /**
+     * The reverse of JsonLogExporter.getSchedulingPolicyValueString().
+     * @param inSchedulingPolicyString scheduling policy string defined in JsonLogStr
+     * @return scheduling policy string defined in EventContainer
+     */
+    public static String getSchedulingPolicy(String inSchedulingPolicyString) {
+        if (inSchedulingPolicyString.equalsIgnoreCase(JsonLogStr.SCHEDULING_POLICY_FIXED_PRIORITY))
+            return EventContainer.SCHEDULING_POLICY_FIXED_PRIORITY;
+        else if (inSchedulingPolicyString.equalsIgnoreCase(JsonLogStr.SCHEDULING_POLICY_EDF))
+            return EventContainer.SCHEDULING_POLICY_EDF;
+        else
+            return EventContainer.SCHEDULING_POLICY_UNKNOWN;
     }
 
     protected TaskInstantEvent jsonToTaskInstantEvent(JSONObject jsonEvent) {
@@ -235,6 +320,17 @@ public class JsonLogLoader extends FileHandler implements LogParser{
 
     protected EventContainer loadRawSchedule(JSONObject jsonData) {
 
+        /* task set (used only if no task set is given when this loader is created) */
+        if (taskSetContainer.size() == 0 && jsonData.has(JsonLogStr.DATA_RT_SIM_TASKSET)) {
+            taskSetContainer.addTaskSet(jsonToTaskSet(jsonData.getJSONObject(JsonLogStr.DATA_RT_SIM_TASKSET)));
+        }
+        if (taskSetContainer.size() > 0) {
+            eventContainer.setTaskSet(taskSetContainer.getTaskSets().get(0));
+        }
+
+        /* scheduling policy */
+        eventContainer.setSchedulingPolicy(getSchedulingPolicy(jsonData.optString(JsonLogStr.DATA_RT_SIM_SCHEDULING_POLICY)));
+
         /* schedule interval events */
         JSONArray jsonScheduleIntervalEventArray = jsonData.getJSONArray(JsonLogStr.DATA_RT_SIM_SCHEDULE_INTERVAL_EVENTS);
         int scheduleIntervalEventSize = jsonScheduleIntervalEventArray.length();
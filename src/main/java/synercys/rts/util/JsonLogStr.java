@@ -41,11 +41,33 @@ public class JsonLogStr {
     public static String TASK_WCET = "wcet";
     public static String TASK_PRIORITY = "priority";
     public static String TASK_PHASE = "phase";
+    public static String TASK_EXECUTION_TIME_MODEL = "executionTimeModel";    // optional; model defined below
+    public static String TASK_INTER_ARRIVAL_TIME_MODEL = "interArrivalTimeModel";  // optional; model defined below
 
     /* taskArrival type */
     public static String TASK_ARRIVAL_TYPE_PERIODIC = "periodic";
     public static String TASK_ARRIVAL_TYPE_SPORADIC = "sporadic";
 
+    /* execution/inter-arrival time model */
+    public static String MODEL_TYPE = "type";   // type defined below
+    public static String MODEL_VALUE = "value";     // fixed
+    public static String MODEL_MIN = "min";         // uniform, truncatedGaussian, poisson (optional)
+    public static String MODEL_MAX = "max";         // uniform, truncatedGaussian
+    public static String MODEL_MEAN = "mean";       // truncatedGaussian, poisson
+    public static String MODEL_STDDEV = "stddev";   // truncatedGaussian
+    public static String MODEL_SCALE = "scale";     // poisson (optional)
+    public static String MODEL_VALUES = "values";   // histogram, trace
+    public static String MODEL_WEIGHTS = "weights"; // histogram
+    public static String MODEL_LOOP = "loop";       // trace (optional)
+
+    /* model type */
+    public static String MODEL_TYPE_FIXED = "fixed";
+    public static String MODEL_TYPE_UNIFORM = "uniform";
+    public static String MODEL_TYPE_TRUNCATED_GAUSSIAN = "truncatedGaussian";
+    public static String MODEL_TYPE_POISSON = "poisson";
+    public static String MODEL_TYPE_HISTOGRAM = "histogram";
+    public static String MODEL_TYPE_TRACE = "trace";
+
     /* RtTaskGen */
     public static String DATA_TASK_GEN_SETTINGS = "configs";
 
@@ -0,0 +1,379 @@
+package synercys.rts.util;
+
+import cy.utility.file.FileHandler;
+import org.json.JSONObject;
+import synercys.rts.RtsConfig;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.EventSink;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+import synercys.rts.scheduler.TaskSetContainer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * JsonLogStreamWriter.java
+ * Purpose: A streaming counterpart of JsonLogExporter. Rather than building a JSONObject tree and serializing it at
+ *          once, it writes task sets and schedule events to a buffered writer or an NIO channel as they are given.
+ *          The output has the same layout (and format version) as JsonLogExporter and can be loaded by JsonLogLoader.
+ *          As an EventSink, it can be attached to a scheduler simulator so that a schedule is exported while being
+ *          simulated, without being held in memory (see AdvanceableSchedulerSimulator.runSimWithOffset()).
+ *
+ *          Pretty-printing is disabled by default. Task instant events, which scheduler simulators do not produce,
+ *          are buffered and written when the schedule is ended since they come after the interval events.
+ */
+public class JsonLogStreamWriter extends FileHandler implements EventSink {
+    protected static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    protected boolean prettyPrint = false;
+
+    /* JSON writing states */
+    protected ArrayList<Boolean> scopeIsEmpty = new ArrayList<>();  // one entry per opened object/array
+    protected boolean pendingKey = false;   // true if a key is written and is waiting for its value
+    protected boolean isWritingRawSchedule = false;
+    protected ArrayList<TaskInstantEvent> pendingTaskInstantEvents = new ArrayList<>();
+
+    public JsonLogStreamWriter(String filePath) {
+        this(filePath, false);
+    }
+
+    public JsonLogStreamWriter(String filePath, boolean prettyPrint) {
+        this.filePath = filePath;
+        this.prettyPrint = prettyPrint;
+        try {
+            FileChannel fileChannel = FileChannel.open(Paths.get(filePath),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            fileWriter = new BufferedWriter(Channels.newWriter(fileChannel, StandardCharsets.UTF_8.newEncoder(), -1), WRITE_BUFFER_SIZE);
+        } catch (IOException e) {
+            System.err.format("IOException @ JsonLogStreamWriter() while opening file: %s%n", e);
+            fileWriter = null;
+        }
+    }
+
+    public JsonLogStreamWriter(WritableByteChannel channel, boolean prettyPrint) {
+        this(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), prettyPrint);
+    }
+
+    public JsonLogStreamWriter(Writer writer, boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+        if (writer instanceof BufferedWriter) {
+            fileWriter = (BufferedWriter) writer;
+        } else {
+            fileWriter = new BufferedWriter(writer, WRITE_BUFFER_SIZE);
+        }
+    }
+
+    public String getVersion() {
+        return JsonLogExporter.WRITER_VERSION;
+    }
+
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+
+    /* ===== One-shot exports (same output as JsonLogExporter) ===== */
+
+    public void exportSingleTaskSet(TaskSet inTaskSet) {
+        beginTaskSets(JsonLogStr.DATA_TYPE_SINGLE_TASKSET);
+        writeTaskSet(inTaskSet);
+        endTaskSets();
+        close();
+    }
+
+    public void exportTaskSets(TaskSetContainer taskSetContainer) {
+        beginTaskSets(JsonLogStr.DATA_TYPE_TASKSETS);
+        for (TaskSet taskSet : taskSetContainer.getTaskSets()) {
+            writeTaskSet(taskSet);
+        }
+        endTaskSets();
+        close();
+    }
+
+    public void exportRawSchedule(EventContainer eventContainer) {
+        beginRawSchedule(eventContainer.getTaskSet(), eventContainer.getSchedulingPolicy());
+        for (SchedulerIntervalEvent event : eventContainer.getSchedulerEvents()) {
+            add(event);
+        }
+        for (TaskInstantEvent event : eventContainer.getTaskInstantEvents()) {
+            add(event);
+        }
+        endRawSchedule();
+        close();
+    }
+
+
+    /* ===== Streaming task sets ===== */
+
+    /**
+     * Write the header of a task set file. Task sets are then written one by one with writeTaskSet() and the file
+     * is completed by endTaskSets().
+     * @param dataType JsonLogStr.DATA_TYPE_TASKSETS or JsonLogStr.DATA_TYPE_SINGLE_TASKSET
+     */
+    public void beginTaskSets(String dataType) {
+        beginRoot(dataType);
+        writeKey(JsonLogStr.DATA_TASKSETS);
+        beginArray();
+    }
+
+    public void writeTaskSet(TaskSet inTaskSet) {
+        beginObject();
+        writeKey(JsonLogStr.TASKSET_TASKS);
+        beginArray();
+        for (Task task : inTaskSet.getTasksAsArray()) {
+            writeTask(task);
+        }
+        endArray();
+        writeKeyValue(JsonLogStr.TASKSET_ID, inTaskSet.getId());
+        endObject();
+    }
+
+    public void endTaskSets() {
+        endArray();
+        endRoot();
+        flush();
+    }
+
+
+    /* ===== Streaming raw schedule ===== */
+
+    /**
+     * Write the header of a raw schedule file. Events are then written by add() (e.g., as an EventSink attached
+     * to a scheduler) and the file is completed by endRawSchedule().
+     * @param taskSet           the task set that the schedule is generated from
+     * @param schedulingPolicy  scheduling policy string defined in EventContainer
+     */
+    public void beginRawSchedule(TaskSet taskSet, String schedulingPolicy) {
+        beginRoot(JsonLogStr.DATA_TYPE_RT_SIM_RAW_SCHEDULE);
+
+        // root - data - taskset
+        writeKey(JsonLogStr.DATA_RT_SIM_TASKSET);
+        writeTaskSet(taskSet);
+
+        // root - data - schedulingPolicy
+        writeKeyValue(JsonLogStr.DATA_RT_SIM_SCHEDULING_POLICY, JsonLogExporter.getSchedulingPolicyValueString(schedulingPolicy));
+
+        // root - data - scheduleIntervalEvents
+        writeKey(JsonLogStr.DATA_RT_SIM_SCHEDULE_INTERVAL_EVENTS);
+        beginArray();
+
+        pendingTaskInstantEvents.clear();
+        isWritingRawSchedule = true;
+    }
+
+    @Override
+    public void add(SchedulerIntervalEvent inEvent) {
+        if (!isWritingRawSchedule) {
+            throw new AssertionError("beginRawSchedule() has to be called before adding schedule events.");
+        }
+        beginObject();
+        writeKeyValue(JsonLogStr.SCHEDULE_INTERVAL_EVENT_TASK_ID, inEvent.getTask().getId());
+        writeKeyValue(JsonLogStr.SCHEDULE_INTERVAL_EVENT_BEGIN_STATE, JsonLogExporter.getScheduleStateValueString(inEvent.getBeginTimeScheduleState()));
+        writeKeyValue(JsonLogStr.SCHEDULE_INTERVAL_EVENT_END_STATE, JsonLogExporter.getScheduleStateValueString(inEvent.getEndTimeScheduleState()));
+        writeKeyValue(JsonLogStr.SCHEDULE_INTERVAL_EVENT_BEGIN_TIME, inEvent.getOrgBeginTimestamp());
+        writeKeyValue(JsonLogStr.SCHEDULE_INTERVAL_EVENT_END_TIME, inEvent.getOrgEndTimestamp());
+        endObject();
+    }
+
+    @Override
+    public void add(TaskInstantEvent inEvent) {
+        if (!isWritingRawSchedule) {
+            throw new AssertionError("beginRawSchedule() has to be called before adding schedule events.");
+        }
+        pendingTaskInstantEvents.add(inEvent);
+    }
+
+    public void endRawSchedule() {
+        endArray();
+
+        // root - data - taskInstantEvents
+        writeKey(JsonLogStr.DATA_RT_SIM_TASK_INSTANT_EVENTS);
+        beginArray();
+        for (TaskInstantEvent event : pendingTaskInstantEvents) {
+            beginObject();
+            writeKeyValue(JsonLogStr.TASK_INSTANT_EVENT_TASK_ID, event.getTask().getId());
+            writeKeyValue(JsonLogStr.TASK_INSTANT_EVENT_BEGIN, event.getOrgTimestamp());
+            writeKeyValue(JsonLogStr.TASK_INSTANT_EVENT_RECORD, event.getRecordData());
+            writeKeyValue(JsonLogStr.TASK_INSTANT_EVENT_NOTE, event.getNote());
+            endObject();
+        }
+        endArray();
+        pendingTaskInstantEvents.clear();
+        isWritingRawSchedule = false;
+
+        endRoot();
+        flush();
+    }
+
+
+    /* ===== Common blocks ===== */
+
+    protected void beginRoot(String dataType) {
+        beginObject();
+        writeKeyValue(JsonLogStr.ROOT_FORMAT_VERSION, getVersion());
+        writeKeyValue(JsonLogStr.ROOT_DATA_TYPE, dataType);
+        writeKey(JsonLogStr.ROOT_DATA);
+        beginObject();
+        writeKeyValue(JsonLogStr.TICK_UNIT, RtsConfig.TIMESTAMP_UNIT_NS);
+    }
+
+    protected void endRoot() {
+        endObject(); // data
+        endObject(); // root
+        write(prettyPrint ? "\n" : "");
+    }
+
+    protected void writeTask(Task task) {
+        beginObject();
+        writeKeyValue(JsonLogStr.TASK_ID, task.getId());
+        writeKeyValue(JsonLogStr.TASK_NAME, task.getTitle());
+        writeKeyValue(JsonLogStr.TASK_TYPE, task.getTaskType());
+        writeKeyValue(JsonLogStr.TASK_ARRIVAL_TYPE, task.isSporadicTask()?JsonLogStr.TASK_ARRIVAL_TYPE_SPORADIC :JsonLogStr.TASK_ARRIVAL_TYPE_PERIODIC);
+        writeKeyValue(JsonLogStr.TASK_PERIOD, task.getPeriod());
+        writeKeyValue(JsonLogStr.TASK_DEADLINE, task.getDeadline());
+        writeKeyValue(JsonLogStr.TASK_WCET, task.getWcet());
+        writeKeyValue(JsonLogStr.TASK_PRIORITY, task.getPriority());
+        writeKeyValue(JsonLogStr.TASK_PHASE, task.getInitialOffset());
+        if (task.getExecutionTimeDistribution() != null) {
+            writeKey(JsonLogStr.TASK_EXECUTION_TIME_MODEL);
+            writeRawValue(JsonLogExporter.getJsonTimeDistribution(task.getExecutionTimeDistribution()).toString());
+        }
+        if (task.getInterArrivalTimeDistribution() != null) {
+            writeKey(JsonLogStr.TASK_INTER_ARRIVAL_TIME_MODEL);
+            writeRawValue(JsonLogExporter.getJsonTimeDistribution(task.getInterArrivalTimeDistribution()).toString());
+        }
+        endObject();
+    }
+
+
+    /* ===== JSON primitives ===== */
+
+    protected void beginObject() {
+        beginValue();
+        write("{");
+        scopeIsEmpty.add(true);
+    }
+
+    protected void endObject() {
+        endScope();
+        write("}");
+    }
+
+    protected void beginArray() {
+        beginValue();
+        write("[");
+        scopeIsEmpty.add(true);
+    }
+
+    protected void endArray() {
+        endScope();
+        write("]");
+    }
+
+    protected void writeKey(String key) {
+        nextElement();
+        write(JSONObject.quote(key));
+        write(prettyPrint ? ": " : ":");
+        pendingKey = true;
+    }
+
+    protected void writeKeyValue(String key, String value) {
+        writeKey(key);
+        beginValue();
+        write(JSONObject.quote(value));
+    }
+
+    protected void writeKeyValue(String key, long value) {
+        writeKey(key);
+        beginValue();
+        write(Long.toString(value));
+    }
+
+    /* The given string must be a serialized JSON value. */
+    protected void writeRawValue(String json) {
+        beginValue();
+        write(json);
+    }
+
+    /* A value either follows a key (in an object) or is a new element (in an array). */
+    protected void beginValue() {
+        if (pendingKey) {
+            pendingKey = false;
+        } else {
+            nextElement();
+        }
+    }
+
+    protected void nextElement() {
+        int depth = scopeIsEmpty.size();
+        if (depth == 0)
+            return;
+
+        if (scopeIsEmpty.get(depth-1)) {
+            scopeIsEmpty.set(depth-1, false);
+        } else {
+            write(",");
+        }
+        writeNewLineIndent(depth);
+    }
+
+    protected void endScope() {
+        boolean isEmpty = scopeIsEmpty.remove(scopeIsEmpty.size()-1);
+        if (!isEmpty) {
+            writeNewLineIndent(scopeIsEmpty.size());
+        }
+    }
+
+    protected void writeNewLineIndent(int depth) {
+        if (!prettyPrint)
+            return;
+
+        StringBuilder indent = new StringBuilder("\n");
+        for (int i=0; i<depth; i++) {
+            indent.append("    ");
+        }
+        write(indent.toString());
+    }
+
+    protected void write(String str) {
+        if (!isFileWriterOpened())
+            return;
+        try {
+            fileWriter.write(str);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void flush() {
+        if (!isFileWriterOpened())
+            return;
+        try {
+            fileWriter.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public void close() {
+        if (!isFileWriterOpened())
+            return;
+        try {
+            fileWriter.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        fileWriter = null;
+    }
+}
@@ -10,6 +10,7 @@ import java.io.IOException;
  */
 public class LogLoader extends FileHandler{
     private LogParser logParser;
+    private boolean parallelParsing = false;   // use V11ParallelLogParser for V11 logs
 
     public LogLoader() {
     }
@@ -80,7 +81,14 @@ public class LogLoader extends FileHandler{
         try {
             this.openFile(inLogFilePath);
             initializeLogParser();
-            logParser.parseLog(this.fileReader);
+            if (parallelParsing && logParser instanceof V11LogParser) {
+                // The parallel parser maps the file by itself; the header lines read above are skipped by it.
+                V11ParallelLogParser parallelLogParser = new V11ParallelLogParser();
+                logParser = parallelLogParser;
+                parallelLogParser.parseLog(inLogFilePath);
+            } else {
+                logParser.parseLog(this.fileReader);
+            }
         } catch (IOException e) {
             e.printStackTrace();
             return false;
@@ -93,6 +101,10 @@ public class LogLoader extends FileHandler{
         return logParser.getEventContainer();
     }
 
+    public void setParallelParsing(boolean parallelParsing) {
+        this.parallelParsing = parallelParsing;
+    }
+
 
 
 }
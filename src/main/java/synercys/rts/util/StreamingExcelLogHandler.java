@@ -0,0 +1,489 @@
+package synercys.rts.util;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import synercys.rts.framework.Histogram;
+import synercys.rts.framework.Interval;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.event.BusyIntervalEvent;
+import synercys.rts.framework.event.BusyIntervalEventContainer;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * StreamingExcelLogHandler.java
+ * Purpose: An xlsx exporter with the same row generators as ExcelLogHandler, but for long schedules and multi-round
+ *          output. It differs from ExcelLogHandler in that:
+ *          - Rows are written through SXSSF: only the latest rowAccessWindowSize rows are kept in memory and older
+ *            rows are flushed to a temporary file.
+ *          - Consecutive cells with the same content are written as one merged cell (run-length), rather than one
+ *            cell per tick. Merged regions and conditional formattings stay in memory until the workbook is written,
+ *            so only the first maxMergedRegions runs (and maxConditionalFormattings histogram rows) are merged (and
+ *            color-scaled); later runs are written as separate cells with the same style.
+ *          - Cell styles are shared rather than created per cell.
+ *          - A row covers at most maxColumns columns. Longer schedules are downsampled so that each column covers
+ *            several ticks and shows the task that occupies the most ticks in it. Ladder diagrams are capped at
+ *            maxLadderRows rows instead.
+ */
+public class StreamingExcelLogHandler {
+    public static final int EXCEL_COLUMN_LIMIT = 16380;
+    public static final int EXCEL_ROW_LIMIT = 1048575;
+    public static final int DEFAULT_ROW_ACCESS_WINDOW_SIZE = 100;
+    public static final int DEFAULT_MAX_MERGED_REGIONS = 10000;
+    public static final int DEFAULT_MAX_CONDITIONAL_FORMATTINGS = 1000;
+    private static String DEFAULT_XLSX_FILE_PATH = "out.xlsx";
+
+    private static final short NO_COLOR = -1;
+
+    SXSSFWorkbook workbook;
+    SXSSFSheet sheet;
+    int columnOffset = 1;
+    int rowIndex = 0;
+
+    int maxColumns = EXCEL_COLUMN_LIMIT - 1;
+    int maxLadderRows = EXCEL_ROW_LIMIT;
+    boolean mergeRuns = true;
+    int maxMergedRegions = DEFAULT_MAX_MERGED_REGIONS;
+    int maxConditionalFormattings = DEFAULT_MAX_CONDITIONAL_FORMATTINGS;
+    int mergedRegionCount = 0;          // in the workbook
+    int conditionalFormattingCount = 0; // in the workbook
+
+    Font whiteFont = null;
+    HashMap<Long, CellStyle> cellStyles = new HashMap<>();  // keyed by (color index, left border)
+
+    public StreamingExcelLogHandler() {
+        this(DEFAULT_ROW_ACCESS_WINDOW_SIZE);
+    }
+
+    public StreamingExcelLogHandler(int rowAccessWindowSize) {
+        workbook = new SXSSFWorkbook(rowAccessWindowSize);
+        workbook.setCompressTempFiles(true);
+        createNewSheet("log");
+
+        // Set default column width
+        sheet.setDefaultColumnWidth(1);
+
+        // Set title column.
+        sheet.setColumnWidth(0, 4000);
+    }
+
+    public void createNewSheet(String sheetName) {
+        sheet = workbook.createSheet(sheetName);
+        rowIndex = 0;
+    }
+
+    /**
+     * @param maxColumns the maximum number of columns (excluding the title column) a row can use; longer schedules
+     *                   are downsampled to fit
+     */
+    public void setMaxColumns(int maxColumns) {
+        this.maxColumns = Math.max(1, Math.min(maxColumns, EXCEL_COLUMN_LIMIT - columnOffset));
+    }
+
+    public void setMaxLadderRows(int maxLadderRows) {
+        this.maxLadderRows = Math.max(1, maxLadderRows);
+    }
+
+    /**
+     * @param mergeRuns false to write each run as separate cells without merging (merged regions are kept in memory
+     *                  until the workbook is written)
+     */
+    public void setMergeRuns(boolean mergeRuns) {
+        this.mergeRuns = mergeRuns;
+    }
+
+    /**
+     * @param maxMergedRegions the maximum number of merged regions in the workbook; later runs are not merged
+     */
+    public void setMaxMergedRegions(int maxMergedRegions) {
+        this.maxMergedRegions = Math.max(0, maxMergedRegions);
+    }
+
+    /**
+     * @param maxConditionalFormattings the maximum number of histogram rows that get a color scale
+     */
+    public void setMaxConditionalFormattings(int maxConditionalFormattings) {
+        this.maxConditionalFormattings = Math.max(0, maxConditionalFormattings);
+    }
+
+    /**
+     * The number of ticks a column covers so that the given length fits in maxColumns columns.
+     */
+    public long getTicksPerColumn(long length) {
+        return Math.max(1, (length + maxColumns - 1)/maxColumns);
+    }
+
+    public void genRowSchedulerIntervalEvents(EventContainer inEvents, boolean showIndependentTaskSchedule) {
+        long endTimestamp = inEvents.getEndTimeStamp();
+        long ticksPerColumn = getTicksPerColumn(endTimestamp);
+        int columnCount = (int) ((endTimestamp + ticksPerColumn - 1)/ticksPerColumn);
+
+        Row row = sheet.createRow(rowIndex++);
+
+        // Set title column.
+        row.createCell(0).setCellValue(ticksPerColumn == 1 ? "Schedule" : "Schedule (" + ticksPerColumn + " ticks/col)");
+
+        ColumnTasks columnTasks = new ColumnTasks(columnCount);
+        columnTasks.fill(inEvents, null, 0, ticksPerColumn);
+
+        int runBegin = 0;
+        for (int i=1; i<=columnCount; i++) {
+            if (i < columnCount && columnTasks.sameAs(i, runBegin))
+                continue;
+
+            Task task = columnTasks.tasks[runBegin];
+            if (columnTasks.occupied[runBegin] && task != null) {
+                writeRun(row, runBegin, i - 1, task.getId(), getCellStyle((short) (task.getId() + 1), false));
+            } else {
+                writeRun(row, runBegin, i - 1, 0, null);
+            }
+            runBegin = i;
+        }
+
+        /* display schedules for different tasks in separate rows */
+        if (showIndependentTaskSchedule) {
+            for (Task task : inEvents.getTaskSet().getAppTaskAsArraySortedByPeriod()) {
+                genRowTaskSchedule(inEvents, task);
+            }
+        }
+    }
+
+    public void genRowTaskSchedule(EventContainer eventContainer, Task task) {
+        long endTimestamp = eventContainer.getEndTimeStamp();
+        long ticksPerColumn = getTicksPerColumn(endTimestamp);
+        int columnCount = (int) ((endTimestamp + ticksPerColumn - 1)/ticksPerColumn);
+
+        Row row = sheet.createRow(rowIndex++);
+
+        // Set title column.
+        row.createCell(0).setCellValue(task.getTitle() + " (ID=" + task.getId() + ", T=" + task.getPeriod() + ")");
+
+        ColumnTasks columnTasks = new ColumnTasks(columnCount);
+        columnTasks.fill(eventContainer, task, 0, ticksPerColumn);
+
+        /* mark arrival time points (with using left boarders) */
+        boolean[] arrivals = new boolean[columnCount];
+        for (long i=task.getInitialOffset(); i<endTimestamp; i+=task.getPeriod()) {
+            arrivals[(int) (i/ticksPerColumn)] = true;
+        }
+
+        int runBegin = 0;
+        for (int i=1; i<=columnCount; i++) {
+            if (i < columnCount && columnTasks.sameAs(i, runBegin) && !arrivals[i] && !columnTasks.startMarks[i])
+                continue;
+
+            if (columnTasks.occupied[runBegin]) {
+                Object value = columnTasks.startMarks[runBegin] ? task.getId() + "*" : task.getId();
+                writeRun(row, runBegin, i - 1, value, getCellStyle((short) (task.getId() + 1), arrivals[runBegin]));
+            } else {
+                writeRun(row, runBegin, i - 1, null, arrivals[runBegin] ? getCellStyle(NO_COLOR, true) : null);
+            }
+            runBegin = i;
+        }
+    }
+
+    public void genSchedulerIntervalEventsOnLadderDiagram(EventContainer eventContainer, long ladderWidth) {
+        if (ladderWidth+columnOffset > EXCEL_COLUMN_LIMIT)
+            return;
+
+        /* Fill the first row with width index (timestamp, rather). */
+        Row firstRow = sheet.createRow(rowIndex++);
+        firstRow.createCell(0).setCellValue("Timestamps");
+        for (long i=0; i<ladderWidth; i++) {
+            firstRow.createCell((int) i + columnOffset).setCellValue(i);
+        }
+
+        if (eventContainer.getSchedulerEvents().size() == 0)
+            return;
+
+        /* Start from the first column of the row where the first schedule interval event appears. */
+        SchedulerIntervalEvent firstEvent = eventContainer.getSchedulerEvents().get(0);
+        long lastTimestamp = (firstEvent.getOrgBeginTimestamp()/ladderWidth)*ladderWidth;
+        long rowLimitTimestamp = lastTimestamp + ladderWidth*maxLadderRows;
+        Row currentRow = null;
+
+        for (SchedulerIntervalEvent thisScheduleEvent : eventContainer.getSchedulerEvents()) {
+            /* Fill the gaps with idle (white) cells and then the event itself, broken at row boundaries. */
+            long eventEnd = Math.min(thisScheduleEvent.getOrgEndTimestamp(), rowLimitTimestamp);
+            while (lastTimestamp < eventEnd) {
+                if (lastTimestamp%ladderWidth == 0 || currentRow == null) {
+                    if (rowIndex > EXCEL_ROW_LIMIT)
+                        return;
+                    currentRow = sheet.createRow(rowIndex++);
+                    currentRow.createCell(0).setCellValue((lastTimestamp/ladderWidth)*ladderWidth);
+                }
+
+                boolean inGap = lastTimestamp < thisScheduleEvent.getOrgBeginTimestamp();
+                long runEnd = inGap ? thisScheduleEvent.getOrgBeginTimestamp() : eventEnd;
+                runEnd = Math.min(runEnd, (lastTimestamp/ladderWidth + 1)*ladderWidth);
+
+                int firstColumn = (int) (lastTimestamp % ladderWidth);
+                int lastColumn = (int) ((runEnd - 1) % ladderWidth);
+                Task task = thisScheduleEvent.getTask();
+                if (inGap || task == null || task.isIdleTaskType()) {
+                    writeRun(currentRow, firstColumn, lastColumn, null, getCellStyle(IndexedColors.WHITE.index, false));
+                } else {
+                    writeRun(currentRow, firstColumn, lastColumn, task.getId(), getCellStyle(getLadderColorIndex(task.getId()), false));
+                }
+                lastTimestamp = runEnd;
+            }
+        }
+    }
+
+    private short getLadderColorIndex(int taskId) {
+        switch (taskId) {
+            case 0: return 9;
+            case 1: return 30;
+            case 2: return 17;
+            case 3: return 23;
+            default: return (short) (taskId+1);
+        }
+    }
+
+    public void genIntervalsOnLadderDiagram(ArrayList<Interval> intervals, long ladderWidth) {
+        if (ladderWidth+columnOffset > EXCEL_COLUMN_LIMIT)
+            return;
+
+        EventContainer eventContainer = new EventContainer();
+        for (Interval thisInterval : intervals) {
+            eventContainer.add(new SchedulerIntervalEvent(thisInterval.getBegin(), thisInterval.getEnd(), null, ""));
+        }
+
+        genSchedulerIntervalEventsOnLadderDiagram(eventContainer, ladderWidth);
+    }
+
+    public void genRowBusyIntervals(BusyIntervalEventContainer inBis) {
+        long beginTime = inBis.getBeginTime();
+        long ticksPerColumn = getTicksPerColumn(inBis.getEndTime());
+        int columnCount = (int) ((inBis.getEndTime() + ticksPerColumn - 1)/ticksPerColumn);
+
+        Row row = sheet.createRow(rowIndex++);
+
+        // Set title column.
+        row.createCell(0).setCellValue("Busy Intervals");
+
+        /* A column is busy if its ticks are busy for the most part. */
+        long[] busyTicks = new long[columnCount];
+        for (BusyIntervalEvent thisBi : inBis.getBusyIntervals()) {
+            long begin = thisBi.getOrgBeginTimestamp();
+            while (begin < thisBi.getOrgEndTimestamp()) {
+                int column = (int) (begin/ticksPerColumn);
+                long segmentEnd = Math.min(thisBi.getOrgEndTimestamp(), (column + 1)*ticksPerColumn);
+                busyTicks[column] += segmentEnd - begin;
+                begin = segmentEnd;
+            }
+        }
+
+        int firstColumn = (int) (beginTime/ticksPerColumn);
+        int runBegin = firstColumn;
+        for (int i=firstColumn+1; i<=columnCount; i++) {
+            if (i < columnCount && (busyTicks[i]*2 > ticksPerColumn) == (busyTicks[runBegin]*2 > ticksPerColumn))
+                continue;
+            writeRun(row, runBegin, i - 1, (busyTicks[runBegin]*2 > ticksPerColumn) ? "1" : "0", null);
+            runBegin = i;
+        }
+    }
+
+    public void genHistogramRow(Histogram inHistogram) {
+        long length = inHistogram.getEnd() + 1;
+        long ticksPerColumn = getTicksPerColumn(length);
+        int columnCount = (int) ((length + ticksPerColumn - 1)/ticksPerColumn);
+
+        /* Downsampled columns show the average of the bins they cover. */
+        double[] values = new double[columnCount];
+        for (int i=0; i<columnCount; i++) {
+            long binEnd = Math.min(length, (i + 1)*ticksPerColumn);
+            double sum = 0;
+            for (long j=i*ticksPerColumn; j<binEnd; j++) {
+                sum += inHistogram.getValue(j);
+            }
+            values[i] = sum/(binEnd - i*ticksPerColumn);
+        }
+
+        Row row = sheet.createRow(rowIndex++);
+        int runBegin = 0;
+        for (int i=1; i<=columnCount; i++) {
+            if (i < columnCount && values[i] == values[runBegin])
+                continue;
+            writeRun(row, runBegin, i - 1, values[runBegin], null);
+            runBegin = i;
+        }
+
+        if (conditionalFormattingCount >= maxConditionalFormattings)
+            return;
+        conditionalFormattingCount++;
+
+        SheetConditionalFormatting sheetCF = sheet.getSheetConditionalFormatting();
+        ConditionalFormattingRule rule1 = sheetCF.createConditionalFormattingColorScaleRule();
+        ColorScaleFormatting clrFmt = rule1.getColorScaleFormatting();
+
+        /* Setting upper and lower threshold of the color scale. */
+        clrFmt.getThresholds()[0].setRangeType(ConditionalFormattingThreshold.RangeType.MIN);
+        clrFmt.getThresholds()[1].setRangeType(ConditionalFormattingThreshold.RangeType.MAX);
+
+        /* Colors of the color-scale. */
+        Color[] colors = new Color[2];
+        colors[0] = new XSSFColor(java.awt.Color.WHITE, null);
+        colors[1] = new XSSFColor(java.awt.Color.RED, null);
+        clrFmt.setColors(colors);
+
+        /* Select range. */
+        CellRangeAddress[] regions = { new CellRangeAddress(row.getRowNum(), row.getRowNum(), columnOffset, columnOffset + columnCount - 1) };
+        sheetCF.addConditionalFormatting(regions, rule1);
+    }
+
+    public void genEmptyRow() {
+        sheet.createRow(rowIndex++);
+    }
+
+    /**
+     * Write a run of columns [firstColumn, lastColumn] (not including the column offset) as one merged cell, or as
+     * cells with the same style once merging is off or maxMergedRegions is reached.
+     * @param value a Number, a String or null (no value)
+     * @param style cell style or null for the default style
+     */
+    protected void writeRun(Row row, int firstColumn, int lastColumn, Object value, CellStyle style) {
+        if (firstColumn + columnOffset > EXCEL_COLUMN_LIMIT)
+            return;
+        lastColumn = Math.min(lastColumn, EXCEL_COLUMN_LIMIT - columnOffset);
+
+        Cell cell = row.createCell(firstColumn + columnOffset);
+        if (value instanceof Number)
+            cell.setCellValue(((Number) value).doubleValue());
+        else if (value != null)
+            cell.setCellValue(value.toString());
+        if (style != null)
+            cell.setCellStyle(style);
+
+        if (lastColumn == firstColumn)
+            return;
+        if (mergeRuns && mergedRegionCount < maxMergedRegions) {
+            sheet.addMergedRegionUnsafe(new CellRangeAddress(row.getRowNum(), row.getRowNum(),
+                    firstColumn + columnOffset, lastColumn + columnOffset));
+            mergedRegionCount++;
+        } else if (style != null) {
+            for (int i=firstColumn+1; i<=lastColumn; i++) {
+                row.createCell(i + columnOffset).setCellStyle(style);
+            }
+        }
+    }
+
+    protected CellStyle getCellStyle(short colorIndex, boolean leftBorder) {
+        long key = ((long) colorIndex << 1) | (leftBorder ? 1 : 0);
+        CellStyle cellStyle = cellStyles.get(key);
+        if (cellStyle != null)
+            return cellStyle;
+
+        cellStyle = workbook.createCellStyle();
+        if (colorIndex != NO_COLOR) {
+            /* foreground color */
+            cellStyle.setFillForegroundColor(colorIndex);
+            cellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            /* font color */
+            if (whiteFont == null) {
+                whiteFont = workbook.createFont();
+                whiteFont.setColor(IndexedColors.WHITE.getIndex());
+            }
+            cellStyle.setFont(whiteFont);
+        }
+        if (leftBorder) {
+            cellStyle.setBorderLeft(BorderStyle.THICK);
+            cellStyle.setLeftBorderColor(IndexedColors.BLACK.getIndex());
+        }
+        cellStyles.put(key, cellStyle);
+        return cellStyle;
+    }
+
+    public Boolean saveAndClose(String inFilePath) {
+        String filePath;
+        if (inFilePath == null) {
+            filePath = DEFAULT_XLSX_FILE_PATH;
+        } else {
+            filePath = inFilePath;
+        }
+        try (FileOutputStream outputStream = new FileOutputStream(filePath)) {
+            workbook.write(outputStream);
+            workbook.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            // Delete the temporary files that hold the flushed rows.
+            workbook.dispose();
+        }
+        return true;
+    }
+
+
+    /**
+     * The task shown in each column of a schedule row. When a column covers several ticks, it shows the task that
+     * occupies the most ticks in the column.
+     */
+    protected static class ColumnTasks {
+        Task[] tasks;
+        boolean[] occupied;
+        boolean[] startMarks;   // whether a job starts in the column
+
+        ColumnTasks(int columnCount) {
+            tasks = new Task[columnCount];
+            occupied = new boolean[columnCount];
+            startMarks = new boolean[columnCount];
+        }
+
+        /**
+         * @param onlyTask  only events of this task are considered (all events if null)
+         */
+        void fill(EventContainer eventContainer, Task onlyTask, long beginTimestamp, long ticksPerColumn) {
+            int currentColumn = -1;
+            HashMap<Task, Long> currentColumnTicks = new HashMap<>();
+
+            for (SchedulerIntervalEvent event : eventContainer.getSchedulerEvents()) {
+                if (onlyTask != null && event.getTask() != onlyTask)
+                    continue;
+
+                long begin = Math.max(event.getOrgBeginTimestamp(), beginTimestamp);
+                long end = Math.min(event.getOrgEndTimestamp(), beginTimestamp + ticksPerColumn*tasks.length);
+                while (begin < end) {
+                    int column = (int) ((begin - beginTimestamp)/ticksPerColumn);
+                    long segmentEnd = Math.min(end, beginTimestamp + (column + 1)*ticksPerColumn);
+                    if (column != currentColumn) {
+                        conclude(currentColumn, currentColumnTicks);
+                        currentColumn = column;
+                        currentColumnTicks.clear();
+                    }
+                    currentColumnTicks.merge(event.getTask(), segmentEnd - begin, Long::sum);
+                    if (begin == event.getOrgBeginTimestamp() && event.getBeginTimeScheduleState() == SchedulerIntervalEvent.SCHEDULE_STATE_START)
+                        startMarks[column] = true;
+                    begin = segmentEnd;
+                }
+            }
+            conclude(currentColumn, currentColumnTicks);
+        }
+
+        private void conclude(int column, HashMap<Task, Long> columnTicks) {
+            if (column < 0)
+                return;
+            long maxTicks = 0;
+            for (Map.Entry<Task, Long> entry : columnTicks.entrySet()) {
+                if (entry.getValue() > maxTicks) {
+                    maxTicks = entry.getValue();
+                    tasks[column] = entry.getKey();
+                    occupied[column] = true;
+                }
+            }
+        }
+
+        boolean sameAs(int column, int otherColumn) {
+            return occupied[column] == occupied[otherColumn] && tasks[column] == tasks[otherColumn];
+        }
+    }
+}
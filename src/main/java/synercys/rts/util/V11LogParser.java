@@ -47,7 +47,7 @@ public class V11LogParser implements LogParser {
      */
     @Override
     public Boolean parseLog(BufferedReader fileReader) {
-        int lineCounter = 1;
+        int lineCounter = 0;
         firstTimestamp = -1;
 
         try {
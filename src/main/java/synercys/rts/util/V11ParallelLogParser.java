@@ -0,0 +1,531 @@
+package synercys.rts.util;
+
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * V11ParallelLogParser.java
+ * Purpose: A high-throughput parser for the V11 text log format (the @TaskList, @SchedulerLog, @AppLog and @MixedLog
+ *          blocks handled by V11LogParser) for large hardware trace captures.
+ *
+ *          The file is split into chunks on line boundaries and each chunk is memory-mapped and parsed by a worker
+ *          thread into primitive event buffers. Since a chunk does not know which block its first lines belong to,
+ *          the lines before the first block header of a chunk are resolved when the chunks are stitched together in
+ *          order. The stitching step also builds the events with a task lookup table instead of searching the task set
+ *          for every event. The result is the same as the one produced by V11LogParser.
+ */
+public class V11ParallelLogParser implements LogParser {
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 4*1024*1024;
+    protected static final int MAX_CHUNK_SIZE = 256*1024*1024;
+
+    private static final int LOG_BLOCK_INHERITED = -1;   // lines before the first block header in a chunk
+    private static final int LOG_BLOCK_UNKNOWN = 0;
+    private static final int LOG_BLOCK_TASK_LIST = 1;
+    private static final int LOG_BLOCK_SCHEDULER_LOG = 2;
+    private static final int LOG_BLOCK_APP_LOG = 3;
+    private static final int LOG_BLOCK_MIXED_LOG = 5;
+    private static final int LOG_BLOCK_HACKER_LIST = 6;
+
+    private static final byte RECORD_EVENT = 0;     // a line in [timestamp, taskId, data, "string"] format
+    private static final byte RECORD_OTHER = 1;     // any other line (kept as a string)
+
+    private EventContainer eventContainer = new EventContainer();
+    private TaskSet taskSet;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+
+    public V11ParallelLogParser() {
+        taskSet = eventContainer.getTaskSet();
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public void setMinChunkSize(int minChunkSize) {
+        this.minChunkSize = Math.max(1, Math.min(minChunkSize, MAX_CHUNK_SIZE));
+    }
+
+    @Override
+    public int getParserVersion() {
+        return V11LogParser.PARSER_VERSION;
+    }
+
+    /**
+     * A BufferedReader cannot be memory-mapped, so this falls back to the sequential V11LogParser.
+     * Use parseLog(String) for the parallel parser.
+     */
+    @Override
+    public Boolean parseLog(BufferedReader fileReader) {
+        V11LogParser v11LogParser = new V11LogParser();
+        Boolean result = v11LogParser.parseLog(fileReader);
+        eventContainer = v11LogParser.getEventContainer();
+        taskSet = eventContainer.getTaskSet();
+        return result;
+    }
+
+    @Override
+    public EventContainer getEventContainer() {
+        return eventContainer;
+    }
+
+    /**
+     * Load logs from the file and put them in the Events Container.
+     * @param filePath path of the log file
+     * @return return 'false' if it fails to load the log file. Otherwise, return 'true'.
+     */
+    public Boolean parseLog(String filePath) {
+        eventContainer.clearAll();
+
+        ArrayList<ChunkResult> chunkResults = new ArrayList<>();
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long[] chunkBoundaries = getChunkBoundaries(fileChannel);
+            int chunkCount = chunkBoundaries.length - 1;
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, chunkCount));
+            try {
+                ArrayList<Future<ChunkResult>> futures = new ArrayList<>();
+                for (int i=0; i<chunkCount; i++) {
+                    MappedByteBuffer chunkBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                            chunkBoundaries[i], chunkBoundaries[i + 1] - chunkBoundaries[i]);
+                    futures.add(executor.submit(() -> parseChunk(chunkBuffer)));
+                }
+                for (Future<ChunkResult> future : futures) {
+                    chunkResults.add(future.get());
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                return false;
+            } finally {
+                executor.shutdown();
+            }
+        } catch (IOException x) {
+            System.err.format("IOException @ reading file: %s%n", x);
+            return false;
+        }
+
+        return stitchChunks(chunkResults);
+    }
+
+    /**
+     * Split the file into chunks that end on line boundaries.
+     * @return chunk boundaries (file offsets), including 0 and the file size
+     */
+    protected long[] getChunkBoundaries(FileChannel fileChannel) throws IOException {
+        long fileSize = fileChannel.size();
+        long chunkSize = Math.max(minChunkSize, (fileSize + threadCount*4 - 1)/(threadCount*4));
+        chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+
+        long[] boundaries = new long[(int) (fileSize/chunkSize) + 2];
+        int boundaryCount = 0;
+        boundaries[boundaryCount++] = 0;
+        ByteBuffer probeBuffer = ByteBuffer.allocate(4096);
+        long position = chunkSize;
+        while (position < fileSize) {
+            /* Move the boundary to just after the next line feed. */
+            long lineEnd = -1;
+            long probePosition = position;
+            while (lineEnd < 0 && probePosition < fileSize) {
+                probeBuffer.clear();
+                int readSize = fileChannel.read(probeBuffer, probePosition);
+                if (readSize <= 0)
+                    break;
+                for (int i=0; i<readSize; i++) {
+                    if (probeBuffer.get(i) == '\n') {
+                        lineEnd = probePosition + i + 1;
+                        break;
+                    }
+                }
+                probePosition += readSize;
+            }
+            if (lineEnd < 0 || lineEnd >= fileSize)
+                break;
+            if (lineEnd - boundaries[boundaryCount - 1] > Integer.MAX_VALUE)
+                throw new IOException("A line is too long to be parsed.");
+            boundaries[boundaryCount++] = lineEnd;
+            position = lineEnd + chunkSize;
+        }
+        if (fileSize - boundaries[boundaryCount - 1] > Integer.MAX_VALUE)
+            throw new IOException("A line is too long to be parsed.");
+        boundaries[boundaryCount++] = fileSize;
+        return Arrays.copyOf(boundaries, boundaryCount);
+    }
+
+    /**
+     * Parse lines in a chunk into primitive buffers. This does not fail: lines that do not have the event format are
+     * kept as strings and are checked against their block type in stitchChunks().
+     */
+    protected static ChunkResult parseChunk(ByteBuffer buffer) {
+        ChunkResult result = new ChunkResult();
+        int limit = buffer.limit();
+        int lineBegin = 0;
+        while (lineBegin < limit) {
+            int lineEnd = lineBegin;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n')
+                lineEnd++;
+            result.lineCount++;
+            parseLine(buffer, lineBegin, lineEnd, result);
+            lineBegin = lineEnd + 1;
+        }
+        return result;
+    }
+
+    private static void parseLine(ByteBuffer buffer, int begin, int end, ChunkResult result) {
+        /* Same as String.trim(): characters up to ' ' (including '\r') are trimmed. */
+        while (begin < end && (buffer.get(begin) & 0xff) <= ' ')
+            begin++;
+        while (end > begin && (buffer.get(end - 1) & 0xff) <= ' ')
+            end--;
+
+        if (begin == end) // Empty line
+            return;
+        if (buffer.get(begin) == '#') // Comment line
+            return;
+
+        if (buffer.get(begin) == '@') {
+            int block = getBlockType(buffer, begin, end);
+            if (block != LOG_BLOCK_UNKNOWN) {
+                result.addSegment(block);
+                return;
+            }
+        }
+
+        if (!parseEventLine(buffer, begin, end, result)) {
+            byte[] lineBytes = new byte[end - begin];
+            for (int i=0; i<lineBytes.length; i++)
+                lineBytes[i] = buffer.get(begin + i);
+            result.addOtherLine(new String(lineBytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int getBlockType(ByteBuffer buffer, int begin, int end) {
+        if (equalsIgnoreCase(buffer, begin, end, "@TaskList"))
+            return LOG_BLOCK_TASK_LIST;
+        else if (equalsIgnoreCase(buffer, begin, end, "@MixedLog"))
+            return LOG_BLOCK_MIXED_LOG;
+        else if (equalsIgnoreCase(buffer, begin, end, "@SchedulerLog"))
+            return LOG_BLOCK_SCHEDULER_LOG;
+        else if (equalsIgnoreCase(buffer, begin, end, "@AppLog"))
+            return LOG_BLOCK_APP_LOG;
+        else if (equalsIgnoreCase(buffer, begin, end, "@HackerList"))
+            return LOG_BLOCK_HACKER_LIST;
+        else
+            return LOG_BLOCK_UNKNOWN;
+    }
+
+    private static boolean equalsIgnoreCase(ByteBuffer buffer, int begin, int end, String str) {
+        if (end - begin != str.length())
+            return false;
+        for (int i=0; i<str.length(); i++) {
+            if (Character.toLowerCase((char) buffer.get(begin + i)) != Character.toLowerCase(str.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parse a line in [timestamp, taskId, data, "string"] format (e.g., 62039364, 0, 3, "IN").
+     * @return false if the line is not in this format
+     */
+    private static boolean parseEventLine(ByteBuffer buffer, int begin, int end, ChunkResult result) {
+        int[] commas = new int[3];
+        int commaCount = 0;
+        for (int i=begin; i<end; i++) {
+            if (buffer.get(i) == ',') {
+                if (commaCount == 3)
+                    return false;
+                commas[commaCount++] = i;
+            }
+        }
+        if (commaCount != 3)
+            return false;
+
+        long timestamp;
+        int taskId, data;
+        try {
+            timestamp = parseTimestamp(buffer, begin, commas[0]);
+            taskId = (int) parseLong(buffer, commas[0] + 1, commas[1], Integer.MIN_VALUE, Integer.MAX_VALUE);
+            data = (int) parseLong(buffer, commas[1] + 1, commas[2], Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        /* The string field is quoted: remove the first and the last characters. */
+        int stringBegin = commas[2] + 1;
+        int stringEnd = end;
+        while (stringBegin < stringEnd && (buffer.get(stringBegin) & 0xff) <= ' ')
+            stringBegin++;
+        if (stringEnd - stringBegin < 2)
+            return false;
+
+        result.addEvent(timestamp, taskId, data, result.getNoteIndex(buffer, stringBegin + 1, stringEnd - 1));
+        return true;
+    }
+
+    /**
+     * Timestamps are converted in the same way as V11LogParser does (via Double.intValue()).
+     */
+    private static long parseTimestamp(ByteBuffer buffer, int begin, int end) {
+        try {
+            return parseLong(buffer, begin, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            /* Not a plain integer (e.g., "1.5e3"). */
+            byte[] bytes = new byte[end - begin];
+            for (int i=0; i<bytes.length; i++)
+                bytes[i] = buffer.get(begin + i);
+            return Double.valueOf(new String(bytes, StandardCharsets.US_ASCII).trim()).intValue();
+        }
+    }
+
+    /**
+     * Parse a trimmed decimal integer. The value is saturated to [min, max].
+     */
+    private static long parseLong(ByteBuffer buffer, int begin, int end, long min, long max) {
+        while (begin < end && (buffer.get(begin) & 0xff) <= ' ')
+            begin++;
+        while (end > begin && (buffer.get(end - 1) & 0xff) <= ' ')
+            end--;
+
+        boolean negative = false;
+        if (begin < end && (buffer.get(begin) == '-' || buffer.get(begin) == '+')) {
+            negative = buffer.get(begin) == '-';
+            begin++;
+        }
+        if (begin == end)
+            throw new NumberFormatException();
+
+        long value = 0;
+        for (int i=begin; i<end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9)
+                throw new NumberFormatException();
+            if (value <= max)
+                value = value*10 + digit;
+        }
+        value = negative ? -value : value;
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Stitch the chunk results together in order: resolve the block of the leading lines of each chunk, check that
+     * each line matches the format of its block, and create the events.
+     */
+    protected Boolean stitchChunks(ArrayList<ChunkResult> chunkResults) {
+        int currentLogBlock = LOG_BLOCK_UNKNOWN;
+        long firstTimestamp = -1;
+        long lineCounter = 0;
+        Task[] taskLookup = null;
+        SchedulerIntervalEvent lastSchedulerEvent = null;
+
+        for (ChunkResult chunk : chunkResults) {
+            for (int segment=0; segment<chunk.segmentCount; segment++) {
+                if (chunk.segmentBlock[segment] != LOG_BLOCK_INHERITED)
+                    currentLogBlock = chunk.segmentBlock[segment];
+
+                int recordEnd = (segment + 1 < chunk.segmentCount) ? chunk.segmentFirstRecord[segment + 1] : chunk.recordCount;
+                for (int i=chunk.segmentFirstRecord[segment]; i<recordEnd; i++) {
+                    if (currentLogBlock == LOG_BLOCK_UNKNOWN || currentLogBlock == LOG_BLOCK_HACKER_LIST)
+                        continue;
+
+                    if (currentLogBlock == LOG_BLOCK_TASK_LIST) {
+                        if (chunk.recordKind[i] != RECORD_OTHER || parseLogLineTaskList(chunk.otherLines.get(chunk.recordValue[i])) == false) {
+                            System.out.println("Task List is wrong in the log file.");
+                            System.err.format("Incorrect log file format at line %d.\n", lineCounter + chunk.recordLine[i] + 1);
+                            return false;
+                        }
+                        taskLookup = null;  // rebuilt when the next event needs it
+                        continue;
+                    }
+
+                    /* Scheduler, app and mixed log blocks */
+                    if (chunk.recordKind[i] != RECORD_EVENT) {
+                        System.err.format("Incorrect log file format at line %d.\n", lineCounter + chunk.recordLine[i] + 1);
+                        return false;
+                    }
+
+                    if (firstTimestamp == -1) {
+                        // Initialize the earliest timestamp
+                        firstTimestamp = chunk.timestamps[i];
+                    }
+                    long timeStamp = chunk.timestamps[i] - firstTimestamp;
+                    if (taskLookup == null)
+                        taskLookup = buildTaskLookup();
+
+                    if (currentLogBlock == LOG_BLOCK_SCHEDULER_LOG) {
+                        // The task id is 0 as from scheduler, data is the id of the task being scheduled.
+                        if (lastSchedulerEvent != null) {
+                            lastSchedulerEvent.setOrgEndTimestamp(timeStamp);
+                        }
+                        lastSchedulerEvent = new SchedulerIntervalEvent(timeStamp, lookUpTask(taskLookup, chunk.data[i]), chunk.notes.get(chunk.recordValue[i]));
+                        eventContainer.add(lastSchedulerEvent);
+                    } else if (currentLogBlock == LOG_BLOCK_APP_LOG) {
+                        eventContainer.add(new TaskInstantEvent(timeStamp, lookUpTask(taskLookup, chunk.taskIds[i]), chunk.data[i], chunk.notes.get(chunk.recordValue[i])));
+                    }
+                }
+            }
+            lineCounter += chunk.lineCount;
+        }
+
+        if (currentLogBlock == LOG_BLOCK_UNKNOWN) {
+            System.err.format("No valid block in the file.\r\n");
+            return false;
+        }
+
+        System.out.format("%d lines loaded from the log file.\n", lineCounter);
+        return true;
+    }
+
+    private Task[] buildTaskLookup() {
+        int maxTaskId = -1;
+        for (Task task : taskSet.getTasksAsArray()) {
+            maxTaskId = Math.max(maxTaskId, task.getId());
+        }
+        Task[] taskLookup = new Task[maxTaskId + 1];
+        for (Task task : taskSet.getTasksAsArray()) {
+            if (task.getId() >= 0 && taskLookup[task.getId()] == null)
+                taskLookup[task.getId()] = task;
+        }
+        return taskLookup;
+    }
+
+    private Task lookUpTask(Task[] taskLookup, int taskId) {
+        return (taskId >= 0 && taskId < taskLookup.length) ? taskLookup[taskId] : taskSet.getTaskById(taskId);
+    }
+
+    /**
+     * Parse one log line for task list block (same as V11LogParser).
+     * Format: [taskId, taskType, taskName, taskPeriod, taskComputationTime, taskPriority]
+     */
+    private Boolean parseLogLineTaskList(String line) {
+        String splitStrings[] = line.split(",");
+        if (splitStrings.length != 6)
+            return false;
+
+        try {
+            int taskId = Integer.valueOf(splitStrings[0].trim()).intValue();
+            int taskType = Integer.valueOf(splitStrings[1].trim()).intValue();
+            String taskTypeString = "";
+            if (taskType == 2) { taskTypeString = Task.TASK_TYPE_APP; }
+            else if (taskType == 3) { taskTypeString = Task.TASK_TYPE_IDLE; }
+            else { taskTypeString = Task.TASK_TYPE_UNKNOWN; }
+            String taskTitle = splitStrings[2].trim().substring(1, splitStrings[2].trim().length() - 1);
+            long taskPeriod = Integer.valueOf(splitStrings[3].trim()).intValue();
+            long taskExecTime = Integer.valueOf(splitStrings[4].trim()).intValue();
+            int taskPriority = Integer.valueOf(splitStrings[5].trim()).intValue();
+
+            // Let deadline be the same as period.
+            taskSet.addTask(taskId, taskTitle, taskTypeString, taskPeriod, taskPeriod, taskExecTime, taskPriority);
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Parsed lines of a chunk. Records are stored in primitive arrays; a segment is a run of records that belong to
+     * the same block, and a new segment starts at each block header.
+     */
+    protected static class ChunkResult {
+        int lineCount = 0;
+
+        int segmentCount = 1;
+        int[] segmentBlock = new int[]{LOG_BLOCK_INHERITED, 0, 0, 0};
+        int[] segmentFirstRecord = new int[4];
+
+        int recordCount = 0;
+        byte[] recordKind = new byte[1024];
+        int[] recordLine = new int[1024];
+        int[] recordValue = new int[1024];     // index to notes for events or to otherLines for other lines
+        long[] timestamps = new long[1024];
+        int[] taskIds = new int[1024];
+        int[] data = new int[1024];
+
+        ArrayList<String> notes = new ArrayList<>();
+        HashMap<String, Integer> noteIndexes = new HashMap<>();
+        ArrayList<String> otherLines = new ArrayList<>();
+
+        void addSegment(int block) {
+            if (segmentFirstRecord[segmentCount - 1] == recordCount && segmentCount > 1) {
+                // No record in the last segment: simply replace its block.
+                segmentBlock[segmentCount - 1] = block;
+                return;
+            }
+            if (segmentCount == segmentBlock.length) {
+                segmentBlock = Arrays.copyOf(segmentBlock, segmentCount*2);
+                segmentFirstRecord = Arrays.copyOf(segmentFirstRecord, segmentCount*2);
+            }
+            segmentBlock[segmentCount] = block;
+            segmentFirstRecord[segmentCount] = recordCount;
+            segmentCount++;
+        }
+
+        void addEvent(long timestamp, int taskId, int eventData, int noteIndex) {
+            ensureRecordCapacity();
+            recordKind[recordCount] = RECORD_EVENT;
+            recordLine[recordCount] = lineCount - 1;
+            recordValue[recordCount] = noteIndex;
+            timestamps[recordCount] = timestamp;
+            taskIds[recordCount] = taskId;
+            data[recordCount] = eventData;
+            recordCount++;
+        }
+
+        void addOtherLine(String line) {
+            ensureRecordCapacity();
+            recordKind[recordCount] = RECORD_OTHER;
+            recordLine[recordCount] = lineCount - 1;
+            recordValue[recordCount] = otherLines.size();
+            otherLines.add(line);
+            recordCount++;
+        }
+
+        /**
+         * Event strings are mostly repeated (e.g., "IN"), so each distinct string is created only once per chunk.
+         */
+        int getNoteIndex(ByteBuffer buffer, int begin, int end) {
+            byte[] bytes = new byte[end - begin];
+            for (int i=0; i<bytes.length; i++)
+                bytes[i] = buffer.get(begin + i);
+            String note = new String(bytes, StandardCharsets.UTF_8);
+            Integer index = noteIndexes.get(note);
+            if (index == null) {
+                index = notes.size();
+                notes.add(note);
+                noteIndexes.put(note, index);
+            }
+            return index;
+        }
+
+        private void ensureRecordCapacity() {
+            if (recordCount < recordKind.length)
+                return;
+            int newLength = recordKind.length*2;
+            recordKind = Arrays.copyOf(recordKind, newLength);
+            recordLine = Arrays.copyOf(recordLine, newLength);
+            recordValue = Arrays.copyOf(recordValue, newLength);
+            timestamps = Arrays.copyOf(timestamps, newLength);
+            taskIds = Arrays.copyOf(taskIds, newLength);
+            data = Arrays.copyOf(data, newLength);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package synercys.rts.analysis.schedule;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleAnalysisReportTest {
+
+    @Test
+    void meanRatiosAreZeroWithoutCompletedJobs() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addIdleTask();
+
+        ScheduleAnalysisReport report = new ScheduleAnalysisReport();
+        report.taskSet = taskSet;
+        report.statistics = new StreamingScheduleStatistics(taskSet);
+
+        assertEquals(0, report.getMeanResponseTimeQuantileRatioToPeriod(0.99));
+        assertEquals(0, report.getMeanResponseTimeRatioToPeriod());
+    }
+}
@@ -0,0 +1,98 @@
+package synercys.rts.analysis.schedule;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.scheduler.AdvanceableSchedulerSimulator;
+import synercys.rts.scheduler.SchedulerUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingScheduleStatisticsTest {
+
+    @Test
+    void streamingStatisticsMatchMaterializedSchedule() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addIdleTask();
+        long duration = 4000;
+
+        AdvanceableSchedulerSimulator scheduler = SchedulerUtil.getScheduler(SchedulerUtil.SCHEDULER_TASKSHUFFLER, taskSet, false);
+        scheduler.reset(1);
+        EventContainer schedule = scheduler.runSim(duration);
+
+        /* Response times and start delays from the whole schedule. */
+        HashMap<Task, ArrayList<Long>> responseTimes = new HashMap<>();
+        HashMap<Task, ArrayList<Long>> startDelays = new HashMap<>();
+        for (Task task : taskSet.getRunnableTasksAsArray()) {
+            responseTimes.put(task, new ArrayList<>());
+            startDelays.put(task, new ArrayList<>());
+        }
+        for (SchedulerIntervalEvent event : schedule.getSchedulerEvents()) {
+            if (event.getTask().isIdleTaskType())
+                continue;
+            if (event.isStartEvent())
+                startDelays.get(event.getTask()).add(event.getOrgBeginTimestamp() - event.getJobInitialArrivalTime());
+            if (event.isEndEvent())
+                responseTimes.get(event.getTask()).add(event.getOrgEndTimestamp() - event.getJobInitialArrivalTime());
+        }
+
+        StreamingScheduleStatistics statistics = new StreamingScheduleStatistics(taskSet);
+        scheduler.reset(1);
+        scheduler.runSimWithOffset(0, duration, statistics);
+
+        for (Task task : taskSet.getRunnableTasksAsArray()) {
+            StreamingScheduleStatistics.TaskStatistics taskStatistics = statistics.getTaskStatistics(task);
+            ArrayList<Long> taskResponseTimes = responseTimes.get(task);
+            ArrayList<Long> taskStartDelays = startDelays.get(task);
+
+            assertEquals(taskStartDelays.size(), taskStatistics.getJobCount());
+            assertEquals(taskResponseTimes.size(), taskStatistics.getCompletedJobCount());
+            assertEquals(taskResponseTimes.stream().mapToLong(Long::longValue).average().getAsDouble(), taskStatistics.getMeanResponseTime(), 1e-9);
+            assertEquals(taskResponseTimes.stream().mapToLong(Long::longValue).max().getAsLong(), taskStatistics.getMaxResponseTime());
+
+            long minStartDelay = taskStartDelays.stream().mapToLong(Long::longValue).min().getAsLong();
+            long maxStartDelay = taskStartDelays.stream().mapToLong(Long::longValue).max().getAsLong();
+            assertEquals(maxStartDelay - minStartDelay, taskStatistics.getStartTimeJitter());
+
+            /* Small values are counted exactly. */
+            long[] sortedResponseTimes = taskResponseTimes.stream().mapToLong(Long::longValue).sorted().toArray();
+            assertEquals(sortedResponseTimes[(int)Math.ceil(0.99*sortedResponseTimes.length) - 1], taskStatistics.getResponseTimeQuantile(0.99));
+        }
+        assertTrue(statistics.getContextSwitchCount() > 0);
+    }
+
+    @Test
+    void quantileSketchIsWithinRelativeError() {
+        QuantileSketch sketch = new QuantileSketch();
+        QuantileSketch firstHalf = new QuantileSketch();
+        QuantileSketch secondHalf = new QuantileSketch();
+        Random random = new Random(4);
+        long[] values = new long[100000];
+        for (int i=0; i<values.length; i++) {
+            values[i] = (long)Math.exp(random.nextDouble()*20);  // spread over many powers of two
+            sketch.record(values[i]);
+            ((i%2 == 0) ? firstHalf : secondHalf).record(values[i]);
+        }
+        firstHalf.merge(secondHalf);
+        Arrays.sort(values);
+
+        for (double quantile : new double[]{0, 0.5, 0.9, 0.99, 0.999, 1}) {
+            long expected = values[Math.max(0, (int)Math.ceil(quantile*values.length) - 1)];
+            assertEquals(expected, sketch.getQuantile(quantile), expected*0.008 + 1);
+            assertEquals(sketch.getQuantile(quantile), firstHalf.getQuantile(quantile));
+        }
+        assertEquals(values[0], sketch.getMin());
+        assertEquals(values[values.length - 1], sketch.getMax());
+        assertEquals(values.length, firstHalf.getCount());
+    }
+}
@@ -0,0 +1,90 @@
+package synercys.rts.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPriorityResponseTimeAnalysisTest {
+
+    /* Cold-started response time iteration, as a reference. */
+    long referenceWcrt(TaskSet taskSet, Task task_i) {
+        long Wi = task_i.getWcet();
+        for (int itr=0; itr<100000; itr++) {
+            long interference = 0;
+            for (Task task_hp : taskSet.getHigherPriorityTasks(task_i.getPriority())) {
+                interference += (long) Math.ceil((double) Wi/task_hp.getPeriod())*task_hp.getWcet();
+            }
+            long nextWi = task_i.getWcet() + interference;
+            if (nextWi == Wi)
+                return Wi;
+            Wi = nextWi;
+        }
+        return FixedPriorityResponseTimeAnalysis.UNSCHEDULABLE_WCRT;
+    }
+
+    TaskSet getRandomTaskSet(Random rand) {
+        TaskSet taskSet = new TaskSet();
+        int taskCount = 2 + rand.nextInt(6);
+        for (int i=1; i<=taskCount; i++) {
+            long period = 10 + rand.nextInt(200);
+            long wcet = 1 + rand.nextInt((int) period/taskCount);
+            taskSet.addTask(i, "", Task.TASK_TYPE_APP, period, period, wcet, 0);
+        }
+        taskSet.assignPriorityRm();
+        return taskSet;
+    }
+
+    @Test
+    void sameWcrtAsReference() {
+        Random rand = new Random(0);
+        for (int round=0; round<300; round++) {
+            TaskSet taskSet = getRandomTaskSet(rand);
+            FixedPriorityResponseTimeAnalysis analysis = new FixedPriorityResponseTimeAnalysis(taskSet);
+            boolean schedulable = true;
+            for (Task task : taskSet.getAppTasksAsArray()) {
+                long expected = referenceWcrt(taskSet, task);
+                assertEquals(expected, analysis.getWcrt(task));
+                schedulable &= expected <= task.getDeadline();
+            }
+            assertEquals(schedulable, analysis.isSchedulable());
+            assertEquals(schedulable, taskSet.schedulabilityTest());
+        }
+    }
+
+    @Test
+    void updateTask() {
+        Random rand = new Random(1);
+        for (int round=0; round<300; round++) {
+            TaskSet taskSet = getRandomTaskSet(rand);
+            FixedPriorityResponseTimeAnalysis analysis = new FixedPriorityResponseTimeAnalysis(taskSet);
+
+            ArrayList<Task> appTasks = taskSet.getAppTasksAsArray();
+            Task changedTask = appTasks.get(rand.nextInt(appTasks.size()));
+            changedTask.setWcet(Math.max(1, changedTask.getWcet() + rand.nextInt(5) - 2));
+            changedTask.setPeriod(Math.max(changedTask.getWcet(), changedTask.getPeriod() + rand.nextInt(21) - 10));
+            if (rand.nextBoolean())
+                changedTask.setPriority(changedTask.getPriority() + rand.nextInt(3) - 1);
+            analysis.updateTask(changedTask);
+
+            for (Task task : appTasks) {
+                assertEquals(referenceWcrt(taskSet, task), analysis.getWcrt(task));
+            }
+        }
+    }
+
+    @Test
+    void parallelSchedulabilityTest() {
+        Random rand = new Random(2);
+        ArrayList<TaskSet> taskSets = new ArrayList<>();
+        for (int i=0; i<100; i++) {
+            taskSets.add(getRandomTaskSet(rand));
+        }
+        boolean[] results = FixedPriorityResponseTimeAnalysis.schedulabilityTest(taskSets, 4);
+        for (int i=0; i<taskSets.size(); i++) {
+            assertEquals(FixedPriorityResponseTimeAnalysis.schedulabilityTest(taskSets.get(i)), results[i]);
+        }
+    }
+}
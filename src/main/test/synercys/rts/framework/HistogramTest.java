@@ -2,6 +2,7 @@ package synercys.rts.framework;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -42,6 +43,26 @@ class HistogramTest {
 
     @Test
     void touchInterval() {
+        /* Random intervals (the end is excluded) compared against per-point touches. */
+        Histogram histogram = new Histogram();
+        long[] reference = new long[300];
+        Random random = new Random(1);
+        for (int i=0; i<500; i++) {
+            int begin = 100 + random.nextInt(150);
+            int end = begin + random.nextInt(50);
+            histogram.touchInterval(new Interval(begin - 100, end - 100));
+            for (int j=begin; j<end; j++)
+                reference[j]++;
+            if (i%50 == 0)
+                assertEquals(reference[begin], histogram.getValue(begin - 100));
+        }
+        histogram.touch(-100);
+        reference[0]++;
+
+        for (int i=0; i<reference.length; i++)
+            assertEquals(reference[i], histogram.getValue(i - 100));
+        assertEquals(0, histogram.getValue(-101));
+        assertEquals(0, histogram.getValue(1000));
     }
 
     @Test
@@ -50,10 +71,25 @@ class HistogramTest {
 
     @Test
     void getBegin() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getBegin());
+        histogram.touchInterval(new Interval(20, 30));
+        histogram.touch(50);
+        histogram.touchInterval(new Interval(5, 5));    // empty
+        assertEquals(20, histogram.getBegin());
+        histogram.touch(-3);
+        assertEquals(-3, histogram.getBegin());
     }
 
     @Test
     void getEnd() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getEnd());
+        histogram.touchInterval(new Interval(20, 30));
+        assertEquals(29, histogram.getEnd());
+        histogram.touch(50);
+        histogram.touchInterval(new Interval(60, 60));  // empty
+        assertEquals(50, histogram.getEnd());
     }
 
     @Test
@@ -74,13 +110,67 @@ class HistogramTest {
 
     @Test
     void getMostWeightedValue() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getMostWeightedValue());
+        histogram.touchInterval(new Interval(0, 10));
+        histogram.touchInterval(new Interval(5, 8));
+        assertEquals(2, histogram.getMostWeightedValue());
+        histogram.touch(6);
+        assertEquals(3, histogram.getMostWeightedValue());
     }
 
     @Test
     void getMostWeightedIntervals() {
+        Histogram histogram = new Histogram();
+        assertTrue(histogram.getMostWeightedIntervals().isEmpty());
+
+        /* weights: [0,3):1, [3,5):2, [5,7):1, [7,9):2, 9:gap, [10,12):1 */
+        histogram.touchInterval(new Interval(0, 9));
+        histogram.touchInterval(new Interval(3, 5));
+        histogram.touchInterval(new Interval(7, 9));
+        histogram.touchInterval(new Interval(10, 12));
+
+        ArrayList<Interval> mostWeightedIntervals = histogram.getMostWeightedIntervals();
+        assertEquals(2, mostWeightedIntervals.size());
+        assertEquals(3, mostWeightedIntervals.get(0).getBegin());
+        assertEquals(4, mostWeightedIntervals.get(0).getEnd());
+        assertEquals(7, mostWeightedIntervals.get(1).getBegin());
+        assertEquals(8, mostWeightedIntervals.get(1).getEnd());
+
+        /* The gap (weight 0) is not the least non-zero weight; the last run is closed at getEnd(). */
+        ArrayList<Interval> leastWeightedIntervals = histogram.getLeastNonZeroWeightedIntervals();
+        assertEquals(3, leastWeightedIntervals.size());
+        assertEquals(0, leastWeightedIntervals.get(0).getBegin());
+        assertEquals(2, leastWeightedIntervals.get(0).getEnd());
+        assertEquals(5, leastWeightedIntervals.get(1).getBegin());
+        assertEquals(6, leastWeightedIntervals.get(1).getEnd());
+        assertEquals(10, leastWeightedIntervals.get(2).getBegin());
+        assertEquals(11, leastWeightedIntervals.get(2).getEnd());
     }
 
     @Test
     void getLeastWeightedIntervals() {
+        Histogram histogram = new Histogram();
+        histogram.touchInterval(new Interval(0, 9));
+        histogram.touchInterval(new Interval(3, 5));
+        histogram.touchInterval(new Interval(7, 9));
+        histogram.touchInterval(new Interval(10, 12));
+
+        /* Within [3, 9) the least weight is 1 at [5, 7). */
+        assertEquals(1, histogram.getLeastWeight(3, 9));
+        ArrayList<Interval> leastWeightedIntervals = histogram.getLeastWeightedIntervals(3, 9);
+        assertEquals(1, leastWeightedIntervals.size());
+        assertEquals(5, leastWeightedIntervals.get(0).getBegin());
+        assertEquals(6, leastWeightedIntervals.get(0).getEnd());
+
+        /* Within [0, 11) the gap at 9 has the least weight. */
+        assertEquals(0, histogram.getLeastWeight(0, 11));
+        leastWeightedIntervals = histogram.getLeastWeightedIntervals(0, 11);
+        assertEquals(1, leastWeightedIntervals.size());
+        assertEquals(9, leastWeightedIntervals.get(0).getBegin());
+        assertEquals(9, leastWeightedIntervals.get(0).getEnd());
+
+        /* Locations outside the touched range have no weight. */
+        assertEquals(0, histogram.getLeastWeight(-5, 2));
     }
 }
\ No newline at end of file
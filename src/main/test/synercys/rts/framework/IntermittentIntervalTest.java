@@ -2,6 +2,9 @@ package synercys.rts.framework;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class IntermittentIntervalTest {
@@ -26,4 +29,89 @@ class IntermittentIntervalTest {
         assertEquals(-35, intermittentInterval.getBegin());
         assertEquals( 47, intermittentInterval.getEnd());
     }
-}
\ No newline at end of file
+
+    @Test
+    void setOperationsMatchPointSets() {
+        /* Random (possibly overlapping or adjacent) intervals in [0, 100) compared against boolean point sets. */
+        Random random = new Random(2);
+        for (int n=0; n<200; n++) {
+            boolean[] pointsA = new boolean[100];
+            boolean[] pointsB = new boolean[100];
+            IntermittentInterval intervalsA = createRandomIntervals(random, pointsA);
+            IntermittentInterval intervalsB = createRandomIntervals(random, pointsB);
+
+            boolean[] union = new boolean[100], intersection = new boolean[100], subtraction = new boolean[100];
+            for (int i=0; i<100; i++) {
+                union[i] = pointsA[i] || pointsB[i];
+                intersection[i] = pointsA[i] && pointsB[i];
+                subtraction[i] = pointsA[i] && !pointsB[i];
+            }
+            assertMatchesPoints(union, intervalsA.getUnion(intervalsB));
+            assertMatchesPoints(intersection, intervalsA.getIntersection(intervalsB));
+            assertMatchesPoints(subtraction, intervalsA.getSubtraction(intervalsB));
+
+            intervalsA.minus(intervalsB);
+            assertMatchesPoints(subtraction, intervalsA);
+        }
+    }
+
+    @Test
+    void getIntervalContainingPoint() {
+        ArrayList<Interval> intervals = new ArrayList<>();
+        intervals.add(new Interval(20, 30));
+        intervals.add(new Interval(0, 5));
+        intervals.add(new Interval(5, 8));      // adjacent to [0, 5)
+        intervals.add(new Interval(25, 40));    // overlaps [20, 30)
+        IntermittentInterval intermittentInterval = new IntermittentInterval(intervals);
+
+        assertEquals(2, intermittentInterval.getIntervalCount());
+        assertTrue(intermittentInterval.hasInterval(new Interval(0, 8)));
+        assertTrue(intermittentInterval.hasInterval(new Interval(20, 40)));
+        assertFalse(intermittentInterval.hasInterval(new Interval(20, 30)));
+
+        assertEquals(0, intermittentInterval.getIntervalContainingPoint(5).getBegin());
+        assertEquals(40, intermittentInterval.getIntervalContainingPoint(40).getEnd());
+        assertNull(intermittentInterval.getIntervalContainingPoint(10));
+        assertNull(intermittentInterval.getIntervalContainingPoint(-1));
+        assertEquals(20, intermittentInterval.getLongestInterval().getBegin());
+        assertEquals(0, intermittentInterval.getBegin());
+        assertEquals(40, intermittentInterval.getEnd());
+    }
+
+    static IntermittentInterval createRandomIntervals(Random random, boolean[] points) {
+        ArrayList<Interval> intervals = new ArrayList<>();
+        int count = random.nextInt(8);
+        for (int i=0; i<count; i++) {
+            int begin = random.nextInt(points.length);
+            int end = Math.min(points.length, begin + random.nextInt(20));
+            intervals.add(new Interval(begin, end));
+            for (int j=begin; j<end; j++)
+                points[j] = true;
+        }
+        /* Build it by both the constructor and unions. */
+        IntermittentInterval fromUnions = new IntermittentInterval();
+        for (Interval interval : intervals)
+            fromUnions.union(interval);
+        IntermittentInterval fromConstructor = new IntermittentInterval(intervals);
+        assertEquals(fromConstructor.toString(), fromUnions.toString());
+        return fromConstructor;
+    }
+
+    static void assertMatchesPoints(boolean[] points, IntermittentInterval intermittentInterval) {
+        long totalLength = 0;
+        for (boolean point : points)
+            totalLength += point ? 1 : 0;
+        assertEquals(totalLength, intermittentInterval.getTotalLength());
+
+        ArrayList<Interval> intervals = intermittentInterval.getIntervals();
+        for (int i=0; i<intervals.size(); i++) {
+            Interval interval = intervals.get(i);
+            for (long j=interval.getBegin(); j<interval.getEnd(); j++)
+                assertTrue(points[(int)j]);
+            /* normalised: sorted, non-empty and neither overlapping nor adjacent */
+            assertTrue(interval.getBegin() < interval.getEnd());
+            if (i > 0)
+                assertTrue(intervals.get(i-1).getEnd() < interval.getBegin());
+        }
+    }
+}
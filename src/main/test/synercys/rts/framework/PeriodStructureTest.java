@@ -0,0 +1,57 @@
+package synercys.rts.framework;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeriodStructureTest {
+
+    @Test
+    void hyperPeriod() {
+        PeriodStructure periodStructure = new PeriodStructure();
+        periodStructure.addPeriod(10);
+        periodStructure.addPeriod(15);
+        periodStructure.addPeriod(4);
+        assertEquals(60, periodStructure.getHyperPeriod());
+        assertEquals(120, periodStructure.getHyperPeriodWith(8));
+        assertEquals(15, periodStructure.getScaledHyperPeriod(0.25));
+        assertFalse(periodStructure.isHyperPeriodOverflowed());
+    }
+
+    @Test
+    void hyperPeriodOverflow() {
+        long[] primes = {1_000_003, 1_000_033, 1_000_037, 1_000_039};
+        PeriodStructure periodStructure = new PeriodStructure();
+        BigInteger expected = BigInteger.ONE;
+        for (long prime : primes) {
+            periodStructure.addPeriod(prime);
+            expected = expected.multiply(BigInteger.valueOf(prime));
+        }
+        assertTrue(periodStructure.isHyperPeriodOverflowed());
+        assertEquals(Long.MAX_VALUE, periodStructure.getHyperPeriod());
+        assertEquals(expected, periodStructure.getExactHyperPeriod());
+        assertEquals(Long.MAX_VALUE, periodStructure.getScaledHyperPeriod(0.5));
+    }
+
+    @Test
+    void harmonicPeriods() {
+        PeriodStructure periodStructure = new PeriodStructure();
+        periodStructure.addPeriod(6);
+        periodStructure.addPeriod(10);
+        assertFalse(periodStructure.hasHarmonicPeriods());
+        assertFalse(periodStructure.isFullyHarmonic());
+        assertTrue(periodStructure.isHarmonicWith(30));
+        assertTrue(periodStructure.isHarmonicWith(3));
+        assertFalse(periodStructure.isHarmonicWith(7));
+        periodStructure.addPeriod(20);
+        assertTrue(periodStructure.hasHarmonicPeriods());
+
+        PeriodStructure harmonicPeriodStructure = new PeriodStructure();
+        harmonicPeriodStructure.addPeriod(40);
+        harmonicPeriodStructure.addPeriod(5);
+        harmonicPeriodStructure.addPeriod(10);
+        assertTrue(harmonicPeriodStructure.isFullyHarmonic());
+    }
+}
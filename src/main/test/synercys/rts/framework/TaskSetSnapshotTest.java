@@ -0,0 +1,47 @@
+package synercys.rts.framework;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSetSnapshotTest {
+
+    @Test
+    void snapshot() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 30, 30, 3, 0);
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 10, 10, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 20, 15, 2, 0);
+        taskSet.addIdleTask();
+        taskSet.assignPriorityRm();
+
+        TaskSetSnapshot snapshot = taskSet.getSnapshot();
+        assertEquals(3, snapshot.size());
+        assertSame(taskSet.getIdleTask(), snapshot.getIdleTask());
+        for (int i=0; i<snapshot.size(); i++) {
+            Task task = snapshot.getTask(i);
+            assertEquals(i+1, task.getId());
+            assertEquals(i, snapshot.indexOf(task));
+            assertEquals(task.getPeriod(), snapshot.getPeriod(i));
+            assertEquals(task.getDeadline(), snapshot.getDeadline(i));
+            assertEquals(task.getWcet(), snapshot.getWcet(i));
+            assertEquals(task.getPriority(), snapshot.getPriority(i));
+        }
+        assertEquals(TaskSetSnapshot.NO_INDEX, snapshot.indexOf(taskSet.getIdleTask()));
+
+        /* RM: the smallest period has the highest priority. */
+        assertEquals(0, snapshot.getTaskIndexByPriorityRank(0));
+        assertEquals(2, snapshot.getTaskIndexByPriorityRank(2));
+        assertEquals(2, snapshot.getHigherPriorityTaskCount(2));
+        assertEquals(0, snapshot.getHigherPriorityTaskCount(0));
+
+        /* The snapshot does not follow later changes. */
+        taskSet.getTaskById(1).setPeriod(100);
+        assertEquals(10, snapshot.getPeriod(0));
+
+        for (Task task : snapshot.getAppTasks()) {
+            assertEquals(FixedPriorityResponseTimeAnalysis.calculateTaskWCIB(taskSet, task),
+                    FixedPriorityResponseTimeAnalysis.calculateTaskWCIB(taskSet.getSnapshot(), snapshot.indexOf(task)));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package synercys.rts.framework.distribution;
+
+import org.apache.commons.math3.distribution.PoissonDistribution;
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeDistributionTest {
+
+    @Test
+    void histogramFrequencies() {
+        HistogramTimeDistribution histogram = new HistogramTimeDistribution(new long[]{5, 7, 9, 11}, new double[]{1, 0, 3, 4});
+        Random rand = new Random(1);
+        int sampleCount = 80000;
+        int[] counts = new int[12];
+        for (int i=0; i<sampleCount; i++)
+            counts[(int)histogram.sample(rand)]++;
+        assertEquals(0, counts[7]);
+        assertEquals(1.0/8, (double)counts[5]/sampleCount, 0.01);
+        assertEquals(3.0/8, (double)counts[9]/sampleCount, 0.01);
+        assertEquals(4.0/8, (double)counts[11]/sampleCount, 0.01);
+    }
+
+    @Test
+    void truncatedGaussianStaysInRange() {
+        Random rand = new Random(2);
+        long[][] ranges = {{60, 100}, {120, 140}, {1, 30}};   // around, above and below the mean
+        for (long[] range : ranges) {
+            TruncatedGaussianTimeDistribution gaussian = new TruncatedGaussianTimeDistribution(80, 20, range[0], range[1]);
+            Random referenceRand = new Random(3);
+            double sum = 0, referenceSum = 0;
+            int sampleCount = 50000;
+            for (int i=0; i<sampleCount; i++) {
+                long value = gaussian.sample(rand);
+                assertTrue(value>=range[0] && value<=range[1]);
+                sum += value;
+
+                /* reference: re-sampling until the value falls into the range */
+                long reference;
+                do {
+                    reference = (long)Math.floor(80 + 20*referenceRand.nextGaussian());
+                } while (reference<range[0] || reference>range[1]);
+                referenceSum += reference;
+            }
+            assertEquals(referenceSum/sampleCount, sum/sampleCount, 0.3);
+        }
+    }
+
+    @Test
+    void truncatedPoissonMatchesRejectionSampling() {
+        /* The default sporadic inter-arrival model: 10*k, k ~ Poisson(1.2*period/10), 10*k >= period */
+        long period = 100;
+        double mean = period/10.0*1.2;
+        PoissonTimeDistribution poisson = new PoissonTimeDistribution(mean, 10, period);
+        PoissonDistribution reference = new PoissonDistribution(new Well19937c(4), mean, PoissonDistribution.DEFAULT_EPSILON, PoissonDistribution.DEFAULT_MAX_ITERATIONS);
+        Random rand = new Random(5);
+        int sampleCount = 50000;
+        double[] frequency = new double[40];
+        double[] referenceFrequency = new double[40];
+        for (int i=0; i<sampleCount; i++) {
+            long value = poisson.sample(rand);
+            assertTrue(value >= period && value%10 == 0);
+            frequency[(int)Math.min(39, value/10)] += 1.0/sampleCount;
+
+            long referenceValue = 0;
+            while (referenceValue < period)
+                referenceValue = reference.sample()*10L;
+            referenceFrequency[(int)Math.min(39, referenceValue/10)] += 1.0/sampleCount;
+        }
+        assertArrayEquals(referenceFrequency, frequency, 0.01);
+    }
+
+    @Test
+    void traceReplay() {
+        Random rand = new Random(6);
+        TraceReplayTimeDistribution loopTrace = new TraceReplayTimeDistribution(new long[]{3, 1, 2}, true);
+        TraceReplayTimeDistribution onceTrace = new TraceReplayTimeDistribution(new long[]{3, 1, 2}, false);
+        long[] expectedLoop = {3, 1, 2, 3, 1};
+        long[] expectedOnce = {3, 1, 2, 2, 2};
+        for (int i=0; i<expectedLoop.length; i++) {
+            assertEquals(expectedLoop[i], loopTrace.sample(rand));
+            assertEquals(expectedOnce[i], onceTrace.sample(rand));
+        }
+        onceTrace.reset();
+        assertEquals(3, onceTrace.sample(rand));
+    }
+
+    @Test
+    void uniformAndFixed() {
+        Random rand = new Random(7);
+        UniformTimeDistribution uniform = new UniformTimeDistribution(3, 6);
+        boolean[] seen = new boolean[7];
+        for (int i=0; i<1000; i++) {
+            long value = uniform.sample(rand);
+            assertTrue(value>=3 && value<=6);
+            seen[(int)value] = true;
+        }
+        assertTrue(seen[3] && seen[4] && seen[5] && seen[6]);
+        assertEquals(9, new FixedTimeDistribution(9).sample(rand));
+        assertThrows(IllegalArgumentException.class, () -> new UniformTimeDistribution(6, 3));
+    }
+}
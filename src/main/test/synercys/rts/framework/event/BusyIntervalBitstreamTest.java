@@ -0,0 +1,68 @@
+package synercys.rts.framework.event;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.scheduler.EdfScheduler;
+import synercys.rts.util.BitstreamExporter;
+import synercys.rts.util.BitstreamLoader;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BusyIntervalBitstreamTest {
+
+    BusyIntervalEventContainer getExampleBusyIntervals() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 40, 40, 7, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 70, 70, 13, 5);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 130, 130, 30, 11);
+        taskSet.addIdleTask();
+        EventContainer schedule = new EdfScheduler(taskSet, false).runSim(2000);
+        return new BusyIntervalEventContainer(schedule);
+    }
+
+    @Test
+    void sameAsBinaryString() {
+        BusyIntervalEventContainer bis = getExampleBusyIntervals();
+        BusyIntervalBitstream bitstream = bis.toBitstream();
+
+        assertEquals(bis.toBinaryString(), bitstream.toBinaryString());
+        assertArrayEquals(bis.toBinaryDouble(), bitstream.toBinaryDouble());
+
+        long busyTicks = 0;
+        for (BusyIntervalEvent bi : bis.getBusyIntervals())
+            busyTicks += bi.getDuration();
+        assertEquals(busyTicks, bitstream.countBusyTicks());
+    }
+
+    @Test
+    void setRangeAcrossWords() {
+        BusyIntervalBitstream bitstream = new BusyIntervalBitstream(10, 300);
+        bitstream.setRange(70, 200);
+        bitstream.setRange(5, 12);
+        for (long i=10; i<310; i++) {
+            assertEquals((i >= 70 && i < 200) || i < 12, bitstream.get(i), "tick " + i);
+        }
+        assertEquals(130 + 2, bitstream.countBusyTicks());
+    }
+
+    @Test
+    void exportAndLoad() throws IOException {
+        File bitsFile = File.createTempFile("bis", ".rtbits");
+        bitsFile.deleteOnExit();
+
+        BusyIntervalBitstream bitstream = getExampleBusyIntervals().toBitstream();
+        assertTrue(BitstreamExporter.exportBitstream(bitstream, bitsFile.getPath()));
+        assertEquals(32 + 8*((bitstream.getLength() + 63)/64), bitsFile.length());
+
+        BitstreamLoader loader = new BitstreamLoader(bitsFile.getPath());
+        assertTrue(loader.isLoaded());
+        BusyIntervalBitstream loaded = loader.getBitstream();
+        assertEquals(bitstream.getBeginTime(), loaded.getBeginTime());
+        assertEquals(bitstream.getLength(), loaded.getLength());
+        assertEquals(bitstream.toBinaryString(), loaded.toBinaryString());
+    }
+}
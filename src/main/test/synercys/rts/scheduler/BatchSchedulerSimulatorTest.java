@@ -0,0 +1,133 @@
+package synercys.rts.scheduler;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.EventSink;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSchedulerSimulatorTest {
+    private static final long[] PERIODS = {5, 8, 10, 12, 20, 25, 40};
+
+    /* Random task sets, some of which are overloaded (deadline misses) or have phases and constrained deadlines. */
+    private static ArrayList<TaskSet> createTaskSets(long seed, int count) {
+        Random random = new Random(seed);
+        ArrayList<TaskSet> taskSets = new ArrayList<>();
+        for (int k=0; k<count; k++) {
+            TaskSet taskSet = new TaskSet();
+            taskSet.setId(k);
+            int taskCount = 1 + random.nextInt(6);
+            for (int id=1; id<=taskCount; id++) {
+                long period = PERIODS[random.nextInt(PERIODS.length)];
+                long deadline = (random.nextInt(4) == 0) ? period - random.nextInt((int)period/2) : period;
+                long wcet = 1 + random.nextInt((int)Math.max(1, period/taskCount));
+                taskSet.addTask(id, "", Task.TASK_TYPE_APP, period, deadline, wcet, 0);
+                if (random.nextInt(3) == 0)
+                    taskSet.getTaskById(id).setInitialOffset(random.nextInt((int)period));
+            }
+            taskSet.addIdleTask();
+            taskSets.add(taskSet);
+        }
+        return taskSets;
+    }
+
+    private static void assertSameSchedule(EventContainer expected, List<SchedulerIntervalEvent> actual) {
+        ArrayList<SchedulerIntervalEvent> expectedEvents = expected.getSchedulerEvents();
+        assertEquals(expectedEvents.size(), actual.size());
+        for (int i=0; i<expectedEvents.size(); i++) {
+            SchedulerIntervalEvent e = expectedEvents.get(i);
+            SchedulerIntervalEvent a = actual.get(i);
+            assertEquals(e.getOrgBeginTimestamp(), a.getOrgBeginTimestamp());
+            assertEquals(e.getOrgEndTimestamp(), a.getOrgEndTimestamp());
+            assertEquals(e.getJobInitialArrivalTime(), a.getJobInitialArrivalTime());
+            assertSame(e.getTask(), a.getTask());
+            assertEquals(e.getBeginTimeScheduleState(), a.getBeginTimeScheduleState());
+            assertEquals(e.getEndTimeScheduleState(), a.getEndTimeScheduleState());
+        }
+    }
+
+    private static AdvanceableSchedulerSimulator createScheduler(String policy, TaskSet taskSet) {
+        AdvanceableSchedulerSimulator scheduler = SchedulerUtil.getScheduler(policy, taskSet, false);
+        scheduler.setAssertOnDeadlineMiss(false);
+        return scheduler;
+    }
+
+    @Test
+    void schedulesAreIdenticalToSchedulers() {
+        for (String policy : new String[]{SchedulerUtil.SCHEDULER_RM, SchedulerUtil.SCHEDULER_EDF}) {
+            ArrayList<TaskSet> taskSets = createTaskSets(policy.hashCode(), 200);
+            BatchSchedulerSimulator batchSimulator = new BatchSchedulerSimulator(taskSets, policy);
+            batchSimulator.setAssertOnDeadlineMiss(false);
+            batchSimulator.setThreadCount(3);
+
+            batchSimulator.runSim(500);
+            for (int lane=0; lane<taskSets.size(); lane++) {
+                EventContainer expected = createScheduler(policy, taskSets.get(lane)).runSim(500);
+                assertSameSchedule(expected, batchSimulator.getEventContainer(lane).getSchedulerEvents());
+                assertEquals(expected.getSchedulerEvents().size(), batchSimulator.getIntervalRecords(lane).size());
+            }
+
+            batchSimulator.runSimWithOffset(137, 300);
+            for (int lane=0; lane<taskSets.size(); lane++) {
+                EventContainer expected = createScheduler(policy, taskSets.get(lane)).runSimWithOffset(137, 300);
+                assertSameSchedule(expected, batchSimulator.getEventContainer(lane).getSchedulerEvents());
+            }
+        }
+    }
+
+    @Test
+    void eventSinksReceiveTheSameEvents() {
+        ArrayList<TaskSet> taskSets = createTaskSets(3, 50);
+        long[] durations = new long[taskSets.size()];
+        EventSink[] sinks = new EventSink[taskSets.size()];
+        ArrayList<ArrayList<SchedulerIntervalEvent>> received = new ArrayList<>();
+        for (int lane=0; lane<taskSets.size(); lane++) {
+            durations[lane] = 100 + 10*lane;
+            ArrayList<SchedulerIntervalEvent> laneEvents = new ArrayList<>();
+            received.add(laneEvents);
+            sinks[lane] = new EventSink() {
+                @Override
+                public void add(SchedulerIntervalEvent inSchedulerIntervalEvent) {
+                    laneEvents.add(inSchedulerIntervalEvent);
+                }
+
+                @Override
+                public void add(TaskInstantEvent inTaskInstantEvent) {
+                }
+            };
+        }
+
+        BatchSchedulerSimulator batchSimulator = new BatchSchedulerSimulator(taskSets, SchedulerUtil.SCHEDULER_EDF);
+        batchSimulator.setAssertOnDeadlineMiss(false);
+        batchSimulator.runSimWithOffset(40, durations, sinks);
+        for (int lane=0; lane<taskSets.size(); lane++) {
+            EventContainer expected = createScheduler(SchedulerUtil.SCHEDULER_EDF, taskSets.get(lane)).runSimWithOffset(40, durations[lane]);
+            assertSameSchedule(expected, received.get(lane));
+            assertEquals(0, batchSimulator.getIntervalRecords(lane).size());
+        }
+    }
+
+    @Test
+    void deadlineMissAssertsByDefault() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 4, 4, 3, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 6, 6, 3, 0);
+        taskSet.addIdleTask();
+        ArrayList<TaskSet> taskSets = new ArrayList<>();
+        taskSets.add(taskSet);
+        BatchSchedulerSimulator batchSimulator = new BatchSchedulerSimulator(taskSets, SchedulerUtil.SCHEDULER_RM);
+        assertThrows(AssertionError.class, () -> batchSimulator.runSim(100));
+
+        assertFalse(BatchSchedulerSimulator.isSupported(taskSets, SchedulerUtil.SCHEDULER_TASKSHUFFLER, false));
+        assertFalse(BatchSchedulerSimulator.isSupported(taskSets, SchedulerUtil.SCHEDULER_RM, true));
+        assertTrue(BatchSchedulerSimulator.isSupported(taskSets, SchedulerUtil.SCHEDULER_EDF, false));
+    }
+}
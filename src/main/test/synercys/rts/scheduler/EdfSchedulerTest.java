@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EdfSchedulerTest {
@@ -48,4 +50,29 @@ class EdfSchedulerTest {
         assertEquals(4, EdfScheduler.calculateTaskResponseTimeReleasedAtGivenTimePoint(taskSet, task3, 9));
         assertEquals(4, EdfScheduler.calculateTaskResponseTimeReleasedAtGivenTimePoint(taskSet, task3, 10));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deadlinePointAnalysisMatchesBruteForce() {
+        Random rand = new Random(0);
+        for (int round=0; round<200; round++) {
+            TaskSet taskSet = new TaskSet();
+            int taskCount = 2 + rand.nextInt(4);
+            double utilization = 0;
+            for (int i=1; i<=taskCount; i++) {
+                long period = 5 + rand.nextInt(40);
+                long wcet = 1 + rand.nextInt((int) Math.max(1, period/taskCount));
+                long deadline = Math.max(wcet, period - rand.nextInt((int) period/2 + 1));
+                if (utilization + (double) wcet/period > 1.0)
+                    break;
+                utilization += (double) wcet/period;
+                taskSet.addTask(i, "", Task.TASK_TYPE_APP, period, deadline, wcet, 0);
+            }
+
+            EdfScheduler.calculateAndSetWCRT(taskSet);
+            long LCap = EdfScheduler.calculateLCap(taskSet);
+            for (Task task : taskSet.getAppTasksAsArray()) {
+                assertEquals(EdfScheduler.calculateTaskWCRT(taskSet, task, LCap), task.getWcrt());
+            }
+        }
+    }
+}
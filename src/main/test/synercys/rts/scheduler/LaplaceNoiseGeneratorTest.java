@@ -0,0 +1,47 @@
+package synercys.rts.scheduler;
+
+import org.apache.commons.math3.distribution.LaplaceDistribution;
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaplaceNoiseGeneratorTest {
+
+    @Test
+    void truncatedSamplesMatchRejectionSampling() {
+        double mu = 100;
+        double beta = 20;
+        long[][] ranges = {{90, 110}, {120, 130}, {60, 70}};  // around mu, above mu and below mu
+
+        LaplaceNoiseGenerator laplaceNoiseGenerator = new LaplaceNoiseGenerator(ranges.length, 64, 1);
+        LaplaceDistribution laplaceDistribution = new LaplaceDistribution(new Well19937c(1), mu, beta);
+        int sampleCount = 100000;
+        for (int i=0; i<ranges.length; i++) {
+            long lower = ranges[i][0];
+            long upper = ranges[i][1];
+            laplaceNoiseGenerator.setParameters(i, mu, beta, lower, upper);
+
+            double[] frequency = new double[(int)(upper-lower+1)];
+            double[] expectedFrequency = new double[frequency.length];
+            long rejectionDrawCount = 0;
+            for (int n=0; n<sampleCount; n++) {
+                long sample = laplaceNoiseGenerator.nextSample(i);
+                assertTrue(sample>=lower && sample<=upper);
+                frequency[(int)(sample-lower)] += 1.0/sampleCount;
+
+                /* reference: the original rejection sampling */
+                long reference;
+                do {
+                    reference = (long)laplaceDistribution.sample();
+                    rejectionDrawCount++;
+                } while (reference<lower || reference>upper);
+                expectedFrequency[(int)(reference-lower)] += 1.0/sampleCount;
+            }
+            assertArrayEquals(expectedFrequency, frequency, 0.006);
+            assertEquals((double)rejectionDrawCount/sampleCount, 1/laplaceNoiseGenerator.getTruncationMass(i), 0.05/laplaceNoiseGenerator.getTruncationMass(i));
+            assertEquals(sampleCount, laplaceNoiseGenerator.getSampleCount(i));
+            assertEquals(sampleCount/64 + 1, laplaceNoiseGenerator.getBlockRefillCount(i));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package synercys.rts.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadyJobSetTest {
+
+    @Test
+    void readyJobQueriesMatchLinearScan() {
+        int taskCount = 12;
+        Random rand = new Random(7);
+        ReadyJobSet readyJobSet = new ReadyJobSet(taskCount);
+        long[] key = new long[taskCount];
+        long[] value = new long[taskCount];
+        boolean[] ready = new boolean[taskCount];
+
+        for (int round=0; round<2000; round++) {
+            int taskIndex = rand.nextInt(taskCount);
+            if (ready[taskIndex]) {
+                assertEquals(value[taskIndex], readyJobSet.removeReadyJob(taskIndex));
+                ready[taskIndex] = false;
+            } else {
+                key[taskIndex] = rand.nextInt(5);
+                value[taskIndex] = rand.nextInt(21) - 5;
+                readyJobSet.insertReadyJob(taskIndex, key[taskIndex], 0, value[taskIndex]);
+                ready[taskIndex] = true;
+            }
+
+            long bound = rand.nextInt(6);
+            long delta = rand.nextInt(5) - 2;
+            if (rand.nextBoolean()) {
+                readyJobSet.addValuePrimaryKeyLessThan(bound, delta);
+                for (int i=0; i<taskCount; i++)
+                    if (ready[i] && key[i] < bound)
+                        value[i] += delta;
+            } else {
+                readyJobSet.addValuePrimaryKeyGreaterThan(bound, delta);
+                for (int i=0; i<taskCount; i++)
+                    if (ready[i] && key[i] > bound)
+                        value[i] += delta;
+            }
+
+            /* Expected key order: (key, task index). */
+            ArrayList<Integer> order = new ArrayList<>();
+            for (int i=0; i<taskCount; i++)
+                if (ready[i])
+                    order.add(i);
+            order.sort((a, b) -> key[a] != key[b] ? Long.compare(key[a], key[b]) : Integer.compare(a, b));
+
+            assertEquals(order.size(), readyJobSet.size());
+            for (int k=0; k<order.size(); k++)
+                assertEquals((int) order.get(k), readyJobSet.select(k));
+            assertEquals(order.isEmpty() ? ReadyJobSet.NONE : order.get(0), readyJobSet.getFirst());
+
+            long expectedMin = Long.MAX_VALUE;
+            long expectedMinLessThanBound = Long.MAX_VALUE;
+            int expectedCountAtMost = 0;
+            int expectedFirstNonPositive = ReadyJobSet.NONE;
+            for (int i : order) {
+                assertEquals(value[i], readyJobSet.getValue(i));
+                expectedMin = Math.min(expectedMin, value[i]);
+                if (key[i] < bound)
+                    expectedMinLessThanBound = Math.min(expectedMinLessThanBound, value[i]);
+                if (key[i] <= bound)
+                    expectedCountAtMost++;
+                if (expectedFirstNonPositive == ReadyJobSet.NONE && key[i] >= bound && value[i] <= 0 && i != taskIndex)
+                    expectedFirstNonPositive = i;
+            }
+            assertEquals(expectedMin, readyJobSet.getMinValue());
+            assertEquals(expectedMinLessThanBound, readyJobSet.getMinValuePrimaryKeyLessThan(bound));
+            assertEquals(expectedCountAtMost, readyJobSet.countPrimaryKeyAtMost(bound));
+            assertEquals(expectedFirstNonPositive, readyJobSet.findFirstWithValueAtMost(bound, 0, taskIndex));
+        }
+    }
+
+    @Test
+    void pendingJobsAreReleasedInOrder() {
+        ReadyJobSet readyJobSet = new ReadyJobSet(4);
+        readyJobSet.addPendingJob(0, 30);
+        readyJobSet.addPendingJob(1, 10);
+        readyJobSet.addPendingJob(2, 20);
+        readyJobSet.addPendingJob(3, 10);
+
+        assertEquals(10, readyJobSet.getEarliestPendingReleaseTime());
+        assertEquals(ReadyJobSet.NONE, readyJobSet.pollReleasedJob(9));
+        int first = readyJobSet.pollReleasedJob(15);
+        int second = readyJobSet.pollReleasedJob(15);
+        assertTrue((first == 1 && second == 3) || (first == 3 && second == 1));
+        assertEquals(ReadyJobSet.NONE, readyJobSet.pollReleasedJob(15));
+        assertEquals(2, readyJobSet.pollReleasedJob(100));
+        assertEquals(0, readyJobSet.pollReleasedJob(100));
+        assertEquals(Long.MAX_VALUE, readyJobSet.getEarliestPendingReleaseTime());
+
+        readyJobSet.insertReadyJob(2, 0, 0, 5);
+        assertThrows(IllegalArgumentException.class, () -> readyJobSet.addPendingJob(2, 50));
+    }
+}
@@ -24,19 +24,64 @@ class ReorderSchedulerTest {
 
         ReorderScheduler reorderScheduler = new ReorderScheduler(taskSet, false);
 
-        // System.out.println(reorderScheduler.taskWCIB.get(task1));
-        // System.out.println(reorderScheduler.taskWCIB.get(task2));
-        // System.out.println(reorderScheduler.taskWCIB.get(task3));
-        // System.out.println(reorderScheduler.taskWCIB.get(task4));
-
-        assertEquals(1, reorderScheduler.taskWCIB.get(task1));
-        assertEquals(-2, reorderScheduler.taskWCIB.get(task2));
-        assertEquals(-2, reorderScheduler.taskWCIB.get(task3));
-        assertEquals(-1, reorderScheduler.taskWCIB.get(task4));
-
-        assertEquals(1, reorderScheduler.jobRIB.get(task1));
-        assertEquals(-2, reorderScheduler.jobRIB.get(task2));
-        assertEquals(-2, reorderScheduler.jobRIB.get(task3));
-        assertEquals(-1, reorderScheduler.jobRIB.get(task4));
+        // System.out.println(reorderScheduler.getTaskWCIBMap().get(task1));
+        // System.out.println(reorderScheduler.getTaskWCIBMap().get(task2));
+        // System.out.println(reorderScheduler.getTaskWCIBMap().get(task3));
+        // System.out.println(reorderScheduler.getTaskWCIBMap().get(task4));
+
+        assertEquals(1, reorderScheduler.getTaskWCIBMap().get(task1));
+        assertEquals(-2, reorderScheduler.getTaskWCIBMap().get(task2));
+        assertEquals(-2, reorderScheduler.getTaskWCIBMap().get(task3));
+        assertEquals(-1, reorderScheduler.getTaskWCIBMap().get(task4));
+
+        assertEquals(1, reorderScheduler.getJobRIBMap().get(task1));
+        assertEquals(-2, reorderScheduler.getJobRIBMap().get(task2));
+        assertEquals(-2, reorderScheduler.getJobRIBMap().get(task3));
+        assertEquals(-1, reorderScheduler.getJobRIBMap().get(task4));
+    }
+
+    @Test
+    void runSimWithoutDeadlineMisses() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addTask(4, "", Task.TASK_TYPE_APP, 40, 40, 2, 0);
+        taskSet.addTask(5, "", Task.TASK_TYPE_APP, 80, 80, 4, 0);
+        taskSet.addIdleTask();
+
+        /* A deadline miss raises an AssertionError in the simulator. */
+        for (int level=1; level<=4; level++) {
+            ReorderScheduler reorderScheduler = new ReorderScheduler(taskSet, level==4);
+            reorderScheduler.setRandomizationLevel(level);
+            assertDoesNotThrow(() -> reorderScheduler.runSim(80*50));
+        }
+    }
+
+    @Test
+    void resetReproducesScheduleWithSameSeed() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addIdleTask();
+
+        ReorderScheduler reorderScheduler = new ReorderScheduler(taskSet, true);
+        reorderScheduler.reset(1);
+        String firstScheduleString = TaskShufflerSchedulerTest.toScheduleString(reorderScheduler.runSim(400));
+        reorderScheduler.reset(1);
+        assertEquals(firstScheduleString, TaskShufflerSchedulerTest.toScheduleString(reorderScheduler.runSim(400)));
+        assertEquals(reorderScheduler.getTaskWCIBMap(), new ReorderScheduler(taskSet, true).getTaskWCIBMap());
+    }
+
+    @Test
+    void forkedContinuationMatchesDirectContinuation() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addIdleTask();
+
+        TaskShufflerSchedulerTest.assertForkMatchesContinuation(new ReorderScheduler(taskSet, true), new ReorderScheduler(taskSet, true));
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package synercys.rts.scheduler;
 
 import org.junit.jupiter.api.Test;
 import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.distribution.TraceReplayTimeDistribution;
 import synercys.rts.framework.event.EventContainer;
 import synercys.rts.framework.event.SchedulerIntervalEvent;
 
@@ -57,4 +59,30 @@ class SchedulerSimulatorTest {
             assertTrue(variedInterArrivalTime>=testPeriod);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void sharedTraceReplayModel() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 3, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addIdleTask();
+        taskSet.getAppTasksAsArray().get(0).setExecutionTimeDistribution(new TraceReplayTimeDistribution(new long[]{1, 2, 3, 2}, true));
+        taskSet.getAppTasksAsArray().get(1).setExecutionTimeDistribution(new TraceReplayTimeDistribution(new long[]{3, 1}, true));
+
+        /* The cloned task set shares the model. Creating and running one scheduler must not move the other's position. */
+        AdvanceableSchedulerSimulator scheduler = SchedulerUtil.getScheduler(SchedulerUtil.SCHEDULER_EDF, taskSet, true);
+        AdvanceableSchedulerSimulator clonedTaskSetScheduler = SchedulerUtil.getScheduler(SchedulerUtil.SCHEDULER_EDF, new TaskSet(taskSet), true);
+        AdvanceableSchedulerSimulator sameTaskSetScheduler = SchedulerUtil.getScheduler(SchedulerUtil.SCHEDULER_EDF, taskSet, true);
+        String schedule = scheduler.runSimWithOffset(0, 40).toRawScheduleString(0, 40);
+        assertEquals(schedule, clonedTaskSetScheduler.runSimWithOffset(0, 40).toRawScheduleString(0, 40));
+        assertEquals(schedule, sameTaskSetScheduler.runSimWithOffset(0, 40).toRawScheduleString(0, 40));
+
+        /* A fork continues from the snapshot's positions in the model. */
+        scheduler.reset(1);
+        SimulationState state = scheduler.warmUp(20);
+        String continuation = scheduler.runSimFromState(state, 2, 20).toRawScheduleString(20, 40);
+        assertEquals(continuation, scheduler.runSimFromState(state, 3, 20).toRawScheduleString(20, 40));
+        sameTaskSetScheduler.reset(1);
+        assertEquals(sameTaskSetScheduler.runSimWithOffset(0, 40).toRawScheduleString(20, 40), continuation);
+    }
+}
@@ -0,0 +1,90 @@
+package synercys.rts.scheduler;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSetGeneratorTest {
+
+    TaskSetGenerator getHpDivisorGenerator() {
+        TaskSetGenerator taskSetGenerator = new TaskSetGenerator();
+        taskSetGenerator.setGenerateFromHpDivisors(true);
+        taskSetGenerator.setMaxHyperPeriod(2*2*3*5*7*11*13);
+        taskSetGenerator.setMinPeriod(10);
+        taskSetGenerator.setMinWcet(1);
+        taskSetGenerator.setMaxWcet(1000);
+        taskSetGenerator.setMaxInitOffset(0);
+        taskSetGenerator.setRandomSeed(0);
+        return taskSetGenerator;
+    }
+
+    @Test
+    void generateFromHpDivisors() {
+        TaskSetGenerator taskSetGenerator = getHpDivisorGenerator();
+        TaskSetContainer taskSetContainer = taskSetGenerator.generate(5, 50);
+        assertEquals(50, taskSetContainer.size());
+        for (TaskSet taskSet : taskSetContainer.getTaskSets()) {
+            assertEquals(taskSetGenerator.getMaxHyperPeriod(), taskSet.calHyperPeriod());
+            for (Task task : taskSet.getAppTasksAsArray()) {
+                assertEquals(0, taskSetGenerator.getMaxHyperPeriod()%task.getPeriod());
+                assertTrue(task.getPeriod() >= taskSetGenerator.getMinPeriod());
+            }
+            assertTrue(taskSet.schedulabilityTest());
+        }
+        assertEquals(50, taskSetGenerator.getAcceptedCount());
+        assertTrue(taskSetGenerator.getAttemptCount() >= 50);
+    }
+
+    @Test
+    void tooFewHpDivisors() {
+        TaskSetGenerator taskSetGenerator = getHpDivisorGenerator();
+        taskSetGenerator.setMaxHyperPeriod(2*3*5);
+        assertThrows(IllegalArgumentException.class, () -> taskSetGenerator.generate(5, 1));
+    }
+
+    @Test
+    void generateInParallel() {
+        TaskSetContainer taskSetContainer = getHpDivisorGenerator().generate(5, 40, 4);
+        TaskSetContainer sameSeedTaskSetContainer = getHpDivisorGenerator().generate(5, 40, 4);
+        assertEquals(40, taskSetContainer.size());
+        for (int i=0; i<taskSetContainer.size(); i++) {
+            assertEquals(i, taskSetContainer.getTaskSets().get(i).getId());
+            assertEquals(taskSetContainer.getTaskSets().get(i).toString(), sameSeedTaskSetContainer.getTaskSets().get(i).toString());
+        }
+
+        ArrayList<TaskSet> streamedTaskSets = new ArrayList<>();
+        TaskSetGenerator taskSetGenerator = getHpDivisorGenerator();
+        taskSetGenerator.generate(5, 40, 4, streamedTaskSets::add);
+        assertEquals(40, streamedTaskSets.size());
+        assertEquals(40, taskSetGenerator.getAcceptedCount());
+    }
+
+    @Test
+    void streamInParallelIsReproducible() {
+        for (int run=0; run<5; run++) {
+            ArrayList<TaskSet> streamedTaskSets = new ArrayList<>();
+            ArrayList<TaskSet> sameSeedStreamedTaskSets = new ArrayList<>();
+            getHpDivisorGenerator().generate(5, 41, 4, streamedTaskSets::add);
+            getHpDivisorGenerator().generate(5, 41, 4, sameSeedStreamedTaskSets::add);
+            assertEquals(41, sameSeedStreamedTaskSets.size());
+            for (int i=0; i<streamedTaskSets.size(); i++) {
+                assertEquals(i, streamedTaskSets.get(i).getId());
+                assertEquals(streamedTaskSets.get(i).toString(), sameSeedStreamedTaskSets.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    void streamInParallelRethrowsWorkerFailure() {
+        TaskSetGenerator taskSetGenerator = getHpDivisorGenerator();
+        taskSetGenerator.setMinUtil(0.9);
+        taskSetGenerator.setMaxUtil(0.5);     // the workers fail on picking a utilization
+        ArrayList<TaskSet> streamedTaskSets = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class, () -> taskSetGenerator.generate(5, 40, 4, streamedTaskSets::add));
+        assertTrue(streamedTaskSets.isEmpty());
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import synercys.rts.framework.Task;
 import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,27 +30,114 @@ class TaskShufflerSchedulerTest {
         TaskShufflerScheduler taskShufflerScheduler = new TaskShufflerScheduler(taskSet, false);
 
         /* check WCIB (each task's worst case inversion budget) */
-        assertEquals(4, taskShufflerScheduler.taskWCIB.get(task0));
-        assertEquals(2, taskShufflerScheduler.taskWCIB.get(task1));
-        assertEquals(-1, taskShufflerScheduler.taskWCIB.get(task2));
-        assertEquals(-1, taskShufflerScheduler.taskWCIB.get(task3));
-        assertEquals(0, taskShufflerScheduler.taskWCIB.get(task4));
+        assertEquals(4, taskShufflerScheduler.getTaskWCIBMap().get(task0));
+        assertEquals(2, taskShufflerScheduler.getTaskWCIBMap().get(task1));
+        assertEquals(-1, taskShufflerScheduler.getTaskWCIBMap().get(task2));
+        assertEquals(-1, taskShufflerScheduler.getTaskWCIBMap().get(task3));
+        assertEquals(0, taskShufflerScheduler.getTaskWCIBMap().get(task4));
 
         /* check RIB (each task's RIB) */
-        assertEquals(4, taskShufflerScheduler.jobRIB.get(task0));
-        assertEquals(2, taskShufflerScheduler.jobRIB.get(task1));
-        assertEquals(-1, taskShufflerScheduler.jobRIB.get(task2));
-        assertEquals(-1, taskShufflerScheduler.jobRIB.get(task3));
-        assertEquals(0, taskShufflerScheduler.jobRIB.get(task4));
+        assertEquals(4, taskShufflerScheduler.getJobRIBMap().get(task0));
+        assertEquals(2, taskShufflerScheduler.getJobRIBMap().get(task1));
+        assertEquals(-1, taskShufflerScheduler.getJobRIBMap().get(task2));
+        assertEquals(-1, taskShufflerScheduler.getJobRIBMap().get(task3));
+        assertEquals(0, taskShufflerScheduler.getJobRIBMap().get(task4));
 
         /* check M_i (each task's minimum inversion priority)*/
-        assertEquals(task2.getPriority(), taskShufflerScheduler.taskM.get(task0));
-        assertEquals(task2.getPriority(), taskShufflerScheduler.taskM.get(task1));
-        assertEquals(task3.getPriority(), taskShufflerScheduler.taskM.get(task2));
-        assertEquals(-1, taskShufflerScheduler.taskM.get(task3));
-        assertEquals(-1, taskShufflerScheduler.taskM.get(task4));
+        assertEquals(task2.getPriority(), taskShufflerScheduler.getTaskMMap().get(task0));
+        assertEquals(task2.getPriority(), taskShufflerScheduler.getTaskMMap().get(task1));
+        assertEquals(task3.getPriority(), taskShufflerScheduler.getTaskMMap().get(task2));
+        assertEquals(-1, taskShufflerScheduler.getTaskMMap().get(task3));
+        assertEquals(-1, taskShufflerScheduler.getTaskMMap().get(task4));
 
     }
 
+    @Test
+    void runSimWithoutDeadlineMisses() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addTask(4, "", Task.TASK_TYPE_APP, 40, 40, 2, 0);
+        taskSet.addTask(5, "", Task.TASK_TYPE_APP, 80, 80, 4, 0);
+        taskSet.addIdleTask();
+
+        /* A deadline miss raises an AssertionError in the simulator. */
+        for (int level=1; level<=4; level++) {
+            TaskShufflerScheduler taskShufflerScheduler = new TaskShufflerScheduler(taskSet, level==4);
+            taskShufflerScheduler.setRandomizationLevel(level);
+            assertDoesNotThrow(() -> taskShufflerScheduler.runSim(80*50));
+        }
+    }
+
+    @Test
+    void resetReproducesScheduleWithSameSeed() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addIdleTask();
+
+        TaskShufflerScheduler taskShufflerScheduler = new TaskShufflerScheduler(taskSet, true);
+        taskShufflerScheduler.reset(1);
+        EventContainer firstSchedule = taskShufflerScheduler.runSim(400);
+        String firstScheduleString = toScheduleString(firstSchedule);
+        taskShufflerScheduler.reset(2);
+        String otherScheduleString = toScheduleString(taskShufflerScheduler.runSim(400));
+        taskShufflerScheduler.reset(1);
+        String repeatedScheduleString = toScheduleString(taskShufflerScheduler.runSim(400));
+
+        assertEquals(firstScheduleString, repeatedScheduleString);
+        assertNotEquals(firstScheduleString, otherScheduleString);
+        assertEquals(firstScheduleString, toScheduleString(firstSchedule));   // earlier results are not overwritten
+
+        /* A new scheduler for the same task set takes the offline analysis from the cache. */
+        TaskShufflerScheduler anotherScheduler = new TaskShufflerScheduler(taskSet, true);
+        assertEquals(taskShufflerScheduler.getTaskWCIBMap(), anotherScheduler.getTaskWCIBMap());
+        assertEquals(taskShufflerScheduler.getTaskMMap(), anotherScheduler.getTaskMMap());
+    }
 
-}
\ No newline at end of file
+    @Test
+    void forkedContinuationMatchesDirectContinuation() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addIdleTask();
+
+        assertForkMatchesContinuation(new TaskShufflerScheduler(taskSet, true), new TaskShufflerScheduler(taskSet, true));
+    }
+
+    /* Both schedulers must be of the same class for the same task set. */
+    static void assertForkMatchesContinuation(AdvanceableSchedulerSimulator scheduler, AdvanceableSchedulerSimulator anotherScheduler) {
+        long offset = 97;
+        long duration = 300;
+
+        /* Direct continuation: warm up with seed 1 and continue with seed 7. */
+        scheduler.reset(1);
+        scheduler.warmUp(offset);
+        scheduler.setRandomSeed(7);
+        while (scheduler.tick <= offset + duration)
+            scheduler.advance();
+        EventContainer directSchedule = scheduler.getSimEventContainer();
+        directSchedule.trimEventsToTimeStamp(offset + duration);
+        directSchedule.trimEventsBeforeTimeStamp(offset);
+        String directScheduleString = toScheduleString(directSchedule);
+
+        /* Forks from the same warm-up. */
+        scheduler.reset(1);
+        SimulationState state = scheduler.warmUp(offset);
+        assertTrue(state.getTick() >= offset);
+        String otherForkString = toScheduleString(scheduler.runSimFromState(state, 8, duration));
+        assertEquals(directScheduleString, toScheduleString(scheduler.runSimFromState(state, 7, duration)));
+        assertEquals(directScheduleString, toScheduleString(anotherScheduler.runSimFromState(state, 7, duration)));
+        assertNotEquals(directScheduleString, otherForkString);
+    }
+
+    static String toScheduleString(EventContainer eventContainer) {
+        StringBuilder schedule = new StringBuilder();
+        for (SchedulerIntervalEvent event : eventContainer.getSchedulerEvents())
+            schedule.append(event.getTask().getId()).append('@').append(event.getOrgBeginTimestamp()).append('-').append(event.getOrgEndTimestamp()).append(' ');
+        return schedule.toString();
+    }
+}
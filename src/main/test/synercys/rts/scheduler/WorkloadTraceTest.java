@@ -0,0 +1,129 @@
+package synercys.rts.scheduler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadTraceTest {
+    private static final long[] PERIODS = {10, 20, 40};
+    private static final long[] WCETS = {2, 4, 8};
+    private static final int JOB_COUNT = 20;
+
+    private static TaskSet createTaskSet() {
+        TaskSet taskSet = new TaskSet();
+        for (int i=0; i<PERIODS.length; i++)
+            taskSet.addTask(i+1, "", Task.TASK_TYPE_APP, PERIODS[i], PERIODS[i], WCETS[i], 0);
+        taskSet.addIdleTask();
+        return taskSet;
+    }
+
+    /* Jobs are interleaved across tasks; inter-arrival times are at least the periods (with jitter). */
+    private static WorkloadTrace createTrace() {
+        Random rand = new Random(3);
+        int total = JOB_COUNT*PERIODS.length;
+        int[] taskId = new int[total];
+        long[] releaseTime = new long[total];
+        long[] executionTime = new long[total];
+        long[] lastRelease = new long[PERIODS.length];
+        for (int k=0; k<JOB_COUNT; k++) {
+            for (int i=0; i<PERIODS.length; i++) {
+                int n = k*PERIODS.length + i;
+                taskId[n] = i+1;
+                releaseTime[n] = (k == 0) ? rand.nextInt(3) : lastRelease[i] + PERIODS[i] + rand.nextInt(3);
+                executionTime[n] = 1 + rand.nextInt((int) WCETS[i]);
+                lastRelease[i] = releaseTime[n];
+            }
+        }
+        return new WorkloadTrace(taskId, releaseTime, executionTime, total);
+    }
+
+    private static void assertSameTrace(WorkloadTrace expected, WorkloadTrace actual) {
+        assertArrayEquals(expected.getTaskIds(), actual.getTaskIds());
+        for (int taskId : expected.getTaskIds()) {
+            assertArrayEquals(expected.getReleaseTimes(taskId), actual.getReleaseTimes(taskId));
+            assertArrayEquals(expected.getExecutionTimes(taskId), actual.getExecutionTimes(taskId));
+        }
+    }
+
+    @Test
+    void csvAndBinaryRoundTrip(@TempDir Path tempDir) throws IOException {
+        WorkloadTrace trace = createTrace();
+        assertEquals(JOB_COUNT*PERIODS.length, trace.getJobCount());
+        assertEquals(JOB_COUNT, trace.getJobCount(2));
+        assertEquals(0, trace.getJobCount(7));
+
+        String binaryPath = tempDir.resolve("trace." + WorkloadTrace.FILE_EXTENSION).toString();
+        trace.exportBinary(binaryPath);
+        assertSameTrace(trace, WorkloadTrace.load(binaryPath));
+
+        String csvPath = tempDir.resolve("trace.csv").toString();
+        try (PrintWriter writer = new PrintWriter(csvPath)) {
+            writer.println("taskId,releaseTime,executionTime");
+            for (int taskId : trace.getTaskIds()) {
+                writer.println("# task " + taskId);
+                for (int k=0; k<trace.getJobCount(taskId); k++)
+                    writer.println(taskId + ", " + trace.getReleaseTimes(taskId)[k] + ", " + trace.getExecutionTimes(taskId)[k]);
+            }
+        }
+        assertSameTrace(trace, WorkloadTrace.load(csvPath));
+    }
+
+    @Test
+    void invalidTraceIsRejected(@TempDir Path tempDir) throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadTrace(new int[]{1, 1}, new long[]{5, 5}, new long[]{1, 1}, 2));
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadTrace(new int[]{1}, new long[]{5}, new long[]{0}, 1));
+
+        /* Only one header line is allowed before the records. */
+        String csvPath = tempDir.resolve("corrupt.csv").toString();
+        try (PrintWriter writer = new PrintWriter(csvPath)) {
+            writer.println("taskId,releaseTime,executionTime");
+            writer.println("# comment");
+            writer.println("1,x0,2");
+            writer.println("1,0,2");
+        }
+        IOException exception = assertThrows(IOException.class, () -> WorkloadTrace.load(csvPath));
+        assertTrue(exception.getMessage().startsWith("Line 3 "));
+    }
+
+    @Test
+    void policiesReplayIdenticalWorkload() {
+        WorkloadTrace trace = createTrace();
+        long duration = trace.getLastReleaseTime() + 100;
+
+        AdvanceableSchedulerSimulator[] schedulers = {
+                new FixedPriorityScheduler(createTaskSet(), false),
+                new EdfScheduler(createTaskSet(), false),
+                new TaskShufflerScheduler(createTaskSet(), false),
+                new ReorderScheduler(createTaskSet(), false)};
+        for (AdvanceableSchedulerSimulator scheduler : schedulers) {
+            scheduler.setWorkloadTrace(trace);
+
+            /* Sum up the executed time of each job (keyed by "taskId@releaseTime"). A deadline miss raises an AssertionError. */
+            HashMap<String, Long> executedTime = new HashMap<>();
+            for (SchedulerIntervalEvent event : scheduler.runSim(duration).getSchedulerEvents()) {
+                if (event.getTask().getId() == 0)
+                    continue;
+                String jobKey = event.getTask().getId() + "@" + event.getJobInitialArrivalTime();
+                executedTime.merge(jobKey, event.getOrgEndTimestamp() - event.getOrgBeginTimestamp(), Long::sum);
+            }
+
+            for (int taskId : trace.getTaskIds()) {
+                for (int k=0; k<trace.getJobCount(taskId); k++) {
+                    String jobKey = taskId + "@" + trace.getReleaseTimes(taskId)[k];
+                    assertEquals(trace.getExecutionTimes(taskId)[k], (long) executedTime.get(jobKey), scheduler.getClass().getSimpleName() + " " + jobKey);
+                }
+            }
+            assertThrows(IllegalStateException.class, () -> scheduler.setWorkloadTrace(trace));
+        }
+    }
+}
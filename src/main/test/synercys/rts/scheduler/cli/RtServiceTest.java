@@ -0,0 +1,81 @@
+package synercys.rts.scheduler.cli;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RtServiceTest {
+
+    @Test
+    void serve() throws Exception {
+        String jobs = "{\"id\": 1, \"command\": \"rtenc\", \"args\": [\"-i\", \"experiments/tasksets/hp20.tasksets\", \"-d\", \"20\", \"-r\", \"200\", \"-p\", \"EDF\", \"-e\", \"Shannon\"]}\n"
+                + "{\"id\": 2, \"command\": \"rtenc\", \"args\": [\"-i\", \"experiments/tasksets/hp20.tasksets\", \"-d\", \"20\", \"-r\", \"200\", \"-p\", \"EDF\", \"-e\", \"Shannon\"]}\n"
+                + "{\"id\": 3, \"command\": \"rtenc\", \"args\": [\"--unknown\"]}\n"
+                + "{\"id\": 4, \"command\": \"nothing\"}\n"
+                + "not a job\n";
+
+        RtService service = new RtService();
+        service.optionThreadCount = 1;  // so that job 2 reuses the command object of job 1
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.run(new ByteArrayInputStream(jobs.getBytes(StandardCharsets.UTF_8)), out);
+
+        HashMap<Object, JSONObject> results = new HashMap<>();
+        int invalidJobCount = 0;
+        for (String line : out.toString("UTF-8").split("\n")) {
+            JSONObject result = new JSONObject(line);
+            if (result.has("id"))
+                results.put(result.get("id"), result);
+            else
+                invalidJobCount++;
+        }
+
+        assertEquals(RtService.STATUS_OK, results.get(1).getString("status"));
+        assertEquals(RtService.STATUS_OK, results.get(2).getString("status"));
+        assertEquals(results.get(1).getDouble("result"), results.get(2).getDouble("result"), 1e-9);
+        assertEquals(RtService.STATUS_ERROR, results.get(3).getString("status"));
+        assertEquals(RtService.STATUS_ERROR, results.get(4).getString("status"));
+        assertEquals(1, invalidJobCount);
+    }
+
+    @Test
+    void failedCommandsAreErrors() throws Exception {
+        String jobs = "{\"id\": 1, \"command\": \"rtenc\", \"args\": [\"-i\", \"no_such_file.tasksets\", \"-d\", \"20\", \"-r\", \"20\", \"-p\", \"EDF\", \"-e\", \"Shannon\"]}\n"
+                + "{\"id\": 2, \"command\": \"rtenc\", \"args\": [\"-i\", \"experiments/tasksets/hp20.tasksets\", \"-d\", \"20\", \"-r\", \"20\", \"-p\", \"EDF\", \"-e\", \"ShannonSketch\", \"--ci\", \"0.1\"]}\n"
+                + "{\"id\": 3, \"command\": \"rtdft\"}\n"
+                + "{\"id\": 4, \"command\": \"rtsim\", \"args\": [\"-i\", \"no_such_file.tasksets\", \"-d\", \"20\", \"-p\", \"EDF\"]}\n";
+
+        RtService service = new RtService();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.run(new ByteArrayInputStream(jobs.getBytes(StandardCharsets.UTF_8)), out);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(4, lines.length);
+        for (String line : lines) {
+            JSONObject result = new JSONObject(line);
+            assertEquals(RtService.STATUS_ERROR, result.getString("status"), line);
+            assertTrue(result.has("error"), line);
+        }
+    }
+
+    @Test
+    void manyJobsWithBoundedQueue() throws Exception {
+        int jobCount = 70000;   // more than a Phaser's party limit (65535)
+        StringBuilder jobs = new StringBuilder();
+        for (int i=0; i<jobCount; i++)
+            jobs.append("{\"id\": ").append(i).append(", \"command\": \"nothing\"}\n");
+
+        RtService service = new RtService();
+        service.optionThreadCount = 2;
+        service.maxPendingJobs = 8;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.run(new ByteArrayInputStream(jobs.toString().getBytes(StandardCharsets.UTF_8)), out);
+
+        assertEquals(jobCount, out.toString("UTF-8").split("\n").length);
+    }
+}
@@ -0,0 +1,135 @@
+package synercys.rts.scheduler.entropy;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SketchShannonScheduleEntropyCalculatorTest {
+
+    @Test
+    void fingerprintMatchesRawScheduleString() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 10, 10, 2, 1);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 10, 10, 3, 2);
+        taskSet.addIdleTask();
+        Task task1 = taskSet.getTaskById(1);
+        Task idleTask = taskSet.getIdleTask();
+
+        /* A job split into two intervals, and an idle interval vs. a gap, give the same per-tick schedule. */
+        EventContainer splitSchedule = new EventContainer();
+        splitSchedule.add(new SchedulerIntervalEvent(0, 2, task1, ""));
+        splitSchedule.add(new SchedulerIntervalEvent(2, 3, task1, ""));
+        splitSchedule.add(new SchedulerIntervalEvent(3, 5, idleTask, ""));
+        EventContainer mergedSchedule = new EventContainer();
+        mergedSchedule.add(new SchedulerIntervalEvent(0, 3, task1, ""));
+        assertEquals(splitSchedule.toRawScheduleString(0, 8), mergedSchedule.toRawScheduleString(0, 8));
+        assertEquals(ScheduleFingerprint.of(splitSchedule, 0, 8), ScheduleFingerprint.of(mergedSchedule, 0, 8));
+
+        /* Random schedules: equal fingerprints if and only if equal raw schedule strings. */
+        Random random = new Random(3);
+        Map<ScheduleFingerprint, String> rawScheduleOfFingerprint = new HashMap<>();
+        Map<String, ScheduleFingerprint> fingerprintOfRawSchedule = new HashMap<>();
+        for (int n=0; n<2000; n++) {
+            EventContainer schedule = createRandomSchedule(taskSet, random);
+            String rawSchedule = schedule.toRawScheduleString(2, 14);
+            ScheduleFingerprint fingerprint = ScheduleFingerprint.of(schedule, 2, 12);
+            assertEquals(rawSchedule, rawScheduleOfFingerprint.computeIfAbsent(fingerprint, k -> rawSchedule));
+            assertEquals(fingerprint, fingerprintOfRawSchedule.computeIfAbsent(rawSchedule, k -> fingerprint));
+        }
+        assertTrue(rawScheduleOfFingerprint.size() > 10);
+    }
+
+    @Test
+    void exactModeMatchesShannonCalculator() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 10, 10, 2, 1);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 10, 10, 3, 2);
+        taskSet.addIdleTask();
+
+        ShannonScheduleEntropyCalculator shannon = new ShannonScheduleEntropyCalculator(0, 16);
+        SketchShannonScheduleEntropyCalculator exact = new SketchShannonScheduleEntropyCalculator(0, 16);
+        SketchShannonScheduleEntropyCalculator bounded = new SketchShannonScheduleEntropyCalculator(0, 16, 1000);
+        SketchShannonScheduleEntropyCalculator firstHalf = new SketchShannonScheduleEntropyCalculator(0, 16);
+        SketchShannonScheduleEntropyCalculator secondHalf = new SketchShannonScheduleEntropyCalculator(0, 16);
+        Random random = new Random(5);
+        for (int n=0; n<500; n++) {
+            EventContainer schedule = createRandomSchedule(taskSet, random);
+            shannon.applyOneSchedule(schedule);
+            exact.applyOneSchedule(schedule);
+            bounded.applyOneSchedule(schedule);
+            ((n < 200) ? firstHalf : secondHalf).applyOneSchedule(schedule);
+        }
+
+        assertEquals(shannon.concludeEntropy(), exact.concludeEntropy(), 1e-9);
+        /* Below its capacity the bounded-memory mode is exact. */
+        assertEquals(shannon.concludeEntropy(), bounded.concludeEntropy(), 1e-9);
+
+        firstHalf.merge(secondHalf);
+        assertEquals(500, firstHalf.getScheduleCount());
+        assertEquals(shannon.concludeEntropy(), firstHalf.concludeEntropy(), 1e-9);
+    }
+
+    @Test
+    void boundedModeEstimatesEntropyOfManyDistinctSchedules() {
+        /* 20 frequent schedules take half of the mass and the rest are all distinct. */
+        int scheduleCount = 200000;
+        Random random = new Random(7);
+        ArrayList<ScheduleFingerprint> fingerprints = new ArrayList<>();
+        Map<ScheduleFingerprint, Integer> occurrences = new HashMap<>();
+        for (int n=0; n<scheduleCount; n++) {
+            ScheduleFingerprint fingerprint = (n%2 == 0) ? new ScheduleFingerprint(random.nextInt(20), 0) : new ScheduleFingerprint(random.nextLong(), random.nextLong());
+            fingerprints.add(fingerprint);
+            occurrences.merge(fingerprint, 1, Integer::sum);
+        }
+        double expectedEntropy = 0;
+        for (int occurrence : occurrences.values()) {
+            double p = occurrence/(double)scheduleCount;
+            expectedEntropy -= p*Math.log(p)/Math.log(2);
+        }
+
+        SketchShannonScheduleEntropyCalculator bounded = new SketchShannonScheduleEntropyCalculator(0, 1, 256);
+        SketchShannonScheduleEntropyCalculator firstHalf = new SketchShannonScheduleEntropyCalculator(0, 1, 256);
+        SketchShannonScheduleEntropyCalculator secondHalf = new SketchShannonScheduleEntropyCalculator(0, 1, 256);
+        for (int n=0; n<scheduleCount; n++) {
+            bounded.applyFingerprint(fingerprints.get(n));
+            ((n < scheduleCount/2) ? firstHalf : secondHalf).applyFingerprint(fingerprints.get(n));
+        }
+        assertEquals(occurrences.size(), bounded.getDistinctScheduleCount(), 0.05*occurrences.size());
+        assertEquals(expectedEntropy, bounded.concludeEntropy(), 0.02*expectedEntropy);
+
+        firstHalf.merge(secondHalf);
+        assertEquals(scheduleCount, firstHalf.getScheduleCount());
+        assertEquals(expectedEntropy, firstHalf.concludeEntropy(), 0.02*expectedEntropy);
+    }
+
+    /* Tasks 1 and 2 run once each (possibly split into two intervals) at random times, with idle intervals or gaps in between. */
+    static EventContainer createRandomSchedule(TaskSet taskSet, Random random) {
+        EventContainer schedule = new EventContainer();
+        schedule.setTaskSet(taskSet);
+        long time = random.nextInt(4);
+        for (int taskId=1; taskId<=2; taskId++) {
+            Task task = taskSet.getTaskById(taskId);
+            long end = time + 2 + random.nextInt(3);
+            if (random.nextBoolean()) {
+                schedule.add(new SchedulerIntervalEvent(time, time + 1, task, ""));
+                schedule.add(new SchedulerIntervalEvent(time + 1, end, task, ""));
+            } else {
+                schedule.add(new SchedulerIntervalEvent(time, end, task, ""));
+            }
+            long idleEnd = end + random.nextInt(3);
+            if (idleEnd > end && random.nextBoolean())
+                schedule.add(new SchedulerIntervalEvent(end, idleEnd, taskSet.getIdleTask(), ""));
+            time = idleEnd;
+        }
+        return schedule;
+    }
+}
@@ -0,0 +1,93 @@
+package synercys.rts.scheduler.entropy.tester;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.scheduler.SchedulerUtil;
+import synercys.rts.scheduler.entropy.EntropyCalculatorUtility;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchScheduleEntropyTesterTest {
+
+    private static TaskSet createTaskSet(int id, long secondTaskWcet) {
+        TaskSet taskSet = new TaskSet();
+        taskSet.setId(id);
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, secondTaskWcet, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 3, 0);
+        taskSet.addIdleTask();
+        return taskSet;
+    }
+
+    private static List<BatchScheduleEntropyTester.WorkUnit> createUnits() {
+        return Arrays.asList(
+                new BatchScheduleEntropyTester.WorkUnit(createTaskSet(1, 2), "a.tasksets", SchedulerUtil.SCHEDULER_TASKSHUFFLER, "", 40, 50, 7, EntropyCalculatorUtility.ENTROPY_SHANNON, false, 0),
+                /* The same content (another ID and file) and settings: computed once. */
+                new BatchScheduleEntropyTester.WorkUnit(createTaskSet(2, 2), "b.tasksets", SchedulerUtil.SCHEDULER_TASKSHUFFLER, "", 40, 50, 7, EntropyCalculatorUtility.ENTROPY_SHANNON, false, 0),
+                new BatchScheduleEntropyTester.WorkUnit(createTaskSet(1, 2), "a.tasksets", SchedulerUtil.SCHEDULER_TASKSHUFFLER, "", 40, 50, 8, EntropyCalculatorUtility.ENTROPY_SHANNON, false, 0),
+                new BatchScheduleEntropyTester.WorkUnit(createTaskSet(1, 3), "a.tasksets", SchedulerUtil.SCHEDULER_TASKSHUFFLER, "", 40, 50, 7, EntropyCalculatorUtility.ENTROPY_SHANNON, false, 0),
+                new BatchScheduleEntropyTester.WorkUnit(createTaskSet(1, 2), "a.tasksets", SchedulerUtil.SCHEDULER_EDF, "", 40, 50, 7, EntropyCalculatorUtility.ENTROPY_SHANNON, false, 0)
+        );
+    }
+
+    @Test
+    void run() throws Exception {
+        File cacheFolder = Files.createTempDirectory("rtenc_cache").toFile();
+        cacheFolder.deleteOnExit();
+
+        List<BatchScheduleEntropyTester.WorkUnit> units = createUnits();
+        assertEquals(units.get(0).getKey(), units.get(1).getKey());
+        for (int i=2; i<units.size(); i++)
+            assertNotEquals(units.get(0).getKey(), units.get(i).getKey());
+
+        BatchScheduleEntropyTester batchTester = new BatchScheduleEntropyTester(cacheFolder.getPath());
+        batchTester.setThreadCount(4);
+        ArrayList<BatchScheduleEntropyTester.WorkUnitResult> results = batchTester.run(units);
+        assertEquals(units.size(), results.size());
+        assertEquals(units.size() - 1, cacheFolder.listFiles().length);
+        assertSame(units.get(1), results.get(1).getUnit());
+        assertEquals(results.get(0).getEntropy(), results.get(1).getEntropy());
+        for (BatchScheduleEntropyTester.WorkUnitResult result : results)
+            assertFalse(result.isCached());
+
+        /* A re-run takes every result from the cache. */
+        ArrayList<BatchScheduleEntropyTester.WorkUnitResult> cachedResults = batchTester.run(createUnits());
+        for (int i=0; i<results.size(); i++) {
+            assertTrue(cachedResults.get(i).isCached());
+            assertEquals(results.get(i).getEntropy(), cachedResults.get(i).getEntropy());
+        }
+
+        /* A result does not depend on the thread count. */
+        File anotherCacheFolder = Files.createTempDirectory("rtenc_cache").toFile();
+        anotherCacheFolder.deleteOnExit();
+        BatchScheduleEntropyTester singleThreadTester = new BatchScheduleEntropyTester(anotherCacheFolder.getPath());
+        singleThreadTester.setThreadCount(1);
+        ArrayList<BatchScheduleEntropyTester.WorkUnitResult> singleThreadResults = singleThreadTester.run(createUnits());
+        for (int i=0; i<results.size(); i++)
+            assertEquals(results.get(i).getEntropy(), singleThreadResults.get(i).getEntropy());
+
+        for (File folder : new File[]{cacheFolder, anotherCacheFolder}) {
+            for (File cacheFile : folder.listFiles())
+                cacheFile.delete();
+        }
+    }
+
+    @Test
+    void unknownPolicyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchScheduleEntropyTester.WorkUnit(createTaskSet(1, 2), "a.tasksets",
+                "NoSuchPolicy", "", 40, 50, 7, EntropyCalculatorUtility.ENTROPY_SHANNON, false, 0));
+    }
+
+    @Test
+    void sketchWithTargetConfidenceIntervalIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchScheduleEntropyTester.WorkUnit(createTaskSet(1, 2), "a.tasksets",
+                SchedulerUtil.SCHEDULER_TASKSHUFFLER, "", 40, 50, 7, EntropyCalculatorUtility.ENTROPY_SHANNON_SKETCH, false, 0.1));
+    }
+}
@@ -0,0 +1,164 @@
+package synercys.rts.scheduler.entropy.tester;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.scheduler.SchedulerUtil;
+import synercys.rts.scheduler.entropy.EntropyCalculatorUtility;
+import synercys.rts.scheduler.entropy.EntropyConfidenceInterval;
+import synercys.rts.scheduler.entropy.ShannonScheduleEntropyCalculator;
+import synercys.rts.scheduler.entropy.UpperApproximateEntropyCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleEntropyTesterTest {
+
+    @Test
+    void incrementalEntropyMatchesBruteForce() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 10, 10, 2, 1);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 10, 10, 3, 2);
+        ArrayList<Task> appTasks = taskSet.getAppTasksAsArray();
+        int length = 10;
+
+        ShannonScheduleEntropyCalculator shannon = new ShannonScheduleEntropyCalculator(0, length);
+        UpperApproximateEntropyCalculator upperApproximate = new UpperApproximateEntropyCalculator(taskSet, 0, length);
+        upperApproximate.setJackknifeGroupCount(4);
+
+        /* Random schedules: each task runs once for its WCET at a random begin time (idle elsewhere). */
+        Random random = new Random(1);
+        ArrayList<int[]> slotTaskOfSchedules = new ArrayList<>();
+        Map<String, Integer> scheduleOccurrences = new HashMap<>();
+        for (int n=0; n<200; n++) {
+            EventContainer schedule = new EventContainer();
+            schedule.setTaskSet(taskSet);
+            int[] slotTask = new int[length];
+            int begin = random.nextInt(3);
+            for (Task task : appTasks) {
+                long end = begin + task.getWcet();
+                schedule.add(new SchedulerIntervalEvent(begin, end, task, ""));
+                for (int i=begin; i<end; i++)
+                    slotTask[i] = task.getId();
+                begin = (int)end + random.nextInt(2);
+            }
+            slotTaskOfSchedules.add(slotTask);
+            scheduleOccurrences.merge(Arrays.toString(slotTask), 1, Integer::sum);
+
+            shannon.applyOneSchedule(schedule);
+            upperApproximate.applyOneSchedule(schedule);
+        }
+
+        int scheduleCount = slotTaskOfSchedules.size();
+        double expectedShannon = 0;
+        for (int occurrence : scheduleOccurrences.values()) {
+            double p = occurrence/(double)scheduleCount;
+            expectedShannon -= p*log2(p);
+        }
+
+        double expectedUpperApproximate = 0;
+        for (int i=0; i<length; i++) {
+            Map<Integer, Integer> slotOccurrences = new HashMap<>();
+            for (int[] slotTask : slotTaskOfSchedules)
+                slotOccurrences.merge(slotTask[i], 1, Integer::sum);
+            for (int occurrence : slotOccurrences.values()) {
+                double p = occurrence/(double)scheduleCount;
+                expectedUpperApproximate -= p*log2(p);
+            }
+        }
+
+        assertEquals(expectedShannon, shannon.concludeEntropy(), 1e-9);
+        assertEquals(expectedUpperApproximate, upperApproximate.concludeEntropy(), 1e-9);
+        assertEquals(scheduleCount, upperApproximate.getScheduleCount());
+
+        EntropyConfidenceInterval confidenceInterval = upperApproximate.getConfidenceInterval(0.95);
+        assertEquals(expectedUpperApproximate, confidenceInterval.getEstimate(), 1e-9);
+        assertTrue(confidenceInterval.getLower() <= confidenceInterval.getEstimate());
+        assertTrue(confidenceInterval.getUpper() >= confidenceInterval.getEstimate());
+        assertTrue(confidenceInterval.getWidth() > 0 && confidenceInterval.getWidth() < Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void runAdaptiveStopsAtTargetWidth() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        taskSet.addIdleTask();
+
+        int maxRounds = 5000;
+        ScheduleEntropyTester entropyTester = new ScheduleEntropyTester(taskSet, SchedulerUtil.SCHEDULER_TASKSHUFFLER, EntropyCalculatorUtility.ENTROPY_UPPER_APPROXIMATE, false);
+        entropyTester.setRandomSeed(0);
+        entropyTester.setThreadCount(2);
+        EntropyConfidenceInterval confidenceInterval = entropyTester.runAdaptive(40, maxRounds, 0.5);
+
+        assertNotNull(confidenceInterval);
+        assertTrue(confidenceInterval.getWidth() <= 0.5);
+        assertTrue(confidenceInterval.getScheduleCount() < maxRounds);
+        assertTrue(confidenceInterval.getEstimate() > 0);
+
+        /* The same seed stops at the same round with the same estimate regardless of the number of threads. */
+        ScheduleEntropyTester singleThreadTester = new ScheduleEntropyTester(taskSet, SchedulerUtil.SCHEDULER_TASKSHUFFLER, EntropyCalculatorUtility.ENTROPY_UPPER_APPROXIMATE, false);
+        singleThreadTester.setRandomSeed(0);
+        singleThreadTester.setThreadCount(1);
+        EntropyConfidenceInterval singleThreadInterval = singleThreadTester.runAdaptive(40, maxRounds, 0.5);
+        assertEquals(confidenceInterval.getScheduleCount(), singleThreadInterval.getScheduleCount());
+        assertEquals(confidenceInterval.getEstimate(), singleThreadInterval.getEstimate(), 1e-9);
+
+        /* ApEn has no incremental calculator. */
+        ScheduleEntropyTester approximateTester = new ScheduleEntropyTester(taskSet, SchedulerUtil.SCHEDULER_TASKSHUFFLER, EntropyCalculatorUtility.ENTROPY_APPROXIMATE, false);
+        assertNull(approximateTester.runAdaptive(40, 10, 0.5));
+    }
+
+    @Test
+    void allDistinctSchedulesDoNotConverge() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 10, 10, 1, 0);
+        Task task = taskSet.getAppTasksAsArray().get(0);
+        int scheduleCount = 400;
+        int groupCount = ScheduleEntropyTester.JACKKNIFE_GROUP_COUNT;
+
+        /* Every schedule is distinct: the task runs in a different slot in each of them. */
+        ShannonScheduleEntropyCalculator shannon = new ShannonScheduleEntropyCalculator(0, scheduleCount);
+        shannon.setJackknifeGroupCount(groupCount);
+        for (int n=0; n<scheduleCount; n++) {
+            EventContainer schedule = new EventContainer();
+            schedule.setTaskSet(taskSet);
+            schedule.add(new SchedulerIntervalEvent(n, n + 1, task, ""));
+            shannon.applyOneSchedule(schedule);
+        }
+
+        /* The plug-in estimate is log2(N) and the interval has no width, but the bias and the coverage tell. */
+        EntropyConfidenceInterval confidenceInterval = shannon.getConfidenceInterval(0.95);
+        assertEquals(log2(scheduleCount), confidenceInterval.getEstimate(), 1e-9);
+        assertEquals(0, confidenceInterval.getWidth(), 1e-9);
+        assertEquals((groupCount - 1)*log2((groupCount - 1)/(double)groupCount), confidenceInterval.getBias(), 1e-9);
+        assertTrue(confidenceInterval.getBiasCorrectedEstimate() > confidenceInterval.getEstimate());
+        assertEquals(0, shannon.getSampleCoverage(), 1e-9);
+        assertFalse(ScheduleEntropyTester.hasConverged(confidenceInterval, shannon.getSampleCoverage(), 0.5));
+
+        /* TaskShuffler's schedules of this length are (almost) all distinct, so the adaptive mode runs to maxRounds. */
+        TaskSet shuffledTaskSet = new TaskSet();
+        shuffledTaskSet.addTask(1, "", Task.TASK_TYPE_APP, 5, 5, 1, 0);
+        shuffledTaskSet.addTask(2, "", Task.TASK_TYPE_APP, 8, 8, 3, 0);
+        shuffledTaskSet.addTask(3, "", Task.TASK_TYPE_APP, 20, 20, 4, 0);
+        shuffledTaskSet.addIdleTask();
+        int maxRounds = 3*ScheduleEntropyTester.ROUNDS_PER_BATCH;
+        ScheduleEntropyTester entropyTester = new ScheduleEntropyTester(shuffledTaskSet, SchedulerUtil.SCHEDULER_TASKSHUFFLER, EntropyCalculatorUtility.ENTROPY_SHANNON, false);
+        entropyTester.setRandomSeed(0);
+        entropyTester.setThreadCount(2);
+        EntropyConfidenceInterval adaptiveInterval = entropyTester.runAdaptive(200, maxRounds, 0.5);
+        assertEquals(maxRounds, adaptiveInterval.getScheduleCount());
+    }
+
+    static double log2(double x) {
+        return Math.log(x)/Math.log(2);
+    }
+}
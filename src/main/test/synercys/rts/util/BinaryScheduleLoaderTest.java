@@ -0,0 +1,85 @@
+package synercys.rts.util;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+import synercys.rts.scheduler.EdfScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryScheduleLoaderTest {
+
+    TaskSet getExampleTaskSet() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 4, 4, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 6, 9, 2, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 8, 6, 2, 0);
+        taskSet.addTask(4, "", Task.TASK_TYPE_APP, 16, 12, 2, 0);
+        taskSet.addIdleTask();
+        return taskSet;
+    }
+
+    void assertSameEvents(ArrayList<SchedulerIntervalEvent> expected, ArrayList<SchedulerIntervalEvent> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i=0; i<expected.size(); i++) {
+            assertEquals(expected.get(i).getOrgBeginTimestamp(), actual.get(i).getOrgBeginTimestamp());
+            assertEquals(expected.get(i).getOrgEndTimestamp(), actual.get(i).getOrgEndTimestamp());
+            assertEquals(expected.get(i).getTask().getId(), actual.get(i).getTask().getId());
+            assertEquals(expected.get(i).getBeginTimeScheduleState(), actual.get(i).getBeginTimeScheduleState());
+            assertEquals(expected.get(i).getEndTimeScheduleState(), actual.get(i).getEndTimeScheduleState());
+        }
+    }
+
+    @Test
+    void windowQueries() throws IOException {
+        File binFile = File.createTempFile("schedule", ".rtsbin");
+        binFile.deleteOnExit();
+
+        EventContainer schedule = new EdfScheduler(getExampleTaskSet(), false).runSim(1000);
+        Task task = schedule.getTaskSet().getTaskById(1);
+        for (long timestamp : new long[]{333, 400, 517})
+            schedule.add(new TaskInstantEvent(timestamp, task, 0, ""));
+        new BinaryScheduleExporter(binFile.getPath(), 16).exportRawSchedule(schedule);
+
+        BinaryScheduleLoader loader = new BinaryScheduleLoader(binFile.getPath());
+        assertTrue(loader.isLoaded());
+        assertEquals(schedule.getSchedulerEvents().size(), loader.getEventCount());
+        assertTrue(loader.getBlockCount() > 1);
+        assertEquals(schedule.getSchedulingPolicy(), loader.getSchedulingPolicy());
+
+        assertSameEvents(schedule.getSchedulerEvents(), loader.getEventContainer().getSchedulerEvents());
+        assertSameEvents(schedule.findSchedulerEventsByTimeWindow(333, 517), loader.findSchedulerEventsByTimeWindow(333, 517));
+
+        /* Instant events on the window boundaries are dropped, as the EventContainer trim functions do. */
+        ArrayList<TaskInstantEvent> windowInstantEvents = loader.getEventContainer(333, 517).getTaskInstantEvents();
+        assertEquals(1, windowInstantEvents.size());
+        assertEquals(400, windowInstantEvents.get(0).getOrgTimestamp());
+        loader.close();
+    }
+
+    @Test
+    void convertToAndFromRtSchedule() throws IOException {
+        File jsonFile = File.createTempFile("schedule", ".rtschedule");
+        File binFile = File.createTempFile("schedule", ".rtsbin");
+        File convertedJsonFile = File.createTempFile("schedule_converted", ".rtschedule");
+        jsonFile.deleteOnExit();
+        binFile.deleteOnExit();
+        convertedJsonFile.deleteOnExit();
+
+        EventContainer schedule = new EdfScheduler(getExampleTaskSet(), false).runSim(200);
+        new JsonLogStreamWriter(jsonFile.getPath()).exportRawSchedule(schedule);
+
+        assertTrue(BinaryScheduleExporter.convertFromRtSchedule(jsonFile.getPath(), binFile.getPath()));
+        assertTrue(BinaryScheduleLoader.convertToRtSchedule(binFile.getPath(), convertedJsonFile.getPath()));
+
+        EventContainer converted = (EventContainer) new JsonLogLoader(convertedJsonFile.getPath()).getResult();
+        assertSameEvents(schedule.getSchedulerEvents(), converted.getSchedulerEvents());
+    }
+}
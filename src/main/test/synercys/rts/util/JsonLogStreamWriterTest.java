@@ -0,0 +1,111 @@
+package synercys.rts.util;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.distribution.*;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.scheduler.EdfScheduler;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonLogStreamWriterTest {
+
+    TaskSet getExampleTaskSet() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 4, 4, 1, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 6, 9, 2, 0);
+        taskSet.addTask(3, "", Task.TASK_TYPE_APP, 8, 6, 2, 0);
+        taskSet.addTask(4, "", Task.TASK_TYPE_APP, 16, 12, 2, 0);
+        taskSet.addIdleTask();
+        return taskSet;
+    }
+
+    @Test
+    void streamRawScheduleAsEventSink() {
+        long offset = 7;
+        long duration = 100;
+
+        /* The reference schedule is kept in memory and exported in one shot. */
+        EventContainer schedule = new EdfScheduler(getExampleTaskSet(), false).runSimWithOffset(offset, duration);
+        StringWriter expectedOutput = new StringWriter();
+        new JsonLogStreamWriter(expectedOutput, false).exportRawSchedule(schedule);
+
+        /* The same schedule is streamed to the writer while being simulated. */
+        TaskSet taskSet = getExampleTaskSet();
+        EdfScheduler scheduler = new EdfScheduler(taskSet, false);
+        StringWriter streamedOutput = new StringWriter();
+        JsonLogStreamWriter streamWriter = new JsonLogStreamWriter(streamedOutput, false);
+        streamWriter.beginRawSchedule(taskSet, scheduler.getSimEventContainer().getSchedulingPolicy());
+        scheduler.runSimWithOffset(offset, duration, streamWriter);
+        streamWriter.endRawSchedule();
+
+        assertEquals(expectedOutput.toString(), streamedOutput.toString());
+        assertEquals(0, scheduler.getSimEventContainer().getSchedulerEvents().size());
+
+        /* The streamed output is valid JSON with the same content as the one from JsonLogExporter. */
+        JSONObject jsonStreamed = new JSONObject(streamedOutput.toString());
+        JSONObject jsonData = jsonStreamed.getJSONObject(JsonLogStr.ROOT_DATA);
+        assertEquals(JsonLogStr.DATA_TYPE_RT_SIM_RAW_SCHEDULE, jsonStreamed.getString(JsonLogStr.ROOT_DATA_TYPE));
+        assertEquals(schedule.getSchedulerEvents().size(), jsonData.getJSONArray(JsonLogStr.DATA_RT_SIM_SCHEDULE_INTERVAL_EVENTS).length());
+        assertEquals(offset, jsonData.getJSONArray(JsonLogStr.DATA_RT_SIM_SCHEDULE_INTERVAL_EVENTS).getJSONObject(0).getLong(JsonLogStr.SCHEDULE_INTERVAL_EVENT_BEGIN_TIME));
+    }
+
+    @Test
+    void prettyPrint() {
+        StringWriter compactOutput = new StringWriter();
+        StringWriter prettyOutput = new StringWriter();
+        EventContainer schedule = new EdfScheduler(getExampleTaskSet(), false).runSim(50);
+        new JsonLogStreamWriter(compactOutput, false).exportRawSchedule(schedule);
+        new JsonLogStreamWriter(prettyOutput, true).exportRawSchedule(schedule);
+
+        assertFalse(compactOutput.toString().contains("\n"));
+        assertTrue(prettyOutput.toString().contains("\n"));
+        assertTrue(new JSONObject(compactOutput.toString()).similar(new JSONObject(prettyOutput.toString())));
+    }
+
+    @Test
+    void timeDistributionModelsRoundTrip() {
+        TaskSet taskSet = getExampleTaskSet();
+        TimeDistribution[] models = {
+                new FixedTimeDistribution(3),
+                new UniformTimeDistribution(2, 5),
+                new TruncatedGaussianTimeDistribution(1.6, 0.4, 1, 2),
+                new PoissonTimeDistribution(7.2, 10, 60),
+                new HistogramTimeDistribution(new long[]{1, 2}, new double[]{3, 1}),
+                new TraceReplayTimeDistribution(new long[]{16, 20, 18}, false)
+        };
+        for (int i=0; i<models.length; i++) {
+            Task task = taskSet.getTaskById(i%4 + 1);
+            if (i < 4)
+                task.setExecutionTimeDistribution(models[i]);
+            else
+                task.setInterArrivalTimeDistribution(models[i]);
+        }
+
+        StringWriter output = new StringWriter();
+        JsonLogStreamWriter streamWriter = new JsonLogStreamWriter(output, false);
+        streamWriter.beginTaskSets(JsonLogStr.DATA_TYPE_TASKSETS);
+        streamWriter.writeTaskSet(taskSet);
+        streamWriter.endTaskSets();
+
+        JSONObject jsonTaskSet = new JSONObject(output.toString()).getJSONObject(JsonLogStr.ROOT_DATA).getJSONArray(JsonLogStr.DATA_TASKSETS).getJSONObject(0);
+        TaskSet loadedTaskSet = JsonLogLoader.jsonToTaskSet(jsonTaskSet);
+        for (Task task : taskSet.getAppTasksAsArray()) {
+            Task loadedTask = loadedTaskSet.getTaskById(task.getId());
+            for (TimeDistribution[] pair : new TimeDistribution[][]{
+                    {task.getExecutionTimeDistribution(), loadedTask.getExecutionTimeDistribution()},
+                    {task.getInterArrivalTimeDistribution(), loadedTask.getInterArrivalTimeDistribution()}}) {
+                if (pair[0] == null) {
+                    assertNull(pair[1]);
+                } else {
+                    assertSame(pair[0].getClass(), pair[1].getClass());
+                    assertTrue(JsonLogExporter.getJsonTimeDistribution(pair[0]).similar(JsonLogExporter.getJsonTimeDistribution(pair[1])));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package synercys.rts.util;
+
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.Histogram;
+import synercys.rts.framework.Task;
+import synercys.rts.framework.TaskSet;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.scheduler.EdfScheduler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingExcelLogHandlerTest {
+
+    TaskSet getExampleTaskSet() {
+        TaskSet taskSet = new TaskSet();
+        taskSet.addTask(1, "", Task.TASK_TYPE_APP, 40, 40, 10, 0);
+        taskSet.addTask(2, "", Task.TASK_TYPE_APP, 60, 60, 20, 0);
+        taskSet.addIdleTask();
+        return taskSet;
+    }
+
+    @Test
+    void downsampledAndMergedRows() throws IOException {
+        File xlsxFile = File.createTempFile("schedule", ".xlsx");
+        xlsxFile.deleteOnExit();
+
+        EventContainer schedule = new EdfScheduler(getExampleTaskSet(), false).runSim(100000);
+        StreamingExcelLogHandler excelLogHandler = new StreamingExcelLogHandler(10);
+        excelLogHandler.setMaxColumns(1000);
+        for (int round=0; round<30; round++) {
+            excelLogHandler.genRowSchedulerIntervalEvents(schedule, false);
+        }
+        assertTrue(excelLogHandler.saveAndClose(xlsxFile.getPath()));
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new FileInputStream(xlsxFile))) {
+            XSSFSheet sheet = workbook.getSheet("log");
+            assertEquals(30, sheet.getPhysicalNumberOfRows());
+            assertTrue(sheet.getRow(29).getLastCellNum() <= 1001);
+            assertTrue(sheet.getNumMergedRegions() > 0);
+            /* Runs are merged, so a row has far fewer cells than columns. */
+            assertTrue(sheet.getRow(0).getPhysicalNumberOfCells() < 1000);
+        }
+    }
+
+    @Test
+    void mergedRegionsAreBoundedAcrossRounds() throws IOException {
+        File xlsxFile = File.createTempFile("schedule", ".xlsx");
+        xlsxFile.deleteOnExit();
+
+        EventContainer schedule = new EdfScheduler(getExampleTaskSet(), false).runSim(100000);
+        Histogram histogram = new Histogram();
+        for (long i=0; i<1000; i+=3)
+            histogram.touch(i);
+
+        StreamingExcelLogHandler excelLogHandler = new StreamingExcelLogHandler(10);
+        excelLogHandler.setMaxColumns(1000);
+        excelLogHandler.setMaxMergedRegions(500);
+        excelLogHandler.setMaxConditionalFormattings(5);
+        for (int round=0; round<30; round++) {
+            excelLogHandler.genRowSchedulerIntervalEvents(schedule, false);
+            excelLogHandler.genHistogramRow(histogram);
+            assertTrue(excelLogHandler.sheet.getNumMergedRegions() <= 500);
+        }
+        assertTrue(excelLogHandler.saveAndClose(xlsxFile.getPath()));
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new FileInputStream(xlsxFile))) {
+            XSSFSheet sheet = workbook.getSheet("log");
+            assertEquals(500, sheet.getNumMergedRegions());
+            assertEquals(5, sheet.getSheetConditionalFormatting().getNumConditionalFormattings());
+            /* Runs past the limit are written as styled cells instead. */
+            assertTrue(sheet.getRow(58).getPhysicalNumberOfCells() > sheet.getRow(0).getPhysicalNumberOfCells());
+            assertEquals(sheet.getRow(0).getCell(1).getCellStyle().getFillForegroundColor(),
+                    sheet.getRow(58).getCell(1).getCellStyle().getFillForegroundColor());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package synercys.rts.util;
+
+import org.junit.jupiter.api.Test;
+import synercys.rts.framework.event.EventContainer;
+import synercys.rts.framework.event.SchedulerIntervalEvent;
+import synercys.rts.framework.event.TaskInstantEvent;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class V11ParallelLogParserTest {
+
+    String getExampleLog() {
+        Random rand = new Random(0);
+        StringBuilder sb = new StringBuilder();
+        sb.append("@LogFormat\n10\n# comment\n");
+        sb.append("@TaskList\n");
+        sb.append("0, 3, \"IDLE\", 0, 0, 0\n");
+        sb.append("1, 2, \"T1\", 100, 10, 3\n");
+        sb.append("2, 2, \"T2\", 200, 20, 2\n");
+        sb.append("\n@SchedulerLog\n");
+        long timestamp = 62039364;
+        for (int i=0; i<3000; i++) {
+            timestamp += rand.nextInt(50) + 1;
+            sb.append(String.format("%d, 0, %d, \"%s\"\r\n", timestamp, rand.nextInt(3), i%2==0 ? "IN" : "OUT"));
+        }
+        sb.append("@AppLog\n");
+        for (int i=0; i<1000; i++) {
+            timestamp += rand.nextInt(50) + 1;
+            sb.append(String.format("  %d, %d, %d, \"app\"\n", timestamp, rand.nextInt(3), i));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void sameResultAsV11LogParser() throws IOException {
+        String log = getExampleLog();
+        File logFile = File.createTempFile("v11log", ".txt");
+        logFile.deleteOnExit();
+        Files.write(logFile.toPath(), log.getBytes(StandardCharsets.UTF_8));
+
+        V11LogParser v11LogParser = new V11LogParser();
+        assertTrue(v11LogParser.parseLog(new BufferedReader(new StringReader(log))));
+        EventContainer expected = v11LogParser.getEventContainer();
+
+        /* Small chunks so that blocks and lines are split across many chunks. */
+        V11ParallelLogParser parallelLogParser = new V11ParallelLogParser();
+        parallelLogParser.setMinChunkSize(512);
+        parallelLogParser.setThreadCount(4);
+        assertTrue(parallelLogParser.parseLog(logFile.getPath()));
+        EventContainer actual = parallelLogParser.getEventContainer();
+
+        assertEquals(expected.getTaskSet().getTasksAsArray().size(), actual.getTaskSet().getTasksAsArray().size());
+        assertEquals(expected.getSchedulerEvents().size(), actual.getSchedulerEvents().size());
+        for (int i=0; i<expected.getSchedulerEvents().size(); i++) {
+            SchedulerIntervalEvent expectedEvent = expected.getSchedulerEvents().get(i);
+            SchedulerIntervalEvent actualEvent = actual.getSchedulerEvents().get(i);
+            assertEquals(expectedEvent.getOrgBeginTimestamp(), actualEvent.getOrgBeginTimestamp());
+            assertEquals(expectedEvent.getOrgEndTimestamp(), actualEvent.getOrgEndTimestamp());
+            assertEquals(expectedEvent.getTask().getId(), actualEvent.getTask().getId());
+            assertEquals(expectedEvent.getNote(), actualEvent.getNote());
+        }
+        assertEquals(expected.getTaskInstantEvents().size(), actual.getTaskInstantEvents().size());
+        for (int i=0; i<expected.getTaskInstantEvents().size(); i++) {
+            TaskInstantEvent expectedEvent = expected.getTaskInstantEvents().get(i);
+            TaskInstantEvent actualEvent = actual.getTaskInstantEvents().get(i);
+            assertEquals(expectedEvent.getOrgTimestamp(), actualEvent.getOrgTimestamp());
+            assertEquals(expectedEvent.getTaskId(), actualEvent.getTaskId());
+            assertEquals(expectedEvent.getRecordData(), actualEvent.getRecordData());
+            assertEquals(expectedEvent.getNote(), actualEvent.getNote());
+        }
+    }
+
+    @Test
+    void incorrectFormat() throws IOException {
+        File logFile = File.createTempFile("v11log", ".txt");
+        logFile.deleteOnExit();
+        Files.write(logFile.toPath(), "@SchedulerLog\n100, 0, 1, \"IN\"\n100, 0\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(new V11ParallelLogParser().parseLog(logFile.getPath()));
+    }
+
+    @Test
+    void errorLineNumbersAreOneBased() throws IOException {
+        String log = getExampleLog();
+        String invalidLog = log + "not an event\n";
+        int invalidLineNumber = log.split("\n", -1).length;
+        File logFile = File.createTempFile("v11log", ".txt");
+        logFile.deleteOnExit();
+        Files.write(logFile.toPath(), invalidLog.getBytes(StandardCharsets.UTF_8));
+
+        String expectedMessage = "Incorrect log file format at line " + invalidLineNumber + ".";
+        PrintStream originalErr = System.err;
+        try {
+            for (int parser=0; parser<2; parser++) {
+                ByteArrayOutputStream errOutput = new ByteArrayOutputStream();
+                System.setErr(new PrintStream(errOutput, true));
+                V11ParallelLogParser parallelLogParser = new V11ParallelLogParser();
+                parallelLogParser.setMinChunkSize(512);
+                if (parser == 0)
+                    assertFalse(parallelLogParser.parseLog(logFile.getPath()));
+                else
+                    assertFalse(parallelLogParser.parseLog(new BufferedReader(new StringReader(invalidLog))));   // sequential fallback
+                assertEquals(expectedMessage, errOutput.toString().trim());
+            }
+        } finally {
+            System.setErr(originalErr);
+        }
+    }
+}